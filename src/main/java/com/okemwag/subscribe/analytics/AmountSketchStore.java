@@ -0,0 +1,383 @@
+package com.okemwag.subscribe.analytics;
+
+import com.okemwag.subscribe.entity.AmountSketch;
+import com.okemwag.subscribe.entity.AmountSketchGeneration;
+import com.okemwag.subscribe.enums.PaymentMethod;
+import com.okemwag.subscribe.enums.PaymentStatus;
+import com.okemwag.subscribe.enums.SketchMetric;
+import com.okemwag.subscribe.event.InvoiceEvent;
+import com.okemwag.subscribe.event.PaymentEvent;
+import com.okemwag.subscribe.exception.SubscribeException;
+import com.okemwag.subscribe.repository.AmountSketchGenerationRepository;
+import com.okemwag.subscribe.repository.AmountSketchRepository;
+import com.okemwag.subscribe.repository.InvoiceRepository;
+import com.okemwag.subscribe.repository.PaymentRepository;
+import jakarta.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Per-tenant quantile sketches of payment amounts (per method) and invoice totals, one per currency
+ * and month. Committed events are added to in-memory deltas that a scheduled flush merges into the
+ * stored sketches, and range reads merge the stored months with the pending deltas, so percentiles
+ * never scan payments or invoices.
+ *
+ * <p>Deltas are kept per second they were recorded in. A rebuild locks the tenant's {@link
+ * AmountSketchGeneration}, waits for the next second and recomputes the sketches from every row
+ * committed by then, recording that second as the rebuild time. Flushes on every node read the
+ * generation under a shared lock before merging and drop the deltas recorded before the rebuild,
+ * which it already counted; reads skip them the same way.
+ */
+@Component
+@Slf4j
+public class AmountSketchStore {
+
+  private static final int MAX_FLUSH_ATTEMPTS = 3;
+
+  private final AmountSketchRepository amountSketchRepository;
+  private final AmountSketchGenerationRepository amountSketchGenerationRepository;
+  private final PaymentRepository paymentRepository;
+  private final InvoiceRepository invoiceRepository;
+  private final TransactionTemplate transactionTemplate;
+
+  private final Map<Pending, QuantileSketch> pending = new ConcurrentHashMap<>();
+
+  /** One stored sketch */
+  private record Key(
+      Long businessId, SketchMetric metric, String dimension, String currency, LocalDate period) {}
+
+  /** Values of one stored sketch recorded by this node within one second */
+  private record Pending(Key key, LocalDateTime recordedAt) {}
+
+  public AmountSketchStore(
+      AmountSketchRepository amountSketchRepository,
+      AmountSketchGenerationRepository amountSketchGenerationRepository,
+      PaymentRepository paymentRepository,
+      InvoiceRepository invoiceRepository,
+      PlatformTransactionManager transactionManager) {
+    this.amountSketchRepository = amountSketchRepository;
+    this.amountSketchGenerationRepository = amountSketchGenerationRepository;
+    this.paymentRepository = paymentRepository;
+    this.invoiceRepository = invoiceRepository;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onPaymentEvent(PaymentEvent event) {
+    // Refunds leave the sketch as is, a sketch cannot take a value back out
+    if (event.type() != PaymentEvent.Type.REFUNDED && event.status() == PaymentStatus.COMPLETED) {
+      LocalDateTime processedAt =
+          event.processedAt() != null ? event.processedAt() : event.occurredAt();
+      record(
+          new Key(
+              event.businessId(),
+              SketchMetric.PAYMENT_AMOUNT,
+              event.method().name(),
+              event.currency(),
+              period(processedAt)),
+          event.amount());
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onInvoiceEvent(InvoiceEvent event) {
+    if (event.type() == InvoiceEvent.Type.CREATED) {
+      record(
+          new Key(
+              event.businessId(),
+              SketchMetric.INVOICE_TOTAL,
+              AmountSketch.ALL,
+              event.currency(),
+              period(event.occurredAt())),
+          event.totalAmount());
+    }
+  }
+
+  /**
+   * Payment amounts in {@code currency} of the months from {@code from} to {@code to}, for one
+   * method or all
+   */
+  public QuantileSketch paymentAmounts(
+      Long businessId, PaymentMethod method, String currency, YearMonth from, YearMonth to) {
+    return read(
+        businessId,
+        SketchMetric.PAYMENT_AMOUNT,
+        method == null ? null : method.name(),
+        currency,
+        from,
+        to);
+  }
+
+  /** Invoice totals in {@code currency} of the months from {@code from} to {@code to} */
+  public QuantileSketch invoiceTotals(
+      Long businessId, String currency, YearMonth from, YearMonth to) {
+    return read(businessId, SketchMetric.INVOICE_TOTAL, AmountSketch.ALL, currency, from, to);
+  }
+
+  private QuantileSketch read(
+      Long businessId,
+      SketchMetric metric,
+      String dimension,
+      String currency,
+      YearMonth from,
+      YearMonth to) {
+    LocalDate fromPeriod = from.atDay(1);
+    LocalDate toPeriod = to.atDay(1);
+
+    QuantileSketch result = new QuantileSketch();
+    for (AmountSketch stored :
+        amountSketchRepository.findForRange(
+            businessId, metric, dimension, currency, fromPeriod, toPeriod)) {
+      result.merge(QuantileSketch.fromBytes(stored.getSketch()));
+    }
+
+    // Values not flushed yet, unless a rebuild already counted them
+    LocalDateTime rebuiltAt =
+        amountSketchGenerationRepository
+            .findById(businessId)
+            .map(AmountSketchGeneration::getRebuiltAt)
+            .orElse(null);
+    for (Pending entry : pending.keySet()) {
+      Key key = entry.key();
+      if (key.businessId().equals(businessId)
+          && key.metric() == metric
+          && (dimension == null || key.dimension().equals(dimension))
+          && key.currency().equals(currency)
+          && !key.period().isBefore(fromPeriod)
+          && !key.period().isAfter(toPeriod)
+          && !countedBy(rebuiltAt, entry)) {
+        pending.computeIfPresent(
+            entry,
+            (k, delta) -> {
+              result.merge(delta);
+              return delta;
+            });
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Merge the pending deltas into the stored sketches, one transaction per tenant. Synchronized so
+   * the shutdown flush does not run alongside a scheduled one.
+   */
+  @Scheduled(fixedDelayString = "${analytics.sketch.flush-interval-ms:10000}")
+  @PreDestroy
+  public synchronized void flush() {
+    Map<Long, Map<Pending, QuantileSketch>> byTenant = new HashMap<>();
+    for (Pending entry : pending.keySet()) {
+      QuantileSketch delta = pending.remove(entry);
+      if (delta != null) {
+        byTenant.computeIfAbsent(entry.key().businessId(), k -> new HashMap<>()).put(entry, delta);
+      }
+    }
+
+    byTenant.forEach(
+        (businessId, deltas) -> {
+          try {
+            persist(businessId, deltas);
+          } catch (RuntimeException e) {
+            // Keep the values for the next flush
+            deltas.forEach(this::restore);
+            log.warn(
+                "Flushing amount sketches of business ID {} failed: {}",
+                businessId,
+                e.getMessage());
+          }
+        });
+  }
+
+  /**
+   * Recompute every sketch of the tenant from its completed payments and invoices, for data
+   * recorded before the sketches existed. Refunded payments are left out.
+   */
+  public void rebuild(Long businessId) {
+    log.info("Rebuilding amount sketches for business ID: {}", businessId);
+
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          amountSketchGenerationRepository.insertIfAbsent(businessId);
+          AmountSketchGeneration generation =
+              amountSketchGenerationRepository.findForRebuild(businessId).orElseThrow();
+          LocalDateTime rebuiltAt = awaitNextSecond();
+
+          Map<Key, QuantileSketch> sketches = new HashMap<>();
+          for (Object[] row : paymentRepository.getCompletedPaymentAmountsByBusiness(businessId)) {
+            Key key =
+                new Key(
+                    businessId,
+                    SketchMetric.PAYMENT_AMOUNT,
+                    ((PaymentMethod) row[0]).name(),
+                    (String) row[3],
+                    period((LocalDateTime) row[1]));
+            sketches
+                .computeIfAbsent(key, k -> new QuantileSketch())
+                .add(((BigDecimal) row[2]).doubleValue());
+          }
+          for (Object[] row : invoiceRepository.getInvoiceTotalsByBusiness(businessId)) {
+            Key key =
+                new Key(
+                    businessId,
+                    SketchMetric.INVOICE_TOTAL,
+                    AmountSketch.ALL,
+                    (String) row[2],
+                    period((LocalDateTime) row[0]));
+            sketches
+                .computeIfAbsent(key, k -> new QuantileSketch())
+                .add(((BigDecimal) row[1]).doubleValue());
+          }
+
+          amountSketchRepository.deleteByBusinessId(businessId);
+          amountSketchRepository.flush();
+          sketches.forEach((key, sketch) -> amountSketchRepository.save(toEntity(key, sketch)));
+
+          generation.setGeneration(generation.getGeneration() + 1);
+          generation.setRebuiltAt(rebuiltAt);
+          amountSketchGenerationRepository.save(generation);
+          log.info(
+              "Rebuilt {} amount sketches for business ID: {}, generation {}",
+              sketches.size(),
+              businessId,
+              generation.getGeneration());
+        });
+  }
+
+  private void record(Key key, BigDecimal amount) {
+    if (amount == null || key.currency() == null) {
+      return;
+    }
+    double value = amount.doubleValue();
+    pending.compute(
+        new Pending(key, LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS)),
+        (k, delta) -> {
+          QuantileSketch sketch = delta == null ? new QuantileSketch() : delta;
+          sketch.add(value);
+          return sketch;
+        });
+  }
+
+  private void restore(Pending entry, QuantileSketch delta) {
+    pending.merge(
+        entry,
+        delta,
+        (current, restored) -> {
+          current.merge(restored);
+          return current;
+        });
+  }
+
+  private void persist(Long businessId, Map<Pending, QuantileSketch> deltas) {
+    for (int attempt = 1; ; attempt++) {
+      try {
+        transactionTemplate.executeWithoutResult(status -> mergeInto(businessId, deltas));
+        return;
+      } catch (ObjectOptimisticLockingFailureException | DataIntegrityViolationException e) {
+        // Another node wrote the same month concurrently; read its version and merge again
+        if (attempt == MAX_FLUSH_ATTEMPTS) {
+          throw e;
+        }
+      }
+    }
+  }
+
+  private void mergeInto(Long businessId, Map<Pending, QuantileSketch> deltas) {
+    // Shared lock: waits for a running rebuild, which then waits for this merge
+    amountSketchGenerationRepository.insertIfAbsent(businessId);
+    LocalDateTime rebuiltAt =
+        amountSketchGenerationRepository
+            .findForMerge(businessId)
+            .map(AmountSketchGeneration::getRebuiltAt)
+            .orElse(null);
+
+    Map<Key, QuantileSketch> merged = new HashMap<>();
+    List<Pending> dropped = new ArrayList<>();
+    deltas.forEach(
+        (entry, delta) -> {
+          if (countedBy(rebuiltAt, entry)) {
+            dropped.add(entry);
+            return;
+          }
+          // Into a fresh sketch, so a retried transaction starts from the untouched deltas
+          merged.computeIfAbsent(entry.key(), k -> new QuantileSketch()).merge(delta);
+        });
+    if (!dropped.isEmpty()) {
+      log.debug(
+          "Dropped {} amount sketch deltas of business ID {} counted by its rebuild",
+          dropped.size(),
+          businessId);
+    }
+
+    merged.forEach(this::mergeInto);
+  }
+
+  private void mergeInto(Key key, QuantileSketch delta) {
+    AmountSketch stored =
+        amountSketchRepository
+            .findByBusinessIdAndMetricAndDimensionAndCurrencyAndPeriod(
+                key.businessId(), key.metric(), key.dimension(), key.currency(), key.period())
+            .orElse(null);
+    if (stored == null) {
+      amountSketchRepository.save(toEntity(key, delta));
+      return;
+    }
+
+    QuantileSketch sketch = QuantileSketch.fromBytes(stored.getSketch());
+    sketch.merge(delta);
+    stored.setSketch(sketch.toBytes());
+    stored.setValueCount(sketch.count());
+    amountSketchRepository.save(stored);
+  }
+
+  private AmountSketch toEntity(Key key, QuantileSketch sketch) {
+    AmountSketch entity = new AmountSketch();
+    entity.setBusinessId(key.businessId());
+    entity.setMetric(key.metric());
+    entity.setDimension(key.dimension());
+    entity.setCurrency(key.currency());
+    entity.setPeriod(key.period());
+    entity.setSketch(sketch.toBytes());
+    entity.setValueCount(sketch.count());
+    return entity;
+  }
+
+  /** Whether the rebuild at {@code rebuiltAt} already counted the values of the entry */
+  private static boolean countedBy(LocalDateTime rebuiltAt, Pending entry) {
+    return rebuiltAt != null && entry.recordedAt().isBefore(rebuiltAt);
+  }
+
+  /**
+   * Wait for the next whole second and return it. Deltas recorded in earlier seconds were committed
+   * before any query that runs after this returns.
+   */
+  private static LocalDateTime awaitNextSecond() {
+    LocalDateTime next = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+    try {
+      Thread.sleep(Math.max(0, Duration.between(LocalDateTime.now(), next).toMillis() + 1));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SubscribeException("Interrupted while rebuilding amount sketches", e);
+    }
+    return next;
+  }
+
+  private static LocalDate period(LocalDateTime time) {
+    return YearMonth.from(time).atDay(1);
+  }
+}
@@ -0,0 +1,151 @@
+package com.okemwag.subscribe.analytics;
+
+import com.okemwag.subscribe.enums.AnalyticsSection;
+import com.okemwag.subscribe.enums.PaymentStatus;
+import com.okemwag.subscribe.enums.SubscriptionStatus;
+import com.okemwag.subscribe.event.CustomerEvent;
+import com.okemwag.subscribe.event.InvoiceEvent;
+import com.okemwag.subscribe.event.PaymentEvent;
+import com.okemwag.subscribe.event.SubscriptionEvent;
+import com.okemwag.subscribe.service.interfaces.AnalyticsService;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Turns committed domain events into analytics refreshes. Each event marks only the dashboard
+ * sections it can affect as dirty for its tenant; dirty sections are accumulated and flushed on a
+ * short interval, so a burst of writes to one tenant costs a single refresh.
+ *
+ * <p>Refreshes run on the analytics refresh executor, not the scheduler thread, so a slow tenant
+ * does not hold up other scheduled jobs. A tenant is refreshed by one task at a time; sections
+ * dirtied meanwhile wait for the next flush.
+ */
+@Component
+@Slf4j
+public class AnalyticsInvalidationListener {
+
+  private final AnalyticsService analyticsService;
+  private final ThreadPoolTaskExecutor refreshExecutor;
+
+  private final Map<Long, Set<AnalyticsSection>> dirtySections = new ConcurrentHashMap<>();
+  private final Set<Long> refreshing = ConcurrentHashMap.newKeySet();
+
+  public AnalyticsInvalidationListener(
+      AnalyticsService analyticsService,
+      @Qualifier("analyticsRefreshExecutor") ThreadPoolTaskExecutor refreshExecutor) {
+    this.analyticsService = analyticsService;
+    this.refreshExecutor = refreshExecutor;
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onPaymentEvent(PaymentEvent event) {
+    // Only settled money moves revenue, lifetime value is derived from it
+    if (event.status() == PaymentStatus.COMPLETED || event.status() == PaymentStatus.REFUNDED) {
+      markDirty(event.businessId(), EnumSet.of(AnalyticsSection.REVENUE, AnalyticsSection.CHURN));
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onInvoiceEvent(InvoiceEvent event) {
+    // Outstanding amounts are the only invoice derived metric
+    markDirty(event.businessId(), EnumSet.of(AnalyticsSection.REVENUE));
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onSubscriptionEvent(SubscriptionEvent event) {
+    if (event.type() == SubscriptionEvent.Type.CREATED) {
+      markDirty(
+          event.businessId(),
+          EnumSet.of(
+              AnalyticsSection.SUBSCRIPTIONS,
+              AnalyticsSection.REVENUE,
+              AnalyticsSection.CUSTOMERS));
+      return;
+    }
+
+    // Renewals that only move the billing date do not change any metric
+    if (!event.statusChanged()) {
+      return;
+    }
+
+    Set<AnalyticsSection> sections =
+        EnumSet.of(AnalyticsSection.SUBSCRIPTIONS, AnalyticsSection.REVENUE);
+    if (event.status() == SubscriptionStatus.CANCELLED) {
+      sections.add(AnalyticsSection.CHURN);
+    }
+    markDirty(event.businessId(), sections);
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onCustomerEvent(CustomerEvent event) {
+    if (event.type() == CustomerEvent.Type.UPDATED) {
+      markDirty(event.businessId(), EnumSet.of(AnalyticsSection.CUSTOMERS));
+      return;
+    }
+
+    // Customer counts feed ARPU, lifetime value and the churn denominators
+    markDirty(
+        event.businessId(),
+        EnumSet.of(AnalyticsSection.CUSTOMERS, AnalyticsSection.REVENUE, AnalyticsSection.CHURN));
+  }
+
+  /** Hand the accumulated dirty sections to the refresh executor, one refresh per tenant */
+  @Scheduled(fixedDelayString = "${analytics.invalidation.flush-interval-ms:2000}")
+  public void flush() {
+    for (Long businessId : dirtySections.keySet()) {
+      if (!refreshing.add(businessId)) {
+        continue;
+      }
+      Set<AnalyticsSection> sections = dirtySections.remove(businessId);
+      if (sections == null || sections.isEmpty()) {
+        refreshing.remove(businessId);
+        continue;
+      }
+
+      try {
+        refreshExecutor.execute(() -> refresh(businessId, sections));
+      } catch (TaskRejectedException e) {
+        // The executor is saturated, try again on the next flush
+        refreshing.remove(businessId);
+        markDirty(businessId, sections);
+      }
+    }
+  }
+
+  private void refresh(Long businessId, Set<AnalyticsSection> sections) {
+    try {
+      analyticsService.refreshAnalyticsSections(businessId, sections);
+    } catch (Exception e) {
+      log.error(
+          "Error refreshing analytics sections {} for business ID {}: {}",
+          sections,
+          businessId,
+          e.getMessage(),
+          e);
+      // Fall back to a full eviction so the next read recomputes everything
+      analyticsService.refreshAnalyticsCache(businessId);
+    } finally {
+      refreshing.remove(businessId);
+    }
+  }
+
+  private void markDirty(Long businessId, Set<AnalyticsSection> sections) {
+    dirtySections.merge(
+        businessId,
+        sections,
+        (existing, added) -> {
+          Set<AnalyticsSection> merged = EnumSet.copyOf(existing);
+          merged.addAll(added);
+          return merged;
+        });
+  }
+}
@@ -0,0 +1,72 @@
+package com.okemwag.subscribe.analytics;
+
+import com.okemwag.subscribe.config.AnalyticsGuardConfig;
+import com.okemwag.subscribe.config.AnalyticsSnapshotConfig;
+import com.okemwag.subscribe.enums.AnalyticsSection;
+import java.time.Duration;
+import java.util.Set;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs one dashboard section in its own read-only transaction with a timeout. The transaction
+ * timeout becomes the statement timeout of every query of the section, so a slow tenant cannot hold
+ * a connection for long, and a section that fails or times out is reported instead of failing the
+ * whole dashboard.
+ *
+ * <p>Snapshot captures run off the request path: they get a budget of their own and fail instead of
+ * degrading, so a stored snapshot never holds a section copied from an older one.
+ */
+@Component
+@Slf4j
+public class AnalyticsSectionGuard {
+
+  private final TransactionTemplate sectionTransaction;
+  private final TransactionTemplate captureTransaction;
+
+  public AnalyticsSectionGuard(
+      PlatformTransactionManager transactionManager,
+      AnalyticsGuardConfig config,
+      AnalyticsSnapshotConfig snapshotConfig) {
+    this.sectionTransaction = readOnlyTransaction(transactionManager, config.getSectionTimeout());
+    this.captureTransaction =
+        readOnlyTransaction(transactionManager, snapshotConfig.getCaptureTimeout());
+  }
+
+  /** The section computed by {@code calculation}, or null after adding it to {@code degraded} */
+  public <T> T compute(
+      AnalyticsSection section,
+      Long businessId,
+      Supplier<T> calculation,
+      Set<AnalyticsSection> degraded) {
+    try {
+      return sectionTransaction.execute(status -> calculation.get());
+    } catch (RuntimeException e) {
+      log.warn(
+          "Analytics section {} for business ID {} degraded: {}",
+          section,
+          businessId,
+          e.getMessage());
+      degraded.add(section);
+      return null;
+    }
+  }
+
+  /** The section computed by {@code calculation} under the snapshot capture budget */
+  public <T> T capture(Supplier<T> calculation) {
+    return captureTransaction.execute(status -> calculation.get());
+  }
+
+  private static TransactionTemplate readOnlyTransaction(
+      PlatformTransactionManager transactionManager, Duration timeout) {
+    TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+    transaction.setReadOnly(true);
+    transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    transaction.setTimeout((int) Math.max(1, timeout.toSeconds()));
+    return transaction;
+  }
+}
@@ -0,0 +1,54 @@
+package com.okemwag.subscribe.analytics;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.okemwag.subscribe.dto.AnalyticsDTO;
+import com.okemwag.subscribe.entity.AnalyticsSnapshot;
+import com.okemwag.subscribe.exception.SubscribeException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * The stored form of a daily analytics snapshot: the dashboard as JSON under a schema version.
+ * Fields added to the dashboard later are simply absent from older rows; a change that reads old
+ * rows differently bumps the version and teaches {@link #read} the old layout.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AnalyticsSnapshotFormat {
+
+  public static final int SCHEMA_VERSION = 1;
+
+  private final ObjectMapper objectMapper;
+
+  public void write(AnalyticsSnapshot snapshot, AnalyticsDTO analytics) {
+    try {
+      snapshot.setAnalytics(objectMapper.writeValueAsString(analytics));
+      snapshot.setSchemaVersion(SCHEMA_VERSION);
+    } catch (JsonProcessingException e) {
+      throw new SubscribeException("Failed to serialize analytics snapshot", e);
+    }
+  }
+
+  /** The stored dashboard, or null for rows in no schema this version can read */
+  public AnalyticsDTO read(AnalyticsSnapshot snapshot) {
+    if (snapshot.getAnalytics() == null
+        || !Integer.valueOf(SCHEMA_VERSION).equals(snapshot.getSchemaVersion())) {
+      return null;
+    }
+    try {
+      AnalyticsDTO analytics = objectMapper.readValue(snapshot.getAnalytics(), AnalyticsDTO.class);
+      analytics.setSnapshotDate(snapshot.getSnapshotDate());
+      return analytics;
+    } catch (JsonProcessingException e) {
+      log.warn(
+          "Unreadable analytics snapshot {} of business ID {}: {}",
+          snapshot.getSnapshotDate(),
+          snapshot.getBusinessId(),
+          e.getMessage());
+      return null;
+    }
+  }
+}
@@ -0,0 +1,110 @@
+package com.okemwag.subscribe.analytics;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * The highest scoring keys of one tenant, holding at most {@code capacity} of them. Besides the
+ * entries it tracks {@code floor}, an upper bound on the score of every key it does not hold, so a
+ * top {@code k} read can tell whether its answer is exact or the tenant has to be reloaded.
+ */
+class BoundedTopK {
+
+  /** One ranked key with its score and the number of events behind it */
+  record Entry(Long id, String label, BigDecimal score, long count) {}
+
+  private static final Comparator<Entry> BY_SCORE_DESC =
+      Comparator.comparing(Entry::score).reversed().thenComparing(Entry::id);
+
+  private final int capacity;
+  private final Map<Long, Entry> entries = new HashMap<>();
+  private final TreeSet<Entry> ranked = new TreeSet<>(BY_SCORE_DESC);
+  private BigDecimal floor = BigDecimal.ZERO;
+
+  /** Seed from the top {@code capacity} rows of a query ordered by score */
+  BoundedTopK(int capacity, List<Entry> topRows) {
+    this.capacity = capacity;
+    for (Entry row : topRows) {
+      entries.put(row.id(), row);
+      ranked.add(row);
+    }
+    if (topRows.size() >= capacity && !ranked.isEmpty()) {
+      floor = ranked.last().score();
+    }
+  }
+
+  /**
+   * Apply a change of {@code scoreDelta} to a key. A key that is not held and gains score is looked
+   * up with {@code exact}, which must return its current totals after the change, or null.
+   */
+  synchronized void adjust(Long id, BigDecimal scoreDelta, long countDelta, Supplier<Entry> exact) {
+    Entry existing = entries.get(id);
+    if (existing != null) {
+      replace(
+          existing,
+          new Entry(
+              id,
+              existing.label(),
+              existing.score().add(scoreDelta),
+              existing.count() + countDelta));
+      return;
+    }
+
+    // Keys outside only fall further below the floor when they lose score
+    if (scoreDelta.signum() <= 0) {
+      return;
+    }
+
+    Entry current = exact.get();
+    if (current == null) {
+      return;
+    }
+    if (entries.size() < capacity || current.score().compareTo(ranked.last().score()) > 0) {
+      entries.put(id, current);
+      ranked.add(current);
+      if (entries.size() > capacity) {
+        Entry evicted = ranked.pollLast();
+        entries.remove(evicted.id());
+        floor = floor.max(evicted.score());
+      }
+    } else {
+      floor = floor.max(current.score());
+    }
+  }
+
+  /**
+   * The top {@code k} entries, or null when they cannot be proven exact because a key that is not
+   * held may score higher than the k-th entry.
+   */
+  synchronized List<Entry> top(int k) {
+    if (k > capacity) {
+      return null;
+    }
+
+    List<Entry> result = new ArrayList<>(Math.min(k, entries.size()));
+    for (Entry entry : ranked) {
+      if (result.size() == k) {
+        break;
+      }
+      result.add(entry);
+    }
+
+    // Fewer entries than asked means nothing was ever left out
+    if (result.size() == k && result.get(k - 1).score().compareTo(floor) < 0) {
+      return null;
+    }
+    return result;
+  }
+
+  private void replace(Entry existing, Entry updated) {
+    ranked.remove(existing);
+    entries.put(updated.id(), updated);
+    ranked.add(updated);
+  }
+}
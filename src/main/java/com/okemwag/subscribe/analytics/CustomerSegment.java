@@ -0,0 +1,46 @@
+package com.okemwag.subscribe.analytics;
+
+import com.okemwag.subscribe.enums.SubscriptionStatus;
+
+/** A named set of customers within a tenant that the segment index keeps a bitmap for */
+public record CustomerSegment(Kind kind, Object key) {
+
+  public enum Kind {
+    ALL,
+    ACTIVE,
+    SUBSCRIBED,
+    LANGUAGE,
+    PLAN,
+    STATUS
+  }
+
+  /** Every customer of the tenant, active or not */
+  public static CustomerSegment all() {
+    return new CustomerSegment(Kind.ALL, null);
+  }
+
+  /** Customers whose account is active */
+  public static CustomerSegment active() {
+    return new CustomerSegment(Kind.ACTIVE, null);
+  }
+
+  /** Customers with at least one subscription in any status */
+  public static CustomerSegment subscribed() {
+    return new CustomerSegment(Kind.SUBSCRIBED, null);
+  }
+
+  /** Customers with the given preferred language */
+  public static CustomerSegment language(String language) {
+    return new CustomerSegment(Kind.LANGUAGE, language);
+  }
+
+  /** Customers with an ACTIVE subscription to the given plan */
+  public static CustomerSegment activeOnPlan(Long planId) {
+    return new CustomerSegment(Kind.PLAN, planId);
+  }
+
+  /** Customers with at least one subscription in the given status */
+  public static CustomerSegment withStatus(SubscriptionStatus status) {
+    return new CustomerSegment(Kind.STATUS, status);
+  }
+}
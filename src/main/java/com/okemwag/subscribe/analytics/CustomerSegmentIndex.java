@@ -0,0 +1,150 @@
+package com.okemwag.subscribe.analytics;
+
+import com.okemwag.subscribe.enums.SubscriptionStatus;
+import com.okemwag.subscribe.event.CustomerEvent;
+import com.okemwag.subscribe.event.SubscriptionEvent;
+import com.okemwag.subscribe.repository.CustomerRepository;
+import com.okemwag.subscribe.repository.SubscriptionRepository;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * In-memory, per-tenant index of customer segments backed by compressed bitmaps. A tenant is loaded
+ * lazily from two projection queries on first use and is then kept current by the customer and
+ * subscription events published after each commit, so segment counts and intersections are answered
+ * without a database round trip.
+ *
+ * <p>Every update sets state rather than adding to it, so all events delivered while a tenant loads
+ * are replayed onto it, whether or not its queries already saw them.
+ */
+@Component
+@Slf4j
+public class CustomerSegmentIndex {
+
+  private final CustomerRepository customerRepository;
+  private final SubscriptionRepository subscriptionRepository;
+
+  private final LoadedTenants<TenantSegments> tenants;
+
+  public CustomerSegmentIndex(
+      CustomerRepository customerRepository,
+      SubscriptionRepository subscriptionRepository,
+      @Value("${analytics.segments.maximum-tenants:1000}") int maximumTenants,
+      @Value("${analytics.segments.max-age:PT6H}") Duration maxAge) {
+    this.customerRepository = customerRepository;
+    this.subscriptionRepository = subscriptionRepository;
+    this.tenants = new LoadedTenants<>(maximumTenants, maxAge, this::load);
+  }
+
+  /** Number of customers that belong to every given segment */
+  public long count(Long businessId, CustomerSegment... segments) {
+    TenantSegments tenant = segments(businessId);
+    if (segments.length == 1) {
+      return tenant.count(segments[0]);
+    }
+    if (segments.length == 2) {
+      return tenant.countBoth(segments[0], segments[1]);
+    }
+    return tenant.select(Arrays.asList(segments), List.of()).getLongCardinality();
+  }
+
+  /** Number of customers in every {@code include} segment and in none of the {@code exclude} */
+  public long count(Long businessId, List<CustomerSegment> include, List<CustomerSegment> exclude) {
+    return segments(businessId).select(include, exclude).getLongCardinality();
+  }
+
+  /** Ids of the customers in every {@code include} segment and in none of the {@code exclude} */
+  public List<Long> customerIds(
+      Long businessId, List<CustomerSegment> include, List<CustomerSegment> exclude) {
+    return Arrays.stream(segments(businessId).select(include, exclude).toArray())
+        .boxed()
+        .collect(Collectors.toList());
+  }
+
+  /** Active customers per preferred language */
+  public Map<String, Long> countActiveCustomersByLanguage(Long businessId) {
+    return segments(businessId).countActiveByLanguage();
+  }
+
+  /** Active customers that have never had a subscription */
+  public long countActiveCustomersWithoutSubscriptions(Long businessId) {
+    return count(
+        businessId, List.of(CustomerSegment.active()), List.of(CustomerSegment.subscribed()));
+  }
+
+  /** Record a registered, updated or deleted customer */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onCustomerEvent(CustomerEvent event) {
+    tenants.apply(
+        event.businessId(),
+        event.occurredAt(),
+        tenant ->
+            tenant.upsertCustomer(event.customerId(), event.active(), event.preferredLanguage()));
+  }
+
+  /**
+   * Re-derive the subscription memberships of the customer behind a subscription write. Tenants
+   * that have not been loaded yet are skipped, they pick up the change when first read.
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onSubscriptionEvent(SubscriptionEvent event) {
+    tenants.apply(
+        event.businessId(),
+        event.occurredAt(),
+        tenant ->
+            tenant.replaceSubscriptions(
+                event.customerId(), loadCustomerSubscriptions(event.customerId())));
+  }
+
+  /** Drop a tenant so that it is rebuilt from the database on next access */
+  public void evict(Long businessId) {
+    tenants.invalidate(businessId);
+  }
+
+  private TenantSegments segments(Long businessId) {
+    return tenants.get(businessId);
+  }
+
+  private LoadedTenants.Loaded<TenantSegments> load(Long businessId) {
+    long start = System.currentTimeMillis();
+    TenantSegments tenant = new TenantSegments();
+
+    List<Object[]> customers = customerRepository.findSegmentAttributesByBusiness(businessId);
+    for (Object[] row : customers) {
+      tenant.upsertCustomer((Long) row[0], Boolean.TRUE.equals(row[1]), (String) row[2]);
+    }
+
+    for (Object[] row : subscriptionRepository.findSegmentAttributesByBusiness(businessId)) {
+      tenant.addSubscription(
+          (Long) row[0],
+          new TenantSegments.SubscriptionAttributes((Long) row[1], (SubscriptionStatus) row[2]));
+    }
+
+    tenant.optimize();
+    log.info(
+        "Loaded segment index for business ID: {} with {} customers in {} ms",
+        businessId,
+        customers.size(),
+        System.currentTimeMillis() - start);
+    // Setting state twice is harmless, so no event delivered during the load is left out
+    return new LoadedTenants.Loaded<>(tenant, LocalDateTime.MIN);
+  }
+
+  private List<TenantSegments.SubscriptionAttributes> loadCustomerSubscriptions(Long customerId) {
+    List<TenantSegments.SubscriptionAttributes> subscriptions = new ArrayList<>();
+    for (Object[] row : subscriptionRepository.findSegmentAttributesByCustomer(customerId)) {
+      subscriptions.add(
+          new TenantSegments.SubscriptionAttributes((Long) row[0], (SubscriptionStatus) row[1]));
+    }
+    return subscriptions;
+  }
+}
@@ -0,0 +1,161 @@
+package com.okemwag.subscribe.analytics;
+
+import com.okemwag.subscribe.config.LifecycleCounterConfig;
+import com.okemwag.subscribe.enums.LifecycleCounter;
+import com.okemwag.subscribe.enums.SubscriptionStatus;
+import com.okemwag.subscribe.event.CustomerEvent;
+import com.okemwag.subscribe.event.SubscriptionEvent;
+import com.okemwag.subscribe.repository.CustomerRepository;
+import com.okemwag.subscribe.repository.SubscriptionRepository;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Per-tenant daily signups, cancellations, trial starts and trial conversions over the last year or
+ * so. Every tenant is seeded on startup with one grouped query per counter, a tenant loaded later
+ * with the same queries scoped to it, and both are kept current from committed events, so rolling
+ * windows and month-over-month counts never query the database.
+ *
+ * <p>Each counter has one definition shared by its seed query and its live event: a cancellation is
+ * a subscription turning cancelled, dated by its end date; a trial start is a subscription starting
+ * as a trial, dated by its trial start; a conversion is a trial turning active, dated by its
+ * conversion. Churn counts cancelled subscriptions, not distinct customers.
+ */
+@Component
+@Slf4j
+public class LifecycleCounterStore {
+
+  private final CustomerRepository customerRepository;
+  private final SubscriptionRepository subscriptionRepository;
+  private final LifecycleCounterConfig config;
+
+  private final LoadedTenants<TenantDayCounters> tenants;
+
+  public LifecycleCounterStore(
+      CustomerRepository customerRepository,
+      SubscriptionRepository subscriptionRepository,
+      LifecycleCounterConfig config) {
+    this.customerRepository = customerRepository;
+    this.subscriptionRepository = subscriptionRepository;
+    this.config = config;
+    this.tenants = new LoadedTenants<>(config.getMaximumTenants(), config.getMaxAge(), this::load);
+  }
+
+  /** Seed every tenant that had any activity within the retained days */
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuild() {
+    int seeded =
+        tenants.loadAll(
+            () -> {
+              LocalDateTime watermark = LocalDateTime.now();
+              Map<Long, TenantDayCounters> counters = new HashMap<>();
+              seed(null, watermark, id -> counters.computeIfAbsent(id, k -> newCounters()));
+              return new LoadedTenants.Loaded<>(counters, watermark);
+            });
+    log.info("Seeded lifecycle counters for {} businesses", seeded);
+  }
+
+  /** Total of one counter from {@code from} to {@code to}, both included */
+  public long count(Long businessId, LifecycleCounter counter, LocalDate from, LocalDate to) {
+    return tenants.get(businessId).sum(counter, from, to);
+  }
+
+  /** Totals of every counter, indexed by ordinal, over the {@code days} ending today */
+  public long[] window(Long businessId, int days) {
+    return tenants.get(businessId).window(LocalDate.now(), days);
+  }
+
+  /** Whether counts starting on {@code from} can be answered from memory */
+  public boolean covers(LocalDate from) {
+    return !from.isBefore(LocalDate.now().minusDays(config.getDays() - 1));
+  }
+
+  /** Drop a tenant's counters after writes that published no events, such as a bulk import */
+  public void invalidate(Long businessId) {
+    tenants.invalidate(businessId);
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onCustomerEvent(CustomerEvent event) {
+    if (event.type() == CustomerEvent.Type.REGISTERED) {
+      apply(event.businessId(), LifecycleCounter.SIGNUPS, event.occurredAt());
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onSubscriptionEvent(SubscriptionEvent event) {
+    if (event.type() == SubscriptionEvent.Type.CREATED) {
+      if (event.status() == SubscriptionStatus.TRIAL) {
+        apply(event.businessId(), LifecycleCounter.TRIAL_STARTS, event.occurredAt());
+      }
+    } else if (event.statusChanged()) {
+      if (event.status() == SubscriptionStatus.CANCELLED) {
+        apply(event.businessId(), LifecycleCounter.CANCELLATIONS, event.occurredAt());
+      } else if (event.previousStatus() == SubscriptionStatus.TRIAL
+          && event.status() == SubscriptionStatus.ACTIVE) {
+        apply(event.businessId(), LifecycleCounter.CONVERSIONS, event.occurredAt());
+      }
+    }
+  }
+
+  private void apply(Long businessId, LifecycleCounter counter, LocalDateTime occurredAt) {
+    tenants.apply(
+        businessId, occurredAt, counters -> counters.add(counter, occurredAt.toLocalDate(), 1));
+  }
+
+  private LoadedTenants.Loaded<TenantDayCounters> load(Long businessId) {
+    LocalDateTime watermark = LocalDateTime.now();
+    TenantDayCounters counters = newCounters();
+    seed(businessId, watermark, id -> counters);
+    log.debug("Loaded lifecycle counters for business ID: {}", businessId);
+    return new LoadedTenants.Loaded<>(counters, watermark);
+  }
+
+  /**
+   * Add the grouped daily counts up to {@code until} of one business, or all when null, to their
+   * counters
+   */
+  private void seed(
+      Long businessId, LocalDateTime until, Function<Long, TenantDayCounters> countersFor) {
+    LocalDateTime since = until.toLocalDate().minusDays(config.getDays() - 1).atStartOfDay();
+    add(
+        LifecycleCounter.SIGNUPS,
+        customerRepository.countSignupsByBusinessAndDay(businessId, since, until),
+        countersFor);
+    add(
+        LifecycleCounter.CANCELLATIONS,
+        subscriptionRepository.countCancellationsByBusinessAndDay(businessId, since, until),
+        countersFor);
+    add(
+        LifecycleCounter.TRIAL_STARTS,
+        subscriptionRepository.countTrialStartsByBusinessAndDay(businessId, since, until),
+        countersFor);
+    add(
+        LifecycleCounter.CONVERSIONS,
+        subscriptionRepository.countConversionsByBusinessAndDay(businessId, since, until),
+        countersFor);
+  }
+
+  private void add(
+      LifecycleCounter counter,
+      List<Object[]> rows,
+      Function<Long, TenantDayCounters> countersFor) {
+    for (Object[] row : rows) {
+      LocalDate day = (LocalDate) row[1];
+      countersFor.apply((Long) row[0]).add(counter, day, (Long) row[2]);
+    }
+  }
+
+  private TenantDayCounters newCounters() {
+    return new TenantDayCounters(config.getDays(), LocalDate.now());
+  }
+}
@@ -0,0 +1,173 @@
+package com.okemwag.subscribe.analytics;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Per-tenant state loaded from the database on first use and then kept current by applying the
+ * committed events as deltas. Tenants are bounded in number and reloaded after a while, which also
+ * heals any event missed by this node.
+ *
+ * <p>Every load comes with a watermark: its rows hold the events stamped before it and none stamped
+ * at or after it. A load bounds its queries by a watermark taken first, or takes the watermark
+ * right after unbounded queries. Events are published after their commit, so while the queries run
+ * an event stamped at or after the watermark is buffered and applied once they are done, and one
+ * stamped before it committed alongside them and is taken to be in the rows. Every event delivered
+ * after the load committed after its queries and is applied, however old its stamp. Only a
+ * transaction stamped before the watermark that commits while the queries run is miscounted, until
+ * the tenant is reloaded.
+ *
+ * @param <T> the state of one tenant, which must be safe to update from several threads
+ */
+final class LoadedTenants<T> {
+
+  /** State loaded from the database and the watermark of its rows */
+  record Loaded<S>(S state, LocalDateTime watermark) {}
+
+  private final Function<Long, Loaded<T>> loader;
+  private final Cache<Long, T> tenants;
+  private final Map<Long, Load<T>> loads = new ConcurrentHashMap<>();
+
+  private volatile BulkLoad bulkLoad;
+
+  /** An event delivered while a load runs */
+  private record Buffered<S>(LocalDateTime stampedAt, Consumer<S> change) {}
+
+  /** A tenant being loaded and the events delivered meanwhile */
+  private static final class Load<S> {
+    private final List<Buffered<S>> buffered = new ArrayList<>();
+    private S state;
+
+    /** Buffer the event until the queries are done, or apply it right away once they are */
+    synchronized void apply(LocalDateTime stampedAt, Consumer<S> change) {
+      if (state != null) {
+        change.accept(state);
+      } else {
+        buffered.add(new Buffered<>(stampedAt, change));
+      }
+    }
+
+    synchronized void replay(Loaded<S> loaded) {
+      replayOnto(buffered, loaded);
+      buffered.clear();
+      state = loaded.state();
+    }
+  }
+
+  /** Tenants being loaded together and the events of tenants not loaded yet */
+  private final class BulkLoad {
+    private final Map<Long, List<Buffered<T>>> buffered = new ConcurrentHashMap<>();
+
+    /** Buffer the event if its tenant is neither loaded nor loading on its own */
+    synchronized boolean buffer(Long businessId, LocalDateTime stampedAt, Consumer<T> change) {
+      if (bulkLoad != this
+          || loads.containsKey(businessId)
+          || tenants.getIfPresent(businessId) != null) {
+        return false;
+      }
+      buffered
+          .computeIfAbsent(businessId, id -> new ArrayList<>())
+          .add(new Buffered<>(stampedAt, change));
+      return true;
+    }
+
+    /** Add the tenants that are still missing, each with the events buffered for it */
+    synchronized int complete(Loaded<Map<Long, T>> loaded) {
+      int added = 0;
+      for (Map.Entry<Long, T> tenant : loaded.state().entrySet()) {
+        if (loads.containsKey(tenant.getKey())
+            || tenants.asMap().putIfAbsent(tenant.getKey(), tenant.getValue()) != null) {
+          continue;
+        }
+        replayOnto(
+            buffered.getOrDefault(tenant.getKey(), List.of()),
+            new Loaded<>(tenant.getValue(), loaded.watermark()));
+        added++;
+      }
+      bulkLoad = null;
+      return added;
+    }
+  }
+
+  LoadedTenants(int maximumTenants, Duration maxAge, Function<Long, Loaded<T>> loader) {
+    this.loader = loader;
+    this.tenants =
+        Caffeine.newBuilder().maximumSize(maximumTenants).expireAfterWrite(maxAge).build();
+  }
+
+  /** The tenant's state, loaded first if needed */
+  T get(Long businessId) {
+    T state = tenants.get(businessId, this::load);
+    // The state is visible in the cache now, later events can go there directly
+    loads.computeIfPresent(businessId, (id, load) -> load.state == state ? null : load);
+    return state;
+  }
+
+  /** Apply an event stamped at {@code stampedAt} to the tenant if it is loaded or loading */
+  void apply(Long businessId, LocalDateTime stampedAt, Consumer<T> change) {
+    BulkLoad bulk = bulkLoad;
+    if (bulk != null && bulk.buffer(businessId, stampedAt, change)) {
+      return;
+    }
+    Load<T> load = loads.get(businessId);
+    if (load != null) {
+      load.apply(stampedAt, change);
+      return;
+    }
+    T state = tenants.getIfPresent(businessId);
+    if (state != null) {
+      change.accept(state);
+    }
+  }
+
+  /**
+   * Load many tenants with one set of queries, keeping those already loaded. Events of the other
+   * tenants are buffered meanwhile, as for a single load.
+   *
+   * @return the number of tenants added
+   */
+  synchronized int loadAll(Supplier<Loaded<Map<Long, T>>> bulkLoader) {
+    BulkLoad bulk = new BulkLoad();
+    bulkLoad = bulk;
+    try {
+      return bulk.complete(bulkLoader.get());
+    } finally {
+      bulkLoad = null;
+    }
+  }
+
+  /** Drop a tenant so that it is loaded again on next use */
+  void invalidate(Long businessId) {
+    tenants.invalidate(businessId);
+  }
+
+  private T load(Long businessId) {
+    Load<T> load = new Load<>();
+    loads.put(businessId, load);
+    try {
+      Loaded<T> loaded = loader.apply(businessId);
+      load.replay(loaded);
+      return loaded.state();
+    } catch (RuntimeException e) {
+      loads.remove(businessId, load);
+      throw e;
+    }
+  }
+
+  private static <S> void replayOnto(List<Buffered<S>> buffered, Loaded<S> loaded) {
+    for (Buffered<S> event : buffered) {
+      if (!event.stampedAt().isBefore(loaded.watermark())) {
+        event.change().accept(loaded.state());
+      }
+    }
+  }
+}
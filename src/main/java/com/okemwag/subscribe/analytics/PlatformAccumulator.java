@@ -0,0 +1,114 @@
+package com.okemwag.subscribe.analytics;
+
+import com.okemwag.subscribe.dto.PlatformAnalyticsDTO;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Platform totals over a set of tenants. Accumulators built for disjoint tenant sets are merged
+ * into one; per-tenant values are kept so percentiles can be taken once everything is merged. Money
+ * is only summed within a currency.
+ */
+public class PlatformAccumulator {
+
+  private long tenants;
+  private long activeSubscriptions;
+  private long churnedCustomers;
+  private long customersAtMonthStart;
+  private final Map<String, BigDecimal> revenueByCurrency = new TreeMap<>();
+  private final Map<String, BigDecimal> mrrByCurrency = new TreeMap<>();
+  private final Map<String, List<Double>> tenantRevenue = new TreeMap<>();
+  private final Map<String, List<Double>> tenantMrr = new TreeMap<>();
+  private final List<Double> tenantChurnRates = new ArrayList<>();
+
+  public void add(TenantMetrics metrics) {
+    tenants++;
+    activeSubscriptions += metrics.activeSubscriptions();
+    churnedCustomers += metrics.churnedCustomers();
+    customersAtMonthStart += metrics.customersAtMonthStart();
+
+    revenueByCurrency.merge(metrics.currency(), metrics.revenue(), BigDecimal::add);
+    mrrByCurrency.merge(metrics.currency(), metrics.monthlyRecurringRevenue(), BigDecimal::add);
+    tenantRevenue
+        .computeIfAbsent(metrics.currency(), k -> new ArrayList<>())
+        .add(metrics.revenue().doubleValue());
+    tenantMrr
+        .computeIfAbsent(metrics.currency(), k -> new ArrayList<>())
+        .add(metrics.monthlyRecurringRevenue().doubleValue());
+    tenantChurnRates.add(metrics.monthlyChurnRate());
+  }
+
+  public PlatformAccumulator merge(PlatformAccumulator other) {
+    tenants += other.tenants;
+    activeSubscriptions += other.activeSubscriptions;
+    churnedCustomers += other.churnedCustomers;
+    customersAtMonthStart += other.customersAtMonthStart;
+
+    other.revenueByCurrency.forEach(
+        (currency, sum) -> revenueByCurrency.merge(currency, sum, BigDecimal::add));
+    other.mrrByCurrency.forEach(
+        (currency, sum) -> mrrByCurrency.merge(currency, sum, BigDecimal::add));
+    other.tenantRevenue.forEach(
+        (currency, values) ->
+            tenantRevenue.computeIfAbsent(currency, k -> new ArrayList<>()).addAll(values));
+    other.tenantMrr.forEach(
+        (currency, values) ->
+            tenantMrr.computeIfAbsent(currency, k -> new ArrayList<>()).addAll(values));
+    tenantChurnRates.addAll(other.tenantChurnRates);
+    return this;
+  }
+
+  public long tenants() {
+    return tenants;
+  }
+
+  /** Write the merged totals and distributions into the snapshot */
+  public void writeTo(PlatformAnalyticsDTO analytics) {
+    analytics.setActiveSubscriptions(activeSubscriptions);
+    analytics.setRevenueByCurrency(new TreeMap<>(revenueByCurrency));
+    analytics.setMonthlyRecurringRevenueByCurrency(new TreeMap<>(mrrByCurrency));
+    analytics.setChurnedCustomersThisMonth(churnedCustomers);
+    analytics.setMonthlyChurnRate(
+        customersAtMonthStart == 0
+            ? 0.0
+            : round((double) churnedCustomers / customersAtMonthStart * 100));
+
+    Map<String, PlatformAnalyticsDTO.Distribution> revenue = new TreeMap<>();
+    tenantRevenue.forEach((currency, values) -> revenue.put(currency, distribution(values)));
+    analytics.setTenantRevenueByCurrency(revenue);
+
+    Map<String, PlatformAnalyticsDTO.Distribution> mrr = new TreeMap<>();
+    tenantMrr.forEach((currency, values) -> mrr.put(currency, distribution(values)));
+    analytics.setTenantMonthlyRecurringRevenueByCurrency(mrr);
+
+    analytics.setTenantMonthlyChurnRate(distribution(tenantChurnRates));
+  }
+
+  /** Nearest-rank percentiles of the values */
+  static PlatformAnalyticsDTO.Distribution distribution(List<Double> values) {
+    PlatformAnalyticsDTO.Distribution distribution = new PlatformAnalyticsDTO.Distribution();
+    distribution.setTenants((long) values.size());
+    if (values.isEmpty()) {
+      return distribution;
+    }
+
+    double[] sorted = values.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+    distribution.setP50(round(percentile(sorted, 50)));
+    distribution.setP90(round(percentile(sorted, 90)));
+    distribution.setP99(round(percentile(sorted, 99)));
+    distribution.setMax(round(sorted[sorted.length - 1]));
+    return distribution;
+  }
+
+  private static double percentile(double[] sorted, int percentile) {
+    int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+    return sorted[Math.max(0, rank - 1)];
+  }
+
+  private static double round(double value) {
+    return Math.round(value * 100.0) / 100.0;
+  }
+}
@@ -0,0 +1,45 @@
+package com.okemwag.subscribe.analytics;
+
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * Splits the tenant list in halves until a slice fits one batch, loads the metrics of each batch
+ * with a few grouped queries and merges the partial totals on the way back up.
+ */
+public class PlatformAnalyticsTask extends RecursiveTask<PlatformAccumulator> {
+
+  private final List<Long> businessIds;
+  private final int batchSize;
+  private final Function<List<Long>, List<TenantMetrics>> loader;
+
+  public PlatformAnalyticsTask(
+      List<Long> businessIds, int batchSize, Function<List<Long>, List<TenantMetrics>> loader) {
+    this.businessIds = businessIds;
+    this.batchSize = batchSize;
+    this.loader = loader;
+  }
+
+  @Override
+  protected PlatformAccumulator compute() {
+    if (businessIds.size() <= batchSize) {
+      PlatformAccumulator accumulator = new PlatformAccumulator();
+      if (!businessIds.isEmpty()) {
+        loader.apply(businessIds).forEach(accumulator::add);
+      }
+      return accumulator;
+    }
+
+    int middle = businessIds.size() / 2;
+    PlatformAnalyticsTask left =
+        new PlatformAnalyticsTask(businessIds.subList(0, middle), batchSize, loader);
+    PlatformAnalyticsTask right =
+        new PlatformAnalyticsTask(
+            businessIds.subList(middle, businessIds.size()), batchSize, loader);
+
+    left.fork();
+    PlatformAccumulator rightResult = right.compute();
+    return left.join().merge(rightResult);
+  }
+}
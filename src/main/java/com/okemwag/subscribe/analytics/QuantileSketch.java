@@ -0,0 +1,261 @@
+package com.okemwag.subscribe.analytics;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Mergeable quantile sketch (a merging t-digest). Values are buffered and periodically folded into
+ * a small sorted set of weighted centroids, which stay narrow near the tails so extreme quantiles
+ * such as p99 remain accurate. Two sketches merge by folding one's centroids into the other, and a
+ * sketch serializes to a few bytes per centroid. Not thread-safe.
+ */
+public class QuantileSketch {
+
+  public static final double DEFAULT_COMPRESSION = 100;
+
+  private static final byte FORMAT = 1;
+
+  private final double compression;
+
+  private double[] means;
+  private long[] weights;
+  private int centroids;
+
+  private final double[] bufferValues;
+  private final long[] bufferWeights;
+  private int buffered;
+
+  private long count;
+  private double min = Double.POSITIVE_INFINITY;
+  private double max = Double.NEGATIVE_INFINITY;
+
+  public QuantileSketch() {
+    this(DEFAULT_COMPRESSION);
+  }
+
+  public QuantileSketch(double compression) {
+    this.compression = compression;
+    int capacity = (int) Math.ceil(compression) * 2;
+    this.means = new double[capacity];
+    this.weights = new long[capacity];
+    this.bufferValues = new double[capacity * 4];
+    this.bufferWeights = new long[capacity * 4];
+  }
+
+  public void add(double value) {
+    add(value, 1);
+  }
+
+  public void add(double value, long weight) {
+    if (Double.isNaN(value) || weight <= 0) {
+      return;
+    }
+    if (buffered == bufferValues.length) {
+      compress();
+    }
+    bufferValues[buffered] = value;
+    bufferWeights[buffered] = weight;
+    buffered++;
+    count += weight;
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+  }
+
+  /** Fold every value of {@code other} into this sketch */
+  public void merge(QuantileSketch other) {
+    other.compress();
+    for (int i = 0; i < other.centroids; i++) {
+      if (buffered == bufferValues.length) {
+        compress();
+      }
+      bufferValues[buffered] = other.means[i];
+      bufferWeights[buffered] = other.weights[i];
+      buffered++;
+    }
+    count += other.count;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+  }
+
+  public long count() {
+    return count;
+  }
+
+  public double min() {
+    return count == 0 ? Double.NaN : min;
+  }
+
+  public double max() {
+    return count == 0 ? Double.NaN : max;
+  }
+
+  /** Estimated value below which the fraction {@code q} of all values falls */
+  public double quantile(double q) {
+    if (q < 0 || q > 1) {
+      throw new IllegalArgumentException("Quantile must be between 0 and 1: " + q);
+    }
+    compress();
+    if (centroids == 0) {
+      return Double.NaN;
+    }
+    if (centroids == 1) {
+      return means[0];
+    }
+
+    double index = q * count;
+    if (index <= 0) {
+      return min;
+    }
+    if (index >= count) {
+      return max;
+    }
+
+    // Interpolate between centroid centers, and towards min and max at both ends
+    double firstHalf = weights[0] / 2.0;
+    if (index < firstHalf) {
+      return min + (means[0] - min) * (index / firstHalf);
+    }
+
+    double weightSoFar = firstHalf;
+    for (int i = 0; i < centroids - 1; i++) {
+      double gap = (weights[i] + weights[i + 1]) / 2.0;
+      if (weightSoFar + gap > index) {
+        double fraction = (index - weightSoFar) / gap;
+        return means[i] + (means[i + 1] - means[i]) * fraction;
+      }
+      weightSoFar += gap;
+    }
+
+    double lastHalf = weights[centroids - 1] / 2.0;
+    double fraction = Math.min(1.0, (index - weightSoFar) / lastHalf);
+    return means[centroids - 1] + (max - means[centroids - 1]) * fraction;
+  }
+
+  /** Fold the buffered values into the centroids */
+  private void compress() {
+    if (buffered == 0) {
+      return;
+    }
+
+    int total = centroids + buffered;
+    double[] allMeans = Arrays.copyOf(means, total);
+    long[] allWeights = Arrays.copyOf(weights, total);
+    System.arraycopy(bufferValues, 0, allMeans, centroids, buffered);
+    System.arraycopy(bufferWeights, 0, allWeights, centroids, buffered);
+    buffered = 0;
+
+    long totalWeight = 0;
+    Integer[] order = new Integer[total];
+    for (int i = 0; i < total; i++) {
+      order[i] = i;
+      totalWeight += allWeights[i];
+    }
+    Arrays.sort(order, (a, b) -> Double.compare(allMeans[a], allMeans[b]));
+
+    double[] newMeans = new double[total];
+    long[] newWeights = new long[total];
+    int merged = 0;
+
+    double currentMean = allMeans[order[0]];
+    long currentWeight = allWeights[order[0]];
+    long weightBefore = 0;
+    for (int i = 1; i < total; i++) {
+      double mean = allMeans[order[i]];
+      long weight = allWeights[order[i]];
+      long proposed = currentWeight + weight;
+
+      // A centroid may span at most one unit of the scale function, narrow near q = 0 and 1
+      double kLeft = scale((double) weightBefore / totalWeight);
+      double kRight = scale((double) (weightBefore + proposed) / totalWeight);
+      if (kRight - kLeft <= 1) {
+        currentMean += (mean - currentMean) * weight / proposed;
+        currentWeight = proposed;
+      } else {
+        newMeans[merged] = currentMean;
+        newWeights[merged] = currentWeight;
+        merged++;
+        weightBefore += currentWeight;
+        currentMean = mean;
+        currentWeight = weight;
+      }
+    }
+    newMeans[merged] = currentMean;
+    newWeights[merged] = currentWeight;
+    merged++;
+
+    means = Arrays.copyOf(newMeans, Math.max(merged, means.length));
+    weights = Arrays.copyOf(newWeights, Math.max(merged, weights.length));
+    centroids = merged;
+  }
+
+  private double scale(double q) {
+    return compression / (2 * Math.PI) * Math.asin(2 * q - 1);
+  }
+
+  /**
+   * Compact encoding: format, compression, min and max, then each centroid as a double mean and a
+   * varint weight. Means stay doubles so large amounts keep their cents.
+   */
+  public byte[] toBytes() {
+    compress();
+    ByteArrayOutputStream out = new ByteArrayOutputStream(32 + centroids * 10);
+    ByteBuffer header = ByteBuffer.allocate(1 + 4 + 8 + 8);
+    header.put(FORMAT);
+    header.putFloat((float) compression);
+    header.putDouble(min);
+    header.putDouble(max);
+    out.write(header.array(), 0, header.capacity());
+    writeVarint(out, centroids);
+
+    ByteBuffer centroid = ByteBuffer.allocate(8);
+    for (int i = 0; i < centroids; i++) {
+      centroid.clear();
+      centroid.putDouble(means[i]);
+      out.write(centroid.array(), 0, 8);
+      writeVarint(out, weights[i]);
+    }
+    return out.toByteArray();
+  }
+
+  public static QuantileSketch fromBytes(byte[] bytes) {
+    ByteBuffer in = ByteBuffer.wrap(bytes);
+    byte format = in.get();
+    if (format != FORMAT) {
+      throw new IllegalArgumentException("Unsupported quantile sketch format: " + format);
+    }
+
+    QuantileSketch sketch = new QuantileSketch(in.getFloat());
+    double min = in.getDouble();
+    double max = in.getDouble();
+    int size = (int) readVarint(in);
+    for (int i = 0; i < size; i++) {
+      sketch.add(in.getDouble(), readVarint(in));
+    }
+    if (sketch.count > 0) {
+      sketch.min = min;
+      sketch.max = max;
+    }
+    return sketch;
+  }
+
+  private static void writeVarint(ByteArrayOutputStream out, long value) {
+    while ((value & ~0x7FL) != 0) {
+      out.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+
+  private static long readVarint(ByteBuffer in) {
+    long value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = in.get();
+      value |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+}
@@ -0,0 +1,189 @@
+package com.okemwag.subscribe.analytics;
+
+import com.okemwag.subscribe.dto.RevenueForecastDTO;
+import com.okemwag.subscribe.enums.BillingCycle;
+import com.okemwag.subscribe.enums.PaymentMethod;
+import com.okemwag.subscribe.enums.PaymentStatus;
+import com.okemwag.subscribe.enums.SubscriptionStatus;
+import com.okemwag.subscribe.repository.PaymentRepository;
+import com.okemwag.subscribe.repository.SubscriptionRepository;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Projects the cash a tenant can expect over the next days from its renewal pipeline. Every charge
+ * due before the horizon, including repeat charges of short billing cycles and the first charge of
+ * ending trials, is weighted by the historical success rate of the payment method it will be
+ * charged to and, for trials, by the tenant's trial conversion rate. The pipeline is read in one
+ * streaming pass, so only the daily totals are held in memory. Must run inside a transaction.
+ *
+ * <p>Plans carry no currency of their own: they are priced, and invoiced, in the business currency,
+ * which the forecast is labelled with. A renewal already overdue is charged once today and then
+ * renews a cycle after today, rather than having every missed cycle piled onto the first day.
+ */
+@Component
+@Slf4j
+public class RevenueForecaster {
+
+  private final SubscriptionRepository subscriptionRepository;
+  private final PaymentRepository paymentRepository;
+  private final double defaultSuccessRate;
+  private final double defaultTrialConversionRate;
+
+  public RevenueForecaster(
+      SubscriptionRepository subscriptionRepository,
+      PaymentRepository paymentRepository,
+      @Value("${analytics.forecast.default-success-rate:0.95}") double defaultSuccessRate,
+      @Value("${analytics.forecast.default-trial-conversion-rate:0.5}")
+          double defaultTrialConversionRate) {
+    this.subscriptionRepository = subscriptionRepository;
+    this.paymentRepository = paymentRepository;
+    this.defaultSuccessRate = defaultSuccessRate;
+    this.defaultTrialConversionRate = defaultTrialConversionRate;
+  }
+
+  public RevenueForecastDTO forecast(Long businessId, String currency, int days) {
+    LocalDate startDate = LocalDate.now();
+    LocalDateTime horizon = startDate.plusDays(days).atStartOfDay().minusNanos(1);
+
+    // Payments succeed or fail per method; methods without history use the tenant's overall rate
+    Map<PaymentMethod, long[]> outcomes = new EnumMap<>(PaymentMethod.class);
+    long[] overall = new long[2];
+    for (Object[] row :
+        paymentRepository.countSettledPaymentsByMethodAndStatusAndBusiness(businessId)) {
+      long[] counts = outcomes.computeIfAbsent((PaymentMethod) row[0], k -> new long[2]);
+      int outcome = row[1] == PaymentStatus.FAILED ? 1 : 0;
+      counts[outcome] += (Long) row[2];
+      overall[outcome] += (Long) row[2];
+    }
+    double overallRate = successRate(overall, defaultSuccessRate);
+    Map<PaymentMethod, Double> successRates = new EnumMap<>(PaymentMethod.class);
+    for (PaymentMethod method : PaymentMethod.values()) {
+      successRates.put(method, successRate(outcomes.get(method), overallRate));
+    }
+
+    long finishedTrials = subscriptionRepository.countFinishedTrialsByBusiness(businessId);
+    double trialConversionRate =
+        finishedTrials > 0
+            ? Math.min(
+                1.0,
+                (double) subscriptionRepository.countConvertedTrialsByBusiness(businessId)
+                    / finishedTrials)
+            : defaultTrialConversionRate;
+
+    BigDecimal[] expected = new BigDecimal[days];
+    BigDecimal[] scheduled = new BigDecimal[days];
+    long[] charges = new long[days];
+    long trialsEnding = 0;
+
+    try (Stream<Object[]> pipeline =
+        subscriptionRepository.streamRenewalPipelineByBusiness(businessId, horizon)) {
+      for (Object[] row : (Iterable<Object[]>) pipeline::iterator) {
+        boolean trial = row[0] == SubscriptionStatus.TRIAL;
+        // A trial is first charged when it ends
+        LocalDateTime charge = trial ? (LocalDateTime) row[2] : (LocalDateTime) row[1];
+        BigDecimal price = (BigDecimal) row[3];
+        BillingCycle cycle = (BillingCycle) row[4];
+        PaymentMethod method = (PaymentMethod) row[5];
+        if (charge == null || price == null) {
+          continue;
+        }
+
+        double weight = method != null ? successRates.get(method) : overallRate;
+        if (trial) {
+          weight *= trialConversionRate;
+          trialsEnding++;
+        }
+        BigDecimal weighted = price.multiply(BigDecimal.valueOf(weight));
+
+        // Missed cycles are not billed retroactively: one charge today, the next a cycle later
+        if (charge.toLocalDate().isBefore(startDate)) {
+          charge = startDate.atTime(charge.toLocalTime());
+        }
+        while (!charge.isAfter(horizon)) {
+          int day = (int) ChronoUnit.DAYS.between(startDate, charge.toLocalDate());
+          expected[day] = add(expected[day], weighted);
+          scheduled[day] = add(scheduled[day], price);
+          charges[day]++;
+          charge = nextCharge(charge, cycle);
+        }
+      }
+    }
+
+    RevenueForecastDTO forecast = new RevenueForecastDTO();
+    forecast.setStartDate(startDate);
+    forecast.setCurrency(currency);
+    forecast.setHorizonDays((long) days);
+    forecast.setTrialsEnding(trialsEnding);
+    forecast.setTrialConversionRate(trialConversionRate);
+    Map<String, Double> ratesByName = new TreeMap<>();
+    successRates.forEach((method, rate) -> ratesByName.put(method.name(), rate));
+    forecast.setSuccessRateByMethod(ratesByName);
+
+    List<RevenueForecastDTO.DailyForecast> daily = new ArrayList<>(days);
+    BigDecimal expectedTotal = BigDecimal.ZERO;
+    BigDecimal scheduledTotal = BigDecimal.ZERO;
+    long chargeTotal = 0;
+    for (int day = 0; day < days; day++) {
+      RevenueForecastDTO.DailyForecast forecastDay = new RevenueForecastDTO.DailyForecast();
+      forecastDay.setDate(startDate.plusDays(day));
+      forecastDay.setExpectedRevenue(toAmount(expected[day]));
+      forecastDay.setScheduledRevenue(toAmount(scheduled[day]));
+      forecastDay.setCharges(charges[day]);
+      daily.add(forecastDay);
+
+      expectedTotal = expectedTotal.add(forecastDay.getExpectedRevenue());
+      scheduledTotal = scheduledTotal.add(forecastDay.getScheduledRevenue());
+      chargeTotal += charges[day];
+    }
+    forecast.setDailyForecast(daily);
+    forecast.setExpectedRevenue(expectedTotal);
+    forecast.setScheduledRevenue(scheduledTotal);
+    forecast.setScheduledCharges(chargeTotal);
+    forecast.setGeneratedAt(LocalDateTime.now());
+
+    log.debug(
+        "Forecast {} charges over {} days for business ID: {}", chargeTotal, days, businessId);
+    return forecast;
+  }
+
+  private static double successRate(long[] outcomes, double fallback) {
+    if (outcomes == null || outcomes[0] + outcomes[1] == 0) {
+      return fallback;
+    }
+    return (double) outcomes[0] / (outcomes[0] + outcomes[1]);
+  }
+
+  private static LocalDateTime nextCharge(LocalDateTime charge, BillingCycle cycle) {
+    switch (cycle) {
+      case MONTHLY:
+        return charge.plusMonths(1);
+      case QUARTERLY:
+        return charge.plusMonths(3);
+      case YEARLY:
+        return charge.plusYears(1);
+      default:
+        throw new IllegalArgumentException("Unknown billing cycle: " + cycle);
+    }
+  }
+
+  private static BigDecimal add(BigDecimal total, BigDecimal amount) {
+    return total == null ? amount : total.add(amount);
+  }
+
+  private static BigDecimal toAmount(BigDecimal value) {
+    return value == null ? BigDecimal.ZERO : value.setScale(2, RoundingMode.HALF_UP);
+  }
+}
@@ -0,0 +1,351 @@
+package com.okemwag.subscribe.analytics;
+
+import com.okemwag.subscribe.config.TimeSeriesConfig;
+import com.okemwag.subscribe.dto.RevenueReportDTO;
+import com.okemwag.subscribe.dto.TimeSeriesDTO;
+import com.okemwag.subscribe.enums.PaymentStatus;
+import com.okemwag.subscribe.enums.SubscriptionStatus;
+import com.okemwag.subscribe.enums.TimeSeriesMetric;
+import com.okemwag.subscribe.enums.TimeSeriesResolution;
+import com.okemwag.subscribe.event.InvoiceEvent;
+import com.okemwag.subscribe.event.PaymentEvent;
+import com.okemwag.subscribe.event.SubscriptionEvent;
+import com.okemwag.subscribe.exception.SubscribeException;
+import com.okemwag.subscribe.repository.InvoiceRepository;
+import com.okemwag.subscribe.repository.PaymentRepository;
+import com.okemwag.subscribe.repository.SubscriptionRepository;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleBiFunction;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Per-tenant revenue, refunds, invoices, new subscriptions and cancellations in hourly, daily and
+ * monthly buckets, with amounts kept apart per currency. A tenant is loaded with grouped queries,
+ * by hour over the hourly retention, by day over the daily one and by month before that, and kept
+ * current from committed events, so a range query is a slice of an in-memory array instead of a
+ * grouped scan of the payment history.
+ */
+@Component
+@Slf4j
+public class RevenueTimeSeriesStore {
+
+  private final PaymentRepository paymentRepository;
+  private final SubscriptionRepository subscriptionRepository;
+  private final InvoiceRepository invoiceRepository;
+  private final TimeSeriesConfig config;
+
+  private final LoadedTenants<Series> tenants;
+
+  /** A tenant's counts, and its amounts per currency */
+  private final class Series {
+    private final TenantTimeSeries counts = newSeries();
+    private final Map<String, TenantTimeSeries> amounts = new ConcurrentHashMap<>();
+
+    void add(TimeSeriesMetric metric, String currency, LocalDateTime time, long delta) {
+      if (!isAmount(metric)) {
+        counts.add(metric, time, delta);
+      } else if (currency != null) {
+        amounts.computeIfAbsent(currency, c -> newSeries()).add(metric, time, delta);
+      }
+    }
+
+    /** The series holding {@code metric}, null for amounts never recorded in {@code currency} */
+    TenantTimeSeries of(TimeSeriesMetric metric, String currency) {
+      return isAmount(metric) ? amounts.get(currency) : counts;
+    }
+  }
+
+  public RevenueTimeSeriesStore(
+      PaymentRepository paymentRepository,
+      SubscriptionRepository subscriptionRepository,
+      InvoiceRepository invoiceRepository,
+      TimeSeriesConfig config) {
+    this.paymentRepository = paymentRepository;
+    this.subscriptionRepository = subscriptionRepository;
+    this.invoiceRepository = invoiceRepository;
+    this.config = config;
+    this.tenants = new LoadedTenants<>(config.getMaximumTenants(), config.getMaxAge(), this::load);
+  }
+
+  /**
+   * Buckets of one metric from the bucket holding {@code from} to the one holding {@code to},
+   * amounts in {@code currency} only
+   */
+  public TimeSeriesDTO slice(
+      Long businessId,
+      TimeSeriesMetric metric,
+      TimeSeriesResolution resolution,
+      String currency,
+      LocalDateTime from,
+      LocalDateTime to) {
+    long buckets =
+        TenantTimeSeries.bucket(resolution, to) - TenantTimeSeries.bucket(resolution, from) + 1;
+    if (buckets < 1 || buckets > config.getMaxBuckets()) {
+      throw new SubscribeException(
+          "Time series range must cover 1 to " + config.getMaxBuckets() + " buckets");
+    }
+
+    TenantTimeSeries series = tenants.get(businessId).of(metric, currency);
+    long[] raw =
+        series == null ? new long[(int) buckets] : series.slice(metric, resolution, from, to);
+
+    List<BigDecimal> values = new ArrayList<>(raw.length);
+    long total = 0;
+    for (long value : raw) {
+      values.add(toValue(metric, value));
+      total += value;
+    }
+
+    TimeSeriesDTO result = new TimeSeriesDTO();
+    result.setMetric(metric);
+    result.setResolution(resolution);
+    result.setCurrency(isAmount(metric) ? currency : null);
+    result.setStart(TenantTimeSeries.bucketStart(resolution, from));
+    result.setValues(values);
+    result.setTotal(toValue(metric, total));
+    return result;
+  }
+
+  /** Currencies the tenant has any amount recorded in */
+  public Set<String> currencies(Long businessId) {
+    return Set.copyOf(tenants.get(businessId).amounts.keySet());
+  }
+
+  /**
+   * Revenue, refunds and invoices of every month from {@code from} to {@code to} that had any of
+   * them, oldest first. The amounts of each currency are converted at its {@code rate} for the
+   * month; a currency without one, a NaN rate, is left out and added to {@code unconverted}.
+   */
+  public List<RevenueReportDTO.MonthlyRevenue> monthlyBreakdown(
+      Long businessId,
+      YearMonth from,
+      YearMonth to,
+      ToDoubleBiFunction<String, YearMonth> rate,
+      Set<String> unconverted) {
+    int size = (int) from.until(to, ChronoUnit.MONTHS) + 1;
+    BigDecimal[] revenue = zeros(size);
+    BigDecimal[] refunds = zeros(size);
+    BigDecimal[] invoiced = zeros(size);
+    long[] invoices = new long[size];
+
+    for (Map.Entry<String, TenantTimeSeries> currency :
+        tenants.get(businessId).amounts.entrySet()) {
+      long[][] columns =
+          currency
+              .getValue()
+              .sliceAll(
+                  TimeSeriesResolution.MONTH,
+                  from.atDay(1).atStartOfDay(),
+                  to.atDay(1).atStartOfDay());
+      long[] monthRevenue = columns[TimeSeriesMetric.REVENUE.ordinal()];
+      long[] monthRefunds = columns[TimeSeriesMetric.REFUNDS.ordinal()];
+      long[] monthInvoices = columns[TimeSeriesMetric.INVOICES.ordinal()];
+      long[] monthInvoiced = columns[TimeSeriesMetric.INVOICED_AMOUNT.ordinal()];
+      for (int i = 0; i < size; i++) {
+        if (monthRevenue[i] == 0 && monthRefunds[i] == 0 && monthInvoices[i] == 0) {
+          continue;
+        }
+        double monthRate = rate.applyAsDouble(currency.getKey(), from.plusMonths(i));
+        if (Double.isNaN(monthRate)) {
+          unconverted.add(currency.getKey());
+          continue;
+        }
+        BigDecimal factor = BigDecimal.valueOf(monthRate);
+        revenue[i] = revenue[i].add(BigDecimal.valueOf(monthRevenue[i], 2).multiply(factor));
+        refunds[i] = refunds[i].add(BigDecimal.valueOf(monthRefunds[i], 2).multiply(factor));
+        invoiced[i] = invoiced[i].add(BigDecimal.valueOf(monthInvoiced[i], 2).multiply(factor));
+        invoices[i] += monthInvoices[i];
+      }
+    }
+
+    List<RevenueReportDTO.MonthlyRevenue> months = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      if (revenue[i].signum() == 0 && refunds[i].signum() == 0 && invoices[i] == 0) {
+        continue;
+      }
+      YearMonth month = from.plusMonths(i);
+      RevenueReportDTO.MonthlyRevenue monthly = new RevenueReportDTO.MonthlyRevenue();
+      monthly.setYear(month.getYear());
+      monthly.setMonth(month.getMonthValue());
+      monthly.setRevenue(revenue[i].setScale(2, RoundingMode.HALF_UP));
+      monthly.setRefunds(refunds[i].setScale(2, RoundingMode.HALF_UP));
+      monthly.setInvoiceCount(invoices[i]);
+      monthly.setAverageInvoiceAmount(
+          invoices[i] > 0
+              ? invoiced[i].divide(BigDecimal.valueOf(invoices[i]), 2, RoundingMode.HALF_UP)
+              : BigDecimal.ZERO);
+      months.add(monthly);
+    }
+    return months;
+  }
+
+  /** Drop a tenant's series after writes that published no events, such as a bulk import */
+  public void invalidate(Long businessId) {
+    tenants.invalidate(businessId);
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onPaymentEvent(PaymentEvent event) {
+    LocalDateTime processedAt =
+        event.processedAt() != null ? event.processedAt() : event.occurredAt();
+    long amount = toMinorUnits(event.amount());
+
+    if (event.type() == PaymentEvent.Type.REFUNDED) {
+      // Revenue counts completed payments only, so the refund also leaves its original bucket
+      tenants.apply(
+          event.businessId(),
+          event.occurredAt(),
+          series -> {
+            series.add(TimeSeriesMetric.REFUNDS, event.currency(), event.occurredAt(), amount);
+            series.add(TimeSeriesMetric.REVENUE, event.currency(), processedAt, -amount);
+          });
+    } else if (event.status() == PaymentStatus.COMPLETED) {
+      tenants.apply(
+          event.businessId(),
+          processedAt,
+          series -> series.add(TimeSeriesMetric.REVENUE, event.currency(), processedAt, amount));
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onSubscriptionEvent(SubscriptionEvent event) {
+    if (event.type() == SubscriptionEvent.Type.CREATED) {
+      tenants.apply(
+          event.businessId(),
+          event.occurredAt(),
+          series -> series.add(TimeSeriesMetric.NEW_SUBSCRIPTIONS, null, event.occurredAt(), 1));
+    } else if (event.statusChanged() && event.status() == SubscriptionStatus.CANCELLED) {
+      tenants.apply(
+          event.businessId(),
+          event.occurredAt(),
+          series -> series.add(TimeSeriesMetric.CANCELLATIONS, null, event.occurredAt(), 1));
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onInvoiceEvent(InvoiceEvent event) {
+    if (event.type() == InvoiceEvent.Type.CREATED) {
+      long amount = toMinorUnits(event.totalAmount());
+      tenants.apply(
+          event.businessId(),
+          event.occurredAt(),
+          series -> {
+            series.add(TimeSeriesMetric.INVOICES, null, event.occurredAt(), 1);
+            series.add(
+                TimeSeriesMetric.INVOICED_AMOUNT, event.currency(), event.occurredAt(), amount);
+          });
+    }
+  }
+
+  private LoadedTenants.Loaded<Series> load(Long businessId) {
+    LocalDateTime watermark = LocalDateTime.now();
+    Series series = new Series();
+
+    // Hours, then days and months before them; every bucket starts where the coarser one does, so
+    // rows of a finer unit also fill the coarser columns and older rows fall outside the finer ones
+    LocalDateTime hours =
+        watermark.minusHours(config.getHourlyBuckets() - 1L).toLocalDate().atStartOfDay();
+    LocalDateTime days =
+        YearMonth.from(watermark.toLocalDate().minusDays(config.getDailyBuckets() - 1L))
+            .atDay(1)
+            .atStartOfDay();
+    LocalDateTime months =
+        YearMonth.from(watermark)
+            .minusMonths(config.getMonthlyBuckets() - 1L)
+            .atDay(1)
+            .atStartOfDay();
+    seed(series, businessId, "hour", hours, watermark);
+    if (days.isBefore(hours)) {
+      seed(series, businessId, "day", days, hours);
+    }
+    if (months.isBefore(days)) {
+      seed(series, businessId, "month", months, days);
+    }
+
+    log.debug("Loaded revenue time series for business ID: {}", businessId);
+    return new LoadedTenants.Loaded<>(series, watermark);
+  }
+
+  /** Add the rows from {@code since} to {@code until}, grouped by {@code unit} */
+  private void seed(
+      Series series, Long businessId, String unit, LocalDateTime since, LocalDateTime until) {
+    for (Object[] row :
+        paymentRepository.sumPaymentsByBusinessAndBucket(businessId, unit, since, until)) {
+      TimeSeriesMetric metric =
+          PaymentStatus.COMPLETED.name().equals(row[0])
+              ? TimeSeriesMetric.REVENUE
+              : TimeSeriesMetric.REFUNDS;
+      series.add(metric, (String) row[2], toTime(row[1]), toMinorUnits((BigDecimal) row[3]));
+    }
+    for (Object[] row :
+        invoiceRepository.sumInvoicesByBusinessAndBucket(businessId, unit, since, until)) {
+      LocalDateTime bucket = toTime(row[0]);
+      series.add(TimeSeriesMetric.INVOICES, null, bucket, ((Number) row[2]).longValue());
+      series.add(
+          TimeSeriesMetric.INVOICED_AMOUNT,
+          (String) row[1],
+          bucket,
+          toMinorUnits((BigDecimal) row[3]));
+    }
+    for (Object[] row :
+        subscriptionRepository.countCreationsByBusinessAndBucket(businessId, unit, since, until)) {
+      series.add(
+          TimeSeriesMetric.NEW_SUBSCRIPTIONS, null, toTime(row[0]), ((Number) row[1]).longValue());
+    }
+    for (Object[] row :
+        subscriptionRepository.countCancellationsByBusinessAndBucket(
+            businessId, unit, since, until)) {
+      series.add(
+          TimeSeriesMetric.CANCELLATIONS, null, toTime(row[0]), ((Number) row[1]).longValue());
+    }
+  }
+
+  private TenantTimeSeries newSeries() {
+    return new TenantTimeSeries(
+        config.getHourlyBuckets(),
+        config.getDailyBuckets(),
+        config.getMonthlyBuckets(),
+        LocalDateTime.now());
+  }
+
+  private static LocalDateTime toTime(Object value) {
+    return value instanceof Timestamp timestamp
+        ? timestamp.toLocalDateTime()
+        : (LocalDateTime) value;
+  }
+
+  private static boolean isAmount(TimeSeriesMetric metric) {
+    return metric == TimeSeriesMetric.REVENUE
+        || metric == TimeSeriesMetric.REFUNDS
+        || metric == TimeSeriesMetric.INVOICED_AMOUNT;
+  }
+
+  private static BigDecimal toValue(TimeSeriesMetric metric, long value) {
+    return isAmount(metric) ? BigDecimal.valueOf(value, 2) : BigDecimal.valueOf(value);
+  }
+
+  private static BigDecimal[] zeros(int size) {
+    BigDecimal[] zeros = new BigDecimal[size];
+    Arrays.fill(zeros, BigDecimal.ZERO);
+    return zeros;
+  }
+
+  private static long toMinorUnits(BigDecimal amount) {
+    return amount == null
+        ? 0
+        : amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+  }
+}
@@ -0,0 +1,46 @@
+package com.okemwag.subscribe.analytics;
+
+/**
+ * Fixed number of consecutive buckets in a ring, ending at the newest bucket written. Writing a
+ * newer bucket advances the ring and clears the buckets it passes; writes older than the ring are
+ * dropped. Not thread-safe.
+ */
+class RollingSeries {
+
+  private final long[] values;
+  private long newest;
+
+  RollingSeries(int capacity, long newest) {
+    this.values = new long[capacity];
+    this.newest = newest;
+  }
+
+  void add(long bucket, long delta) {
+    if (bucket > newest) {
+      long passed = Math.min(bucket - newest, values.length);
+      for (long i = 0; i < passed; i++) {
+        values[slot(bucket - i)] = 0;
+      }
+      newest = bucket;
+    }
+    if (bucket <= newest - values.length) {
+      return;
+    }
+    values[slot(bucket)] += delta;
+  }
+
+  /** Values of the buckets from {@code from} to {@code to}, zero outside the ring */
+  long[] slice(long from, long to) {
+    long[] result = new long[(int) (to - from + 1)];
+    long first = Math.max(from, newest - values.length + 1);
+    long last = Math.min(to, newest);
+    for (long bucket = first; bucket <= last; bucket++) {
+      result[(int) (bucket - from)] = values[slot(bucket)];
+    }
+    return result;
+  }
+
+  private int slot(long bucket) {
+    return (int) Math.floorMod(bucket, (long) values.length);
+  }
+}
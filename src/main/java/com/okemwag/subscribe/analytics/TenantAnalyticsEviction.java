@@ -0,0 +1,60 @@
+package com.okemwag.subscribe.analytics;
+
+import com.okemwag.subscribe.cache.CacheInvalidation;
+import com.okemwag.subscribe.cache.CacheInvalidationBus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops a tenant's in-memory analytics state on every node after writes that published no events,
+ * such as a bulk import, so each node reloads it from the database on next use instead of serving
+ * counts that miss those writes until they expire.
+ */
+@Component
+@Slf4j
+public class TenantAnalyticsEviction {
+
+  private final CacheInvalidationBus bus;
+  private final LifecycleCounterStore lifecycleCounterStore;
+  private final CustomerSegmentIndex customerSegmentIndex;
+  private final TenantLeaderboards tenantLeaderboards;
+  private final RevenueTimeSeriesStore revenueTimeSeriesStore;
+  private final TenantSizeEstimator tenantSizeEstimator;
+
+  public TenantAnalyticsEviction(
+      CacheInvalidationBus bus,
+      LifecycleCounterStore lifecycleCounterStore,
+      CustomerSegmentIndex customerSegmentIndex,
+      TenantLeaderboards tenantLeaderboards,
+      RevenueTimeSeriesStore revenueTimeSeriesStore,
+      TenantSizeEstimator tenantSizeEstimator) {
+    this.bus = bus;
+    this.lifecycleCounterStore = lifecycleCounterStore;
+    this.customerSegmentIndex = customerSegmentIndex;
+    this.tenantLeaderboards = tenantLeaderboards;
+    this.revenueTimeSeriesStore = revenueTimeSeriesStore;
+    this.tenantSizeEstimator = tenantSizeEstimator;
+    bus.subscribe(this::onInvalidation);
+  }
+
+  /** Drop the tenant's state here and broadcast the eviction to the other nodes */
+  public void evict(Long businessId) {
+    evictLocally(businessId);
+    bus.publish(CacheInvalidation.tenant(businessId));
+  }
+
+  private void onInvalidation(CacheInvalidation invalidation) {
+    if (invalidation.type() == CacheInvalidation.Type.TENANT) {
+      log.debug("Evicting analytics state of business ID {} on request", invalidation.key());
+      evictLocally(Long.valueOf(invalidation.key()));
+    }
+  }
+
+  private void evictLocally(Long businessId) {
+    lifecycleCounterStore.invalidate(businessId);
+    customerSegmentIndex.evict(businessId);
+    tenantLeaderboards.invalidate(businessId);
+    revenueTimeSeriesStore.invalidate(businessId);
+    tenantSizeEstimator.invalidate(businessId);
+  }
+}
@@ -0,0 +1,45 @@
+package com.okemwag.subscribe.analytics;
+
+import com.okemwag.subscribe.enums.LifecycleCounter;
+import java.time.LocalDate;
+
+/**
+ * Daily counts of one tenant's signups, cancellations, trial starts and trial conversions, each in
+ * a ring of the most recent days. A rolling window is the sum of its days, so it costs one pass
+ * over at most the ring's length whatever the window.
+ */
+class TenantDayCounters {
+
+  private final RollingSeries[] counters;
+
+  TenantDayCounters(int days, LocalDate today) {
+    LifecycleCounter[] values = LifecycleCounter.values();
+    counters = new RollingSeries[values.length];
+    for (LifecycleCounter counter : values) {
+      counters[counter.ordinal()] = new RollingSeries(days, today.toEpochDay());
+    }
+  }
+
+  synchronized void add(LifecycleCounter counter, LocalDate day, long delta) {
+    counters[counter.ordinal()].add(day.toEpochDay(), delta);
+  }
+
+  /** Total of the days from {@code from} to {@code to}, both included */
+  synchronized long sum(LifecycleCounter counter, LocalDate from, LocalDate to) {
+    long total = 0;
+    for (long value : counters[counter.ordinal()].slice(from.toEpochDay(), to.toEpochDay())) {
+      total += value;
+    }
+    return total;
+  }
+
+  /** Totals of every counter over the {@code window} days ending with {@code today} */
+  synchronized long[] window(LocalDate today, int window) {
+    LocalDate from = today.minusDays(window - 1);
+    long[] totals = new long[counters.length];
+    for (LifecycleCounter counter : LifecycleCounter.values()) {
+      totals[counter.ordinal()] = sum(counter, from, today);
+    }
+    return totals;
+  }
+}
@@ -0,0 +1,201 @@
+package com.okemwag.subscribe.analytics;
+
+import com.okemwag.subscribe.dto.PopularPlan;
+import com.okemwag.subscribe.dto.TopPayingCustomer;
+import com.okemwag.subscribe.enums.PaymentStatus;
+import com.okemwag.subscribe.enums.SubscriptionStatus;
+import com.okemwag.subscribe.event.CustomerEvent;
+import com.okemwag.subscribe.event.PaymentEvent;
+import com.okemwag.subscribe.event.SubscriptionEvent;
+import com.okemwag.subscribe.repository.PaymentRepository;
+import com.okemwag.subscribe.repository.SubscriptionPlanRepository;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Per-tenant top paying customers and most popular plans. Each tenant keeps a bounded top list
+ * seeded with one LIMIT query and kept current from committed payment and subscription events;
+ * reads the list cannot answer exactly fall back to the LIMIT query and reseed the tenant.
+ */
+@Component
+@Slf4j
+public class TenantLeaderboards {
+
+  private final PaymentRepository paymentRepository;
+  private final SubscriptionPlanRepository subscriptionPlanRepository;
+  private final int capacity;
+
+  private final LoadedTenants<BoundedTopK> customerBoards;
+  private final LoadedTenants<BoundedTopK> planBoards;
+
+  public TenantLeaderboards(
+      PaymentRepository paymentRepository,
+      SubscriptionPlanRepository subscriptionPlanRepository,
+      @Value("${analytics.top-k.capacity:50}") int capacity,
+      @Value("${analytics.top-k.maximum-tenants:1000}") int maximumTenants,
+      @Value("${analytics.top-k.max-age:PT1H}") Duration maxAge) {
+    this.paymentRepository = paymentRepository;
+    this.subscriptionPlanRepository = subscriptionPlanRepository;
+    this.capacity = capacity;
+    this.customerBoards =
+        new LoadedTenants<>(maximumTenants, maxAge, id -> seed(id, this::loadCustomers));
+    this.planBoards = new LoadedTenants<>(maximumTenants, maxAge, id -> seed(id, this::loadPlans));
+  }
+
+  public List<TopPayingCustomer> topPayingCustomers(Long businessId, int limit) {
+    if (limit > capacity) {
+      return paymentRepository.getTopPayingCustomersByBusiness(
+          businessId, PageRequest.of(0, limit));
+    }
+
+    List<BoundedTopK.Entry> top = top(customerBoards, businessId, limit, this::loadCustomers);
+    return top.stream()
+        .map(e -> new TopPayingCustomer(e.id(), e.label(), e.count(), e.score()))
+        .toList();
+  }
+
+  public List<PopularPlan> popularPlans(Long businessId, int limit) {
+    if (limit > capacity) {
+      return subscriptionPlanRepository.findPopularPlansByBusiness(
+          businessId, PageRequest.of(0, limit));
+    }
+
+    List<BoundedTopK.Entry> top = top(planBoards, businessId, limit, this::loadPlans);
+    return top.stream().map(e -> new PopularPlan(e.id(), e.label(), e.count())).toList();
+  }
+
+  /** Drop a tenant's boards after writes that published no events, such as a bulk import */
+  public void invalidate(Long businessId) {
+    customerBoards.invalidate(businessId);
+    planBoards.invalidate(businessId);
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onPaymentEvent(PaymentEvent event) {
+    // Only completed payments count towards the totals
+    if (event.type() == PaymentEvent.Type.REFUNDED) {
+      customerBoards.apply(
+          event.businessId(),
+          event.occurredAt(),
+          board -> board.adjust(event.customerId(), event.amount().negate(), -1, () -> null));
+    } else if (event.status() == PaymentStatus.COMPLETED) {
+      customerBoards.apply(
+          event.businessId(),
+          event.occurredAt(),
+          board ->
+              board.adjust(
+                  event.customerId(),
+                  event.amount(),
+                  1,
+                  () ->
+                      paymentRepository
+                          .getPaymentTotalsByCustomer(event.customerId())
+                          .map(this::toEntry)
+                          .orElse(null)));
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onSubscriptionEvent(SubscriptionEvent event) {
+    boolean wasActive =
+        event.type() != SubscriptionEvent.Type.CREATED
+            && event.previousStatus() == SubscriptionStatus.ACTIVE;
+    boolean isActive = event.status() == SubscriptionStatus.ACTIVE;
+    if (wasActive == isActive) {
+      return;
+    }
+
+    long delta = isActive ? 1 : -1;
+    planBoards.apply(
+        event.businessId(),
+        event.occurredAt(),
+        board ->
+            board.adjust(
+                event.planId(),
+                BigDecimal.valueOf(delta),
+                delta,
+                () ->
+                    subscriptionPlanRepository
+                        .findPlanPopularity(event.planId())
+                        .map(this::toEntry)
+                        .orElse(null)));
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onCustomerEvent(CustomerEvent event) {
+    // The event carries no name, so a renamed customer is picked up by the next seed
+    if (event.type() == CustomerEvent.Type.UPDATED) {
+      customerBoards.invalidate(event.businessId());
+    }
+  }
+
+  private List<BoundedTopK.Entry> top(
+      LoadedTenants<BoundedTopK> boards,
+      Long businessId,
+      int limit,
+      Function<Long, List<BoundedTopK.Entry>> loader) {
+    List<BoundedTopK.Entry> top = boards.get(businessId).top(limit);
+    if (top != null) {
+      return top;
+    }
+
+    // A key the board dropped may rank higher now, reseed it
+    boards.invalidate(businessId);
+    top = boards.get(businessId).top(limit);
+    if (top != null) {
+      return top;
+    }
+    List<BoundedTopK.Entry> rows = loader.apply(businessId);
+    return rows.subList(0, Math.min(limit, rows.size()));
+  }
+
+  private LoadedTenants.Loaded<BoundedTopK> seed(
+      Long businessId, Function<Long, List<BoundedTopK.Entry>> loader) {
+    List<BoundedTopK.Entry> rows = loader.apply(businessId);
+    // The totals are not bounded by time, so the watermark is taken once they are read
+    LoadedTenants.Loaded<BoundedTopK> board =
+        new LoadedTenants.Loaded<>(new BoundedTopK(capacity, rows), LocalDateTime.now());
+    log.debug("Seeded top {} list for business ID: {}", rows.size(), businessId);
+    return board;
+  }
+
+  private List<BoundedTopK.Entry> loadCustomers(Long businessId) {
+    return paymentRepository
+        .getTopPayingCustomersByBusiness(businessId, PageRequest.of(0, capacity))
+        .stream()
+        .map(this::toEntry)
+        .toList();
+  }
+
+  private List<BoundedTopK.Entry> loadPlans(Long businessId) {
+    return subscriptionPlanRepository
+        .findPopularPlansByBusiness(businessId, PageRequest.of(0, capacity))
+        .stream()
+        .map(this::toEntry)
+        .toList();
+  }
+
+  private BoundedTopK.Entry toEntry(TopPayingCustomer customer) {
+    return new BoundedTopK.Entry(
+        customer.customerId(),
+        customer.customerName(),
+        customer.totalPaid(),
+        customer.paymentCount());
+  }
+
+  private BoundedTopK.Entry toEntry(PopularPlan plan) {
+    return new BoundedTopK.Entry(
+        plan.planId(),
+        plan.planName(),
+        BigDecimal.valueOf(plan.activeSubscriptions()),
+        plan.activeSubscriptions());
+  }
+}
@@ -0,0 +1,22 @@
+package com.okemwag.subscribe.analytics;
+
+import java.math.BigDecimal;
+
+/** The per-tenant figures platform analytics are aggregated from */
+public record TenantMetrics(
+    Long businessId,
+    String currency,
+    BigDecimal revenue,
+    BigDecimal monthlyRecurringRevenue,
+    long activeSubscriptions,
+    long churnedCustomers,
+    long customersAtMonthStart) {
+
+  /** Share of the customers at month start that churned this month, in percent */
+  public double monthlyChurnRate() {
+    if (customersAtMonthStart == 0) {
+      return 0.0;
+    }
+    return (double) churnedCustomers / customersAtMonthStart * 100;
+  }
+}
@@ -0,0 +1,182 @@
+package com.okemwag.subscribe.analytics;
+
+import com.okemwag.subscribe.enums.SubscriptionStatus;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+
+/**
+ * Compressed bitmaps over the customer ids of a single tenant. Each bitmap holds the customers
+ * belonging to one {@link CustomerSegment}, so counts and intersections never touch the database.
+ */
+class TenantSegments {
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private final Roaring64Bitmap all = new Roaring64Bitmap();
+  private final Roaring64Bitmap active = new Roaring64Bitmap();
+  private final Roaring64Bitmap subscribed = new Roaring64Bitmap();
+  private final Map<String, Roaring64Bitmap> byLanguage = new HashMap<>();
+  private final Map<Long, Roaring64Bitmap> activeByPlan = new HashMap<>();
+  private final Map<SubscriptionStatus, Roaring64Bitmap> byStatus =
+      new EnumMap<>(SubscriptionStatus.class);
+
+  /** A (plan, status) pair of one of the customer's subscriptions */
+  record SubscriptionAttributes(Long planId, SubscriptionStatus status) {}
+
+  /** Insert or update the customer level attributes */
+  void upsertCustomer(long customerId, boolean isActive, String language) {
+    lock.writeLock().lock();
+    try {
+      all.addLong(customerId);
+      if (isActive) {
+        active.addLong(customerId);
+      } else {
+        active.removeLong(customerId);
+      }
+
+      // Customers without a preferred language are counted under the null key
+      byLanguage.values().forEach(bitmap -> bitmap.removeLong(customerId));
+      byLanguage.computeIfAbsent(language, k -> new Roaring64Bitmap()).addLong(customerId);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Replace every subscription derived membership of the customer */
+  void replaceSubscriptions(long customerId, List<SubscriptionAttributes> subscriptions) {
+    lock.writeLock().lock();
+    try {
+      subscribed.removeLong(customerId);
+      activeByPlan.values().forEach(bitmap -> bitmap.removeLong(customerId));
+      byStatus.values().forEach(bitmap -> bitmap.removeLong(customerId));
+
+      for (SubscriptionAttributes subscription : subscriptions) {
+        addSubscriptionUnlocked(customerId, subscription);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Add a single subscription membership, used while bulk loading the tenant */
+  void addSubscription(long customerId, SubscriptionAttributes subscription) {
+    lock.writeLock().lock();
+    try {
+      addSubscriptionUnlocked(customerId, subscription);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Compact the bitmaps once the initial load is complete */
+  void optimize() {
+    lock.writeLock().lock();
+    try {
+      all.runOptimize();
+      active.runOptimize();
+      subscribed.runOptimize();
+      byLanguage.values().forEach(Roaring64Bitmap::runOptimize);
+      activeByPlan.values().forEach(Roaring64Bitmap::runOptimize);
+      byStatus.values().forEach(Roaring64Bitmap::runOptimize);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Select the customers in every {@code include} segment and in none of the {@code exclude}
+   * segments. An empty {@code include} list starts from every customer of the tenant.
+   */
+  Roaring64Bitmap select(List<CustomerSegment> include, List<CustomerSegment> exclude) {
+    lock.readLock().lock();
+    try {
+      Roaring64Bitmap result = include.isEmpty() ? all.clone() : resolve(include.get(0)).clone();
+      for (int i = 1; i < include.size(); i++) {
+        result.and(resolve(include.get(i)));
+      }
+      for (CustomerSegment segment : exclude) {
+        result.andNot(resolve(segment));
+      }
+      return result;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Cardinality of a single segment */
+  long count(CustomerSegment segment) {
+    lock.readLock().lock();
+    try {
+      return resolve(segment).getLongCardinality();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Cardinality of the intersection of two segments without materializing it */
+  long countBoth(CustomerSegment first, CustomerSegment second) {
+    lock.readLock().lock();
+    try {
+      return Roaring64Bitmap.andCardinality(resolve(first), resolve(second));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Active customers per preferred language */
+  Map<String, Long> countActiveByLanguage() {
+    lock.readLock().lock();
+    try {
+      Map<String, Long> counts = new HashMap<>();
+      byLanguage.forEach(
+          (language, bitmap) -> {
+            long count = Roaring64Bitmap.andCardinality(bitmap, active);
+            if (count > 0) {
+              counts.put(language, count);
+            }
+          });
+      return counts;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void addSubscriptionUnlocked(long customerId, SubscriptionAttributes subscription) {
+    subscribed.addLong(customerId);
+    byStatus.computeIfAbsent(subscription.status(), k -> new Roaring64Bitmap()).addLong(customerId);
+    if (subscription.status() == SubscriptionStatus.ACTIVE) {
+      activeByPlan
+          .computeIfAbsent(subscription.planId(), k -> new Roaring64Bitmap())
+          .addLong(customerId);
+    }
+  }
+
+  private Roaring64Bitmap resolve(CustomerSegment segment) {
+    Roaring64Bitmap bitmap;
+    switch (segment.kind()) {
+      case ALL:
+        return all;
+      case ACTIVE:
+        return active;
+      case SUBSCRIBED:
+        return subscribed;
+      case LANGUAGE:
+        bitmap = byLanguage.get((String) segment.key());
+        break;
+      case PLAN:
+        bitmap = activeByPlan.get((Long) segment.key());
+        break;
+      case STATUS:
+        bitmap = byStatus.get((SubscriptionStatus) segment.key());
+        break;
+      default:
+        throw new IllegalArgumentException("Unsupported segment: " + segment.kind());
+    }
+    return bitmap != null ? bitmap : new Roaring64Bitmap();
+  }
+}
@@ -0,0 +1,53 @@
+package com.okemwag.subscribe.analytics;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.okemwag.subscribe.config.AnalyticsGuardConfig;
+import com.okemwag.subscribe.enums.TenantTier;
+import com.okemwag.subscribe.repository.CustomerRepository;
+import com.okemwag.subscribe.repository.SubscriptionRepository;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sizes tenants by their customer and subscription counts, counted at most once per TTL, so
+ * analytics can pick a cheaper plan for the tenants whose aggregates are expensive.
+ */
+@Component
+public class TenantSizeEstimator {
+
+  private final CustomerRepository customerRepository;
+  private final SubscriptionRepository subscriptionRepository;
+  private final AnalyticsGuardConfig config;
+
+  private final Cache<Long, Long> sizes;
+
+  public TenantSizeEstimator(
+      CustomerRepository customerRepository,
+      SubscriptionRepository subscriptionRepository,
+      AnalyticsGuardConfig config) {
+    this.customerRepository = customerRepository;
+    this.subscriptionRepository = subscriptionRepository;
+    this.config = config;
+    this.sizes =
+        Caffeine.newBuilder().maximumSize(100_000).expireAfterWrite(config.getSizeTtl()).build();
+  }
+
+  public TenantTier tier(Long businessId) {
+    return estimatedRows(businessId) >= config.getLargeTenantRows()
+        ? TenantTier.LARGE
+        : TenantTier.SMALL;
+  }
+
+  /** Count the tenant again on next use, after a bulk change of its size */
+  public void invalidate(Long businessId) {
+    sizes.invalidate(businessId);
+  }
+
+  public long estimatedRows(Long businessId) {
+    return sizes.get(
+        businessId,
+        id ->
+            customerRepository.countAllCustomersByBusiness(id)
+                + subscriptionRepository.countAllSubscriptionsByBusiness(id));
+  }
+}
@@ -0,0 +1,86 @@
+package com.okemwag.subscribe.analytics;
+
+import com.okemwag.subscribe.enums.TimeSeriesMetric;
+import com.okemwag.subscribe.enums.TimeSeriesResolution;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Every time series of one tenant, one column of buckets per metric and resolution. A value is
+ * written to its hour, day and month at once, so the coarser columns hold the rollups of the finer
+ * ones and simply reach further back. Amounts are kept in minor units.
+ */
+class TenantTimeSeries {
+
+  private final RollingSeries[][] columns;
+
+  TenantTimeSeries(int hourlyBuckets, int dailyBuckets, int monthlyBuckets, LocalDateTime now) {
+    TimeSeriesMetric[] metrics = TimeSeriesMetric.values();
+    columns = new RollingSeries[metrics.length][];
+    for (TimeSeriesMetric metric : metrics) {
+      columns[metric.ordinal()] =
+          new RollingSeries[] {
+            new RollingSeries(hourlyBuckets, bucket(TimeSeriesResolution.HOUR, now)),
+            new RollingSeries(dailyBuckets, bucket(TimeSeriesResolution.DAY, now)),
+            new RollingSeries(monthlyBuckets, bucket(TimeSeriesResolution.MONTH, now))
+          };
+    }
+  }
+
+  synchronized void add(TimeSeriesMetric metric, LocalDateTime time, long delta) {
+    RollingSeries[] resolutions = columns[metric.ordinal()];
+    for (TimeSeriesResolution resolution : TimeSeriesResolution.values()) {
+      resolutions[resolution.ordinal()].add(bucket(resolution, time), delta);
+    }
+  }
+
+  /** Bucket values from the bucket holding {@code from} to the one holding {@code to} */
+  synchronized long[] slice(
+      TimeSeriesMetric metric,
+      TimeSeriesResolution resolution,
+      LocalDateTime from,
+      LocalDateTime to) {
+    return columns[metric.ordinal()][resolution.ordinal()].slice(
+        bucket(resolution, from), bucket(resolution, to));
+  }
+
+  /** Bucket values of every metric, indexed by metric ordinal, read at one point in time */
+  synchronized long[][] sliceAll(
+      TimeSeriesResolution resolution, LocalDateTime from, LocalDateTime to) {
+    long[][] result = new long[columns.length][];
+    for (int metric = 0; metric < columns.length; metric++) {
+      result[metric] =
+          columns[metric][resolution.ordinal()].slice(
+              bucket(resolution, from), bucket(resolution, to));
+    }
+    return result;
+  }
+
+  static long bucket(TimeSeriesResolution resolution, LocalDateTime time) {
+    switch (resolution) {
+      case HOUR:
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 3600);
+      case DAY:
+        return time.toLocalDate().toEpochDay();
+      case MONTH:
+        return time.getYear() * 12L + time.getMonthValue() - 1;
+      default:
+        throw new IllegalArgumentException("Unknown resolution: " + resolution);
+    }
+  }
+
+  /** Start of the bucket holding {@code time} */
+  static LocalDateTime bucketStart(TimeSeriesResolution resolution, LocalDateTime time) {
+    switch (resolution) {
+      case HOUR:
+        return time.withMinute(0).withSecond(0).withNano(0);
+      case DAY:
+        return time.toLocalDate().atStartOfDay();
+      case MONTH:
+        return LocalDate.of(time.getYear(), time.getMonth(), 1).atStartOfDay();
+      default:
+        throw new IllegalArgumentException("Unknown resolution: " + resolution);
+    }
+  }
+}
@@ -0,0 +1,264 @@
+package com.okemwag.subscribe.cache;
+
+import com.okemwag.subscribe.config.AnalyticsCacheConfig;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stale-while-revalidate layer over the analytics caches. Fresh entries are returned directly;
+ * stale entries are returned immediately while a single background refresh recomputes them; missing
+ * or too old entries are computed once per key no matter how many callers ask concurrently.
+ *
+ * <p>Keys are namespaced by a per-tenant generation token kept in the shared {@link #GENERATIONS}
+ * cache. Invalidating a tenant replaces its token, so every node stops reading the old entries at
+ * once without knowing their keys, and the orphaned entries simply run out their time to live. A
+ * load that started under the old token writes where nobody reads any more.
+ */
+@Component
+@Slf4j
+public class AnalyticsCache {
+
+  public static final String BUSINESS_ANALYTICS = "businessAnalytics";
+  public static final String REVENUE_REPORT = "revenueReport";
+  public static final String CUSTOMER_GROWTH = "customerGrowth";
+  public static final String GENERATIONS = "analyticsGenerations";
+
+  public static final List<String> CACHE_NAMES =
+      List.of(BUSINESS_ANALYTICS, REVENUE_REPORT, CUSTOMER_GROWTH);
+
+  private final CacheManager cacheManager;
+  private final ThreadPoolTaskExecutor refreshExecutor;
+  private final AnalyticsCacheConfig config;
+
+  private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+  private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+  public AnalyticsCache(
+      CacheManager cacheManager,
+      @Qualifier("analyticsRefreshExecutor") ThreadPoolTaskExecutor refreshExecutor,
+      AnalyticsCacheConfig config) {
+    this.cacheManager = cacheManager;
+    this.refreshExecutor = refreshExecutor;
+    this.config = config;
+  }
+
+  /**
+   * Return the cached value for the tenant and discriminator, computing it with {@code loader} when
+   * it is missing and refreshing it in the background when it is stale.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T get(String cacheName, Long businessId, String discriminator, Supplier<T> loader) {
+    Cache cache = cache(cacheName);
+    String key = key(businessId, generation(cacheName, businessId), discriminator);
+    Counters stats = counters(cacheName);
+
+    CachedValue cached = cache.get(key, CachedValue.class);
+    long now = System.currentTimeMillis();
+
+    if (cached != null) {
+      long age = cached.ageMillis(now);
+      if (age <= config.getFreshFor().toMillis()) {
+        stats.hits.increment();
+        return (T) cached.value();
+      }
+      if (age <= config.getStaleFor().toMillis()) {
+        stats.staleHits.increment();
+        refreshInBackground(cache, key, loader, stats);
+        return (T) cached.value();
+      }
+    }
+
+    stats.misses.increment();
+    return (T) loadOnce(cache, key, loader);
+  }
+
+  /**
+   * Replace a cached value in place with {@code patch} applied to it. Nothing happens when the
+   * entry is not cached, the next read computes it in full.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> void update(
+      String cacheName, Long businessId, String discriminator, UnaryOperator<T> patch) {
+    Cache cache = cache(cacheName);
+    long generation = generation(cacheName, businessId);
+
+    CachedValue cached = cache.get(key(businessId, generation, discriminator), CachedValue.class);
+    if (cached == null) {
+      return;
+    }
+
+    // The patched value moves to a new generation, so loads that started before the patch read
+    // older data and write it where it is no longer read
+    T patched = patch.apply((T) cached.value());
+    long next = nextGeneration(generation);
+    cache.put(
+        key(businessId, next, discriminator), new CachedValue(patched, System.currentTimeMillis()));
+    cache(GENERATIONS).put(generationKey(cacheName, businessId), next);
+    counters(cacheName).patches.increment();
+  }
+
+  /** Evict every entry of the tenant from all analytics caches, on every node */
+  public void invalidate(Long businessId) {
+    for (String cacheName : CACHE_NAMES) {
+      invalidate(cacheName, businessId);
+    }
+  }
+
+  /** Evict every entry of the tenant from one analytics cache, on every node */
+  public void invalidate(String cacheName, Long businessId) {
+    Cache generations = cache(GENERATIONS);
+    String generationKey = generationKey(cacheName, businessId);
+    Long current = generations.get(generationKey, Long.class);
+    generations.put(generationKey, nextGeneration(current == null ? 0 : current));
+    counters(cacheName).evictions.increment();
+    log.debug("Invalidated {} entries for business ID: {}", cacheName, businessId);
+  }
+
+  /** Current counters per cache name */
+  public Map<String, CacheStatistics> statistics() {
+    Map<String, CacheStatistics> snapshot = new TreeMap<>();
+    counters.forEach((name, stats) -> snapshot.put(name, stats.snapshot()));
+    return snapshot;
+  }
+
+  private Object loadOnce(Cache cache, String key, Supplier<?> loader) {
+    String flightKey = cache.getName() + "::" + key;
+    CompletableFuture<Object> mine = new CompletableFuture<>();
+    CompletableFuture<Object> existing = inFlight.putIfAbsent(flightKey, mine);
+
+    if (existing != null) {
+      try {
+        return existing.join();
+      } catch (CompletionException e) {
+        throw e.getCause() instanceof RuntimeException runtime ? runtime : e;
+      }
+    }
+
+    try {
+      Object value = loader.get();
+      store(cache, key, value);
+      mine.complete(value);
+      return value;
+    } catch (RuntimeException e) {
+      mine.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(flightKey, mine);
+    }
+  }
+
+  private void refreshInBackground(Cache cache, String key, Supplier<?> loader, Counters stats) {
+    String flightKey = cache.getName() + "::" + key;
+    CompletableFuture<Object> mine = new CompletableFuture<>();
+    if (inFlight.putIfAbsent(flightKey, mine) != null) {
+      return;
+    }
+
+    try {
+      refreshExecutor.execute(
+          () -> {
+            try {
+              Object value = loader.get();
+              store(cache, key, value);
+              stats.refreshes.increment();
+              mine.complete(value);
+            } catch (RuntimeException e) {
+              stats.refreshFailures.increment();
+              log.warn(
+                  "Background refresh of {} {} failed: {}", cache.getName(), key, e.getMessage());
+              mine.completeExceptionally(e);
+            } finally {
+              inFlight.remove(flightKey, mine);
+            }
+          });
+    } catch (TaskRejectedException e) {
+      stats.skippedRefreshes.increment();
+      inFlight.remove(flightKey, mine);
+      mine.cancel(false);
+    }
+  }
+
+  private void store(Cache cache, String key, Object value) {
+    cache.put(key, new CachedValue(value, System.currentTimeMillis()));
+  }
+
+  /** The tenant's current generation of one cache, starting a new one when it has none */
+  private long generation(String cacheName, Long businessId) {
+    Cache generations = cache(GENERATIONS);
+    String generationKey = generationKey(cacheName, businessId);
+    Long generation = generations.get(generationKey, Long.class);
+    if (generation == null) {
+      // Nodes starting a generation at the same time only cost each other a recomputation
+      generation = nextGeneration(0);
+      generations.put(generationKey, generation);
+    }
+    return generation;
+  }
+
+  // Random rather than counted, so a generation lost to expiry is never handed out again
+  private static long nextGeneration(long current) {
+    long next;
+    do {
+      next = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+    } while (next == current);
+    return next;
+  }
+
+  private static String generationKey(String cacheName, Long businessId) {
+    return cacheName + ":" + businessId;
+  }
+
+  private static String key(Long businessId, long generation, String discriminator) {
+    return businessId + ":" + Long.toHexString(generation) + ":" + discriminator;
+  }
+
+  private Cache cache(String cacheName) {
+    Cache cache = cacheManager.getCache(cacheName);
+    if (cache == null) {
+      throw new IllegalStateException("No cache configured with name: " + cacheName);
+    }
+    return cache;
+  }
+
+  private Counters counters(String cacheName) {
+    return counters.computeIfAbsent(cacheName, k -> new Counters());
+  }
+
+  private static class Counters {
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+    private final LongAdder skippedRefreshes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder patches = new LongAdder();
+
+    private CacheStatistics snapshot() {
+      return new CacheStatistics(
+          hits.sum(),
+          staleHits.sum(),
+          misses.sum(),
+          refreshes.sum(),
+          refreshFailures.sum(),
+          skippedRefreshes.sum(),
+          evictions.sum(),
+          patches.sum());
+    }
+  }
+}
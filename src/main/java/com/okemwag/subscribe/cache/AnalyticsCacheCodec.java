@@ -0,0 +1,653 @@
+package com.okemwag.subscribe.cache;
+
+import com.okemwag.subscribe.dto.AnalyticsDTO;
+import com.okemwag.subscribe.dto.CustomerGrowthDTO;
+import com.okemwag.subscribe.dto.PlatformAnalyticsDTO;
+import com.okemwag.subscribe.dto.RevenueForecastDTO;
+import com.okemwag.subscribe.dto.RevenueReportDTO;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * Compact binary encoding of the cached analytics results and lookup values. Each value starts with
+ * a format version and a type tag, followed by its fields in declaration order. Integers are
+ * zig-zag varints, every nullable field costs one byte when absent, and decimals are stored as
+ * scale plus unscaled bytes.
+ */
+public class AnalyticsCacheCodec implements RedisSerializer<Object> {
+
+  // Bump when the encoding changes; values of another version read as missing and are recomputed
+  private static final byte VERSION = 2;
+
+  private static final byte NULL = 0;
+  private static final byte CACHED_VALUE = 1;
+  private static final byte ANALYTICS = 2;
+  private static final byte REVENUE_REPORT = 3;
+  private static final byte CUSTOMER_GROWTH = 4;
+  private static final byte LONG = 5;
+  private static final byte STRING = 6;
+  private static final byte PLATFORM_ANALYTICS = 7;
+  private static final byte REVENUE_FORECAST = 8;
+
+  @Override
+  public byte[] serialize(Object value) throws SerializationException {
+    if (value == null) {
+      return null;
+    }
+
+    Writer out = new Writer();
+    out.writeByte(VERSION);
+    writeValue(out, value);
+    return out.toByteArray();
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) throws SerializationException {
+    if (bytes == null || bytes.length == 0) {
+      return null;
+    }
+
+    Reader in = new Reader(bytes);
+    byte version = in.readByte();
+    if (version != VERSION) {
+      return null;
+    }
+    return readValue(in);
+  }
+
+  private void writeValue(Writer out, Object value) {
+    if (value == null) {
+      out.writeByte(NULL);
+    } else if (value instanceof CachedValue cached) {
+      out.writeByte(CACHED_VALUE);
+      out.writeLong(cached.computedAtMillis());
+      writeValue(out, cached.value());
+    } else if (value instanceof AnalyticsDTO analytics) {
+      out.writeByte(ANALYTICS);
+      writeAnalytics(out, analytics);
+    } else if (value instanceof RevenueReportDTO report) {
+      out.writeByte(REVENUE_REPORT);
+      writeRevenueReport(out, report);
+    } else if (value instanceof CustomerGrowthDTO growth) {
+      out.writeByte(CUSTOMER_GROWTH);
+      writeCustomerGrowth(out, growth);
+    } else if (value instanceof PlatformAnalyticsDTO platform) {
+      out.writeByte(PLATFORM_ANALYTICS);
+      writePlatformAnalytics(out, platform);
+    } else if (value instanceof RevenueForecastDTO forecast) {
+      out.writeByte(REVENUE_FORECAST);
+      writeRevenueForecast(out, forecast);
+    } else if (value instanceof Long number) {
+      out.writeByte(LONG);
+      out.writeLong(number);
+    } else if (value instanceof String text) {
+      out.writeByte(STRING);
+      out.writeString(text);
+    } else {
+      throw new SerializationException(
+          "Cannot encode " + value.getClass().getName() + " as an analytics cache value");
+    }
+  }
+
+  private Object readValue(Reader in) {
+    byte tag = in.readByte();
+    switch (tag) {
+      case NULL:
+        return null;
+      case CACHED_VALUE:
+        long computedAtMillis = in.readLong();
+        return new CachedValue(readValue(in), computedAtMillis);
+      case ANALYTICS:
+        return readAnalytics(in);
+      case REVENUE_REPORT:
+        return readRevenueReport(in);
+      case CUSTOMER_GROWTH:
+        return readCustomerGrowth(in);
+      case PLATFORM_ANALYTICS:
+        return readPlatformAnalytics(in);
+      case REVENUE_FORECAST:
+        return readRevenueForecast(in);
+      case LONG:
+        return in.readLong();
+      case STRING:
+        return in.readString();
+      default:
+        throw new SerializationException("Unknown analytics cache value tag: " + tag);
+    }
+  }
+
+  // Analytics dashboard
+
+  private void writeAnalytics(Writer out, AnalyticsDTO analytics) {
+    AnalyticsDTO.RevenueMetrics revenue = analytics.getRevenueMetrics();
+    if (out.writePresence(revenue)) {
+      out.writeDecimal(revenue.getTotalRevenue());
+      out.writeDecimal(revenue.getMonthlyRecurringRevenue());
+      out.writeDecimal(revenue.getAverageRevenuePerUser());
+      out.writeDecimal(revenue.getTotalOutstanding());
+      out.writeMap(revenue.getRevenueByMonth(), out::writeDecimal);
+      out.writeMap(revenue.getRevenueByCurrency(), out::writeDecimal);
+    }
+
+    AnalyticsDTO.CustomerMetrics customers = analytics.getCustomerMetrics();
+    if (out.writePresence(customers)) {
+      out.writeNullableLong(customers.getTotalCustomers());
+      out.writeNullableLong(customers.getActiveCustomers());
+      out.writeNullableLong(customers.getNewCustomersThisMonth());
+      out.writeNullableLong(customers.getCustomersWithoutSubscriptions());
+      out.writeNullableDouble(customers.getCustomerGrowthRate());
+      out.writeMap(customers.getCustomersByLanguage(), out::writeNullableLong);
+    }
+
+    AnalyticsDTO.SubscriptionMetrics subscriptions = analytics.getSubscriptionMetrics();
+    if (out.writePresence(subscriptions)) {
+      out.writeNullableLong(subscriptions.getTotalSubscriptions());
+      out.writeNullableLong(subscriptions.getActiveSubscriptions());
+      out.writeNullableLong(subscriptions.getTrialSubscriptions());
+      out.writeNullableLong(subscriptions.getCancelledSubscriptions());
+      out.writeMap(subscriptions.getSubscriptionsByStatus(), out::writeNullableLong);
+      out.writeMap(subscriptions.getSubscriptionsByPlan(), out::writeNullableLong);
+      out.writeNullableDouble(subscriptions.getConversionRate());
+    }
+
+    AnalyticsDTO.ChurnMetrics churn = analytics.getChurnMetrics();
+    if (out.writePresence(churn)) {
+      out.writeNullableDouble(churn.getMonthlyChurnRate());
+      out.writeNullableDouble(churn.getAnnualChurnRate());
+      out.writeNullableLong(churn.getChurnedCustomersThisMonth());
+      out.writeDecimal(churn.getChurnedRevenueThisMonth());
+      out.writeNullableDouble(churn.getCustomerLifetimeValue());
+      out.writeString(churn.getCurrency());
+      out.writeList(churn.getUnconvertedCurrencies(), out::writeString);
+    }
+
+    out.writeDateTime(analytics.getGeneratedAt());
+    out.writeByte(analytics.isDegraded() ? 1 : 0);
+    out.writeList(analytics.getDegradedSections(), out::writeString);
+    out.writeDate(analytics.getSnapshotDate());
+    if (revenue != null) {
+      out.writeString(revenue.getCurrency());
+      out.writeList(revenue.getUnconvertedCurrencies(), out::writeString);
+    }
+  }
+
+  private AnalyticsDTO readAnalytics(Reader in) {
+    AnalyticsDTO analytics = new AnalyticsDTO();
+
+    if (in.readPresence()) {
+      AnalyticsDTO.RevenueMetrics revenue = new AnalyticsDTO.RevenueMetrics();
+      revenue.setTotalRevenue(in.readDecimal());
+      revenue.setMonthlyRecurringRevenue(in.readDecimal());
+      revenue.setAverageRevenuePerUser(in.readDecimal());
+      revenue.setTotalOutstanding(in.readDecimal());
+      revenue.setRevenueByMonth(in.readMap(Reader::readDecimal));
+      revenue.setRevenueByCurrency(in.readMap(Reader::readDecimal));
+      analytics.setRevenueMetrics(revenue);
+    }
+
+    if (in.readPresence()) {
+      AnalyticsDTO.CustomerMetrics customers = new AnalyticsDTO.CustomerMetrics();
+      customers.setTotalCustomers(in.readNullableLong());
+      customers.setActiveCustomers(in.readNullableLong());
+      customers.setNewCustomersThisMonth(in.readNullableLong());
+      customers.setCustomersWithoutSubscriptions(in.readNullableLong());
+      customers.setCustomerGrowthRate(in.readNullableDouble());
+      customers.setCustomersByLanguage(in.readMap(Reader::readNullableLong));
+      analytics.setCustomerMetrics(customers);
+    }
+
+    if (in.readPresence()) {
+      AnalyticsDTO.SubscriptionMetrics subscriptions = new AnalyticsDTO.SubscriptionMetrics();
+      subscriptions.setTotalSubscriptions(in.readNullableLong());
+      subscriptions.setActiveSubscriptions(in.readNullableLong());
+      subscriptions.setTrialSubscriptions(in.readNullableLong());
+      subscriptions.setCancelledSubscriptions(in.readNullableLong());
+      subscriptions.setSubscriptionsByStatus(in.readMap(Reader::readNullableLong));
+      subscriptions.setSubscriptionsByPlan(in.readMap(Reader::readNullableLong));
+      subscriptions.setConversionRate(in.readNullableDouble());
+      analytics.setSubscriptionMetrics(subscriptions);
+    }
+
+    if (in.readPresence()) {
+      AnalyticsDTO.ChurnMetrics churn = new AnalyticsDTO.ChurnMetrics();
+      churn.setMonthlyChurnRate(in.readNullableDouble());
+      churn.setAnnualChurnRate(in.readNullableDouble());
+      churn.setChurnedCustomersThisMonth(in.readNullableLong());
+      churn.setChurnedRevenueThisMonth(in.readDecimal());
+      churn.setCustomerLifetimeValue(in.readNullableDouble());
+      churn.setCurrency(in.readString());
+      churn.setUnconvertedCurrencies(in.readList(Reader::readString));
+      analytics.setChurnMetrics(churn);
+    }
+
+    analytics.setGeneratedAt(in.readDateTime());
+    analytics.setDegraded(in.readPresence());
+    analytics.setDegradedSections(in.readList(Reader::readString));
+    analytics.setSnapshotDate(in.readDate());
+    if (analytics.getRevenueMetrics() != null) {
+      analytics.getRevenueMetrics().setCurrency(in.readString());
+      analytics.getRevenueMetrics().setUnconvertedCurrencies(in.readList(Reader::readString));
+    }
+    return analytics;
+  }
+
+  // Revenue report
+
+  private void writeRevenueReport(Writer out, RevenueReportDTO report) {
+    out.writeDecimal(report.getTotalRevenue());
+    out.writeDecimal(report.getTotalPaidAmount());
+    out.writeDecimal(report.getTotalOutstandingAmount());
+    out.writeDecimal(report.getTotalRefunds());
+    out.writeDateTime(report.getReportPeriodStart());
+    out.writeDateTime(report.getReportPeriodEnd());
+    out.writeList(
+        report.getMonthlyBreakdown(),
+        month -> {
+          out.writeLong(month.getYear());
+          out.writeLong(month.getMonth());
+          out.writeDecimal(month.getRevenue());
+          out.writeNullableLong(month.getInvoiceCount());
+          out.writeDecimal(month.getAverageInvoiceAmount());
+          out.writeDecimal(month.getRefunds());
+        });
+    out.writeMap(report.getRevenueByCurrency(), out::writeDecimal);
+    out.writeMap(report.getRevenueByPaymentMethod(), out::writeDecimal);
+    out.writeDateTime(report.getGeneratedAt());
+    out.writeString(report.getCurrency());
+    out.writeList(report.getUnconvertedCurrencies(), out::writeString);
+  }
+
+  private RevenueReportDTO readRevenueReport(Reader in) {
+    RevenueReportDTO report = new RevenueReportDTO();
+    report.setTotalRevenue(in.readDecimal());
+    report.setTotalPaidAmount(in.readDecimal());
+    report.setTotalOutstandingAmount(in.readDecimal());
+    report.setTotalRefunds(in.readDecimal());
+    report.setReportPeriodStart(in.readDateTime());
+    report.setReportPeriodEnd(in.readDateTime());
+    report.setMonthlyBreakdown(
+        in.readList(
+            reader -> {
+              RevenueReportDTO.MonthlyRevenue month = new RevenueReportDTO.MonthlyRevenue();
+              month.setYear((int) reader.readLong());
+              month.setMonth((int) reader.readLong());
+              month.setRevenue(reader.readDecimal());
+              month.setInvoiceCount(reader.readNullableLong());
+              month.setAverageInvoiceAmount(reader.readDecimal());
+              month.setRefunds(reader.readDecimal());
+              return month;
+            }));
+    report.setRevenueByCurrency(in.readMap(Reader::readDecimal));
+    report.setRevenueByPaymentMethod(in.readMap(Reader::readDecimal));
+    report.setGeneratedAt(in.readDateTime());
+    report.setCurrency(in.readString());
+    report.setUnconvertedCurrencies(in.readList(Reader::readString));
+    return report;
+  }
+
+  // Customer growth report
+
+  private void writeCustomerGrowth(Writer out, CustomerGrowthDTO growth) {
+    out.writeNullableLong(growth.getTotalCustomers());
+    out.writeNullableLong(growth.getActiveCustomers());
+    out.writeNullableLong(growth.getNewCustomersThisMonth());
+    out.writeNullableLong(growth.getNewCustomersLastMonth());
+    out.writeNullableDouble(growth.getGrowthRate());
+    out.writeList(
+        growth.getMonthlyGrowth(),
+        month -> {
+          out.writeLong(month.getYear());
+          out.writeLong(month.getMonth());
+          out.writeNullableLong(month.getNewCustomers());
+          out.writeNullableLong(month.getTotalCustomers());
+          out.writeNullableDouble(month.getGrowthRate());
+        });
+    out.writeDateTime(growth.getGeneratedAt());
+  }
+
+  private CustomerGrowthDTO readCustomerGrowth(Reader in) {
+    CustomerGrowthDTO growth = new CustomerGrowthDTO();
+    growth.setTotalCustomers(in.readNullableLong());
+    growth.setActiveCustomers(in.readNullableLong());
+    growth.setNewCustomersThisMonth(in.readNullableLong());
+    growth.setNewCustomersLastMonth(in.readNullableLong());
+    growth.setGrowthRate(in.readNullableDouble());
+    growth.setMonthlyGrowth(
+        in.readList(
+            reader -> {
+              CustomerGrowthDTO.MonthlyGrowth month = new CustomerGrowthDTO.MonthlyGrowth();
+              month.setYear((int) reader.readLong());
+              month.setMonth((int) reader.readLong());
+              month.setNewCustomers(reader.readNullableLong());
+              month.setTotalCustomers(reader.readNullableLong());
+              month.setGrowthRate(reader.readNullableDouble());
+              return month;
+            }));
+    growth.setGeneratedAt(in.readDateTime());
+    return growth;
+  }
+
+  // Platform analytics
+
+  private void writePlatformAnalytics(Writer out, PlatformAnalyticsDTO platform) {
+    out.writeNullableLong(platform.getActiveBusinesses());
+    out.writeNullableLong(platform.getBusinessesCreatedThisMonth());
+    out.writeMap(platform.getBusinessesByCurrency(), out::writeNullableLong);
+    out.writeMap(platform.getBusinessesByTimezone(), out::writeNullableLong);
+    out.writeNullableLong(platform.getActiveSubscriptions());
+    out.writeMap(platform.getRevenueByCurrency(), out::writeDecimal);
+    out.writeMap(platform.getMonthlyRecurringRevenueByCurrency(), out::writeDecimal);
+    out.writeNullableLong(platform.getChurnedCustomersThisMonth());
+    out.writeNullableDouble(platform.getMonthlyChurnRate());
+    out.writeMap(platform.getTenantRevenueByCurrency(), d -> writeDistribution(out, d));
+    out.writeMap(
+        platform.getTenantMonthlyRecurringRevenueByCurrency(), d -> writeDistribution(out, d));
+    writeDistribution(out, platform.getTenantMonthlyChurnRate());
+    out.writeNullableLong(platform.getComputationMillis());
+    out.writeDateTime(platform.getGeneratedAt());
+  }
+
+  private PlatformAnalyticsDTO readPlatformAnalytics(Reader in) {
+    PlatformAnalyticsDTO platform = new PlatformAnalyticsDTO();
+    platform.setActiveBusinesses(in.readNullableLong());
+    platform.setBusinessesCreatedThisMonth(in.readNullableLong());
+    platform.setBusinessesByCurrency(in.readMap(Reader::readNullableLong));
+    platform.setBusinessesByTimezone(in.readMap(Reader::readNullableLong));
+    platform.setActiveSubscriptions(in.readNullableLong());
+    platform.setRevenueByCurrency(in.readMap(Reader::readDecimal));
+    platform.setMonthlyRecurringRevenueByCurrency(in.readMap(Reader::readDecimal));
+    platform.setChurnedCustomersThisMonth(in.readNullableLong());
+    platform.setMonthlyChurnRate(in.readNullableDouble());
+    platform.setTenantRevenueByCurrency(in.readMap(this::readDistribution));
+    platform.setTenantMonthlyRecurringRevenueByCurrency(in.readMap(this::readDistribution));
+    platform.setTenantMonthlyChurnRate(readDistribution(in));
+    platform.setComputationMillis(in.readNullableLong());
+    platform.setGeneratedAt(in.readDateTime());
+    return platform;
+  }
+
+  // Revenue forecast
+
+  private void writeRevenueForecast(Writer out, RevenueForecastDTO forecast) {
+    out.writeDate(forecast.getStartDate());
+    out.writeNullableLong(forecast.getHorizonDays());
+    out.writeDecimal(forecast.getExpectedRevenue());
+    out.writeDecimal(forecast.getScheduledRevenue());
+    out.writeNullableLong(forecast.getScheduledCharges());
+    out.writeNullableLong(forecast.getTrialsEnding());
+    out.writeNullableDouble(forecast.getTrialConversionRate());
+    out.writeMap(forecast.getSuccessRateByMethod(), out::writeNullableDouble);
+    out.writeList(
+        forecast.getDailyForecast(),
+        day -> {
+          out.writeDate(day.getDate());
+          out.writeDecimal(day.getExpectedRevenue());
+          out.writeDecimal(day.getScheduledRevenue());
+          out.writeNullableLong(day.getCharges());
+        });
+    out.writeDateTime(forecast.getGeneratedAt());
+  }
+
+  private RevenueForecastDTO readRevenueForecast(Reader in) {
+    RevenueForecastDTO forecast = new RevenueForecastDTO();
+    forecast.setStartDate(in.readDate());
+    forecast.setHorizonDays(in.readNullableLong());
+    forecast.setExpectedRevenue(in.readDecimal());
+    forecast.setScheduledRevenue(in.readDecimal());
+    forecast.setScheduledCharges(in.readNullableLong());
+    forecast.setTrialsEnding(in.readNullableLong());
+    forecast.setTrialConversionRate(in.readNullableDouble());
+    forecast.setSuccessRateByMethod(in.readMap(Reader::readNullableDouble));
+    forecast.setDailyForecast(
+        in.readList(
+            reader -> {
+              RevenueForecastDTO.DailyForecast day = new RevenueForecastDTO.DailyForecast();
+              day.setDate(reader.readDate());
+              day.setExpectedRevenue(reader.readDecimal());
+              day.setScheduledRevenue(reader.readDecimal());
+              day.setCharges(reader.readNullableLong());
+              return day;
+            }));
+    forecast.setGeneratedAt(in.readDateTime());
+    return forecast;
+  }
+
+  private void writeDistribution(Writer out, PlatformAnalyticsDTO.Distribution distribution) {
+    if (out.writePresence(distribution)) {
+      out.writeNullableLong(distribution.getTenants());
+      out.writeNullableDouble(distribution.getP50());
+      out.writeNullableDouble(distribution.getP90());
+      out.writeNullableDouble(distribution.getP99());
+      out.writeNullableDouble(distribution.getMax());
+    }
+  }
+
+  private PlatformAnalyticsDTO.Distribution readDistribution(Reader in) {
+    if (!in.readPresence()) {
+      return null;
+    }
+    PlatformAnalyticsDTO.Distribution distribution = new PlatformAnalyticsDTO.Distribution();
+    distribution.setTenants(in.readNullableLong());
+    distribution.setP50(in.readNullableDouble());
+    distribution.setP90(in.readNullableDouble());
+    distribution.setP99(in.readNullableDouble());
+    distribution.setMax(in.readNullableDouble());
+    return distribution;
+  }
+
+  /** Appends primitives to a growable buffer */
+  private static class Writer {
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+
+    void writeByte(int value) {
+      buffer.write(value);
+    }
+
+    void writeLong(long value) {
+      // Zig-zag so small negative numbers stay short
+      long encoded = (value << 1) ^ (value >> 63);
+      while ((encoded & ~0x7FL) != 0) {
+        buffer.write((int) ((encoded & 0x7F) | 0x80));
+        encoded >>>= 7;
+      }
+      buffer.write((int) encoded);
+    }
+
+    void writeBytes(byte[] bytes) {
+      writeLong(bytes.length);
+      buffer.write(bytes, 0, bytes.length);
+    }
+
+    boolean writePresence(Object value) {
+      buffer.write(value == null ? 0 : 1);
+      return value != null;
+    }
+
+    void writeNullableLong(Long value) {
+      if (writePresence(value)) {
+        writeLong(value);
+      }
+    }
+
+    void writeNullableDouble(Double value) {
+      if (writePresence(value)) {
+        long bits = Double.doubleToRawLongBits(value);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+          buffer.write((int) (bits >>> shift));
+        }
+      }
+    }
+
+    void writeDecimal(BigDecimal value) {
+      if (writePresence(value)) {
+        writeLong(value.scale());
+        writeBytes(value.unscaledValue().toByteArray());
+      }
+    }
+
+    void writeString(String value) {
+      if (writePresence(value)) {
+        writeBytes(value.getBytes(StandardCharsets.UTF_8));
+      }
+    }
+
+    void writeDateTime(LocalDateTime value) {
+      if (writePresence(value)) {
+        writeLong(value.toEpochSecond(ZoneOffset.UTC));
+        writeLong(value.getNano());
+      }
+    }
+
+    void writeDate(LocalDate value) {
+      if (writePresence(value)) {
+        writeLong(value.toEpochDay());
+      }
+    }
+
+    <V> void writeMap(Map<String, V> map, Consumer<V> valueWriter) {
+      if (writePresence(map)) {
+        writeLong(map.size());
+        for (Map.Entry<String, V> entry : map.entrySet()) {
+          writeString(entry.getKey());
+          valueWriter.accept(entry.getValue());
+        }
+      }
+    }
+
+    <E> void writeList(List<E> list, Consumer<E> elementWriter) {
+      if (writePresence(list)) {
+        writeLong(list.size());
+        list.forEach(elementWriter);
+      }
+    }
+
+    byte[] toByteArray() {
+      return buffer.toByteArray();
+    }
+  }
+
+  /** Reads primitives back in the order {@link Writer} appended them */
+  private static class Reader {
+    private final byte[] bytes;
+    private int position;
+
+    Reader(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    byte readByte() {
+      if (position >= bytes.length) {
+        throw new SerializationException("Truncated analytics cache value");
+      }
+      return bytes[position++];
+    }
+
+    long readLong() {
+      long encoded = 0;
+      int shift = 0;
+      byte b;
+      do {
+        if (shift > 63) {
+          throw new SerializationException("Malformed varint in analytics cache value");
+        }
+        b = readByte();
+        encoded |= (long) (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return (encoded >>> 1) ^ -(encoded & 1);
+    }
+
+    byte[] readBytes() {
+      int length = (int) readLong();
+      if (length < 0 || position + length > bytes.length) {
+        throw new SerializationException("Truncated analytics cache value");
+      }
+      byte[] result = new byte[length];
+      System.arraycopy(bytes, position, result, 0, length);
+      position += length;
+      return result;
+    }
+
+    boolean readPresence() {
+      return readByte() != 0;
+    }
+
+    Long readNullableLong() {
+      return readPresence() ? readLong() : null;
+    }
+
+    Double readNullableDouble() {
+      if (!readPresence()) {
+        return null;
+      }
+      long bits = 0;
+      for (int i = 0; i < 8; i++) {
+        bits = (bits << 8) | (readByte() & 0xFF);
+      }
+      return Double.longBitsToDouble(bits);
+    }
+
+    BigDecimal readDecimal() {
+      if (!readPresence()) {
+        return null;
+      }
+      int scale = (int) readLong();
+      return new BigDecimal(new BigInteger(readBytes()), scale);
+    }
+
+    String readString() {
+      return readPresence() ? new String(readBytes(), StandardCharsets.UTF_8) : null;
+    }
+
+    LocalDateTime readDateTime() {
+      if (!readPresence()) {
+        return null;
+      }
+      long epochSecond = readLong();
+      int nano = (int) readLong();
+      return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+
+    LocalDate readDate() {
+      return readPresence() ? LocalDate.ofEpochDay(readLong()) : null;
+    }
+
+    <V> Map<String, V> readMap(Function<Reader, V> valueReader) {
+      if (!readPresence()) {
+        return null;
+      }
+      int size = (int) readLong();
+      Map<String, V> map = new LinkedHashMap<>(Math.max(4, size * 2));
+      for (int i = 0; i < size; i++) {
+        String key = readString();
+        map.put(key, valueReader.apply(this));
+      }
+      return map;
+    }
+
+    <E> List<E> readList(Function<Reader, E> elementReader) {
+      if (!readPresence()) {
+        return null;
+      }
+      int size = (int) readLong();
+      List<E> list = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        list.add(elementReader.apply(this));
+      }
+      return list;
+    }
+  }
+}
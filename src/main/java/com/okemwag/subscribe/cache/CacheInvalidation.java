@@ -0,0 +1,27 @@
+package com.okemwag.subscribe.cache;
+
+/**
+ * An invalidation broadcast to the other application nodes. {@code KEY} drops one key of a cache,
+ * {@code CLEAR} drops a whole cache and {@code TENANT} drops the in-memory analytics state of the
+ * business in {@code key}, such as its counters and time series, and has no {@code cacheName}.
+ */
+public record CacheInvalidation(Type type, String cacheName, String key) {
+
+  public enum Type {
+    KEY,
+    CLEAR,
+    TENANT
+  }
+
+  public static CacheInvalidation key(String cacheName, String key) {
+    return new CacheInvalidation(Type.KEY, cacheName, key);
+  }
+
+  public static CacheInvalidation clear(String cacheName) {
+    return new CacheInvalidation(Type.CLEAR, cacheName, null);
+  }
+
+  public static CacheInvalidation tenant(Long businessId) {
+    return new CacheInvalidation(Type.TENANT, null, String.valueOf(businessId));
+  }
+}
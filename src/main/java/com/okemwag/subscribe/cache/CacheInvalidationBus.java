@@ -0,0 +1,11 @@
+package com.okemwag.subscribe.cache;
+
+import java.util.function.Consumer;
+
+/** Delivers cache invalidations to every other node; a node never receives its own messages */
+public interface CacheInvalidationBus {
+
+  void publish(CacheInvalidation invalidation);
+
+  void subscribe(Consumer<CacheInvalidation> listener);
+}
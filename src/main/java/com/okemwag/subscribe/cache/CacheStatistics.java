@@ -0,0 +1,18 @@
+package com.okemwag.subscribe.cache;
+
+/** Point-in-time counters for one analytics cache */
+public record CacheStatistics(
+    long hits,
+    long staleHits,
+    long misses,
+    long refreshes,
+    long refreshFailures,
+    long skippedRefreshes,
+    long evictions,
+    long patches) {
+
+  public double hitRatio() {
+    long total = hits + staleHits + misses;
+    return total == 0 ? 0.0 : (double) (hits + staleHits) / total;
+  }
+}
@@ -0,0 +1,11 @@
+package com.okemwag.subscribe.cache;
+
+import java.io.Serializable;
+
+/** A cached analytics result together with the time it was computed */
+public record CachedValue(Object value, long computedAtMillis) implements Serializable {
+
+  public long ageMillis(long nowMillis) {
+    return nowMillis - computedAtMillis;
+  }
+}
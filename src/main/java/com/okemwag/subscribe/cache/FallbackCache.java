@@ -0,0 +1,127 @@
+package com.okemwag.subscribe.cache;
+
+import java.util.concurrent.Callable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.dao.DataAccessException;
+
+/**
+ * Cache backed by the shared store that switches to a bounded local cache while the shared store
+ * cannot be reached. After a failure the shared store is skipped for the retry interval instead of
+ * making every request wait for a connection timeout.
+ */
+@Slf4j
+public class FallbackCache implements Cache {
+
+  private final Cache primary;
+  private final Cache fallback;
+  private final long retryIntervalMillis;
+
+  private volatile long primaryDownUntil;
+
+  public FallbackCache(Cache primary, Cache fallback, long retryIntervalMillis) {
+    this.primary = primary;
+    this.fallback = fallback;
+    this.retryIntervalMillis = retryIntervalMillis;
+  }
+
+  @Override
+  public String getName() {
+    return primary.getName();
+  }
+
+  @Override
+  public Object getNativeCache() {
+    return primary.getNativeCache();
+  }
+
+  /** Whether calls currently go to the local cache */
+  public boolean isUsingFallback() {
+    return System.currentTimeMillis() < primaryDownUntil;
+  }
+
+  @Override
+  public ValueWrapper get(Object key) {
+    if (!isUsingFallback()) {
+      try {
+        return primary.get(key);
+      } catch (DataAccessException e) {
+        primaryFailed(e);
+      }
+    }
+    return fallback.get(key);
+  }
+
+  @Override
+  public <T> T get(Object key, Class<T> type) {
+    if (!isUsingFallback()) {
+      try {
+        return primary.get(key, type);
+      } catch (DataAccessException e) {
+        primaryFailed(e);
+      }
+    }
+    return fallback.get(key, type);
+  }
+
+  @Override
+  public <T> T get(Object key, Callable<T> valueLoader) {
+    if (!isUsingFallback()) {
+      try {
+        return primary.get(key, valueLoader);
+      } catch (DataAccessException e) {
+        primaryFailed(e);
+      }
+    }
+    return fallback.get(key, valueLoader);
+  }
+
+  @Override
+  public void put(Object key, Object value) {
+    if (!isUsingFallback()) {
+      try {
+        primary.put(key, value);
+        return;
+      } catch (DataAccessException e) {
+        primaryFailed(e);
+      }
+    }
+    fallback.put(key, value);
+  }
+
+  @Override
+  public void evict(Object key) {
+    // The local copy may have been written during an earlier outage
+    fallback.evict(key);
+    if (!isUsingFallback()) {
+      try {
+        primary.evict(key);
+      } catch (DataAccessException e) {
+        primaryFailed(e);
+      }
+    }
+  }
+
+  @Override
+  public void clear() {
+    fallback.clear();
+    if (!isUsingFallback()) {
+      try {
+        primary.clear();
+      } catch (DataAccessException e) {
+        primaryFailed(e);
+      }
+    }
+  }
+
+  private void primaryFailed(DataAccessException e) {
+    if (!isUsingFallback()) {
+      log.warn(
+          "Cache {} cannot reach the shared store, using local cache for {} ms: {}",
+          getName(),
+          retryIntervalMillis,
+          e.getMessage());
+    }
+    primaryDownUntil = System.currentTimeMillis() + retryIntervalMillis;
+  }
+}
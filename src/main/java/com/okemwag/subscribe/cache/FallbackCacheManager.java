@@ -0,0 +1,63 @@
+package com.okemwag.subscribe.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+/** Wraps every cache of the shared cache manager in a {@link FallbackCache} */
+public class FallbackCacheManager implements CacheManager {
+
+  private final CacheManager primary;
+  private final Function<String, Duration> ttl;
+  private final long fallbackMaximumSize;
+  private final long retryIntervalMillis;
+
+  private final Map<String, Cache> caches = new ConcurrentHashMap<>();
+
+  public FallbackCacheManager(
+      CacheManager primary,
+      Function<String, Duration> ttl,
+      long fallbackMaximumSize,
+      Duration retryInterval) {
+    this.primary = primary;
+    this.ttl = ttl;
+    this.fallbackMaximumSize = fallbackMaximumSize;
+    this.retryIntervalMillis = retryInterval.toMillis();
+  }
+
+  @Override
+  public Cache getCache(String name) {
+    Cache existing = caches.get(name);
+    if (existing != null) {
+      return existing;
+    }
+
+    Cache shared = primary.getCache(name);
+    if (shared == null) {
+      return null;
+    }
+    return caches.computeIfAbsent(
+        name, k -> new FallbackCache(shared, localCache(name), retryIntervalMillis));
+  }
+
+  @Override
+  public Collection<String> getCacheNames() {
+    return primary.getCacheNames();
+  }
+
+  private Cache localCache(String name) {
+    return new CaffeineCache(
+        name,
+        Caffeine.newBuilder()
+            .maximumSize(fallbackMaximumSize)
+            .expireAfterWrite(ttl.apply(name))
+            .build(),
+        false);
+  }
+}
@@ -0,0 +1,80 @@
+package com.okemwag.subscribe.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/** Cache invalidation bus over a Redis pub/sub channel */
+@Slf4j
+public class RedisCacheInvalidationBus implements CacheInvalidationBus, MessageListener {
+
+  public static final String CHANNEL = "subscribe:cache:invalidation";
+
+  private static final char SEPARATOR = '\n';
+
+  private final StringRedisTemplate redisTemplate;
+  private final String nodeId = UUID.randomUUID().toString();
+  private final List<Consumer<CacheInvalidation>> listeners = new CopyOnWriteArrayList<>();
+
+  public RedisCacheInvalidationBus(StringRedisTemplate redisTemplate) {
+    this.redisTemplate = redisTemplate;
+  }
+
+  @Override
+  public void publish(CacheInvalidation invalidation) {
+    try {
+      redisTemplate.convertAndSend(CHANNEL, encode(invalidation));
+    } catch (DataAccessException e) {
+      // Remote local caches then expire on their own time to live
+      log.warn("Could not broadcast cache invalidation {}: {}", invalidation, e.getMessage());
+    }
+  }
+
+  @Override
+  public void subscribe(Consumer<CacheInvalidation> listener) {
+    listeners.add(listener);
+  }
+
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    String body = new String(message.getBody(), StandardCharsets.UTF_8);
+    String[] parts = body.split(String.valueOf(SEPARATOR), 4);
+    if (parts.length != 4) {
+      log.warn("Ignoring malformed cache invalidation message: {}", body);
+      return;
+    }
+    if (nodeId.equals(parts[0])) {
+      return;
+    }
+
+    CacheInvalidation invalidation =
+        new CacheInvalidation(
+            CacheInvalidation.Type.valueOf(parts[1]),
+            parts[2].isEmpty() ? null : parts[2],
+            parts[3].isEmpty() ? null : parts[3]);
+    for (Consumer<CacheInvalidation> listener : listeners) {
+      try {
+        listener.accept(invalidation);
+      } catch (RuntimeException e) {
+        log.error("Error applying cache invalidation {}: {}", invalidation, e.getMessage(), e);
+      }
+    }
+  }
+
+  private String encode(CacheInvalidation invalidation) {
+    return nodeId
+        + SEPARATOR
+        + invalidation.type().name()
+        + SEPARATOR
+        + (invalidation.cacheName() == null ? "" : invalidation.cacheName())
+        + SEPARATOR
+        + (invalidation.key() == null ? "" : invalidation.key());
+  }
+}
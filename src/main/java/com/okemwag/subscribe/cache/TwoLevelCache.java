@@ -0,0 +1,184 @@
+package com.okemwag.subscribe.cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/**
+ * Size-bounded local cache in front of the shared cache. Reads are served locally when possible;
+ * writes go to the shared cache and are broadcast so the other nodes drop their local copy.
+ *
+ * <p>The local level holds encoded values and decodes a copy for every read, so callers may modify
+ * what they get without affecting each other. Each invalidation bumps the epoch of its key's
+ * stripe; a value read from the shared cache is only kept locally when no invalidation of its
+ * stripe arrived while it was being read, otherwise it could outlive the invalidation.
+ */
+public class TwoLevelCache implements Cache {
+
+  private static final int EPOCH_STRIPES = 256;
+
+  private final Cache shared;
+  private final com.github.benmanes.caffeine.cache.Cache<String, byte[]> local;
+  private final CacheInvalidationBus bus;
+  private final RedisSerializer<Object> codec;
+  private final AtomicLongArray epochs = new AtomicLongArray(EPOCH_STRIPES);
+
+  public TwoLevelCache(
+      Cache shared,
+      com.github.benmanes.caffeine.cache.Cache<String, byte[]> local,
+      CacheInvalidationBus bus,
+      RedisSerializer<Object> codec) {
+    this.shared = shared;
+    this.local = local;
+    this.bus = bus;
+    this.codec = codec;
+  }
+
+  @Override
+  public String getName() {
+    return shared.getName();
+  }
+
+  @Override
+  public Object getNativeCache() {
+    return shared.getNativeCache();
+  }
+
+  @Override
+  public ValueWrapper get(Object key) {
+    Object value = getLocal(key);
+    if (value != null) {
+      return new SimpleValueWrapper(value);
+    }
+
+    long epoch = epoch(key);
+    ValueWrapper wrapper = shared.get(key);
+    if (wrapper != null && wrapper.get() != null) {
+      putLocal(key, wrapper.get(), epoch);
+    }
+    return wrapper;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T get(Object key, Class<T> type) {
+    Object value = getLocal(key);
+    if (value != null && (type == null || type.isInstance(value))) {
+      return (T) value;
+    }
+
+    long epoch = epoch(key);
+    T loaded = shared.get(key, type);
+    if (loaded != null) {
+      putLocal(key, loaded, epoch);
+    }
+    return loaded;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T get(Object key, Callable<T> valueLoader) {
+    Object value = getLocal(key);
+    if (value != null) {
+      return (T) value;
+    }
+
+    long epoch = epoch(key);
+    T loaded = shared.get(key, valueLoader);
+    if (loaded != null) {
+      putLocal(key, loaded, epoch);
+    }
+    return loaded;
+  }
+
+  @Override
+  public void put(Object key, Object value) {
+    shared.put(key, value);
+    // Reads of the previous value still in flight must not replace this one locally
+    long epoch = invalidated(localKey(key));
+    if (value != null) {
+      putLocal(key, value, epoch);
+    } else {
+      local.invalidate(localKey(key));
+    }
+    bus.publish(CacheInvalidation.key(getName(), localKey(key)));
+  }
+
+  @Override
+  public void evict(Object key) {
+    shared.evict(key);
+    invalidated(localKey(key));
+    local.invalidate(localKey(key));
+    bus.publish(CacheInvalidation.key(getName(), localKey(key)));
+  }
+
+  @Override
+  public void clear() {
+    shared.clear();
+    invalidatedAll();
+    local.invalidateAll();
+    bus.publish(CacheInvalidation.clear(getName()));
+  }
+
+  /** Apply an invalidation received from another node to the local level only */
+  void onInvalidation(CacheInvalidation invalidation) {
+    switch (invalidation.type()) {
+      case KEY:
+        invalidated(invalidation.key());
+        local.invalidate(invalidation.key());
+        break;
+      case CLEAR:
+        invalidatedAll();
+        local.invalidateAll();
+        break;
+      default:
+        break;
+    }
+  }
+
+  /** Number of entries currently held locally */
+  public long localSize() {
+    local.cleanUp();
+    return local.estimatedSize();
+  }
+
+  private Object getLocal(Object key) {
+    byte[] bytes = local.getIfPresent(localKey(key));
+    return bytes == null ? null : codec.deserialize(bytes);
+  }
+
+  private void putLocal(Object key, Object value, long epoch) {
+    String localKey = localKey(key);
+    byte[] bytes = codec.serialize(value);
+    local.put(localKey, bytes);
+    // An invalidation that arrived meanwhile may have run before the put, undo it
+    if (epochs.get(stripe(localKey)) != epoch) {
+      local.asMap().remove(localKey, bytes);
+    }
+  }
+
+  private long epoch(Object key) {
+    return epochs.get(stripe(localKey(key)));
+  }
+
+  private long invalidated(String localKey) {
+    return epochs.incrementAndGet(stripe(localKey));
+  }
+
+  private void invalidatedAll() {
+    for (int i = 0; i < EPOCH_STRIPES; i++) {
+      epochs.incrementAndGet(i);
+    }
+  }
+
+  private static int stripe(String localKey) {
+    return (localKey.hashCode() & 0x7fffffff) % EPOCH_STRIPES;
+  }
+
+  // Keys travel between nodes as text, so the local level is keyed the same way
+  private static String localKey(Object key) {
+    return String.valueOf(key);
+  }
+}
@@ -0,0 +1,77 @@
+package com.okemwag.subscribe.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/**
+ * Puts a local W-TinyLFU cache in front of every cache of the shared cache manager and keeps the
+ * local levels of all nodes coherent through the invalidation bus.
+ */
+public class TwoLevelCacheManager implements CacheManager {
+
+  private final CacheManager shared;
+  private final CacheInvalidationBus bus;
+  private final long localMaximumSize;
+  private final Duration localTtl;
+  private final RedisSerializer<Object> codec;
+
+  private final Map<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+  public TwoLevelCacheManager(
+      CacheManager shared,
+      CacheInvalidationBus bus,
+      long localMaximumSize,
+      Duration localTtl,
+      RedisSerializer<Object> codec) {
+    this.shared = shared;
+    this.bus = bus;
+    this.localMaximumSize = localMaximumSize;
+    this.localTtl = localTtl;
+    this.codec = codec;
+    bus.subscribe(this::onInvalidation);
+  }
+
+  @Override
+  public Cache getCache(String name) {
+    TwoLevelCache existing = caches.get(name);
+    if (existing != null) {
+      return existing;
+    }
+
+    Cache sharedCache = shared.getCache(name);
+    if (sharedCache == null) {
+      return null;
+    }
+    return caches.computeIfAbsent(
+        name, k -> new TwoLevelCache(sharedCache, localCache(), bus, codec));
+  }
+
+  @Override
+  public Collection<String> getCacheNames() {
+    return shared.getCacheNames();
+  }
+
+  private void onInvalidation(CacheInvalidation invalidation) {
+    // Tenant invalidations are for the in-memory analytics stores, not for caches
+    if (invalidation.type() == CacheInvalidation.Type.TENANT) {
+      return;
+    }
+
+    TwoLevelCache cache = caches.get(invalidation.cacheName());
+    if (cache != null) {
+      cache.onInvalidation(invalidation);
+    }
+  }
+
+  private com.github.benmanes.caffeine.cache.Cache<String, byte[]> localCache() {
+    // Caffeine evicts by W-TinyLFU once the size bound is reached; the time to live only
+    // limits how long a missed invalidation can leave a stale copy behind
+    return Caffeine.newBuilder().maximumSize(localMaximumSize).expireAfterWrite(localTtl).build();
+  }
+}
@@ -0,0 +1,15 @@
+package com.okemwag.subscribe.command;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/** Run the method in the mailbox of the subscription it changes, one command at a time */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SubscriptionCommand {
+
+  /** Name of the parameter that contains the subscription ID */
+  String parameterName() default "subscriptionId";
+}
@@ -0,0 +1,50 @@
+package com.okemwag.subscribe.command;
+
+import com.okemwag.subscribe.exception.SubscribeException;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Applies {@link SubscriptionCommand}. Ordered outside conflict retries and the transaction
+ * interceptor, so the transaction opens and commits on the mailbox thread. A call that joins a
+ * caller's transaction runs where it is; the transaction cannot move to another thread.
+ */
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 2)
+@RequiredArgsConstructor
+public class SubscriptionCommandAspect {
+
+  private final SubscriptionMailboxes mailboxes;
+
+  @Around("@annotation(subscriptionCommand)")
+  public Object dispatch(ProceedingJoinPoint joinPoint, SubscriptionCommand subscriptionCommand)
+      throws Throwable {
+    if (TransactionSynchronizationManager.isActualTransactionActive()) {
+      return joinPoint.proceed();
+    }
+    return mailboxes.execute(subscriptionId(joinPoint, subscriptionCommand), joinPoint::proceed);
+  }
+
+  private long subscriptionId(ProceedingJoinPoint joinPoint, SubscriptionCommand command) {
+    String[] names = ((MethodSignature) joinPoint.getSignature()).getParameterNames();
+    Object[] args = joinPoint.getArgs();
+    for (int i = 0; i < names.length; i++) {
+      if (names[i].equals(command.parameterName()) && args[i] instanceof Long id) {
+        return id;
+      }
+    }
+    throw new SubscribeException(
+        "No subscription ID parameter '"
+            + command.parameterName()
+            + "' on "
+            + joinPoint.getSignature().toShortString());
+  }
+}
@@ -0,0 +1,127 @@
+package com.okemwag.subscribe.command;
+
+import com.okemwag.subscribe.config.SubscriptionCommandConfig;
+import com.okemwag.subscribe.exception.SubscribeException;
+import com.okemwag.subscribe.security.TenantContext;
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Single-writer execution for subscription changes. Every subscription ID maps to one of a fixed
+ * number of single-threaded mailboxes, so commands for the same subscription run one after another
+ * in arrival order without contending for its row, while commands for subscriptions in different
+ * mailboxes run in parallel. The caller waits for its command and gets its result or exception,
+ * with the caller's tenant and security context applied while it runs.
+ *
+ * <p>A command issued from inside another command runs inline: waiting on a mailbox from a mailbox
+ * thread could wait on itself.
+ */
+@Component
+@Slf4j
+public class SubscriptionMailboxes {
+
+  /** A command; may throw anything, which is rethrown to the caller */
+  @FunctionalInterface
+  public interface Command<T> {
+    T run() throws Throwable;
+  }
+
+  private static final ThreadLocal<Boolean> IN_COMMAND = new ThreadLocal<>();
+
+  private final ThreadPoolExecutor[] mailboxes;
+
+  public SubscriptionMailboxes(SubscriptionCommandConfig config) {
+    this(config.getShards(), config.getQueueCapacity());
+  }
+
+  SubscriptionMailboxes(int shards, int queueCapacity) {
+    mailboxes = new ThreadPoolExecutor[shards];
+    for (int i = 0; i < shards; i++) {
+      String name = "subscription-mailbox-" + i;
+      mailboxes[i] =
+          new ThreadPoolExecutor(
+              1,
+              1,
+              0,
+              TimeUnit.MILLISECONDS,
+              new LinkedBlockingQueue<>(queueCapacity),
+              runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+              },
+              new ThreadPoolExecutor.AbortPolicy());
+    }
+  }
+
+  public <T> T execute(long subscriptionId, Command<T> command) throws Throwable {
+    if (IN_COMMAND.get() != null) {
+      return command.run();
+    }
+
+    Long businessId = TenantContext.getCurrentBusinessId();
+    String userEmail = TenantContext.getCurrentUserEmail();
+    SecurityContext securityContext = SecurityContextHolder.getContext();
+
+    CompletableFuture<T> result = new CompletableFuture<>();
+    try {
+      mailboxes[shard(subscriptionId)].execute(
+          () -> {
+            IN_COMMAND.set(Boolean.TRUE);
+            TenantContext.setCurrentBusinessId(businessId);
+            TenantContext.setCurrentUserEmail(userEmail);
+            SecurityContextHolder.setContext(securityContext);
+            try {
+              result.complete(command.run());
+            } catch (Throwable e) {
+              result.completeExceptionally(e);
+            } finally {
+              SecurityContextHolder.clearContext();
+              TenantContext.clear();
+              IN_COMMAND.remove();
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      log.warn("Mailbox of subscription {} is full, rejecting command", subscriptionId);
+      throw new SubscribeException(
+          "Too many pending changes for subscription " + subscriptionId + ", please retry");
+    }
+
+    try {
+      return result.get();
+    } catch (ExecutionException e) {
+      throw e.getCause();
+    } catch (InterruptedException e) {
+      // The command stays queued and still runs
+      Thread.currentThread().interrupt();
+      throw new SubscribeException("Interrupted waiting for subscription " + subscriptionId);
+    }
+  }
+
+  /** Commands waiting in the mailbox of a subscription */
+  public int pending(long subscriptionId) {
+    return mailboxes[shard(subscriptionId)].getQueue().size();
+  }
+
+  int shard(long subscriptionId) {
+    // Fibonacci hashing, so consecutive IDs spread over every mailbox
+    long mixed = subscriptionId * 0x9E3779B97F4A7C15L;
+    return (int) Math.floorMod(mixed >>> 32, (long) mailboxes.length);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    for (ThreadPoolExecutor mailbox : mailboxes) {
+      mailbox.shutdown();
+    }
+  }
+}
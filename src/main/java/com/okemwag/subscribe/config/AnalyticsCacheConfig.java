@@ -0,0 +1,57 @@
+package com.okemwag.subscribe.config;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+@EnableCaching
+@ConfigurationProperties(prefix = "analytics.cache")
+@Data
+public class AnalyticsCacheConfig {
+
+  // Entries younger than this are served as-is
+  private Duration freshFor = Duration.ofMinutes(5);
+
+  // Entries older than freshFor but younger than this are served stale while one refresh runs
+  private Duration staleFor = Duration.ofHours(1);
+
+  // Background refresh workers and queued refreshes before new refreshes are skipped
+  private int refreshThreads = 2;
+  private int refreshQueueCapacity = 100;
+
+  // Time to live in the shared store, must exceed staleFor so stale entries can still be served
+  private Duration defaultTtl = Duration.ofHours(2);
+  private Map<String, Duration> ttl = new HashMap<>();
+
+  // Local entries per cache while the shared store is unreachable, and how often to retry it
+  private long fallbackMaximumSize = 10_000;
+  private Duration redisRetryInterval = Duration.ofSeconds(30);
+
+  // Entries each node keeps in front of the shared store, and how long a copy may live there
+  private long localMaximumSize = 10_000;
+  private Duration localTtl = Duration.ofMinutes(10);
+
+  public Duration ttlFor(String cacheName) {
+    return ttl.getOrDefault(cacheName, defaultTtl);
+  }
+
+  @Bean
+  public ThreadPoolTaskExecutor analyticsRefreshExecutor() {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setThreadNamePrefix("analytics-refresh-");
+    executor.setCorePoolSize(refreshThreads);
+    executor.setMaxPoolSize(refreshThreads);
+    executor.setQueueCapacity(refreshQueueCapacity);
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+    executor.setWaitForTasksToCompleteOnShutdown(false);
+    return executor;
+  }
+}
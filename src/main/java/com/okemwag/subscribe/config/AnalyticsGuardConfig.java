@@ -0,0 +1,24 @@
+package com.okemwag.subscribe.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "analytics.guard")
+@Data
+public class AnalyticsGuardConfig {
+
+  // Tenants with at least this many customers and subscriptions are served from snapshots
+  private long largeTenantRows = 50_000;
+
+  // How long a tenant's size estimate is reused before it is counted again
+  private Duration sizeTtl = Duration.ofHours(1);
+
+  // Budget of each dashboard section; applied to every query the section runs
+  private Duration sectionTimeout = Duration.ofSeconds(5);
+
+  // Large tenants fall back to live queries when their latest snapshot is older than this
+  private Duration maxSnapshotAge = Duration.ofDays(2);
+}
@@ -0,0 +1,24 @@
+package com.okemwag.subscribe.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "analytics.snapshot")
+@Data
+public class AnalyticsSnapshotConfig {
+
+  // Snapshots older than this are deleted after each nightly capture
+  private Duration retention = Duration.ofDays(730);
+
+  // Longest date range a single history query may return
+  private int maxHistoryDays = 400;
+
+  // Budget of each section of a capture; captures run off the request path
+  private Duration captureTimeout = Duration.ofMinutes(5);
+
+  // Attempts at a tenant's snapshot before the nightly capture gives up on it
+  private int captureAttempts = 3;
+}
@@ -0,0 +1,25 @@
+package com.okemwag.subscribe.config;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "fx")
+@Data
+public class FxConfig {
+
+  // CSV feed of daily rates, one "date,currency,rate" line per quote against the base currency
+  private Path feed = Path.of("fx", "rates.csv");
+
+  // Currency every rate in the feed is quoted against
+  private String baseCurrency = "USD";
+
+  // How far back a day without a quote may borrow the last published rate
+  private Duration maxRateAge = Duration.ofDays(7);
+
+  // Day and currency pair conversions kept in memory
+  private int maximumCachedRates = 50_000;
+}
@@ -0,0 +1,25 @@
+package com.okemwag.subscribe.config;
+
+import java.time.Duration;
+import java.util.List;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "analytics.lifecycle")
+@Data
+public class LifecycleCounterConfig {
+
+  // Days each counter keeps; enough for the longest window plus last month
+  private int days = 400;
+
+  // Rolling windows reported, in days
+  private List<Integer> windows = List.of(7, 30, 90, 365);
+
+  // Tenants kept in memory, least recently used are reloaded on their next read
+  private int maximumTenants = 5000;
+
+  // Reload a tenant after this long to pick up writes handled by other nodes
+  private Duration maxAge = Duration.ofHours(1);
+}
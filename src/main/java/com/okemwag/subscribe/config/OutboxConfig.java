@@ -0,0 +1,28 @@
+package com.okemwag.subscribe.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "outbox")
+@Data
+public class OutboxConfig {
+
+  // Outbox rows relayed per transaction
+  private int batchSize = 500;
+
+  // Safety net for changes committed on other nodes; local commits wake the relay at once
+  private Duration pollInterval = Duration.ofSeconds(5);
+
+  // How long relayed rows are kept for inspection before they are deleted, checked this often
+  private Duration retention = Duration.ofDays(7);
+  private Duration purgeInterval = Duration.ofHours(1);
+
+  // Also publish to RabbitMQ, see RabbitOutboxConfig; consumers bind queues to the exchange by
+  // routing key
+  private boolean rabbitEnabled = false;
+  private String rabbitExchange = "subscribe.subscriptions";
+  private Duration rabbitConfirmTimeout = Duration.ofSeconds(10);
+}
@@ -0,0 +1,28 @@
+package com.okemwag.subscribe.config;
+
+import java.time.Duration;
+import java.util.concurrent.ForkJoinPool;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "analytics.platform")
+@Data
+public class PlatformAnalyticsConfig {
+
+  // Concurrent batches; every worker holds a database connection while it queries
+  private int parallelism = 4;
+
+  // Tenants loaded per grouped query
+  private int batchSize = 500;
+
+  // Snapshots younger than this are reused instead of being recomputed
+  private Duration refreshInterval = Duration.ofMinutes(15);
+
+  @Bean(destroyMethod = "shutdown")
+  public ForkJoinPool platformAnalyticsPool() {
+    return new ForkJoinPool(parallelism);
+  }
+}
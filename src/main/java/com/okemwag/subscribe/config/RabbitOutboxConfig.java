@@ -0,0 +1,31 @@
+package com.okemwag.subscribe.config;
+
+import com.okemwag.subscribe.outbox.RabbitOutboxBroker;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The RabbitMQ broker of the subscription outbox. The AMQP starter is an optional dependency, so
+ * this only loads when it is on the classpath and {@code outbox.rabbit-enabled} is set; otherwise
+ * the outbox relays to in-process consumers alone.
+ */
+@Configuration
+@ConditionalOnClass(RabbitTemplate.class)
+@ConditionalOnProperty(prefix = "outbox", name = "rabbit-enabled", havingValue = "true")
+public class RabbitOutboxConfig {
+
+  @Bean
+  public TopicExchange subscriptionEventExchange(OutboxConfig config) {
+    return new TopicExchange(config.getRabbitExchange(), true, false);
+  }
+
+  @Bean
+  public RabbitOutboxBroker rabbitOutboxBroker(RabbitTemplate rabbitTemplate, OutboxConfig config) {
+    return new RabbitOutboxBroker(
+        rabbitTemplate, config.getRabbitExchange(), config.getRabbitConfirmTimeout());
+  }
+}
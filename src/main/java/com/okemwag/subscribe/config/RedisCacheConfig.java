@@ -0,0 +1,95 @@
+package com.okemwag.subscribe.config;
+
+import com.okemwag.subscribe.cache.AnalyticsCache;
+import com.okemwag.subscribe.cache.AnalyticsCacheCodec;
+import com.okemwag.subscribe.cache.CacheInvalidationBus;
+import com.okemwag.subscribe.cache.FallbackCacheManager;
+import com.okemwag.subscribe.cache.RedisCacheInvalidationBus;
+import com.okemwag.subscribe.cache.TwoLevelCacheManager;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.BatchStrategies;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair;
+
+@Configuration
+public class RedisCacheConfig {
+
+  private static final String KEY_PREFIX = "subscribe:cache:";
+
+  @Bean
+  public CacheManager cacheManager(
+      RedisConnectionFactory connectionFactory,
+      CacheInvalidationBus cacheInvalidationBus,
+      AnalyticsCacheConfig config) {
+    // SCAN instead of KEYS so clearing a cache does not block the server
+    RedisCacheWriter writer =
+        RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory, BatchStrategies.scan(1000));
+    return new TwoLevelCacheManager(
+        sharedCacheManager(writer, config),
+        cacheInvalidationBus,
+        config.getLocalMaximumSize(),
+        config.getLocalTtl(),
+        new AnalyticsCacheCodec());
+  }
+
+  @Bean
+  public RedisCacheInvalidationBus cacheInvalidationBus(StringRedisTemplate redisTemplate) {
+    return new RedisCacheInvalidationBus(redisTemplate);
+  }
+
+  @Bean
+  public RedisMessageListenerContainer cacheInvalidationListenerContainer(
+      RedisConnectionFactory connectionFactory, RedisCacheInvalidationBus cacheInvalidationBus) {
+    RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+    container.setConnectionFactory(connectionFactory);
+    container.addMessageListener(
+        cacheInvalidationBus, new ChannelTopic(RedisCacheInvalidationBus.CHANNEL));
+    return container;
+  }
+
+  /**
+   * Redis caches shared by all nodes with per-cache TTLs and a local fallback. Every analytics
+   * cache exists by default; lookup caches are created by giving them an entry in {@code ttl}.
+   */
+  public static CacheManager sharedCacheManager(
+      RedisCacheWriter writer, AnalyticsCacheConfig config) {
+    RedisCacheConfiguration defaults =
+        RedisCacheConfiguration.defaultCacheConfig()
+            .prefixCacheNameWith(KEY_PREFIX)
+            .disableCachingNullValues()
+            .serializeValuesWith(SerializationPair.fromSerializer(new AnalyticsCacheCodec()))
+            .entryTtl(config.getDefaultTtl());
+
+    Set<String> cacheNames = new LinkedHashSet<>(AnalyticsCache.CACHE_NAMES);
+    cacheNames.add(AnalyticsCache.GENERATIONS);
+    cacheNames.addAll(config.getTtl().keySet());
+
+    Map<String, RedisCacheConfiguration> perCache = new HashMap<>();
+    for (String name : cacheNames) {
+      perCache.put(name, defaults.entryTtl(config.ttlFor(name)));
+    }
+
+    RedisCacheManager redis =
+        RedisCacheManager.builder(writer)
+            .cacheDefaults(defaults)
+            .withInitialCacheConfigurations(perCache)
+            .disableCreateOnMissingCache()
+            .build();
+    redis.initializeCaches();
+
+    return new FallbackCacheManager(
+        redis, config::ttlFor, config.getFallbackMaximumSize(), config.getRedisRetryInterval());
+  }
+}
@@ -0,0 +1,12 @@
+package com.okemwag.subscribe.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+  // The jobs share spring.task.scheduling.pool.size threads, so a long billing or expiry run does
+  // not hold back the short flush and relay jobs. Per-tenant work that can be slow, analytics
+  // refreshes and trial conversions, is handed to executors of its own.
+}
@@ -0,0 +1,17 @@
+package com.okemwag.subscribe.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "subscriptions.commands")
+@Data
+public class SubscriptionCommandConfig {
+
+  // Single-threaded mailboxes; commands for different subscriptions run in parallel across them
+  private int shards = Runtime.getRuntime().availableProcessors() * 2;
+
+  // Commands waiting per mailbox before new ones are turned away
+  private int queueCapacity = 10_000;
+}
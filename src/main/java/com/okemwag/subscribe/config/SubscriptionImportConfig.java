@@ -0,0 +1,30 @@
+package com.okemwag.subscribe.config;
+
+import java.util.concurrent.ForkJoinPool;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "subscriptions.import")
+@Data
+public class SubscriptionImportConfig {
+
+  // Rows validated together and written in one transaction; also the resume granularity
+  private int batchSize = 1000;
+
+  // Threads validating a batch; validation only reads the in-memory lookups
+  private int parallelism = 4;
+
+  // Rejected rows stored per import; further rejections are only counted
+  private int maxStoredErrors = 10_000;
+
+  // Rejected rows returned with an import's status
+  private int reportedErrors = 100;
+
+  @Bean(destroyMethod = "shutdown")
+  public ForkJoinPool subscriptionImportPool() {
+    return new ForkJoinPool(parallelism);
+  }
+}
@@ -0,0 +1,26 @@
+package com.okemwag.subscribe.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "analytics.time-series")
+@Data
+public class TimeSeriesConfig {
+
+  // Retention of each resolution; every metric of a tenant holds one column of each
+  private int hourlyBuckets = 24 * 14;
+  private int dailyBuckets = 2 * 366;
+  private int monthlyBuckets = 12 * 10;
+
+  // Tenants kept in memory, least recently used are reloaded on their next read
+  private int maximumTenants = 1000;
+
+  // Reload a tenant after this long to pick up writes handled by other nodes
+  private Duration maxAge = Duration.ofHours(1);
+
+  // Longest slice a single query may return
+  private int maxBuckets = 2000;
+}
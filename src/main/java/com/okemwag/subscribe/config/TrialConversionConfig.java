@@ -0,0 +1,31 @@
+package com.okemwag.subscribe.config;
+
+import com.okemwag.subscribe.enums.PaymentMethod;
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "subscriptions.trials")
+@Data
+public class TrialConversionConfig {
+
+  // How far ahead ending trials are loaded into the minute slots
+  private Duration horizon = Duration.ofHours(1);
+
+  // How often the slots are reloaded, which also picks up trials whose end date was changed
+  private Duration loadInterval = Duration.ofMinutes(10);
+
+  // Trials read per query when the slots are reloaded
+  private int loadBatchSize = 1000;
+
+  // Trials converted per tick; the rest of a slot carries over to the next tick
+  private int maxPerTick = 600;
+
+  // Worker threads converting trials and charging their first invoice
+  private int parallelism = 8;
+
+  // Charged for customers without an earlier payment to take the method from
+  private PaymentMethod defaultPaymentMethod = PaymentMethod.STRIPE_CARD;
+}
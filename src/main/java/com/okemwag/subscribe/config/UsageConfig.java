@@ -0,0 +1,30 @@
+package com.okemwag.subscribe.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "usage")
+@Data
+public class UsageConfig {
+
+  // Independently locked accumulators; ingesting threads contend only within a stripe
+  private int stripes = 64;
+
+  // How often accumulated usage is added to the stored period totals
+  private Duration flushInterval = Duration.ofSeconds(10);
+
+  // Period totals written per transaction when flushing
+  private int flushBatchSize = 1000;
+
+  // Events accepted in one ingestion call
+  private int maxBatchSize = 10_000;
+
+  // How old a usage event may be; late usage is billed with the next invoice
+  private Duration maxLateness = Duration.ofDays(1);
+
+  // How far ahead of this node's clock an event may be stamped
+  private Duration maxClockSkew = Duration.ofMinutes(5);
+}
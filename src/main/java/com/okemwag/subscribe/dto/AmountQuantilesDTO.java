@@ -0,0 +1,18 @@
+package com.okemwag.subscribe.dto;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import lombok.Data;
+
+@Data
+public class AmountQuantilesDTO {
+  private YearMonth from;
+  private YearMonth to;
+  private String currency;
+  private Long count;
+  private BigDecimal min;
+  private BigDecimal p50;
+  private BigDecimal p90;
+  private BigDecimal p99;
+  private BigDecimal max;
+}
@@ -1,7 +1,9 @@
 package com.okemwag.subscribe.dto;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 import lombok.Data;
 
@@ -12,15 +14,24 @@ public class AnalyticsDTO {
   private SubscriptionMetrics subscriptionMetrics;
   private ChurnMetrics churnMetrics;
   private LocalDateTime generatedAt;
+  // Sections that could not be computed in time and hold older values or none
+  private boolean degraded;
+  private List<String> degradedSections;
+  // Set when the dashboard was served from the daily snapshot of that date
+  private LocalDate snapshotDate;
 
   @Data
   public static class RevenueMetrics {
+    // Amounts are in the business currency; revenueByCurrency keeps the unconverted sums
+    private String currency;
     private BigDecimal totalRevenue;
     private BigDecimal monthlyRecurringRevenue;
     private BigDecimal averageRevenuePerUser;
     private BigDecimal totalOutstanding;
     private Map<String, BigDecimal> revenueByMonth;
     private Map<String, BigDecimal> revenueByCurrency;
+    // Currencies without a rate, left out of the totals
+    private List<String> unconvertedCurrencies;
   }
 
   @Data
@@ -50,6 +61,10 @@ public class AnalyticsDTO {
     private Double annualChurnRate;
     private Long churnedCustomersThisMonth;
     private BigDecimal churnedRevenueThisMonth;
+    // Lifetime value is in the business currency
+    private String currency;
     private Double customerLifetimeValue;
+    // Currencies without a rate, left out of the lifetime value
+    private List<String> unconvertedCurrencies;
   }
 }
@@ -0,0 +1,10 @@
+package com.okemwag.subscribe.dto;
+
+import java.time.LocalDate;
+import lombok.Data;
+
+@Data
+public class AnalyticsSnapshotDTO {
+  private LocalDate snapshotDate;
+  private AnalyticsDTO analytics;
+}
@@ -0,0 +1,12 @@
+package com.okemwag.subscribe.dto;
+
+import java.util.List;
+import lombok.Data;
+
+@Data
+public class CursorPageDTO<T> {
+  private List<T> items;
+  private boolean hasNext;
+  private String nextCursor; // Pass back for the next page; null on the last page
+  private Long totalCount; // Only when requested, counting costs a query
+}
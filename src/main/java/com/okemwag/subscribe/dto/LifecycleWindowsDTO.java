@@ -0,0 +1,27 @@
+package com.okemwag.subscribe.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import lombok.Data;
+
+@Data
+public class LifecycleWindowsDTO {
+  // Last day of every window
+  private LocalDate asOf;
+  private List<Window> windows;
+  private LocalDateTime generatedAt;
+
+  @Data
+  public static class Window {
+    private Integer days;
+    private Long signups;
+    private Long cancellations;
+    private Long trialStarts;
+    private Long conversions;
+    // Cancellations per customer at the start of the window, in percent
+    private Double churnRate;
+    // Conversions per trial started in the window, in percent
+    private Double trialConversionRate;
+  }
+}
@@ -26,6 +26,9 @@ public class PaymentRequestDTO {
   @NotNull(message = "Payment method is required")
   private PaymentMethod method;
 
+  // The invoice this payment settles, marked paid once the payment completes
+  private Long invoiceId;
+
   // Payment method specific fields
   private String cardToken; // For Stripe payments
   private String phoneNumber; // For M-Pesa payments
@@ -0,0 +1,33 @@
+package com.okemwag.subscribe.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+import lombok.Data;
+
+@Data
+public class PlatformAnalyticsDTO {
+  private Long activeBusinesses;
+  private Long businessesCreatedThisMonth;
+  private Map<String, Long> businessesByCurrency;
+  private Map<String, Long> businessesByTimezone;
+  private Long activeSubscriptions;
+  private Map<String, BigDecimal> revenueByCurrency;
+  private Map<String, BigDecimal> monthlyRecurringRevenueByCurrency;
+  private Long churnedCustomersThisMonth;
+  private Double monthlyChurnRate;
+  private Map<String, Distribution> tenantRevenueByCurrency;
+  private Map<String, Distribution> tenantMonthlyRecurringRevenueByCurrency;
+  private Distribution tenantMonthlyChurnRate;
+  private Long computationMillis;
+  private LocalDateTime generatedAt;
+
+  @Data
+  public static class Distribution {
+    private Long tenants;
+    private Double p50;
+    private Double p90;
+    private Double p99;
+    private Double max;
+  }
+}
@@ -0,0 +1,4 @@
+package com.okemwag.subscribe.dto;
+
+/** An active plan ranked by its number of active subscriptions */
+public record PopularPlan(Long planId, String planName, Long activeSubscriptions) {}
@@ -0,0 +1,34 @@
+package com.okemwag.subscribe.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import lombok.Data;
+
+@Data
+public class RevenueForecastDTO {
+  private LocalDate startDate;
+  private Long horizonDays;
+  // Every amount below is in this currency
+  private String currency;
+  // Renewals and trial conversions weighted by how likely they are to be paid
+  private BigDecimal expectedRevenue;
+  // Every charge due in the horizon at full price
+  private BigDecimal scheduledRevenue;
+  private Long scheduledCharges;
+  private Long trialsEnding;
+  private Double trialConversionRate;
+  private Map<String, Double> successRateByMethod;
+  private List<DailyForecast> dailyForecast;
+  private LocalDateTime generatedAt;
+
+  @Data
+  public static class DailyForecast {
+    private LocalDate date;
+    private BigDecimal expectedRevenue;
+    private BigDecimal scheduledRevenue;
+    private Long charges;
+  }
+}
@@ -8,6 +8,9 @@ import lombok.Data;
 
 @Data
 public class RevenueReportDTO {
+  // Amounts, monthly breakdown included, are in the business currency; revenueByCurrency keeps
+  // the unconverted sums
+  private String currency;
   private BigDecimal totalRevenue;
   private BigDecimal totalPaidAmount;
   private BigDecimal totalOutstandingAmount;
@@ -17,6 +20,8 @@ public class RevenueReportDTO {
   private List<MonthlyRevenue> monthlyBreakdown;
   private Map<String, BigDecimal> revenueByCurrency;
   private Map<String, BigDecimal> revenueByPaymentMethod;
+  // Currencies without a rate, left out of the totals
+  private List<String> unconvertedCurrencies;
   private LocalDateTime generatedAt;
 
   @Data
@@ -26,5 +31,6 @@ public class RevenueReportDTO {
     private BigDecimal revenue;
     private Long invoiceCount;
     private BigDecimal averageInvoiceAmount;
+    private BigDecimal refunds;
   }
 }
@@ -0,0 +1,30 @@
+package com.okemwag.subscribe.dto;
+
+import com.okemwag.subscribe.enums.ImportFormat;
+import com.okemwag.subscribe.enums.ImportStatus;
+import java.time.LocalDateTime;
+import java.util.List;
+import lombok.Data;
+
+@Data
+public class SubscriptionImportDTO {
+  private Long id;
+  private Long businessId;
+  private ImportFormat format;
+  private ImportStatus status;
+  // Data rows committed so far; resuming skips them
+  private Long rowsProcessed;
+  private Long importedCount;
+  private Long failedCount;
+  private String failureReason;
+  // First rejected rows, by row number
+  private List<RowError> errors;
+  private LocalDateTime createdAt;
+  private LocalDateTime updatedAt;
+
+  @Data
+  public static class RowError {
+    private Long rowNumber;
+    private String message;
+  }
+}
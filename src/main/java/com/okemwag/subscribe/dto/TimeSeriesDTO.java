@@ -0,0 +1,20 @@
+package com.okemwag.subscribe.dto;
+
+import com.okemwag.subscribe.enums.TimeSeriesMetric;
+import com.okemwag.subscribe.enums.TimeSeriesResolution;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import lombok.Data;
+
+@Data
+public class TimeSeriesDTO {
+  private TimeSeriesMetric metric;
+  private TimeSeriesResolution resolution;
+  // Currency of amount metrics, null for counts
+  private String currency;
+  // Start of the first bucket; each value covers one bucket from there on
+  private LocalDateTime start;
+  private List<BigDecimal> values;
+  private BigDecimal total;
+}
@@ -0,0 +1,7 @@
+package com.okemwag.subscribe.dto;
+
+import java.math.BigDecimal;
+
+/** A customer ranked by the sum of their completed payments */
+public record TopPayingCustomer(
+    Long customerId, String customerName, Long paymentCount, BigDecimal totalPaid) {}
@@ -0,0 +1,12 @@
+package com.okemwag.subscribe.dto;
+
+import com.okemwag.subscribe.enums.SubscriptionStatus;
+import lombok.Data;
+
+@Data
+public class TrialCompletionDTO {
+  private Long subscriptionId;
+  private SubscriptionStatus status;
+  private InvoiceDTO firstInvoice; // Only for a trial converted to active
+  private String currency;
+}
@@ -0,0 +1,12 @@
+package com.okemwag.subscribe.dto;
+
+import java.time.LocalDateTime;
+import lombok.Data;
+
+@Data
+public class UsageEventDTO {
+  private Long subscriptionId;
+  private Long quantity;
+  // When the usage happened; defaults to when it is recorded
+  private LocalDateTime occurredAt;
+}
@@ -0,0 +1,18 @@
+package com.okemwag.subscribe.dto;
+
+import java.util.List;
+import lombok.Data;
+
+@Data
+public class UsageIngestResultDTO {
+  private Long acceptedCount;
+  private Long rejectedCount;
+  // First rejected events, by position in the batch
+  private List<EventError> errors;
+
+  @Data
+  public static class EventError {
+    private Integer index;
+    private String message;
+  }
+}
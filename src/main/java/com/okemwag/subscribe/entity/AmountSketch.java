@@ -0,0 +1,59 @@
+package com.okemwag.subscribe.entity;
+
+import com.okemwag.subscribe.enums.SketchMetric;
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import lombok.Data;
+
+/** Serialized quantile sketch of one amount metric for one tenant, dimension, currency and month */
+@Entity
+@Data
+@Table(
+    name = "amount_sketches",
+    uniqueConstraints =
+        @UniqueConstraint(
+            columnNames = {"business_id", "metric", "dimension", "currency", "period"}))
+public class AmountSketch {
+  // Dimension of metrics that are not broken down, such as invoice totals
+  public static final String ALL = "ALL";
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "business_id", nullable = false)
+  private Long businessId;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 20)
+  private SketchMetric metric;
+
+  // Payment method for payment amounts
+  @Column(nullable = false, length = 20)
+  private String dimension;
+
+  // Amounts of different currencies are never mixed in one sketch
+  @Column(nullable = false, length = 3)
+  private String currency;
+
+  // First day of the month the values belong to
+  @Column(nullable = false)
+  private LocalDate period;
+
+  @Column(name = "value_count", nullable = false)
+  private Long valueCount;
+
+  @Column(nullable = false)
+  private byte[] sketch;
+
+  @Version private Long version;
+
+  private LocalDateTime updatedAt;
+
+  @PrePersist
+  @PreUpdate
+  protected void onWrite() {
+    updatedAt = LocalDateTime.now();
+  }
+}
@@ -0,0 +1,28 @@
+package com.okemwag.subscribe.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import lombok.Data;
+
+/**
+ * Rebuild state of one tenant's amount sketches. Every node reads it, under a shared lock, before
+ * merging its pending values into the stored sketches, and drops the values it recorded before the
+ * last rebuild since the rebuild already counted them.
+ */
+@Entity
+@Data
+@Table(name = "amount_sketch_generations")
+public class AmountSketchGeneration {
+
+  @Id
+  @Column(name = "business_id")
+  private Long businessId;
+
+  // Bumped by every rebuild
+  @Column(nullable = false)
+  private Long generation;
+
+  // Values recorded before this instant are part of the rebuilt sketches
+  @Column(name = "rebuilt_at")
+  private LocalDateTime rebuiltAt;
+}
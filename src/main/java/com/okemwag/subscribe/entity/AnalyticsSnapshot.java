@@ -0,0 +1,42 @@
+package com.okemwag.subscribe.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import lombok.Data;
+
+/**
+ * A tenant's analytics dashboard at the end of one day. Its own JSON schema, versioned apart from
+ * the analytics cache encoding, so stored history outlives changes to the cache format.
+ */
+@Entity
+@Data
+@Table(
+    name = "analytics_snapshots",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"business_id", "snapshot_date"}))
+public class AnalyticsSnapshot {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "business_id", nullable = false)
+  private Long businessId;
+
+  @Column(name = "snapshot_date", nullable = false)
+  private LocalDate snapshotDate;
+
+  // AnalyticsDTO as JSON, in the layout of schemaVersion
+  @Column(columnDefinition = "text")
+  private String analytics;
+
+  @Column(name = "schema_version")
+  private Integer schemaVersion;
+
+  @Column(nullable = false, updatable = false)
+  private LocalDateTime createdAt;
+
+  @PrePersist
+  protected void onCreate() {
+    createdAt = LocalDateTime.now();
+  }
+}
@@ -10,7 +10,10 @@ import lombok.Data;
 
 @Entity
 @Data
-@Table(name = "invoices")
+@Table(
+    name = "invoices",
+    indexes =
+        @Index(name = "idx_invoices_business_created", columnList = "business_id, created_at, id"))
 public class Invoice {
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -21,6 +24,10 @@ public class Invoice {
   @JoinColumn(name = "subscription_id", nullable = false)
   private Subscription subscription;
 
+  // The subscription's business, copied so keyset pages per business read one index
+  @Column(name = "business_id", updatable = false)
+  private Long businessId;
+
   @NotBlank(message = "Invoice number is required")
   @Size(max = 50, message = "Invoice number must not exceed 50 characters")
   @Column(nullable = false, unique = true, length = 50)
@@ -53,6 +60,11 @@ public class Invoice {
   @Column(nullable = false, precision = 10, scale = 2)
   private BigDecimal totalAmount;
 
+  // The business currency when the invoice was issued, which plan prices are in
+  @Size(min = 3, max = 3, message = "Currency must be exactly 3 characters")
+  @Column(length = 3, updatable = false)
+  private String currency;
+
   @NotNull(message = "Invoice status is required")
   @Enumerated(EnumType.STRING)
   @Column(nullable = false, length = 20)
@@ -78,6 +90,11 @@ public class Invoice {
 
   private LocalDateTime updatedAt;
 
+  // Optimistic lock: a writer holding a stale copy fails instead of overwriting a newer change
+  @Version
+  @Column(nullable = false, columnDefinition = "bigint default 0")
+  private Long version;
+
   @PrePersist
   protected void onCreate() {
     createdAt = LocalDateTime.now();
@@ -127,4 +144,9 @@ public class Invoice {
         && status != InvoiceStatus.PAID
         && status != InvoiceStatus.CANCELLED;
   }
-}
\ No newline at end of file
+
+  /** Mark invoice as paid */
+  public void markAsPaid() {
+    this.status = InvoiceStatus.PAID;
+  }
+}
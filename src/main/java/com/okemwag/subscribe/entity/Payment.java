@@ -10,7 +10,10 @@ import lombok.Data;
 
 @Entity
 @Data
-@Table(name = "payments")
+@Table(
+    name = "payments",
+    indexes =
+        @Index(name = "idx_payments_business_created", columnList = "business_id, created_at, id"))
 public class Payment {
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -21,6 +24,10 @@ public class Payment {
   @JoinColumn(name = "subscription_id", nullable = false)
   private Subscription subscription;
 
+  // The subscription's business, copied so keyset pages per business read one index
+  @Column(name = "business_id", updatable = false)
+  private Long businessId;
+
   @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "invoice_id")
   private Invoice invoice;
@@ -61,6 +68,11 @@ public class Payment {
 
   private LocalDateTime updatedAt;
 
+  // Optimistic lock: a writer holding a stale copy fails instead of overwriting a newer change
+  @Version
+  @Column(nullable = false, columnDefinition = "bigint default 0")
+  private Long version;
+
   @PrePersist
   protected void onCreate() {
     createdAt = LocalDateTime.now();
@@ -4,13 +4,29 @@ import com.okemwag.subscribe.enums.SubscriptionStatus;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import java.time.LocalDateTime;
+import java.util.EnumSet;
 import java.util.Set;
 import lombok.Data;
 
 @Entity
 @Data
-@Table(name = "subscriptions")
+@Table(
+    name = "subscriptions",
+    indexes = {
+      @Index(columnList = "status, created_at, id"),
+      @Index(
+          name = "idx_subscriptions_business_created",
+          columnList = "business_id, created_at, id")
+    })
 public class Subscription {
+
+  /**
+   * Statuses of a subscription that has not ended; a customer holds at most one per plan, enforced
+   * by the index in db/schema.sql, which lists them too
+   */
+  public static final Set<SubscriptionStatus> OPEN_STATUSES =
+      EnumSet.of(SubscriptionStatus.ACTIVE, SubscriptionStatus.TRIAL, SubscriptionStatus.SUSPENDED);
+
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
   private Long id;
@@ -20,6 +36,10 @@ public class Subscription {
   @JoinColumn(name = "customer_id", nullable = false)
   private Customer customer;
 
+  // The customer's business, copied so keyset pages per business read one index
+  @Column(name = "business_id", updatable = false)
+  private Long businessId;
+
   @NotNull(message = "Subscription plan is required")
   @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "subscription_plan_id", nullable = false)
@@ -55,15 +75,28 @@ public class Subscription {
       orphanRemoval = true)
   private Set<Invoice> invoices;
 
+  // When the subscription started as a trial, and when that trial converted to active
+  private LocalDateTime trialStartedAt;
+
+  private LocalDateTime convertedAt;
+
   @Column(nullable = false, updatable = false)
   private LocalDateTime createdAt;
 
   private LocalDateTime updatedAt;
 
+  // Optimistic lock: a writer holding a stale copy fails instead of overwriting a newer change
+  @Version
+  @Column(nullable = false, columnDefinition = "bigint default 0")
+  private Long version;
+
   @PrePersist
   protected void onCreate() {
     createdAt = LocalDateTime.now();
     updatedAt = LocalDateTime.now();
+    if (status == SubscriptionStatus.TRIAL && trialStartedAt == null) {
+      trialStartedAt = createdAt;
+    }
 
     // Set initial next billing date if not set
     if (nextBillingDate == null && startDate != null && subscriptionPlan != null) {
@@ -98,6 +131,9 @@ public class Subscription {
   /** Transition subscription status with validation */
   public void transitionStatus(SubscriptionStatus newStatus) {
     if (canTransitionTo(newStatus)) {
+      if (this.status == SubscriptionStatus.TRIAL && newStatus == SubscriptionStatus.ACTIVE) {
+        this.convertedAt = LocalDateTime.now();
+      }
       this.status = newStatus;
 
       // Update end date when cancelled or expired
@@ -112,7 +148,22 @@ public class Subscription {
 
   /** Check if status transition is valid */
   private boolean canTransitionTo(SubscriptionStatus newStatus) {
-    switch (this.status) {
+    return canTransition(this.status, newStatus);
+  }
+
+  /** Statuses a subscription may move to {@code target} from, for set-based transitions */
+  public static Set<SubscriptionStatus> statusesTransitioningTo(SubscriptionStatus target) {
+    Set<SubscriptionStatus> sources = EnumSet.noneOf(SubscriptionStatus.class);
+    for (SubscriptionStatus status : SubscriptionStatus.values()) {
+      if (canTransition(status, target)) {
+        sources.add(status);
+      }
+    }
+    return sources;
+  }
+
+  private static boolean canTransition(SubscriptionStatus current, SubscriptionStatus newStatus) {
+    switch (current) {
       case TRIAL:
         return newStatus == SubscriptionStatus.ACTIVE
             || newStatus == SubscriptionStatus.CANCELLED
@@ -0,0 +1,58 @@
+package com.okemwag.subscribe.entity;
+
+import com.okemwag.subscribe.enums.ImportFormat;
+import com.okemwag.subscribe.enums.ImportStatus;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import lombok.Data;
+
+/** One bulk subscription import and how far it got, so a failed import can resume */
+@Entity
+@Data
+@Table(name = "subscription_imports")
+public class SubscriptionImport {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "business_id", nullable = false)
+  private Long businessId;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 10)
+  private ImportFormat format;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 20)
+  private ImportStatus status = ImportStatus.RUNNING;
+
+  // Data rows committed, imported or rejected; a resumed import skips this many
+  @Column(nullable = false)
+  private long rowsProcessed;
+
+  @Column(nullable = false)
+  private long importedCount;
+
+  @Column(nullable = false)
+  private long failedCount;
+
+  // Why the import as a whole stopped
+  @Column(length = 1000)
+  private String failureReason;
+
+  @Column(nullable = false, updatable = false)
+  private LocalDateTime createdAt;
+
+  private LocalDateTime updatedAt;
+
+  @PrePersist
+  protected void onCreate() {
+    createdAt = LocalDateTime.now();
+    updatedAt = LocalDateTime.now();
+  }
+
+  @PreUpdate
+  protected void onUpdate() {
+    updatedAt = LocalDateTime.now();
+  }
+}
@@ -0,0 +1,24 @@
+package com.okemwag.subscribe.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/** A row of a bulk subscription import that was rejected */
+@Entity
+@Data
+@Table(name = "subscription_import_errors", indexes = @Index(columnList = "import_id, row_number"))
+public class SubscriptionImportError {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "import_id", nullable = false)
+  private Long importId;
+
+  // Data row of the file, header excluded, starting at 1
+  @Column(name = "row_number", nullable = false)
+  private long rowNumber;
+
+  @Column(nullable = false, length = 500)
+  private String message;
+}
@@ -0,0 +1,43 @@
+package com.okemwag.subscribe.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import lombok.Data;
+
+/**
+ * A subscription lifecycle change, written in the transaction that made it and relayed to consumers
+ * after it commits
+ */
+@Entity
+@Data
+@Table(name = "subscription_outbox", indexes = @Index(columnList = "published_at, id"))
+public class SubscriptionOutboxEvent {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "business_id", nullable = false)
+  private Long businessId;
+
+  @Column(name = "subscription_id", nullable = false)
+  private Long subscriptionId;
+
+  @Column(nullable = false, length = 30)
+  private String eventType;
+
+  // The event as JSON
+  @Column(nullable = false, columnDefinition = "text")
+  private String payload;
+
+  @Column(nullable = false, updatable = false)
+  private LocalDateTime createdAt;
+
+  // Null until relayed
+  @Column(name = "published_at")
+  private LocalDateTime publishedAt;
+
+  @PrePersist
+  protected void onCreate() {
+    createdAt = LocalDateTime.now();
+  }
+}
@@ -4,6 +4,7 @@ import com.okemwag.subscribe.enums.BillingCycle;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.Set;
 import lombok.Data;
@@ -48,6 +49,16 @@ public class SubscriptionPlan {
   @Column(nullable = false)
   private Integer trialDays = 0;
 
+  // Price of one metered unit beyond the included usage; null for plans without metered usage
+  @DecimalMin(value = "0.0", message = "Usage unit price cannot be negative")
+  @Column(precision = 14, scale = 6)
+  private BigDecimal usageUnitPrice;
+
+  // Metered units covered by the plan price each billing period
+  @Min(value = 0, message = "Included usage cannot be negative")
+  @Column(nullable = false, columnDefinition = "bigint default 0")
+  private Long includedUsage = 0L;
+
   @NotNull(message = "Business is required")
   @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "business_id", nullable = false)
@@ -71,4 +82,13 @@ public class SubscriptionPlan {
   protected void onUpdate() {
     updatedAt = LocalDateTime.now();
   }
+
+  /** The charge for {@code quantity} metered units in one billing period */
+  public BigDecimal priceUsage(long quantity) {
+    if (usageUnitPrice == null) {
+      return BigDecimal.ZERO;
+    }
+    long billable = Math.max(0, quantity - (includedUsage == null ? 0 : includedUsage));
+    return usageUnitPrice.multiply(BigDecimal.valueOf(billable)).setScale(2, RoundingMode.HALF_UP);
+  }
 }
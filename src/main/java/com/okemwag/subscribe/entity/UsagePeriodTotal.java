@@ -0,0 +1,38 @@
+package com.okemwag.subscribe.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import lombok.Data;
+
+/**
+ * Metered usage of a subscription within one hour, added to by every flush until an invoice prices
+ * it. Usage arriving for an hour already invoiced starts a new row, billed with the next invoice.
+ */
+@Entity
+@Data
+@Table(name = "usage_period_totals", indexes = @Index(columnList = "invoice_id"))
+public class UsagePeriodTotal {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "subscription_id", nullable = false)
+  private Long subscriptionId;
+
+  @Column(name = "period_start", nullable = false)
+  private LocalDateTime periodStart;
+
+  @Column(nullable = false)
+  private Long quantity;
+
+  @Column(name = "event_count", nullable = false)
+  private Long eventCount;
+
+  // Null until an invoice prices the usage
+  @Column(name = "invoice_id")
+  private Long invoiceId;
+
+  @Column(name = "updated_at", nullable = false)
+  private LocalDateTime updatedAt;
+}
@@ -0,0 +1,8 @@
+package com.okemwag.subscribe.enums;
+
+public enum AnalyticsSection {
+  REVENUE,
+  CUSTOMERS,
+  SUBSCRIPTIONS,
+  CHURN
+}
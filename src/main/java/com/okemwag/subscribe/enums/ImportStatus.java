@@ -0,0 +1,7 @@
+package com.okemwag.subscribe.enums;
+
+public enum ImportStatus {
+  RUNNING,
+  COMPLETED,
+  FAILED
+}
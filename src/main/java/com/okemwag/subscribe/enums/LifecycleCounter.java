@@ -0,0 +1,8 @@
+package com.okemwag.subscribe.enums;
+
+public enum LifecycleCounter {
+  SIGNUPS,
+  CANCELLATIONS,
+  TRIAL_STARTS,
+  CONVERSIONS
+}
@@ -0,0 +1,6 @@
+package com.okemwag.subscribe.enums;
+
+public enum SketchMetric {
+  PAYMENT_AMOUNT,
+  INVOICE_TOTAL
+}
@@ -0,0 +1,10 @@
+package com.okemwag.subscribe.enums;
+
+public enum TimeSeriesMetric {
+  REVENUE,
+  REFUNDS,
+  NEW_SUBSCRIPTIONS,
+  CANCELLATIONS,
+  INVOICES,
+  INVOICED_AMOUNT
+}
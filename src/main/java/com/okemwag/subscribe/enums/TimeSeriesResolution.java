@@ -0,0 +1,7 @@
+package com.okemwag.subscribe.enums;
+
+public enum TimeSeriesResolution {
+  HOUR,
+  DAY,
+  MONTH
+}
@@ -0,0 +1,19 @@
+package com.okemwag.subscribe.event;
+
+import java.time.LocalDateTime;
+
+/** Published by the customer service whenever a customer is registered, updated or deleted */
+public record CustomerEvent(
+    Type type,
+    Long businessId,
+    Long customerId,
+    boolean active,
+    String preferredLanguage,
+    LocalDateTime occurredAt) {
+
+  public enum Type {
+    REGISTERED,
+    UPDATED,
+    DELETED
+  }
+}
@@ -0,0 +1,22 @@
+package com.okemwag.subscribe.event;
+
+import com.okemwag.subscribe.enums.InvoiceStatus;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/** Published by the invoice service whenever an invoice is created or changes status */
+public record InvoiceEvent(
+    Type type,
+    Long businessId,
+    Long invoiceId,
+    Long subscriptionId,
+    InvoiceStatus status,
+    BigDecimal totalAmount,
+    String currency,
+    LocalDateTime occurredAt) {
+
+  public enum Type {
+    CREATED,
+    STATUS_CHANGED
+  }
+}
@@ -0,0 +1,27 @@
+package com.okemwag.subscribe.event;
+
+import com.okemwag.subscribe.enums.PaymentMethod;
+import com.okemwag.subscribe.enums.PaymentStatus;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/** Published by the payment service whenever a payment is processed, retried or refunded */
+public record PaymentEvent(
+    Type type,
+    Long businessId,
+    Long paymentId,
+    Long subscriptionId,
+    Long customerId,
+    PaymentStatus status,
+    PaymentMethod method,
+    BigDecimal amount,
+    String currency,
+    LocalDateTime processedAt,
+    LocalDateTime occurredAt) {
+
+  public enum Type {
+    PROCESSED,
+    RETRIED,
+    REFUNDED
+  }
+}
@@ -0,0 +1,28 @@
+package com.okemwag.subscribe.event;
+
+import com.okemwag.subscribe.enums.SubscriptionStatus;
+import java.time.LocalDateTime;
+
+/** Published by the subscription service whenever a subscription is written */
+public record SubscriptionEvent(
+    Type type,
+    Long businessId,
+    Long subscriptionId,
+    Long customerId,
+    Long planId,
+    SubscriptionStatus previousStatus,
+    SubscriptionStatus status,
+    LocalDateTime occurredAt) {
+
+  public enum Type {
+    CREATED,
+    UPDATED,
+    RENEWED,
+    CANCELLED,
+    EXPIRED
+  }
+
+  public boolean statusChanged() {
+    return previousStatus != status;
+  }
+}
@@ -0,0 +1,47 @@
+package com.okemwag.subscribe.fx;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses the local rate feed: one {@code date,currency,rate} line per quote, dates in ISO format,
+ * with an optional header line and {@code #} comments.
+ */
+final class FxRateFeed {
+
+  private FxRateFeed() {}
+
+  static List<FxRateTable.Quote> parse(BufferedReader reader) throws IOException {
+    List<FxRateTable.Quote> quotes = new ArrayList<>();
+    String line;
+    int number = 0;
+    while ((line = reader.readLine()) != null) {
+      number++;
+      line = line.strip();
+      if (line.isEmpty() || line.startsWith("#") || (number == 1 && line.startsWith("date"))) {
+        continue;
+      }
+
+      String[] fields = line.split(",");
+      if (fields.length != 3) {
+        throw new IllegalArgumentException("Expected date,currency,rate on line " + number);
+      }
+      try {
+        double rate = Double.parseDouble(fields[2].strip());
+        if (!(rate > 0) || Double.isInfinite(rate)) {
+          throw new IllegalArgumentException("Rate must be positive on line " + number);
+        }
+        quotes.add(
+            new FxRateTable.Quote(
+                LocalDate.parse(fields[0].strip()), fields[1].strip().toUpperCase(), rate));
+      } catch (DateTimeParseException | NumberFormatException e) {
+        throw new IllegalArgumentException("Malformed quote on line " + number, e);
+      }
+    }
+    return quotes;
+  }
+}
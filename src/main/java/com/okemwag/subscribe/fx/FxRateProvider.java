@@ -0,0 +1,126 @@
+package com.okemwag.subscribe.fx;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.okemwag.subscribe.config.FxConfig;
+import jakarta.annotation.PostConstruct;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.TreeSet;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exchange rates from the local feed file. The feed is parsed into an immutable {@link FxRateTable}
+ * that is swapped whole whenever the file changes, together with the cache of the conversion rate
+ * of every day and currency pair it answered, so a rate computed from an old table can never land
+ * in the cache of a new one. A feed that fails to parse keeps the previous table.
+ */
+@Component
+@Slf4j
+public class FxRateProvider {
+
+  private final FxConfig config;
+  private final int maxAgeDays;
+
+  private volatile Rates rates;
+  private volatile FileTime loadedModified;
+
+  /** A conversion from one currency to another on one day */
+  private record DayPair(LocalDate date, String from, String to) {}
+
+  /** A rate table and the conversions cached from it */
+  private record Rates(FxRateTable table, Cache<DayPair, Double> conversions) {}
+
+  /** Amounts converted into one currency, and the currencies that had no rate and were left out */
+  public record Normalized(BigDecimal total, List<String> unconvertedCurrencies) {}
+
+  public FxRateProvider(FxConfig config) {
+    this.config = config;
+    this.maxAgeDays = (int) config.getMaxRateAge().toDays();
+    this.rates = newRates(FxRateTable.empty(config.getBaseCurrency()));
+  }
+
+  @PostConstruct
+  @Scheduled(fixedDelayString = "${fx.reload-interval-ms:60000}")
+  public void reload() {
+    try {
+      if (!Files.exists(config.getFeed())) {
+        if (loadedModified == null) {
+          log.warn(
+              "FX rate feed {} not found, only same-currency amounts convert", config.getFeed());
+          loadedModified = FileTime.fromMillis(0);
+        }
+        return;
+      }
+      FileTime modified = Files.getLastModifiedTime(config.getFeed());
+      if (modified.equals(loadedModified)) {
+        return;
+      }
+
+      List<FxRateTable.Quote> quotes;
+      try (BufferedReader reader = Files.newBufferedReader(config.getFeed())) {
+        quotes = FxRateFeed.parse(reader);
+      }
+      rates = newRates(new FxRateTable(config.getBaseCurrency(), quotes));
+      loadedModified = modified;
+      log.info("Loaded {} FX quotes from {}", quotes.size(), config.getFeed());
+    } catch (IOException | IllegalArgumentException e) {
+      log.error("Failed to load FX rate feed {}: {}", config.getFeed(), e.getMessage());
+    }
+  }
+
+  /** Units of {@code to} per unit of {@code from} on {@code date}, or NaN when not quoted */
+  public double rate(String from, String to, LocalDate date) {
+    if (from.equals(to)) {
+      return 1.0;
+    }
+    Rates current = rates;
+    return current
+        .conversions()
+        .get(
+            new DayPair(date, from, to),
+            key -> current.table().crossRate(from, to, date, maxAgeDays));
+  }
+
+  /**
+   * Convert rows of (currency, day, amount) into {@code target} and add them up. A first pass
+   * resolves every row's rate through the per-day cache, a second converts the amounts.
+   */
+  public Normalized normalize(List<Object[]> rows, String target) {
+    int size = rows.size();
+    double[] rates = new double[size];
+    for (int i = 0; i < size; i++) {
+      Object[] row = rows.get(i);
+      rates[i] = rate((String) row[0], target, (LocalDate) row[1]);
+    }
+
+    BigDecimal total = BigDecimal.ZERO;
+    TreeSet<String> unconverted = new TreeSet<>();
+    for (int i = 0; i < size; i++) {
+      Object[] row = rows.get(i);
+      BigDecimal amount = (BigDecimal) row[2];
+      if (amount == null) {
+        continue;
+      }
+      if (Double.isNaN(rates[i])) {
+        unconverted.add((String) row[0]);
+      } else {
+        total = total.add(rates[i] == 1.0 ? amount : amount.multiply(BigDecimal.valueOf(rates[i])));
+      }
+    }
+    return new Normalized(total.setScale(2, RoundingMode.HALF_UP), List.copyOf(unconverted));
+  }
+
+  private Rates newRates(FxRateTable table) {
+    return new Rates(
+        table, Caffeine.newBuilder().maximumSize(config.getMaximumCachedRates()).build());
+  }
+}
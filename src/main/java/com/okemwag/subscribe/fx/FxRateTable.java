@@ -0,0 +1,98 @@
+package com.okemwag.subscribe.fx;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Immutable daily exchange rates against one base currency, as a dense day by currency matrix. A
+ * lookup is a binary search over the days followed by a short walk back to the last day the
+ * currency was quoted, so a table can be shared by any number of readers and swapped whole when the
+ * feed changes.
+ */
+public final class FxRateTable {
+
+  /** One quote: {@code rate} units of {@code currency} buy one unit of the base currency */
+  public record Quote(LocalDate date, String currency, double rate) {}
+
+  private final String baseCurrency;
+  private final long[] days;
+  private final Map<String, Integer> currencies;
+  private final double[] rates;
+
+  public FxRateTable(String baseCurrency, List<Quote> quotes) {
+    this.baseCurrency = baseCurrency;
+
+    TreeSet<Long> distinctDays = new TreeSet<>();
+    TreeSet<String> distinctCurrencies = new TreeSet<>();
+    for (Quote quote : quotes) {
+      distinctDays.add(quote.date().toEpochDay());
+      distinctCurrencies.add(quote.currency());
+    }
+    this.days = distinctDays.stream().mapToLong(Long::longValue).toArray();
+    this.currencies = new HashMap<>();
+    for (String currency : distinctCurrencies) {
+      currencies.put(currency, currencies.size());
+    }
+
+    this.rates = new double[days.length * currencies.size()];
+    Arrays.fill(rates, Double.NaN);
+    for (Quote quote : quotes) {
+      int day = Arrays.binarySearch(days, quote.date().toEpochDay());
+      rates[day * currencies.size() + currencies.get(quote.currency())] = quote.rate();
+    }
+  }
+
+  public static FxRateTable empty(String baseCurrency) {
+    return new FxRateTable(baseCurrency, List.of());
+  }
+
+  public String baseCurrency() {
+    return baseCurrency;
+  }
+
+  public int size() {
+    return days.length * currencies.size();
+  }
+
+  /**
+   * Units of {@code currency} per unit of the base currency on {@code date}, taken from the latest
+   * quote at most {@code maxAgeDays} older, or NaN when there is none.
+   */
+  public double rate(String currency, LocalDate date, int maxAgeDays) {
+    if (currency.equals(baseCurrency)) {
+      return 1.0;
+    }
+    Integer column = currencies.get(currency);
+    if (column == null) {
+      return Double.NaN;
+    }
+
+    long target = date.toEpochDay();
+    int day = Arrays.binarySearch(days, target);
+    if (day < 0) {
+      // Insertion point less one: the last day before the target
+      day = -day - 2;
+    }
+    for (; day >= 0 && target - days[day] <= maxAgeDays; day--) {
+      double rate = rates[day * currencies.size() + column];
+      if (!Double.isNaN(rate)) {
+        return rate;
+      }
+    }
+    return Double.NaN;
+  }
+
+  /**
+   * Units of {@code to} per unit of {@code from} on {@code date}, or NaN when either is unquoted
+   */
+  public double crossRate(String from, String to, LocalDate date, int maxAgeDays) {
+    if (from.equals(to)) {
+      return 1.0;
+    }
+    return rate(to, date, maxAgeDays) / rate(from, date, maxAgeDays);
+  }
+}
@@ -0,0 +1,16 @@
+package com.okemwag.subscribe.importer;
+
+import java.util.Map;
+
+/**
+ * One data row of an import file. Field names are lower-cased with underscores removed, so {@code
+ * start_date} and {@code startDate} are the same field. A row that could not be parsed carries the
+ * reason instead of fields.
+ */
+public record ImportRow(long rowNumber, Map<String, String> fields, String parseError) {
+
+  public String field(String name) {
+    String value = fields.get(name);
+    return value == null || value.isBlank() ? null : value.strip();
+  }
+}
@@ -0,0 +1,147 @@
+package com.okemwag.subscribe.importer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.okemwag.subscribe.enums.ImportFormat;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Streams the rows of a CSV file with a header line, or of a file with one JSON object per line.
+ * Only the current line is held in memory. Quoted CSV fields may contain commas and doubled quotes
+ * but not line breaks.
+ */
+public class ImportRowReader implements Closeable {
+
+  private final ImportFormat format;
+  private final BufferedReader reader;
+  private final ObjectMapper objectMapper;
+  private List<String> header;
+  private long rowNumber;
+
+  public ImportRowReader(ImportFormat format, BufferedReader reader, ObjectMapper objectMapper) {
+    this.format = format;
+    this.reader = reader;
+    this.objectMapper = objectMapper;
+  }
+
+  /** The next data row, or null at the end of the file */
+  public ImportRow next() throws IOException {
+    if (format == ImportFormat.CSV && header == null) {
+      String line = reader.readLine();
+      if (line == null) {
+        return null;
+      }
+      header = new ArrayList<>();
+      for (String name : splitCsv(line)) {
+        header.add(normalize(name));
+      }
+    }
+
+    String line;
+    do {
+      line = reader.readLine();
+      if (line == null) {
+        return null;
+      }
+      rowNumber++;
+    } while (line.isBlank());
+
+    switch (format) {
+      case CSV:
+        return parseCsv(line);
+      case NDJSON:
+        return parseJson(line);
+      default:
+        throw new IllegalArgumentException("Unsupported import format: " + format);
+    }
+  }
+
+  private ImportRow parseCsv(String line) {
+    List<String> values;
+    try {
+      values = splitCsv(line);
+    } catch (IllegalArgumentException e) {
+      return new ImportRow(rowNumber, Map.of(), e.getMessage());
+    }
+    if (values.size() != header.size()) {
+      return new ImportRow(
+          rowNumber, Map.of(), "Expected " + header.size() + " columns but found " + values.size());
+    }
+
+    Map<String, String> fields = new HashMap<>();
+    for (int i = 0; i < values.size(); i++) {
+      fields.put(header.get(i), values.get(i));
+    }
+    return new ImportRow(rowNumber, fields, null);
+  }
+
+  private ImportRow parseJson(String line) {
+    JsonNode node;
+    try {
+      node = objectMapper.readTree(line);
+    } catch (JsonProcessingException e) {
+      return new ImportRow(rowNumber, Map.of(), "Malformed JSON: " + e.getOriginalMessage());
+    }
+    if (!node.isObject()) {
+      return new ImportRow(rowNumber, Map.of(), "Expected a JSON object");
+    }
+
+    Map<String, String> fields = new HashMap<>();
+    for (Iterator<Map.Entry<String, JsonNode>> it = node.fields(); it.hasNext(); ) {
+      Map.Entry<String, JsonNode> field = it.next();
+      if (!field.getValue().isNull()) {
+        fields.put(normalize(field.getKey()), field.getValue().asText());
+      }
+    }
+    return new ImportRow(rowNumber, fields, null);
+  }
+
+  static List<String> splitCsv(String line) {
+    List<String> values = new ArrayList<>();
+    StringBuilder value = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (quoted) {
+        if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+          value.append('"');
+          i++;
+        } else if (c == '"') {
+          quoted = false;
+        } else {
+          value.append(c);
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        values.add(value.toString());
+        value.setLength(0);
+      } else {
+        value.append(c);
+      }
+    }
+    if (quoted) {
+      throw new IllegalArgumentException("Unterminated quoted field");
+    }
+    values.add(value.toString());
+    return values;
+  }
+
+  private static String normalize(String name) {
+    return name.replace("\uFEFF", "").strip().replace("_", "").toLowerCase(Locale.ROOT);
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+}
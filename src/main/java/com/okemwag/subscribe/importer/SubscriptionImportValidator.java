@@ -0,0 +1,194 @@
+package com.okemwag.subscribe.importer;
+
+import com.okemwag.subscribe.enums.BillingCycle;
+import com.okemwag.subscribe.enums.SubscriptionStatus;
+import com.okemwag.subscribe.repository.NewSubscription;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Checks import rows against one tenant's customers, plans and open subscriptions, all loaded once
+ * before the import starts. {@link #validate} only reads and may run on many rows in parallel;
+ * {@link #claim} records the new open subscriptions and must be called in row order.
+ */
+public class SubscriptionImportValidator {
+
+  /** A customer of the tenant, by email */
+  public record CustomerRef(long id, boolean active) {}
+
+  /** A plan of the tenant */
+  public record PlanRef(
+      long id, String name, boolean active, int trialDays, BillingCycle billingCycle) {}
+
+  /** A validated row: the subscription to insert, or why the row was rejected */
+  public record Result(ImportRow row, NewSubscription subscription, String error) {}
+
+  private record OpenKey(long customerId, long planId) {}
+
+  private final Map<String, CustomerRef> customersByEmail;
+  private final Map<Long, PlanRef> plansById = new HashMap<>();
+  private final Map<String, List<PlanRef>> plansByName = new HashMap<>();
+  private final Set<OpenKey> open = new HashSet<>();
+  private final LocalDateTime now;
+
+  /**
+   * @param openSubscriptions (customer id, plan id) of the tenant's subscriptions that have not
+   *     ended
+   */
+  public SubscriptionImportValidator(
+      Map<String, CustomerRef> customersByEmail,
+      List<PlanRef> plans,
+      List<long[]> openSubscriptions,
+      LocalDateTime now) {
+    this.customersByEmail = customersByEmail;
+    for (PlanRef plan : plans) {
+      plansById.put(plan.id(), plan);
+      plansByName
+          .computeIfAbsent(plan.name().toLowerCase(Locale.ROOT), k -> new ArrayList<>())
+          .add(plan);
+    }
+    for (long[] pair : openSubscriptions) {
+      open.add(new OpenKey(pair[0], pair[1]));
+    }
+    this.now = now;
+  }
+
+  public Result validate(ImportRow row) {
+    if (row.parseError() != null) {
+      return reject(row, row.parseError());
+    }
+
+    String email = row.field("customer");
+    if (email == null) {
+      return reject(row, "Customer email is required");
+    }
+    CustomerRef customer = customersByEmail.get(email.toLowerCase(Locale.ROOT));
+    if (customer == null) {
+      return reject(row, "Customer not found: " + email);
+    }
+    if (!customer.active()) {
+      return reject(row, "Customer is inactive: " + email);
+    }
+
+    String planKey = row.field("plan");
+    if (planKey == null) {
+      return reject(row, "Plan is required");
+    }
+    PlanRef plan = findPlan(planKey);
+    if (plan == null) {
+      return reject(row, "Plan not found or ambiguous: " + planKey);
+    }
+    if (!plan.active()) {
+      return reject(row, "Plan is inactive: " + planKey);
+    }
+
+    SubscriptionStatus status;
+    LocalDateTime startDate;
+    LocalDateTime endDate;
+    LocalDateTime nextBillingDate;
+    try {
+      String statusValue = row.field("status");
+      status =
+          statusValue != null
+              ? SubscriptionStatus.valueOf(statusValue.toUpperCase(Locale.ROOT))
+              : plan.trialDays() > 0 ? SubscriptionStatus.TRIAL : SubscriptionStatus.ACTIVE;
+      startDate = parseDateTime(row.field("startdate"));
+      endDate = parseDateTime(row.field("enddate"));
+      nextBillingDate = parseDateTime(row.field("nextbillingdate"));
+    } catch (IllegalArgumentException | DateTimeParseException e) {
+      return reject(row, "Invalid value: " + e.getMessage());
+    }
+
+    if (startDate == null) {
+      startDate = now;
+    } else if (startDate.isAfter(now)) {
+      return reject(row, "Start date cannot be in the future");
+    }
+    boolean ended = status == SubscriptionStatus.CANCELLED || status == SubscriptionStatus.EXPIRED;
+    if (ended) {
+      if (endDate == null) {
+        return reject(row, "End date is required for " + status + " subscriptions");
+      }
+      nextBillingDate = null;
+    } else {
+      if (endDate == null && status == SubscriptionStatus.TRIAL) {
+        endDate = startDate.plusDays(plan.trialDays());
+      }
+      if (nextBillingDate == null) {
+        // Carry the billing cycle forward from the start so migrated subscriptions bill next
+        // on their usual day rather than immediately
+        nextBillingDate = nextCharge(startDate, plan.billingCycle());
+        while (!nextBillingDate.isAfter(now)) {
+          nextBillingDate = nextCharge(nextBillingDate, plan.billingCycle());
+        }
+      }
+    }
+    if (endDate != null && endDate.isBefore(startDate)) {
+      return reject(row, "End date is before the start date");
+    }
+
+    return new Result(
+        row,
+        new NewSubscription(customer.id(), plan.id(), status, startDate, endDate, nextBillingDate),
+        null);
+  }
+
+  /**
+   * Record a valid row's subscription as open, or reject it when the customer already has an open
+   * subscription to the plan, in the tenant or earlier in the file.
+   */
+  public Result claim(Result result) {
+    NewSubscription subscription = result.subscription();
+    if (subscription == null
+        || subscription.status() == SubscriptionStatus.CANCELLED
+        || subscription.status() == SubscriptionStatus.EXPIRED) {
+      return result;
+    }
+    if (!open.add(new OpenKey(subscription.customerId(), subscription.planId()))) {
+      return reject(result.row(), "Customer already has an open subscription to this plan");
+    }
+    return result;
+  }
+
+  private PlanRef findPlan(String key) {
+    if (key.chars().allMatch(Character::isDigit)) {
+      return plansById.get(Long.parseLong(key));
+    }
+    List<PlanRef> named = plansByName.get(key.toLowerCase(Locale.ROOT));
+    return named != null && named.size() == 1 ? named.get(0) : null;
+  }
+
+  private static LocalDateTime parseDateTime(String value) {
+    if (value == null) {
+      return null;
+    }
+    return value.length() == 10
+        ? LocalDate.parse(value).atStartOfDay()
+        : LocalDateTime.parse(value);
+  }
+
+  private static LocalDateTime nextCharge(LocalDateTime date, BillingCycle cycle) {
+    switch (cycle) {
+      case MONTHLY:
+        return date.plusMonths(1);
+      case QUARTERLY:
+        return date.plusMonths(3);
+      case YEARLY:
+        return date.plusYears(1);
+      default:
+        throw new IllegalArgumentException("Unsupported billing cycle: " + cycle);
+    }
+  }
+
+  private static Result reject(ImportRow row, String error) {
+    return new Result(row, null, error);
+  }
+}
@@ -0,0 +1,63 @@
+package com.okemwag.subscribe.lock;
+
+import com.okemwag.subscribe.exception.SubscribeException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cluster-wide mutual exclusion for scheduled jobs, on Postgres session advisory locks. The lock is
+ * held on a connection of its own for as long as the task runs; if the node dies the database ends
+ * the session and the lock with it, so a crashed holder never blocks the other nodes.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ClusterLock {
+
+  private final DataSource dataSource;
+
+  /**
+   * Run {@code task} if no other node holds the lock called {@code name}, without waiting for it.
+   *
+   * @return whether the task ran
+   */
+  public boolean runExclusively(String name, Runnable task) {
+    try (Connection connection = dataSource.getConnection()) {
+      if (!call(connection, "SELECT pg_try_advisory_lock(hashtext(?))", name)) {
+        return false;
+      }
+      try {
+        task.run();
+        return true;
+      } finally {
+        unlock(connection, name);
+      }
+    } catch (SQLException e) {
+      throw new SubscribeException("Could not take cluster lock " + name, e);
+    }
+  }
+
+  private void unlock(Connection connection, String name) {
+    try {
+      call(connection, "SELECT pg_advisory_unlock(hashtext(?))", name);
+    } catch (SQLException e) {
+      // A broken connection is dropped by the pool, which ends the session and its lock
+      log.warn("Could not release cluster lock {}: {}", name, e.getMessage());
+    }
+  }
+
+  private static boolean call(Connection connection, String sql, String name) throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement(sql)) {
+      statement.setString(1, name);
+      try (ResultSet result = statement.executeQuery()) {
+        return result.next() && result.getBoolean(1);
+      }
+    }
+  }
+}
@@ -0,0 +1,10 @@
+package com.okemwag.subscribe.outbox;
+
+import java.util.List;
+
+/** A message broker that receives every relayed batch before in-process consumers */
+public interface OutboxBroker {
+
+  /** Send a batch in order; returns once the broker has accepted all of it, otherwise throws */
+  void send(List<OutboxMessage> messages);
+}
@@ -0,0 +1,15 @@
+package com.okemwag.subscribe.outbox;
+
+import java.time.LocalDateTime;
+
+/**
+ * A relayed subscription lifecycle change. Delivery is at least once, so consumers should skip ids
+ * they have already handled.
+ */
+public record OutboxMessage(
+    Long id,
+    Long businessId,
+    Long subscriptionId,
+    String eventType,
+    String payload,
+    LocalDateTime createdAt) {}
@@ -0,0 +1,55 @@
+package com.okemwag.subscribe.outbox;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+/**
+ * Publishes relayed messages to a RabbitMQ topic exchange with routing keys such as {@code
+ * subscription.cancelled}, and waits for the broker's publisher confirms before returning.
+ */
+public class RabbitOutboxBroker implements OutboxBroker {
+
+  private final RabbitTemplate rabbitTemplate;
+  private final String exchange;
+  private final Duration confirmTimeout;
+
+  public RabbitOutboxBroker(
+      RabbitTemplate rabbitTemplate, String exchange, Duration confirmTimeout) {
+    this.rabbitTemplate = rabbitTemplate;
+    this.exchange = exchange;
+    this.confirmTimeout = confirmTimeout;
+  }
+
+  @Override
+  public void send(List<OutboxMessage> messages) {
+    rabbitTemplate.invoke(
+        operations -> {
+          for (OutboxMessage message : messages) {
+            operations.send(exchange, routingKey(message), toAmqp(message));
+          }
+          operations.waitForConfirmsOrDie(confirmTimeout.toMillis());
+          return null;
+        });
+  }
+
+  public static String routingKey(OutboxMessage message) {
+    return "subscription." + message.eventType().toLowerCase(Locale.ROOT);
+  }
+
+  private static Message toAmqp(OutboxMessage message) {
+    MessageProperties properties = new MessageProperties();
+    properties.setMessageId(String.valueOf(message.id()));
+    properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+    properties.setContentEncoding(StandardCharsets.UTF_8.name());
+    properties.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+    properties.setHeader("businessId", message.businessId());
+    properties.setHeader("subscriptionId", message.subscriptionId());
+    return new Message(message.payload().getBytes(StandardCharsets.UTF_8), properties);
+  }
+}
@@ -0,0 +1,50 @@
+package com.okemwag.subscribe.outbox;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * The stream of committed subscription lifecycle changes. Each relayed batch goes to the broker
+ * first, when one is configured, and then to in-process consumers in order. A consumer that throws
+ * is logged and skipped, it does not hold back the others.
+ */
+@Component
+@Slf4j
+public class SubscriptionEventStream {
+
+  private final OutboxBroker broker;
+  private final List<Consumer<OutboxMessage>> listeners = new CopyOnWriteArrayList<>();
+
+  public SubscriptionEventStream(Optional<OutboxBroker> broker) {
+    this.broker = broker.orElse(null);
+  }
+
+  public void subscribe(Consumer<OutboxMessage> listener) {
+    listeners.add(listener);
+  }
+
+  /** Deliver a batch; throws, delivering nothing in process, when the broker rejects it */
+  void publish(List<OutboxMessage> messages) {
+    if (broker != null) {
+      broker.send(messages);
+    }
+    for (OutboxMessage message : messages) {
+      for (Consumer<OutboxMessage> listener : listeners) {
+        try {
+          listener.accept(message);
+        } catch (RuntimeException e) {
+          log.error(
+              "Error handling subscription event {} ({}): {}",
+              message.id(),
+              message.eventType(),
+              e.getMessage(),
+              e);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package com.okemwag.subscribe.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.okemwag.subscribe.entity.SubscriptionOutboxEvent;
+import com.okemwag.subscribe.enums.SubscriptionStatus;
+import com.okemwag.subscribe.event.SubscriptionEvent;
+import com.okemwag.subscribe.exception.SubscribeException;
+import com.okemwag.subscribe.repository.SubscriptionOutboxRepository;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Writes every subscription event to the outbox table as it is published, inside the transaction
+ * that changed the subscription, so the change and its record commit or roll back together. Once
+ * the transaction commits the relay is woken to deliver it.
+ */
+@Component
+@RequiredArgsConstructor
+public class SubscriptionOutbox {
+
+  public static final String TRIAL_CONVERTED = "TRIAL_CONVERTED";
+
+  private final SubscriptionOutboxRepository subscriptionOutboxRepository;
+  private final SubscriptionOutboxRelay relay;
+  private final ObjectMapper objectMapper;
+
+  @EventListener
+  public void append(SubscriptionEvent event) {
+    subscriptionOutboxRepository.save(toEntry(event));
+  }
+
+  /**
+   * Write the events of a bulk change, which publishes none, in one batch. Must run inside the
+   * transaction of the change; the relay is woken once it commits.
+   */
+  public void appendAll(List<SubscriptionEvent> events) {
+    subscriptionOutboxRepository.insertAll(events.stream().map(this::toEntry).toList());
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            relay.wake();
+          }
+        });
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onCommitted(SubscriptionEvent event) {
+    relay.wake();
+  }
+
+  private SubscriptionOutboxEvent toEntry(SubscriptionEvent event) {
+    SubscriptionOutboxEvent entry = new SubscriptionOutboxEvent();
+    entry.setBusinessId(event.businessId());
+    entry.setSubscriptionId(event.subscriptionId());
+    entry.setEventType(eventType(event));
+    try {
+      entry.setPayload(objectMapper.writeValueAsString(event));
+    } catch (JsonProcessingException e) {
+      throw new SubscribeException("Failed to serialize subscription event", e);
+    }
+    return entry;
+  }
+
+  /** The event type, with a trial turning active told apart from other updates */
+  static String eventType(SubscriptionEvent event) {
+    if (event.previousStatus() == SubscriptionStatus.TRIAL
+        && event.status() == SubscriptionStatus.ACTIVE) {
+      return TRIAL_CONVERTED;
+    }
+    return event.type().name();
+  }
+}
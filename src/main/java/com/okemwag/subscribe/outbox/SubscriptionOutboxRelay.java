@@ -0,0 +1,145 @@
+package com.okemwag.subscribe.outbox;
+
+import com.okemwag.subscribe.config.OutboxConfig;
+import com.okemwag.subscribe.entity.SubscriptionOutboxEvent;
+import com.okemwag.subscribe.repository.SubscriptionOutboxRepository;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Drains the subscription outbox into the {@link SubscriptionEventStream}. Draining runs on one
+ * thread per node, woken after each local commit and on a slow poll for commits of other nodes, and
+ * a database advisory lock keeps the nodes from relaying at the same time. A batch is marked
+ * relayed in the transaction that read it; a failure leaves it to be delivered again.
+ *
+ * <p>Messages are ordered per subscription only. Outbox ids are taken when a row is inserted, not
+ * when it commits, so a transaction can commit a lower id after a higher one was relayed, and
+ * changes of different subscriptions may leave out of commit order. Two changes of one subscription
+ * cannot interleave like that: its version check makes the second read the first's commit before
+ * writing its own row, so it takes the higher id.
+ */
+@Component
+@Slf4j
+public class SubscriptionOutboxRelay {
+
+  // Advisory lock key of the relay, any constant not used by other locks
+  private static final long RELAY_LOCK_KEY = 0x5355424F5554L;
+
+  private static final int PURGE_BATCH_SIZE = 10_000;
+
+  private final SubscriptionOutboxRepository subscriptionOutboxRepository;
+  private final SubscriptionEventStream stream;
+  private final OutboxConfig config;
+  private final TransactionTemplate transactionTemplate;
+
+  private final ExecutorService relayThread =
+      Executors.newSingleThreadExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "subscription-outbox-relay");
+            thread.setDaemon(true);
+            return thread;
+          });
+  private final AtomicBoolean wakeQueued = new AtomicBoolean();
+
+  public SubscriptionOutboxRelay(
+      SubscriptionOutboxRepository subscriptionOutboxRepository,
+      SubscriptionEventStream stream,
+      OutboxConfig config,
+      PlatformTransactionManager transactionManager) {
+    this.subscriptionOutboxRepository = subscriptionOutboxRepository;
+    this.stream = stream;
+    this.config = config;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  /** Schedule a drain unless one is already waiting to start */
+  public void wake() {
+    if (wakeQueued.compareAndSet(false, true)) {
+      relayThread.execute(
+          () -> {
+            wakeQueued.set(false);
+            drain();
+          });
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${outbox.poll-interval:PT5S}")
+  public void poll() {
+    wake();
+  }
+
+  /** Delete relayed rows older than the retention */
+  @Scheduled(fixedDelayString = "${outbox.purge-interval:PT1H}")
+  public void purge() {
+    LocalDateTime cutoff = LocalDateTime.now().minus(config.getRetention());
+    long purged = 0;
+    int batch;
+    do {
+      batch =
+          transactionTemplate.execute(
+              status ->
+                  subscriptionOutboxRepository.deletePublishedBefore(cutoff, PURGE_BATCH_SIZE));
+      purged += batch;
+    } while (batch == PURGE_BATCH_SIZE);
+    if (purged > 0) {
+      log.info("Purged {} relayed subscription outbox events", purged);
+    }
+  }
+
+  private void drain() {
+    try {
+      int relayed;
+      do {
+        relayed = transactionTemplate.execute(status -> relayBatch());
+      } while (relayed == config.getBatchSize());
+    } catch (RuntimeException e) {
+      // Left unrelayed; the next wake or poll retries from the same event
+      log.warn("Relaying subscription outbox failed: {}", e.getMessage());
+    }
+  }
+
+  private int relayBatch() {
+    if (!subscriptionOutboxRepository.tryRelayLock(RELAY_LOCK_KEY)) {
+      return 0;
+    }
+    List<SubscriptionOutboxEvent> batch =
+        subscriptionOutboxRepository.findUnpublished(PageRequest.of(0, config.getBatchSize()));
+    if (batch.isEmpty()) {
+      return 0;
+    }
+
+    List<OutboxMessage> messages = new ArrayList<>(batch.size());
+    List<Long> ids = new ArrayList<>(batch.size());
+    for (SubscriptionOutboxEvent event : batch) {
+      messages.add(
+          new OutboxMessage(
+              event.getId(),
+              event.getBusinessId(),
+              event.getSubscriptionId(),
+              event.getEventType(),
+              event.getPayload(),
+              event.getCreatedAt()));
+      ids.add(event.getId());
+    }
+    stream.publish(messages);
+    subscriptionOutboxRepository.markPublished(ids, LocalDateTime.now());
+    log.debug("Relayed {} subscription outbox events", messages.size());
+    return messages.size();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    relayThread.shutdownNow();
+  }
+}
@@ -0,0 +1,47 @@
+package com.okemwag.subscribe.pagination;
+
+import com.okemwag.subscribe.exception.SubscribeException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Where a keyset page ends: the creation time and id of its last row. Pages run newest first, so
+ * the next page holds the rows ordered after this one by creation time, then id, both descending.
+ * Clients see it only as an opaque token.
+ */
+public record KeysetCursor(LocalDateTime createdAt, long id) {
+
+  /** Ordered before every row, where the first page starts */
+  public static final KeysetCursor FIRST =
+      new KeysetCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+  private static final char SEPARATOR = '|';
+
+  /** The cursor a token stands for, or {@link #FIRST} when there is none */
+  public static KeysetCursor decode(String token) {
+    if (token == null || token.isBlank()) {
+      return FIRST;
+    }
+    try {
+      String value =
+          new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+      int separator = value.indexOf(SEPARATOR);
+      if (separator < 0) {
+        throw new SubscribeException("Invalid page cursor");
+      }
+      return new KeysetCursor(
+          LocalDateTime.parse(value.substring(0, separator)),
+          Long.parseLong(value.substring(separator + 1)));
+    } catch (IllegalArgumentException | DateTimeParseException e) {
+      throw new SubscribeException("Invalid page cursor");
+    }
+  }
+
+  public String encode() {
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString((createdAt.toString() + SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+  }
+}
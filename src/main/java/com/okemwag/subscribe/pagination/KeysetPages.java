@@ -0,0 +1,58 @@
+package com.okemwag.subscribe.pagination;
+
+import com.okemwag.subscribe.dto.CursorPageDTO;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+/**
+ * Builds keyset pages. Repository queries seek past the cursor and return a {@link Slice}, which
+ * reads one extra row to tell whether another page follows instead of counting the rows, so a deep
+ * page costs the same as the first. The total is counted only when asked for.
+ */
+public final class KeysetPages {
+
+  public static final int MAX_PAGE_SIZE = 500;
+
+  private KeysetPages() {}
+
+  /** The limit of a page of {@code size} rows, clamped to what one page may hold */
+  public static Pageable limit(int size) {
+    return PageRequest.of(0, Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
+  }
+
+  /**
+   * A page of the slice's rows, with the cursor of its last row when more follow.
+   *
+   * @param total counts every row of the listing, or null to leave the total out
+   */
+  public static <E, D> CursorPageDTO<D> toPage(
+      Slice<E> slice,
+      Function<E, D> mapper,
+      Function<E, LocalDateTime> createdAt,
+      Function<E, Long> id,
+      LongSupplier total) {
+    List<E> rows = slice.getContent();
+    List<D> items = new ArrayList<>(rows.size());
+    for (E row : rows) {
+      items.add(mapper.apply(row));
+    }
+
+    CursorPageDTO<D> page = new CursorPageDTO<>();
+    page.setItems(items);
+    page.setHasNext(slice.hasNext());
+    if (slice.hasNext()) {
+      E last = rows.get(rows.size() - 1);
+      page.setNextCursor(new KeysetCursor(createdAt.apply(last), id.apply(last)).encode());
+    }
+    if (total != null) {
+      page.setTotalCount(total.getAsLong());
+    }
+    return page;
+  }
+}
@@ -0,0 +1,34 @@
+package com.okemwag.subscribe.repository;
+
+import com.okemwag.subscribe.entity.AmountSketchGeneration;
+import jakarta.persistence.LockModeType;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AmountSketchGenerationRepository
+    extends JpaRepository<AmountSketchGeneration, Long> {
+
+  // Gives every tenant a row to lock, flushes and rebuilds of a tenant then serialize on it
+  @Modifying
+  @Query(
+      value =
+          "INSERT INTO amount_sketch_generations (business_id, generation) VALUES (:businessId, 0) "
+              + "ON CONFLICT (business_id) DO NOTHING",
+      nativeQuery = true)
+  void insertIfAbsent(@Param("businessId") Long businessId);
+
+  // Flushes: many may merge at once, a rebuild waits for them and they wait for a rebuild
+  @Lock(LockModeType.PESSIMISTIC_READ)
+  @Query("SELECT g FROM AmountSketchGeneration g WHERE g.businessId = :businessId")
+  Optional<AmountSketchGeneration> findForMerge(@Param("businessId") Long businessId);
+
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT g FROM AmountSketchGeneration g WHERE g.businessId = :businessId")
+  Optional<AmountSketchGeneration> findForRebuild(@Param("businessId") Long businessId);
+}
@@ -0,0 +1,35 @@
+package com.okemwag.subscribe.repository;
+
+import com.okemwag.subscribe.entity.AmountSketch;
+import com.okemwag.subscribe.enums.SketchMetric;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AmountSketchRepository extends JpaRepository<AmountSketch, Long> {
+
+  Optional<AmountSketch> findByBusinessIdAndMetricAndDimensionAndCurrencyAndPeriod(
+      Long businessId, SketchMetric metric, String dimension, String currency, LocalDate period);
+
+  @Query(
+      "SELECT s FROM AmountSketch s WHERE s.businessId = :businessId AND s.metric = :metric "
+          + "AND (:dimension IS NULL OR s.dimension = :dimension) AND s.currency = :currency "
+          + "AND s.period >= :fromPeriod AND s.period <= :toPeriod")
+  List<AmountSketch> findForRange(
+      @Param("businessId") Long businessId,
+      @Param("metric") SketchMetric metric,
+      @Param("dimension") String dimension,
+      @Param("currency") String currency,
+      @Param("fromPeriod") LocalDate fromPeriod,
+      @Param("toPeriod") LocalDate toPeriod);
+
+  @Modifying
+  @Query("DELETE FROM AmountSketch s WHERE s.businessId = :businessId")
+  void deleteByBusinessId(@Param("businessId") Long businessId);
+}
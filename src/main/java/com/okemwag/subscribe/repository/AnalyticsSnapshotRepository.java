@@ -0,0 +1,33 @@
+package com.okemwag.subscribe.repository;
+
+import com.okemwag.subscribe.entity.AnalyticsSnapshot;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface AnalyticsSnapshotRepository extends JpaRepository<AnalyticsSnapshot, Long> {
+
+  // Latest snapshot on or before the date
+  Optional<AnalyticsSnapshot>
+      findFirstByBusinessIdAndSnapshotDateLessThanEqualOrderBySnapshotDateDesc(
+          Long businessId, LocalDate date);
+
+  List<AnalyticsSnapshot> findByBusinessIdAndSnapshotDateBetweenOrderBySnapshotDate(
+      Long businessId, LocalDate from, LocalDate to);
+
+  @Query("SELECT s.businessId FROM AnalyticsSnapshot s WHERE s.snapshotDate = :date")
+  Set<Long> findBusinessIdsWithSnapshotOn(@Param("date") LocalDate date);
+
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM AnalyticsSnapshot s WHERE s.snapshotDate < :cutoff")
+  int deleteOlderThan(@Param("cutoff") LocalDate cutoff);
+}
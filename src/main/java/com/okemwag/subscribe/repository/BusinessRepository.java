@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -27,7 +28,7 @@ public interface BusinessRepository extends JpaRepository<Business, Long> {
 
   // Enhanced tenant-aware queries
   @Query("SELECT b FROM Business b WHERE b.active = true ORDER BY b.createdAt DESC")
-  Page<Business> findAllActiveWithPagination(Pageable pageable);
+  Slice<Business> findAllActiveWithPagination(Pageable pageable);
 
   @Query(
       "SELECT b FROM Business b WHERE b.active = true AND "
@@ -57,4 +58,11 @@ public interface BusinessRepository extends JpaRepository<Business, Long> {
 
   @Query("SELECT b.timezone, COUNT(b) FROM Business b WHERE b.active = true GROUP BY b.timezone")
   List<Object[]> countBusinessesByTimezone();
+
+  // Platform-wide analytics
+  @Query("SELECT b.id, b.currency FROM Business b WHERE b.active = true ORDER BY b.id")
+  List<Object[]> findActiveBusinessCurrencies();
+
+  @Query("SELECT b.id FROM Business b WHERE b.active = true ORDER BY b.id")
+  List<Long> findActiveBusinessIds();
 }
@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -28,7 +29,7 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
       "SELECT c FROM Customer c WHERE c.business.id = :businessId AND c.active = true AND "
           + "(LOWER(c.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR "
           + "LOWER(c.email) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
-  Page<Customer> searchCustomersByBusiness(
+  Slice<Customer> searchCustomersByBusiness(
       @Param("businessId") Long businessId,
       @Param("searchTerm") String searchTerm,
       Pageable pageable);
@@ -62,6 +63,20 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
   Long countCustomersCreatedSinceByBusiness(
       @Param("businessId") Long businessId, @Param("startDate") LocalDateTime startDate);
 
+  // Lifecycle counter seed, for one business or all of them when businessId is null
+  @Query(
+      "SELECT c.business.id, CAST(c.createdAt AS LocalDate), COUNT(c) FROM Customer c "
+          + "WHERE (:businessId IS NULL OR c.business.id = :businessId) AND c.createdAt >= :since "
+          + "AND c.createdAt < :until GROUP BY c.business.id, CAST(c.createdAt AS LocalDate)")
+  List<Object[]> countSignupsByBusinessAndDay(
+      @Param("businessId") Long businessId,
+      @Param("since") LocalDateTime since,
+      @Param("until") LocalDateTime until);
+
+  // Bulk import lookup: id, email and active flag of every customer of the business
+  @Query("SELECT c.id, c.email, c.active FROM Customer c WHERE c.business.id = :businessId")
+  List<Object[]> findCustomerKeysByBusiness(@Param("businessId") Long businessId);
+
   @Query(
       "SELECT c.preferredLanguage, COUNT(c) FROM Customer c WHERE c.business.id = :businessId AND c.active = true GROUP BY c.preferredLanguage")
   List<Object[]> countCustomersByLanguageAndBusiness(@Param("businessId") Long businessId);
@@ -69,7 +84,7 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
   // Multi-tenant safe queries - ensure customers can only access their own business data
   @Query(
       "SELECT c FROM Customer c WHERE c.business.id = :businessId AND c.active = true ORDER BY c.createdAt DESC")
-  Page<Customer> findActiveCustomersByBusinessOrderByCreatedAt(
+  Slice<Customer> findActiveCustomersByBusinessOrderByCreatedAt(
       @Param("businessId") Long businessId, Pageable pageable);
 
   @Query(
@@ -86,4 +101,19 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
       "SELECT c FROM Customer c LEFT JOIN c.subscriptions s WHERE c.business.id = :businessId AND c.active = true "
           + "GROUP BY c.id HAVING COUNT(s) > 0")
   List<Customer> findCustomersWithSubscriptionsByBusiness(@Param("businessId") Long businessId);
+
+  // Segment index projections
+  @Query(
+      "SELECT c.id, c.active, c.preferredLanguage FROM Customer c WHERE c.business.id = :businessId")
+  List<Object[]> findSegmentAttributesByBusiness(@Param("businessId") Long businessId);
+
+  // Platform-wide analytics, one row per business of the batch
+  @Query(
+      "SELECT c.business.id, COUNT(c) FROM Customer c WHERE c.business.id IN :businessIds AND c.createdAt < :date GROUP BY c.business.id")
+  List<Object[]> countCustomersCreatedBeforeByBusinesses(
+      @Param("businessIds") List<Long> businessIds, @Param("date") LocalDateTime date);
+
+  // Tenant access checks: the owning business only, without loading the entity
+  @Query("SELECT c.business.id FROM Customer c WHERE c.id = :customerId")
+  Optional<Long> findBusinessIdById(@Param("customerId") Long customerId);
 }
@@ -8,6 +8,7 @@ import java.util.List;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -34,9 +35,18 @@ public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
 
   @Query(
       "SELECT i FROM Invoice i WHERE i.subscription.customer.business.id = :businessId ORDER BY i.createdAt DESC")
-  Page<Invoice> findByBusinessIdOrderByCreatedAt(
+  Slice<Invoice> findByBusinessIdOrderByCreatedAt(
       @Param("businessId") Long businessId, Pageable pageable);
 
+  // Keyset pages, newest first: the rows after the cursor's (createdAt, id)
+  @Query(
+      "SELECT i FROM Invoice i WHERE i.businessId = :businessId AND (i.createdAt < :createdAt OR (i.createdAt = :createdAt AND i.id < :id)) ORDER BY i.createdAt DESC, i.id DESC")
+  Slice<Invoice> findByBusinessIdAfter(
+      @Param("businessId") Long businessId,
+      @Param("createdAt") LocalDateTime createdAt,
+      @Param("id") Long id,
+      Pageable pageable);
+
   // Status-based queries
   @Query(
       "SELECT i FROM Invoice i WHERE i.subscription.customer.business.id = :businessId AND i.status = :status")
@@ -76,7 +86,7 @@ public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
   // Customer invoice history
   @Query(
       "SELECT i FROM Invoice i WHERE i.subscription.customer.id = :customerId ORDER BY i.createdAt DESC")
-  Page<Invoice> findInvoiceHistoryByCustomer(
+  Slice<Invoice> findInvoiceHistoryByCustomer(
       @Param("customerId") Long customerId, Pageable pageable);
 
   @Query(
@@ -96,6 +106,10 @@ public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
       "SELECT i FROM Invoice i WHERE i.dueDate < :currentDate AND i.status NOT IN ('PAID', 'CANCELLED')")
   List<Invoice> findAllOverdueInvoices(@Param("currentDate") LocalDateTime currentDate);
 
+  @Query(
+      "SELECT i.id FROM Invoice i WHERE i.dueDate < :currentDate AND i.status = 'SENT' ORDER BY i.id")
+  List<Long> findSentInvoiceIdsDueBefore(@Param("currentDate") LocalDateTime currentDate);
+
   @Query(
       "SELECT COUNT(i) FROM Invoice i WHERE i.subscription.customer.business.id = :businessId AND i.dueDate < :currentDate AND i.status NOT IN ('PAID', 'CANCELLED')")
   Long countOverdueInvoicesByBusiness(
@@ -106,9 +120,10 @@ public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
       "SELECT SUM(i.totalAmount) FROM Invoice i WHERE i.subscription.customer.business.id = :businessId AND i.status = 'PAID'")
   BigDecimal getTotalPaidAmountByBusiness(@Param("businessId") Long businessId);
 
+  // Open amounts per invoice currency, to convert into the business currency
   @Query(
-      "SELECT SUM(i.totalAmount) FROM Invoice i WHERE i.subscription.customer.business.id = :businessId AND i.status NOT IN ('PAID', 'CANCELLED')")
-  BigDecimal getTotalOutstandingAmountByBusiness(@Param("businessId") Long businessId);
+      "SELECT i.currency, SUM(i.totalAmount) FROM Invoice i WHERE i.businessId = :businessId AND i.status NOT IN ('PAID', 'CANCELLED') GROUP BY i.currency")
+  List<Object[]> sumOutstandingAmountByCurrency(@Param("businessId") Long businessId);
 
   @Query(
       "SELECT SUM(i.totalAmount) FROM Invoice i WHERE i.subscription.customer.business.id = :businessId AND i.createdAt >= :startDate AND i.createdAt <= :endDate")
@@ -215,4 +230,28 @@ public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
           + "FROM Invoice i WHERE i.subscription.customer.business.id = :businessId AND i.status NOT IN ('PAID', 'CANCELLED')")
   List<Object[]> getInvoiceAgingAnalysisByBusiness(
       @Param("businessId") Long businessId, @Param("currentDate") LocalDateTime currentDate);
+
+  // Quantile sketch backfill
+  @Query(
+      "SELECT i.createdAt, i.totalAmount, i.subscription.customer.business.currency FROM Invoice i WHERE i.subscription.customer.business.id = :businessId")
+  List<Object[]> getInvoiceTotalsByBusiness(@Param("businessId") Long businessId);
+
+  /** Time series seed: invoices by the {@code unit} they were created in, per currency */
+  @Query(
+      value =
+          "SELECT date_trunc(:unit, i.created_at), b.currency, COUNT(*), SUM(i.total_amount) "
+              + "FROM invoices i JOIN subscriptions s ON i.subscription_id = s.id "
+              + "JOIN customers c ON s.customer_id = c.id JOIN businesses b ON c.business_id = b.id "
+              + "WHERE c.business_id = :businessId "
+              + "AND i.created_at >= :since AND i.created_at < :until GROUP BY 1, 2",
+      nativeQuery = true)
+  List<Object[]> sumInvoicesByBusinessAndBucket(
+      @Param("businessId") Long businessId,
+      @Param("unit") String unit,
+      @Param("since") LocalDateTime since,
+      @Param("until") LocalDateTime until);
+
+  // Tenant access checks: the owning business only, without loading the entity
+  @Query("SELECT i.subscription.customer.business.id FROM Invoice i WHERE i.id = :invoiceId")
+  Optional<Long> findBusinessIdById(@Param("invoiceId") Long invoiceId);
 }
@@ -0,0 +1,8 @@
+package com.okemwag.subscribe.repository;
+
+import com.okemwag.subscribe.enums.SubscriptionStatus;
+import java.math.BigDecimal;
+
+/** What usage ingestion needs of a subscription: its status and the usage price of its plan */
+public record MeteredSubscription(
+    Long subscriptionId, SubscriptionStatus status, BigDecimal usageUnitPrice) {}
@@ -0,0 +1,13 @@
+package com.okemwag.subscribe.repository;
+
+import com.okemwag.subscribe.enums.SubscriptionStatus;
+import java.time.LocalDateTime;
+
+/** A subscription to be inserted in bulk, already validated */
+public record NewSubscription(
+    Long customerId,
+    Long planId,
+    SubscriptionStatus status,
+    LocalDateTime startDate,
+    LocalDateTime endDate,
+    LocalDateTime nextBillingDate) {}
@@ -0,0 +1,25 @@
+package com.okemwag.subscribe.repository;
+
+import org.hibernate.exception.ConstraintViolationException;
+
+/**
+ * Partial unique index allowing one open subscription per customer and plan, created by
+ * db/schema.sql at startup. It makes concurrent creates safe: of two inserts that both passed the
+ * existence check, the second fails.
+ */
+public final class OpenSubscriptionIndex {
+
+  public static final String NAME = "uk_subscriptions_open_customer_plan";
+
+  private OpenSubscriptionIndex() {}
+
+  /** Whether a write failed because it would give a customer a second open subscription */
+  public static boolean isViolatedBy(Throwable failure) {
+    for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+      if (cause instanceof ConstraintViolationException violation) {
+        return NAME.equalsIgnoreCase(violation.getConstraintName());
+      }
+    }
+    return false;
+  }
+}
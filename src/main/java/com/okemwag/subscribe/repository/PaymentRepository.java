@@ -1,5 +1,6 @@
 package com.okemwag.subscribe.repository;
 
+import com.okemwag.subscribe.dto.TopPayingCustomer;
 import com.okemwag.subscribe.entity.Payment;
 import com.okemwag.subscribe.enums.PaymentMethod;
 import com.okemwag.subscribe.enums.PaymentStatus;
@@ -9,6 +10,7 @@ import java.util.List;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -26,6 +28,12 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
 
   Optional<Payment> findByTransactionId(String transactionId);
 
+  // Methods the customer owning the subscription paid with, newest first
+  @Query(
+      "SELECT p.method FROM Payment p WHERE p.subscription.customer.id = (SELECT s.customer.id FROM Subscription s WHERE s.id = :subscriptionId) ORDER BY p.id DESC")
+  List<PaymentMethod> findRecentMethodsOfCustomerBySubscription(
+      @Param("subscriptionId") Long subscriptionId, Pageable pageable);
+
   // Business-scoped payment queries
   @Query("SELECT p FROM Payment p WHERE p.subscription.customer.business.id = :businessId")
   List<Payment> findByBusinessId(@Param("businessId") Long businessId);
@@ -37,13 +45,25 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
 
   @Query(
       "SELECT p FROM Payment p WHERE p.subscription.customer.business.id = :businessId ORDER BY p.createdAt DESC")
-  Page<Payment> findByBusinessIdOrderByCreatedAt(
+  Slice<Payment> findByBusinessIdOrderByCreatedAt(
       @Param("businessId") Long businessId, Pageable pageable);
 
+  // Keyset pages, newest first: the rows after the cursor's (createdAt, id)
+  @Query(
+      "SELECT p FROM Payment p WHERE p.businessId = :businessId AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) ORDER BY p.createdAt DESC, p.id DESC")
+  Slice<Payment> findByBusinessIdAfter(
+      @Param("businessId") Long businessId,
+      @Param("createdAt") LocalDateTime createdAt,
+      @Param("id") Long id,
+      Pageable pageable);
+
+  @Query("SELECT COUNT(p) FROM Payment p WHERE p.subscription.customer.business.id = :businessId")
+  long countPaymentsByBusiness(@Param("businessId") Long businessId);
+
   // Transaction history queries
   @Query(
       "SELECT p FROM Payment p WHERE p.subscription.customer.id = :customerId ORDER BY p.createdAt DESC")
-  Page<Payment> findPaymentHistoryByCustomer(
+  Slice<Payment> findPaymentHistoryByCustomer(
       @Param("customerId") Long customerId, Pageable pageable);
 
   @Query(
@@ -113,13 +133,34 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
       "SELECT p.status, COUNT(p) FROM Payment p WHERE p.subscription.customer.business.id = :businessId GROUP BY p.status")
   List<Object[]> countPaymentsByStatusAndBusiness(@Param("businessId") Long businessId);
 
+  @Query(
+      "SELECT p.method, p.status, COUNT(p) FROM Payment p WHERE p.subscription.customer.business.id = :businessId AND p.status IN ('COMPLETED', 'FAILED', 'REFUNDED') GROUP BY p.method, p.status")
+  List<Object[]> countSettledPaymentsByMethodAndStatusAndBusiness(
+      @Param("businessId") Long businessId);
+
   @Query(
       "SELECT p.method, COUNT(p) FROM Payment p WHERE p.subscription.customer.business.id = :businessId AND p.status = 'COMPLETED' GROUP BY p.method")
   List<Object[]> countSuccessfulPaymentsByMethodAndBusiness(@Param("businessId") Long businessId);
 
+  // Sums to convert into the business currency at the rate of each day; a payment never stamped
+  // as processed counts on the day it was created
+  @Query(
+      "SELECT p.currency, CAST(COALESCE(p.processedAt, p.createdAt) AS LocalDate), SUM(p.amount) "
+          + "FROM Payment p "
+          + "WHERE p.subscription.customer.business.id = :businessId AND p.status = :status "
+          + "AND COALESCE(p.processedAt, p.createdAt) >= :startDate "
+          + "AND COALESCE(p.processedAt, p.createdAt) <= :endDate "
+          + "GROUP BY p.currency, CAST(COALESCE(p.processedAt, p.createdAt) AS LocalDate)")
+  List<Object[]> sumPaymentsByCurrencyAndDay(
+      @Param("businessId") Long businessId,
+      @Param("status") PaymentStatus status,
+      @Param("startDate") LocalDateTime startDate,
+      @Param("endDate") LocalDateTime endDate);
+
   @Query(
-      "SELECT p.currency, SUM(p.amount) FROM Payment p WHERE p.subscription.customer.business.id = :businessId AND p.status = 'COMPLETED' GROUP BY p.currency")
-  List<Object[]> getRevenueByCurrencyAndBusiness(@Param("businessId") Long businessId);
+      "SELECT p.currency, SUM(p.amount) FROM Payment p WHERE p.subscription.customer.business.id = :businessId AND p.status = 'COMPLETED' AND p.createdAt < :until GROUP BY p.currency")
+  List<Object[]> getRevenueByCurrencyAndBusiness(
+      @Param("businessId") Long businessId, @Param("until") LocalDateTime until);
 
   // Monthly revenue analytics
   @Query(
@@ -146,10 +187,18 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
 
   // Customer payment behavior
   @Query(
-      "SELECT c.id, c.name, COUNT(p), SUM(p.amount) FROM Payment p JOIN p.subscription s JOIN s.customer c "
+      "SELECT new com.okemwag.subscribe.dto.TopPayingCustomer(c.id, c.name, COUNT(p), SUM(p.amount)) "
+          + "FROM Payment p JOIN p.subscription s JOIN s.customer c "
           + "WHERE c.business.id = :businessId AND p.status = 'COMPLETED' "
-          + "GROUP BY c.id, c.name ORDER BY SUM(p.amount) DESC")
-  List<Object[]> getTopPayingCustomersByBusiness(@Param("businessId") Long businessId);
+          + "GROUP BY c.id, c.name ORDER BY SUM(p.amount) DESC, c.id")
+  List<TopPayingCustomer> getTopPayingCustomersByBusiness(
+      @Param("businessId") Long businessId, Pageable pageable);
+
+  @Query(
+      "SELECT new com.okemwag.subscribe.dto.TopPayingCustomer(c.id, c.name, COUNT(p), SUM(p.amount)) "
+          + "FROM Payment p JOIN p.subscription s JOIN s.customer c "
+          + "WHERE c.id = :customerId AND p.status = 'COMPLETED' GROUP BY c.id, c.name")
+  Optional<TopPayingCustomer> getPaymentTotalsByCustomer(@Param("customerId") Long customerId);
 
   // Refund tracking
   @Query(
@@ -159,4 +208,39 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
   @Query(
       "SELECT SUM(p.amount) FROM Payment p WHERE p.subscription.customer.business.id = :businessId AND p.status = 'REFUNDED'")
   BigDecimal getTotalRefundsByBusiness(@Param("businessId") Long businessId);
+
+  // Platform-wide analytics, one row per business of the batch
+  @Query(
+      "SELECT p.subscription.customer.business.id, SUM(p.amount) FROM Payment p WHERE p.subscription.customer.business.id IN :businessIds AND p.status = 'COMPLETED' GROUP BY p.subscription.customer.business.id")
+  List<Object[]> getTotalRevenueByBusinesses(@Param("businessIds") List<Long> businessIds);
+
+  // Quantile sketch backfill
+  @Query(
+      "SELECT p.method, p.processedAt, p.amount, p.currency FROM Payment p WHERE p.subscription.customer.business.id = :businessId AND p.status = 'COMPLETED' AND p.processedAt IS NOT NULL")
+  List<Object[]> getCompletedPaymentAmountsByBusiness(@Param("businessId") Long businessId);
+
+  /**
+   * Time series seed: completed payments by the {@code unit} they were processed in and refunded
+   * ones by the {@code unit} they were refunded in, per status and currency
+   */
+  @Query(
+      value =
+          "SELECT t.status, date_trunc(:unit, t.at), t.currency, SUM(t.amount) FROM ("
+              + "SELECT p.status AS status, p.currency AS currency, p.amount AS amount, "
+              + "CASE WHEN p.status = 'COMPLETED' THEN COALESCE(p.processed_at, p.created_at) "
+              + "ELSE p.updated_at END AS at "
+              + "FROM payments p JOIN subscriptions s ON p.subscription_id = s.id "
+              + "JOIN customers c ON s.customer_id = c.id "
+              + "WHERE c.business_id = :businessId AND p.status IN ('COMPLETED', 'REFUNDED')) t "
+              + "WHERE t.at >= :since AND t.at < :until GROUP BY 1, 2, 3",
+      nativeQuery = true)
+  List<Object[]> sumPaymentsByBusinessAndBucket(
+      @Param("businessId") Long businessId,
+      @Param("unit") String unit,
+      @Param("since") LocalDateTime since,
+      @Param("until") LocalDateTime until);
+
+  // Tenant access checks: the owning business only, without loading the entity
+  @Query("SELECT p.subscription.customer.business.id FROM Payment p WHERE p.id = :paymentId")
+  Optional<Long> findBusinessIdById(@Param("paymentId") Long paymentId);
 }
@@ -0,0 +1,24 @@
+package com.okemwag.subscribe.repository;
+
+import com.okemwag.subscribe.enums.SubscriptionStatus;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+/** Set-based writes that bypass loading the subscriptions */
+public interface SubscriptionBulkRepository {
+
+  /**
+   * Move up to {@code limit} subscriptions in one of {@code from} whose end date is on or before
+   * {@code cutoff} to {@code target}, in one statement, and return what was moved. Rows locked by
+   * another transaction are skipped and picked up by a later batch. Must run inside a transaction.
+   */
+  List<SubscriptionTransition> transitionEnded(
+      Set<SubscriptionStatus> from, SubscriptionStatus target, LocalDateTime cutoff, int limit);
+
+  /**
+   * Insert validated subscriptions with one JDBC batch and return their ids, in the order given.
+   * Must run inside a transaction.
+   */
+  List<Long> insertAll(List<NewSubscription> subscriptions);
+}
@@ -0,0 +1,132 @@
+package com.okemwag.subscribe.repository;
+
+import com.okemwag.subscribe.entity.Subscription;
+import com.okemwag.subscribe.enums.SubscriptionStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import org.hibernate.Session;
+
+/**
+ * Bulk transitions as a single UPDATE ... RETURNING, and bulk inserts as one JDBC batch. The state
+ * machine of {@link Subscription} becomes the status predicate and the side effects of {@code
+ * transitionStatus} become column assignments, so the rows never pass through the persistence
+ * context.
+ */
+class SubscriptionBulkRepositoryImpl implements SubscriptionBulkRepository {
+
+  @PersistenceContext private EntityManager entityManager;
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public List<SubscriptionTransition> transitionEnded(
+      Set<SubscriptionStatus> from, SubscriptionStatus target, LocalDateTime cutoff, int limit) {
+    Set<SubscriptionStatus> sources = EnumSet.noneOf(SubscriptionStatus.class);
+    sources.addAll(from);
+    sources.retainAll(Subscription.statusesTransitioningTo(target));
+    if (sources.isEmpty()) {
+      return List.of();
+    }
+
+    boolean terminal =
+        target == SubscriptionStatus.CANCELLED || target == SubscriptionStatus.EXPIRED;
+    String sql =
+        "WITH due AS ("
+            + "SELECT id, status FROM subscriptions "
+            + "WHERE status IN (:sources) AND end_date <= :cutoff "
+            + "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED) "
+            + "UPDATE subscriptions s SET status = :target, updated_at = :now, "
+            + "version = s.version + 1"
+            + (terminal ? ", end_date = :now, next_billing_date = NULL " : " ")
+            + (target == SubscriptionStatus.ACTIVE
+                ? ", converted_at = CASE WHEN due.status = 'TRIAL' THEN :now "
+                    + "ELSE s.converted_at END "
+                : "")
+            + "FROM due, customers c "
+            + "WHERE s.id = due.id AND c.id = s.customer_id "
+            + "RETURNING s.id, c.business_id, s.customer_id, s.subscription_plan_id, due.status";
+
+    List<Object[]> rows =
+        entityManager
+            .createNativeQuery(sql)
+            .setParameter("sources", sources.stream().map(Enum::name).toList())
+            .setParameter("cutoff", cutoff)
+            .setParameter("limit", limit)
+            .setParameter("target", target.name())
+            .setParameter("now", LocalDateTime.now())
+            .getResultList();
+
+    List<SubscriptionTransition> transitions = new ArrayList<>(rows.size());
+    for (Object[] row : rows) {
+      transitions.add(
+          new SubscriptionTransition(
+              ((Number) row[0]).longValue(),
+              ((Number) row[1]).longValue(),
+              ((Number) row[2]).longValue(),
+              ((Number) row[3]).longValue(),
+              SubscriptionStatus.valueOf((String) row[4])));
+    }
+    return transitions;
+  }
+
+  @Override
+  public List<Long> insertAll(List<NewSubscription> subscriptions) {
+    if (subscriptions.isEmpty()) {
+      return List.of();
+    }
+
+    // Identity keys keep Hibernate from batching persist(), so the rows go through JDBC directly
+    String sql =
+        "INSERT INTO subscriptions (customer_id, subscription_plan_id, status, start_date, "
+            + "end_date, next_billing_date, trial_started_at, created_at, updated_at, version, "
+            + "business_id) "
+            + "SELECT ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, c.business_id FROM customers c WHERE c.id = ?";
+    Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+    return entityManager
+        .unwrap(Session.class)
+        .doReturningWork(
+            connection -> {
+              try (PreparedStatement statement =
+                  connection.prepareStatement(sql, new String[] {"id"})) {
+                for (NewSubscription subscription : subscriptions) {
+                  statement.setLong(1, subscription.customerId());
+                  statement.setLong(2, subscription.planId());
+                  statement.setString(3, subscription.status().name());
+                  statement.setTimestamp(4, toTimestamp(subscription.startDate()));
+                  statement.setTimestamp(5, toTimestamp(subscription.endDate()));
+                  statement.setTimestamp(6, toTimestamp(subscription.nextBillingDate()));
+                  // An imported trial started with the subscription
+                  statement.setTimestamp(
+                      7,
+                      subscription.status() == SubscriptionStatus.TRIAL
+                          ? toTimestamp(subscription.startDate())
+                          : null);
+                  statement.setTimestamp(8, now);
+                  statement.setTimestamp(9, now);
+                  statement.setLong(10, subscription.customerId());
+                  statement.addBatch();
+                }
+                statement.executeBatch();
+
+                List<Long> ids = new ArrayList<>(subscriptions.size());
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                  while (keys.next()) {
+                    ids.add(keys.getLong(1));
+                  }
+                }
+                return ids;
+              }
+            });
+  }
+
+  private static Timestamp toTimestamp(LocalDateTime value) {
+    return value == null ? null : Timestamp.valueOf(value);
+  }
+}
@@ -0,0 +1,14 @@
+package com.okemwag.subscribe.repository;
+
+import com.okemwag.subscribe.entity.SubscriptionImportError;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SubscriptionImportErrorRepository
+    extends JpaRepository<SubscriptionImportError, Long> {
+
+  List<SubscriptionImportError> findByImportIdOrderByRowNumber(Long importId, Pageable pageable);
+}
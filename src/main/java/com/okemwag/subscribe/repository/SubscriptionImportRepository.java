@@ -0,0 +1,25 @@
+package com.okemwag.subscribe.repository;
+
+import com.okemwag.subscribe.entity.SubscriptionImport;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface SubscriptionImportRepository extends JpaRepository<SubscriptionImport, Long> {
+
+  Optional<SubscriptionImport> findByIdAndBusinessId(Long id, Long businessId);
+
+  // Moves a failed import back to running; 0 when a concurrent resume claimed it first
+  @Modifying
+  @Transactional
+  @Query(
+      "UPDATE SubscriptionImport i SET i.status = 'RUNNING', i.failureReason = NULL, "
+          + "i.updatedAt = :now WHERE i.id = :id AND i.status = 'FAILED'")
+  int claimFailed(@Param("id") Long id, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,11 @@
+package com.okemwag.subscribe.repository;
+
+import com.okemwag.subscribe.entity.SubscriptionOutboxEvent;
+import java.util.List;
+
+/** Outbox writes for bulk changes, which would otherwise insert their records one at a time */
+public interface SubscriptionOutboxBulkRepository {
+
+  /** Insert unpublished outbox records with one JDBC batch. Must run inside a transaction. */
+  void insertAll(List<SubscriptionOutboxEvent> entries);
+}
@@ -0,0 +1,43 @@
+package com.okemwag.subscribe.repository;
+
+import com.okemwag.subscribe.entity.SubscriptionOutboxEvent;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.hibernate.Session;
+
+/** Outbox records as one JDBC batch, like the bulk subscription inserts they accompany */
+class SubscriptionOutboxBulkRepositoryImpl implements SubscriptionOutboxBulkRepository {
+
+  @PersistenceContext private EntityManager entityManager;
+
+  @Override
+  public void insertAll(List<SubscriptionOutboxEvent> entries) {
+    if (entries.isEmpty()) {
+      return;
+    }
+    String sql =
+        "INSERT INTO subscription_outbox (business_id, subscription_id, event_type, payload, "
+            + "created_at) VALUES (?, ?, ?, ?, ?)";
+    Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+    entityManager
+        .unwrap(Session.class)
+        .doWork(
+            connection -> {
+              try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (SubscriptionOutboxEvent entry : entries) {
+                  statement.setLong(1, entry.getBusinessId());
+                  statement.setLong(2, entry.getSubscriptionId());
+                  statement.setString(3, entry.getEventType());
+                  statement.setString(4, entry.getPayload());
+                  statement.setTimestamp(5, now);
+                  statement.addBatch();
+                }
+                statement.executeBatch();
+              }
+            });
+  }
+}
@@ -0,0 +1,35 @@
+package com.okemwag.subscribe.repository;
+
+import com.okemwag.subscribe.entity.SubscriptionOutboxEvent;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SubscriptionOutboxRepository
+    extends JpaRepository<SubscriptionOutboxEvent, Long>, SubscriptionOutboxBulkRepository {
+
+  // Held until the transaction ends, so one relay drains the outbox at a time across nodes
+  @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+  boolean tryRelayLock(@Param("key") long key);
+
+  @Query("SELECT e FROM SubscriptionOutboxEvent e WHERE e.publishedAt IS NULL ORDER BY e.id")
+  List<SubscriptionOutboxEvent> findUnpublished(Pageable pageable);
+
+  @Modifying
+  @Query("UPDATE SubscriptionOutboxEvent e SET e.publishedAt = :publishedAt WHERE e.id IN :ids")
+  int markPublished(@Param("ids") List<Long> ids, @Param("publishedAt") LocalDateTime publishedAt);
+
+  @Modifying
+  @Query(
+      value =
+          "DELETE FROM subscription_outbox WHERE id IN (SELECT id FROM subscription_outbox "
+              + "WHERE published_at < :cutoff LIMIT :limit)",
+      nativeQuery = true)
+  int deletePublishedBefore(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+}
@@ -1,5 +1,6 @@
 package com.okemwag.subscribe.repository;
 
+import com.okemwag.subscribe.dto.PopularPlan;
 import com.okemwag.subscribe.entity.SubscriptionPlan;
 import com.okemwag.subscribe.enums.BillingCycle;
 import java.math.BigDecimal;
@@ -71,11 +72,18 @@ public interface SubscriptionPlanRepository extends JpaRepository<SubscriptionPl
   Long countCreatedSinceByBusiness(
       @Param("businessId") Long businessId, @Param("startDate") LocalDateTime startDate);
 
-  // Popular plans based on subscription count
+  // Popular plans based on active subscription count
   @Query(
-      "SELECT sp, COUNT(s) as subscriptionCount FROM SubscriptionPlan sp "
+      "SELECT new com.okemwag.subscribe.dto.PopularPlan(sp.id, sp.name, COUNT(s)) FROM SubscriptionPlan sp "
           + "LEFT JOIN sp.subscriptions s ON s.status = 'ACTIVE' "
           + "WHERE sp.business.id = :businessId AND sp.active = true "
-          + "GROUP BY sp.id ORDER BY subscriptionCount DESC")
-  List<Object[]> findPopularPlansByBusiness(@Param("businessId") Long businessId);
+          + "GROUP BY sp.id, sp.name ORDER BY COUNT(s) DESC, sp.id")
+  List<PopularPlan> findPopularPlansByBusiness(
+      @Param("businessId") Long businessId, Pageable pageable);
+
+  @Query(
+      "SELECT new com.okemwag.subscribe.dto.PopularPlan(sp.id, sp.name, COUNT(s)) FROM SubscriptionPlan sp "
+          + "LEFT JOIN sp.subscriptions s ON s.status = 'ACTIVE' "
+          + "WHERE sp.id = :planId AND sp.active = true GROUP BY sp.id, sp.name")
+  Optional<PopularPlan> findPlanPopularity(@Param("planId") Long planId);
 }
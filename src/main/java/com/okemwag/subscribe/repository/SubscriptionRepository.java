@@ -2,18 +2,27 @@ package com.okemwag.subscribe.repository;
 
 import com.okemwag.subscribe.entity.Subscription;
 import com.okemwag.subscribe.enums.SubscriptionStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface SubscriptionRepository extends JpaRepository<Subscription, Long> {
+public interface SubscriptionRepository
+    extends JpaRepository<Subscription, Long>, SubscriptionBulkRepository {
 
   // Basic queries
   List<Subscription> findByCustomerId(Long customerId);
@@ -22,6 +31,37 @@ public interface SubscriptionRepository extends JpaRepository<Subscription, Long
 
   List<Subscription> findByCustomerBusinessId(Long businessId);
 
+  // Keyset pages, newest first: the rows after the cursor's (createdAt, id)
+  @Query(
+      "SELECT s FROM Subscription s WHERE s.status = :status AND (s.createdAt < :createdAt OR (s.createdAt = :createdAt AND s.id < :id)) ORDER BY s.createdAt DESC, s.id DESC")
+  Slice<Subscription> findByStatusAfter(
+      @Param("status") SubscriptionStatus status,
+      @Param("createdAt") LocalDateTime createdAt,
+      @Param("id") Long id,
+      Pageable pageable);
+
+  @Query(
+      "SELECT s FROM Subscription s WHERE s.businessId = :businessId AND (s.createdAt < :createdAt OR (s.createdAt = :createdAt AND s.id < :id)) ORDER BY s.createdAt DESC, s.id DESC")
+  Slice<Subscription> findByBusinessIdAfter(
+      @Param("businessId") Long businessId,
+      @Param("createdAt") LocalDateTime createdAt,
+      @Param("id") Long id,
+      Pageable pageable);
+
+  @Query(
+      "SELECT s FROM Subscription s WHERE s.nextBillingDate <= :date AND s.status = 'ACTIVE' AND (s.createdAt < :createdAt OR (s.createdAt = :createdAt AND s.id < :id)) ORDER BY s.createdAt DESC, s.id DESC")
+  Slice<Subscription> findDueForBillingAfter(
+      @Param("date") LocalDateTime date,
+      @Param("createdAt") LocalDateTime createdAt,
+      @Param("id") Long id,
+      Pageable pageable);
+
+  long countByStatus(SubscriptionStatus status);
+
+  @Query(
+      "SELECT COUNT(s) FROM Subscription s WHERE s.nextBillingDate <= :date AND s.status = 'ACTIVE'")
+  long countSubscriptionsDueForBilling(@Param("date") LocalDateTime date);
+
   // Enhanced status-based queries
   @Query(
       "SELECT s FROM Subscription s WHERE s.customer.business.id = :businessId AND s.status = :status")
@@ -35,6 +75,17 @@ public interface SubscriptionRepository extends JpaRepository<Subscription, Long
       @Param("status") SubscriptionStatus status,
       Pageable pageable);
 
+  // Usage ingestion: the batch's subscriptions of the business, with what decides if they meter
+  @Query(
+      "SELECT new com.okemwag.subscribe.repository.MeteredSubscription(s.id, s.status, p.usageUnitPrice) "
+          + "FROM Subscription s JOIN s.subscriptionPlan p WHERE s.businessId = :businessId AND s.id IN :ids")
+  List<MeteredSubscription> findMeteredByBusinessIdAndIdIn(
+      @Param("businessId") Long businessId, @Param("ids") Collection<Long> ids);
+
+  // Index-only probe of the open subscription index; stops at the first row
+  boolean existsByCustomerIdAndSubscriptionPlanIdAndStatusIn(
+      Long customerId, Long subscriptionPlanId, Collection<SubscriptionStatus> statuses);
+
   @Query("SELECT s FROM Subscription s WHERE s.customer.id = :customerId AND s.status = :status")
   List<Subscription> findByCustomerIdAndStatus(
       @Param("customerId") Long customerId, @Param("status") SubscriptionStatus status);
@@ -43,6 +94,15 @@ public interface SubscriptionRepository extends JpaRepository<Subscription, Long
   @Query("SELECT s FROM Subscription s WHERE s.nextBillingDate <= :date AND s.status = 'ACTIVE'")
   List<Subscription> findSubscriptionsDueForBilling(@Param("date") LocalDateTime date);
 
+  @Query(
+      "SELECT s.id FROM Subscription s WHERE s.nextBillingDate <= :date AND s.status = 'ACTIVE' ORDER BY s.id")
+  List<Long> findSubscriptionIdsDueForBilling(@Param("date") LocalDateTime date);
+
+  // The version is checked again at commit, so work based on this read fails if the row changed
+  @Lock(LockModeType.OPTIMISTIC)
+  @Query("SELECT s FROM Subscription s WHERE s.id = :id")
+  Optional<Subscription> findByIdWithVersionCheck(@Param("id") Long id);
+
   @Query(
       "SELECT s FROM Subscription s WHERE s.customer.business.id = :businessId AND s.nextBillingDate <= :date AND s.status = 'ACTIVE'")
   List<Subscription> findSubscriptionsDueForBillingByBusiness(
@@ -57,6 +117,11 @@ public interface SubscriptionRepository extends JpaRepository<Subscription, Long
   List<Subscription> findExpiredSubscriptionsByBusiness(
       @Param("businessId") Long businessId, @Param("date") LocalDateTime date);
 
+  // Bulk import lookup: customer and plan of every subscription of the business not yet ended
+  @Query(
+      "SELECT s.customer.id, s.subscriptionPlan.id FROM Subscription s WHERE s.customer.business.id = :businessId AND s.status IN ('ACTIVE', 'TRIAL', 'SUSPENDED')")
+  List<Object[]> findOpenSubscriptionKeysByBusiness(@Param("businessId") Long businessId);
+
   @Query("SELECT s FROM Subscription s WHERE s.startDate >= :startDate AND s.startDate <= :endDate")
   List<Subscription> findByStartDateBetween(
       @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
@@ -106,11 +171,34 @@ public interface SubscriptionRepository extends JpaRepository<Subscription, Long
   List<Subscription> findTrialSubscriptionsEndingByBusiness(
       @Param("businessId") Long businessId, @Param("date") LocalDateTime date);
 
+  // Trial conversion: one page of the trials ending by the given time across tenants, overdue
+  // ones included, after the cursor's (endDate, id)
+  @Query(
+      "SELECT s.id, s.endDate FROM Subscription s WHERE s.status = 'TRIAL' AND s.endDate <= :until AND (s.endDate > :endDate OR (s.endDate = :endDate AND s.id > :id)) ORDER BY s.endDate, s.id")
+  List<Object[]> findTrialEndsUntilAfter(
+      @Param("until") LocalDateTime until,
+      @Param("endDate") LocalDateTime endDate,
+      @Param("id") Long id,
+      Pageable pageable);
+
+  // Trial conversion: those of the given trials still in trial and ended by the given time
+  @Query(
+      "SELECT s.id FROM Subscription s WHERE s.id IN :ids AND s.status = 'TRIAL' AND s.endDate <= :now")
+  List<Long> findTrialIdsEndedBy(
+      @Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
   @Query(
       "SELECT COUNT(s) FROM Subscription s WHERE s.customer.business.id = :businessId AND s.status = 'TRIAL'")
   Long countTrialSubscriptionsByBusiness(@Param("businessId") Long businessId);
 
   // Churn analysis
+  @Query(
+      "SELECT COUNT(s) FROM Subscription s WHERE s.customer.business.id = :businessId AND s.status = 'CANCELLED' AND s.endDate >= :since AND s.endDate < :until")
+  Long countCancellationsByBusinessBetween(
+      @Param("businessId") Long businessId,
+      @Param("since") LocalDateTime since,
+      @Param("until") LocalDateTime until);
+
   @Query(
       "SELECT s FROM Subscription s WHERE s.customer.business.id = :businessId AND s.status = 'CANCELLED' AND s.endDate >= :startDate AND s.endDate <= :endDate")
   List<Subscription> findCancelledSubscriptionsByBusinessAndDateRange(
@@ -125,4 +213,109 @@ public interface SubscriptionRepository extends JpaRepository<Subscription, Long
       @Param("businessId") Long businessId,
       @Param("startDate") LocalDateTime startDate,
       @Param("endDate") LocalDateTime endDate);
+
+  // Revenue forecast: the next charge of every subscription due before the horizon, with the
+  // plan terms and the method of the subscription's latest payment
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+  @Query(
+      "SELECT s.status, s.nextBillingDate, s.endDate, p.price, p.billingCycle, "
+          + "(SELECT lp.method FROM Payment lp WHERE lp.id = "
+          + "(SELECT MAX(mp.id) FROM Payment mp WHERE mp.subscription = s)) "
+          + "FROM Subscription s JOIN s.subscriptionPlan p "
+          + "WHERE s.customer.business.id = :businessId "
+          + "AND ((s.status = 'ACTIVE' AND s.nextBillingDate <= :horizon) "
+          + "OR (s.status = 'TRIAL' AND s.endDate <= :horizon))")
+  Stream<Object[]> streamRenewalPipelineByBusiness(
+      @Param("businessId") Long businessId, @Param("horizon") LocalDateTime horizon);
+
+  @Query(
+      "SELECT COUNT(s) FROM Subscription s WHERE s.customer.business.id = :businessId AND s.subscriptionPlan.trialDays > 0 AND s.status <> 'TRIAL'")
+  Long countFinishedTrialsByBusiness(@Param("businessId") Long businessId);
+
+  @Query(
+      "SELECT COUNT(DISTINCT p.subscription.id) FROM Payment p WHERE p.subscription.customer.business.id = :businessId AND p.subscription.subscriptionPlan.trialDays > 0 AND p.status IN ('COMPLETED', 'REFUNDED')")
+  Long countConvertedTrialsByBusiness(@Param("businessId") Long businessId);
+
+  // Segment index projections
+  @Query(
+      "SELECT s.customer.id, s.subscriptionPlan.id, s.status FROM Subscription s WHERE s.customer.business.id = :businessId")
+  List<Object[]> findSegmentAttributesByBusiness(@Param("businessId") Long businessId);
+
+  @Query(
+      "SELECT s.subscriptionPlan.id, s.status FROM Subscription s WHERE s.customer.id = :customerId")
+  List<Object[]> findSegmentAttributesByCustomer(@Param("customerId") Long customerId);
+
+  // Platform-wide analytics, one row per business of the batch
+  @Query(
+      "SELECT s.customer.business.id, sp.billingCycle, COUNT(s), SUM(sp.price) FROM Subscription s JOIN s.subscriptionPlan sp WHERE s.customer.business.id IN :businessIds AND s.status = 'ACTIVE' GROUP BY s.customer.business.id, sp.billingCycle")
+  List<Object[]> sumActivePlanPricesByBusinesses(@Param("businessIds") List<Long> businessIds);
+
+  @Query(
+      "SELECT s.customer.business.id, COUNT(DISTINCT s.customer.id) FROM Subscription s WHERE s.customer.business.id IN :businessIds AND s.status = 'CANCELLED' AND s.endDate >= :startDate AND s.endDate <= :endDate GROUP BY s.customer.business.id")
+  List<Object[]> countChurnedCustomersByBusinesses(
+      @Param("businessIds") List<Long> businessIds,
+      @Param("startDate") LocalDateTime startDate,
+      @Param("endDate") LocalDateTime endDate);
+
+  /** Time series seed: subscriptions by the {@code unit} they were created in */
+  @Query(
+      value =
+          "SELECT date_trunc(:unit, s.created_at), COUNT(*) FROM subscriptions s "
+              + "JOIN customers c ON s.customer_id = c.id WHERE c.business_id = :businessId "
+              + "AND s.created_at >= :since AND s.created_at < :until GROUP BY 1",
+      nativeQuery = true)
+  List<Object[]> countCreationsByBusinessAndBucket(
+      @Param("businessId") Long businessId,
+      @Param("unit") String unit,
+      @Param("since") LocalDateTime since,
+      @Param("until") LocalDateTime until);
+
+  /** Time series seed: cancelled subscriptions by the {@code unit} they ended in */
+  @Query(
+      value =
+          "SELECT date_trunc(:unit, s.end_date), COUNT(*) FROM subscriptions s "
+              + "JOIN customers c ON s.customer_id = c.id WHERE c.business_id = :businessId "
+              + "AND s.status = 'CANCELLED' AND s.end_date >= :since AND s.end_date < :until "
+              + "GROUP BY 1",
+      nativeQuery = true)
+  List<Object[]> countCancellationsByBusinessAndBucket(
+      @Param("businessId") Long businessId,
+      @Param("unit") String unit,
+      @Param("since") LocalDateTime since,
+      @Param("until") LocalDateTime until);
+
+  // Lifecycle counter seed, for one business or all of them when businessId is null
+  @Query(
+      "SELECT s.customer.business.id, CAST(s.endDate AS LocalDate), COUNT(s) FROM Subscription s "
+          + "WHERE (:businessId IS NULL OR s.customer.business.id = :businessId) "
+          + "AND s.status = 'CANCELLED' AND s.endDate >= :since AND s.endDate < :until "
+          + "GROUP BY s.customer.business.id, CAST(s.endDate AS LocalDate)")
+  List<Object[]> countCancellationsByBusinessAndDay(
+      @Param("businessId") Long businessId,
+      @Param("since") LocalDateTime since,
+      @Param("until") LocalDateTime until);
+
+  @Query(
+      "SELECT s.customer.business.id, CAST(s.trialStartedAt AS LocalDate), COUNT(s) FROM Subscription s "
+          + "WHERE (:businessId IS NULL OR s.customer.business.id = :businessId) "
+          + "AND s.trialStartedAt >= :since AND s.trialStartedAt < :until "
+          + "GROUP BY s.customer.business.id, CAST(s.trialStartedAt AS LocalDate)")
+  List<Object[]> countTrialStartsByBusinessAndDay(
+      @Param("businessId") Long businessId,
+      @Param("since") LocalDateTime since,
+      @Param("until") LocalDateTime until);
+
+  @Query(
+      "SELECT s.customer.business.id, CAST(s.convertedAt AS LocalDate), COUNT(s) FROM Subscription s "
+          + "WHERE (:businessId IS NULL OR s.customer.business.id = :businessId) "
+          + "AND s.convertedAt >= :since AND s.convertedAt < :until "
+          + "GROUP BY s.customer.business.id, CAST(s.convertedAt AS LocalDate)")
+  List<Object[]> countConversionsByBusinessAndDay(
+      @Param("businessId") Long businessId,
+      @Param("since") LocalDateTime since,
+      @Param("until") LocalDateTime until);
+
+  // Tenant access checks: the owning business only, without loading the entity
+  @Query("SELECT s.customer.business.id FROM Subscription s WHERE s.id = :subscriptionId")
+  Optional<Long> findBusinessIdById(@Param("subscriptionId") Long subscriptionId);
 }
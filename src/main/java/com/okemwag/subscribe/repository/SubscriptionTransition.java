@@ -0,0 +1,11 @@
+package com.okemwag.subscribe.repository;
+
+import com.okemwag.subscribe.enums.SubscriptionStatus;
+
+/** One subscription moved by a bulk transition, with the status it left */
+public record SubscriptionTransition(
+    Long subscriptionId,
+    Long businessId,
+    Long customerId,
+    Long planId,
+    SubscriptionStatus previousStatus) {}
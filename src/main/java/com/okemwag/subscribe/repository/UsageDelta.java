@@ -0,0 +1,7 @@
+package com.okemwag.subscribe.repository;
+
+import java.time.LocalDateTime;
+
+/** Usage accumulated in memory for one subscription and hour, to be added to its period total */
+public record UsageDelta(
+    long subscriptionId, LocalDateTime periodStart, long quantity, long eventCount) {}
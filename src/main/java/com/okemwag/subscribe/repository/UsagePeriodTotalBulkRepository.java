@@ -0,0 +1,12 @@
+package com.okemwag.subscribe.repository;
+
+import java.util.List;
+
+public interface UsagePeriodTotalBulkRepository {
+
+  /**
+   * Add each delta to the unbilled total of its subscription and hour, creating the total if there
+   * is none, with one JDBC batch of upserts. Must run inside a transaction.
+   */
+  void addAll(List<UsageDelta> deltas);
+}
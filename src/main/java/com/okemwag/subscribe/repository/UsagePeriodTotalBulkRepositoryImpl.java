@@ -0,0 +1,52 @@
+package com.okemwag.subscribe.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.hibernate.Session;
+
+/**
+ * Upserts against the partial unique index on unbilled totals created by {@code db/schema.sql}, so
+ * concurrent flushes of several nodes add to the same row without reading it first, and a row an
+ * invoice has priced is never added to.
+ */
+class UsagePeriodTotalBulkRepositoryImpl implements UsagePeriodTotalBulkRepository {
+
+  @PersistenceContext private EntityManager entityManager;
+
+  @Override
+  public void addAll(List<UsageDelta> deltas) {
+    if (deltas.isEmpty()) {
+      return;
+    }
+
+    String sql =
+        "INSERT INTO usage_period_totals "
+            + "(subscription_id, period_start, quantity, event_count, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?) "
+            + "ON CONFLICT (subscription_id, period_start) WHERE invoice_id IS NULL DO UPDATE SET "
+            + "quantity = usage_period_totals.quantity + EXCLUDED.quantity, "
+            + "event_count = usage_period_totals.event_count + EXCLUDED.event_count, "
+            + "updated_at = EXCLUDED.updated_at";
+    Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+    entityManager
+        .unwrap(Session.class)
+        .doWork(
+            connection -> {
+              try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (UsageDelta delta : deltas) {
+                  statement.setLong(1, delta.subscriptionId());
+                  statement.setTimestamp(2, Timestamp.valueOf(delta.periodStart()));
+                  statement.setLong(3, delta.quantity());
+                  statement.setLong(4, delta.eventCount());
+                  statement.setTimestamp(5, now);
+                  statement.addBatch();
+                }
+                statement.executeBatch();
+              }
+            });
+  }
+}
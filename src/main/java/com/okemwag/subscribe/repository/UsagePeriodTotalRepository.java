@@ -0,0 +1,23 @@
+package com.okemwag.subscribe.repository;
+
+import com.okemwag.subscribe.entity.UsagePeriodTotal;
+import jakarta.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UsagePeriodTotalRepository
+    extends JpaRepository<UsagePeriodTotal, Long>, UsagePeriodTotalBulkRepository {
+
+  // Billing: unbilled usage before the cutoff, locked so a concurrent flush starts a new row
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query(
+      "SELECT u FROM UsagePeriodTotal u WHERE u.subscriptionId = :subscriptionId AND u.invoiceId IS NULL AND u.periodStart < :cutoff")
+  List<UsagePeriodTotal> findUnbilledForUpdate(
+      @Param("subscriptionId") Long subscriptionId, @Param("cutoff") LocalDateTime cutoff);
+}
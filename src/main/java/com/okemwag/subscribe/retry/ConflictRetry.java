@@ -0,0 +1,87 @@
+package com.okemwag.subscribe.retry;
+
+import jakarta.persistence.OptimisticLockException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.StaleStateException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * The retry policy for optimistic lock conflicts: a conflicting transaction is run again from the
+ * start, on fresh reads, after a short randomized pause that grows with each attempt so that
+ * writers of the same row spread out instead of colliding again.
+ */
+@Component
+@Slf4j
+public class ConflictRetry {
+
+  private final int maxAttempts;
+  private final Duration backoff;
+  private final TransactionTemplate transactionTemplate;
+
+  public ConflictRetry(
+      @Value("${concurrency.retry.max-attempts:3}") int maxAttempts,
+      @Value("${concurrency.retry.backoff:PT0.02S}") Duration backoff,
+      PlatformTransactionManager transactionManager) {
+    this.maxAttempts = maxAttempts;
+    this.backoff = backoff;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  /** Run {@code callback} in a transaction of its own, again on each conflict */
+  public <T> T inTransaction(String operation, TransactionCallback<T> callback) {
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return transactionTemplate.execute(callback);
+      } catch (RuntimeException e) {
+        if (!shouldRetry(operation, e, attempt)) {
+          throw e;
+        }
+      }
+    }
+  }
+
+  /**
+   * Whether attempt number {@code attempt} failed on a conflict and may be repeated; pauses before
+   * returning true.
+   */
+  public boolean shouldRetry(String operation, Throwable failure, int attempt) {
+    if (!isConflict(failure)) {
+      return false;
+    }
+    if (attempt >= maxAttempts) {
+      log.warn("{} still conflicting after {} attempts, giving up", operation, attempt);
+      return false;
+    }
+
+    log.debug("{} conflicted with a concurrent change, attempt {}", operation, attempt);
+    long maxPause = backoff.toMillis() * attempt;
+    if (maxPause > 0) {
+      try {
+        Thread.sleep(ThreadLocalRandom.current().nextLong(maxPause + 1));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Whether the failure, or anything it wraps, is an optimistic lock conflict */
+  static boolean isConflict(Throwable failure) {
+    for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+      if (cause instanceof OptimisticLockingFailureException
+          || cause instanceof OptimisticLockException
+          || cause instanceof StaleStateException) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
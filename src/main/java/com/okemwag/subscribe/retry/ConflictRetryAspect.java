@@ -0,0 +1,43 @@
+package com.okemwag.subscribe.retry;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Applies {@link RetryOnConflict}. Ordered outside the transaction interceptor, so each attempt is
+ * a new transaction and the commit-time version check is part of it. A call that joins a caller's
+ * transaction is not retried here; the stale state belongs to the caller's transaction.
+ */
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+@RequiredArgsConstructor
+public class ConflictRetryAspect {
+
+  private final ConflictRetry conflictRetry;
+
+  @Around("@annotation(retryOnConflict)")
+  public Object retry(ProceedingJoinPoint joinPoint, RetryOnConflict retryOnConflict)
+      throws Throwable {
+    if (TransactionSynchronizationManager.isActualTransactionActive()) {
+      return joinPoint.proceed();
+    }
+
+    String operation = joinPoint.getSignature().toShortString();
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return joinPoint.proceed();
+      } catch (Throwable e) {
+        if (!conflictRetry.shouldRetry(operation, e, attempt)) {
+          throw e;
+        }
+      }
+    }
+  }
+}
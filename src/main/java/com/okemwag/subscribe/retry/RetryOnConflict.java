@@ -0,0 +1,14 @@
+package com.okemwag.subscribe.retry;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Run the whole transactional method again when it fails on an optimistic lock conflict. Only for
+ * methods whose work, external calls included, is safe to repeat.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnConflict {}
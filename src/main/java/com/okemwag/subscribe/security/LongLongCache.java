@@ -0,0 +1,111 @@
+package com.okemwag.subscribe.security;
+
+import java.util.Arrays;
+
+/**
+ * Bounded map from positive long keys to long values held in primitive arrays, so a few hundred
+ * thousand entries cost a few megabytes and no boxing. Entries live in sets of four slots picked by
+ * a hash of the key; a full set replaces its slots in turn, so the least recently added entry of
+ * the set goes first. Sets are guarded by a fixed number of lock stripes. Thread-safe.
+ */
+class LongLongCache {
+
+  /** Returned by {@link #get} for a key that is not cached */
+  static final long MISSING = Long.MIN_VALUE;
+
+  private static final int WAYS = 4;
+  private static final int STRIPES = 64;
+
+  private final long[] keys;
+  private final long[] values;
+  private final byte[] hands;
+  private final int setMask;
+  private final Object[] locks = new Object[STRIPES];
+
+  LongLongCache(int maximumSize) {
+    int sets = Integer.highestOneBit(Math.max(1, (maximumSize + WAYS - 1) / WAYS));
+    if (sets * WAYS < maximumSize) {
+      sets <<= 1;
+    }
+    this.keys = new long[sets * WAYS];
+    this.values = new long[sets * WAYS];
+    this.hands = new byte[sets];
+    this.setMask = sets - 1;
+    for (int i = 0; i < STRIPES; i++) {
+      locks[i] = new Object();
+    }
+  }
+
+  long get(long key) {
+    int set = set(key);
+    int base = set * WAYS;
+    synchronized (locks[set & (STRIPES - 1)]) {
+      for (int way = base; way < base + WAYS; way++) {
+        if (keys[way] == key) {
+          return values[way];
+        }
+      }
+    }
+    return MISSING;
+  }
+
+  void put(long key, long value) {
+    if (key <= 0) {
+      throw new IllegalArgumentException("Keys must be positive: " + key);
+    }
+    int set = set(key);
+    int base = set * WAYS;
+    synchronized (locks[set & (STRIPES - 1)]) {
+      int free = -1;
+      for (int way = base; way < base + WAYS; way++) {
+        if (keys[way] == key) {
+          values[way] = value;
+          return;
+        }
+        if (free < 0 && keys[way] == 0) {
+          free = way;
+        }
+      }
+      if (free < 0) {
+        free = base + hands[set];
+        hands[set] = (byte) ((hands[set] + 1) % WAYS);
+      }
+      keys[free] = key;
+      values[free] = value;
+    }
+  }
+
+  void remove(long key) {
+    int set = set(key);
+    int base = set * WAYS;
+    synchronized (locks[set & (STRIPES - 1)]) {
+      for (int way = base; way < base + WAYS; way++) {
+        if (keys[way] == key) {
+          keys[way] = 0;
+          return;
+        }
+      }
+    }
+  }
+
+  void clear() {
+    for (int stripe = 0; stripe < STRIPES; stripe++) {
+      synchronized (locks[stripe]) {
+        for (int set = stripe; set <= setMask; set += STRIPES) {
+          Arrays.fill(keys, set * WAYS, set * WAYS + WAYS, 0L);
+        }
+      }
+    }
+  }
+
+  /** Slots available, the most entries the cache holds */
+  int capacity() {
+    return keys.length;
+  }
+
+  private int set(long key) {
+    // Mix the bits so ids allocated in strides still spread over every set
+    long hash = key * 0x9E3779B97F4A7C15L;
+    return (int) (hash >>> 32) & setMask;
+  }
+}
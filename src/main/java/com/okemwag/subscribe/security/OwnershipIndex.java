@@ -0,0 +1,130 @@
+package com.okemwag.subscribe.security;
+
+import com.okemwag.subscribe.event.CustomerEvent;
+import com.okemwag.subscribe.event.InvoiceEvent;
+import com.okemwag.subscribe.event.PaymentEvent;
+import com.okemwag.subscribe.event.SubscriptionEvent;
+import com.okemwag.subscribe.repository.CustomerRepository;
+import com.okemwag.subscribe.repository.InvoiceRepository;
+import com.okemwag.subscribe.repository.PaymentRepository;
+import com.okemwag.subscribe.repository.SubscriptionRepository;
+import java.util.Optional;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Which business owns a customer, subscription, payment or invoice, for tenant access checks. A
+ * miss reads the owner with one projection query; owners are then kept in bounded primitive maps,
+ * and entities created here are added from their committed events, so a check on a recently used or
+ * created entity reads no rows. Entities never change business in this codebase, so entries stay
+ * valid until evicted; a change of owner must call {@link #invalidate()}.
+ */
+@Component
+@Slf4j
+public class OwnershipIndex {
+
+  private final CustomerRepository customerRepository;
+  private final SubscriptionRepository subscriptionRepository;
+  private final PaymentRepository paymentRepository;
+  private final InvoiceRepository invoiceRepository;
+
+  private final LongLongCache customers;
+  private final LongLongCache subscriptions;
+  private final LongLongCache payments;
+  private final LongLongCache invoices;
+
+  public OwnershipIndex(
+      CustomerRepository customerRepository,
+      SubscriptionRepository subscriptionRepository,
+      PaymentRepository paymentRepository,
+      InvoiceRepository invoiceRepository,
+      @Value("${security.ownership.maximum-size:262144}") int maximumSize) {
+    this.customerRepository = customerRepository;
+    this.subscriptionRepository = subscriptionRepository;
+    this.paymentRepository = paymentRepository;
+    this.invoiceRepository = invoiceRepository;
+    this.customers = new LongLongCache(maximumSize);
+    this.subscriptions = new LongLongCache(maximumSize);
+    this.payments = new LongLongCache(maximumSize);
+    this.invoices = new LongLongCache(maximumSize);
+  }
+
+  /** The business owning the customer, or null when there is no such customer */
+  public Long customerBusiness(Long customerId) {
+    return owner(customers, customerId, customerRepository::findBusinessIdById);
+  }
+
+  /** The business owning the subscription, or null when there is no such subscription */
+  public Long subscriptionBusiness(Long subscriptionId) {
+    return owner(subscriptions, subscriptionId, subscriptionRepository::findBusinessIdById);
+  }
+
+  /** The business owning the payment, or null when there is no such payment */
+  public Long paymentBusiness(Long paymentId) {
+    return owner(payments, paymentId, paymentRepository::findBusinessIdById);
+  }
+
+  /** The business owning the invoice, or null when there is no such invoice */
+  public Long invoiceBusiness(Long invoiceId) {
+    return owner(invoices, invoiceId, invoiceRepository::findBusinessIdById);
+  }
+
+  /**
+   * Forget every owner. Moving an entity to another business moves everything below it too, and it
+   * is rare enough that starting cold is cheaper than tracking the descendants.
+   */
+  public void invalidate() {
+    customers.clear();
+    subscriptions.clear();
+    payments.clear();
+    invoices.clear();
+    log.info("Cleared cached entity ownership");
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onCustomerEvent(CustomerEvent event) {
+    remember(customers, event.customerId(), event.businessId());
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onSubscriptionEvent(SubscriptionEvent event) {
+    remember(subscriptions, event.subscriptionId(), event.businessId());
+    remember(customers, event.customerId(), event.businessId());
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onPaymentEvent(PaymentEvent event) {
+    remember(payments, event.paymentId(), event.businessId());
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onInvoiceEvent(InvoiceEvent event) {
+    remember(invoices, event.invoiceId(), event.businessId());
+  }
+
+  private Long owner(LongLongCache owners, Long id, Function<Long, Optional<Long>> lookup) {
+    if (id == null || id <= 0) {
+      return null;
+    }
+    long cached = owners.get(id);
+    if (cached != LongLongCache.MISSING) {
+      return cached;
+    }
+
+    // Missing entities are not cached; the id may be taken by a row about to commit
+    Long businessId = lookup.apply(id).orElse(null);
+    if (businessId != null) {
+      owners.put(id, businessId);
+    }
+    return businessId;
+  }
+
+  private static void remember(LongLongCache owners, Long id, Long businessId) {
+    if (id != null && id > 0 && businessId != null) {
+      owners.put(id, businessId);
+    }
+  }
+}
@@ -1,24 +1,63 @@
 package com.okemwag.subscribe.service.impl;
 
+import com.okemwag.subscribe.analytics.AmountSketchStore;
+import com.okemwag.subscribe.analytics.AnalyticsSectionGuard;
+import com.okemwag.subscribe.analytics.AnalyticsSnapshotFormat;
+import com.okemwag.subscribe.analytics.CustomerSegmentIndex;
+import com.okemwag.subscribe.analytics.LifecycleCounterStore;
+import com.okemwag.subscribe.analytics.QuantileSketch;
+import com.okemwag.subscribe.analytics.RevenueForecaster;
+import com.okemwag.subscribe.analytics.RevenueTimeSeriesStore;
+import com.okemwag.subscribe.analytics.TenantLeaderboards;
+import com.okemwag.subscribe.analytics.TenantSizeEstimator;
+import com.okemwag.subscribe.cache.AnalyticsCache;
+import com.okemwag.subscribe.cache.CacheStatistics;
+import com.okemwag.subscribe.config.AnalyticsGuardConfig;
+import com.okemwag.subscribe.config.LifecycleCounterConfig;
+import com.okemwag.subscribe.config.TimeSeriesConfig;
+import com.okemwag.subscribe.dto.AmountQuantilesDTO;
 import com.okemwag.subscribe.dto.AnalyticsDTO;
 import com.okemwag.subscribe.dto.CustomerGrowthDTO;
+import com.okemwag.subscribe.dto.LifecycleWindowsDTO;
+import com.okemwag.subscribe.dto.PopularPlan;
+import com.okemwag.subscribe.dto.RevenueForecastDTO;
 import com.okemwag.subscribe.dto.RevenueReportDTO;
+import com.okemwag.subscribe.dto.TimeSeriesDTO;
+import com.okemwag.subscribe.dto.TopPayingCustomer;
+import com.okemwag.subscribe.entity.Business;
+import com.okemwag.subscribe.enums.AnalyticsSection;
+import com.okemwag.subscribe.enums.LifecycleCounter;
+import com.okemwag.subscribe.enums.PaymentMethod;
+import com.okemwag.subscribe.enums.PaymentStatus;
+import com.okemwag.subscribe.enums.TenantTier;
+import com.okemwag.subscribe.enums.TimeSeriesMetric;
+import com.okemwag.subscribe.enums.TimeSeriesResolution;
 import com.okemwag.subscribe.exception.ResourceNotFoundException;
 import com.okemwag.subscribe.exception.SubscribeException;
+import com.okemwag.subscribe.fx.FxRateProvider;
 import com.okemwag.subscribe.repository.*;
 import com.okemwag.subscribe.service.interfaces.AnalyticsService;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 @Service
@@ -27,42 +66,201 @@ import org.springframework.transaction.annotation.Transactional;
 @Transactional(readOnly = true)
 public class AnalyticsServiceImpl implements AnalyticsService {
 
+  private static final int MAX_TOP_LIMIT = 100;
+  private static final int MAX_FORECAST_DAYS = 365;
+
+  public static final String REVENUE_FORECAST_CACHE = "revenueForecast";
+
   private final BusinessRepository businessRepository;
   private final CustomerRepository customerRepository;
   private final SubscriptionRepository subscriptionRepository;
   private final PaymentRepository paymentRepository;
   private final InvoiceRepository invoiceRepository;
+  private final CustomerSegmentIndex customerSegmentIndex;
+  private final AnalyticsCache analyticsCache;
+  private final TenantLeaderboards tenantLeaderboards;
+  private final AmountSketchStore amountSketchStore;
+  private final RevenueTimeSeriesStore revenueTimeSeriesStore;
+  private final TimeSeriesConfig timeSeriesConfig;
+  private final RevenueForecaster revenueForecaster;
+  private final CacheManager cacheManager;
+  private final TenantSizeEstimator tenantSizeEstimator;
+  private final AnalyticsSectionGuard analyticsSectionGuard;
+  private final AnalyticsSnapshotRepository analyticsSnapshotRepository;
+  private final AnalyticsGuardConfig analyticsGuardConfig;
+  private final LifecycleCounterStore lifecycleCounterStore;
+  private final LifecycleCounterConfig lifecycleCounterConfig;
+  private final FxRateProvider fxRateProvider;
+  private final AnalyticsSnapshotFormat analyticsSnapshotFormat;
 
   @Override
-  @Cacheable(value = "businessAnalytics", key = "#businessId")
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
   public AnalyticsDTO getBusinessAnalytics(Long businessId) {
+    return analyticsCache.get(
+        AnalyticsCache.BUSINESS_ANALYTICS,
+        businessId,
+        "all",
+        () -> generateBusinessAnalytics(businessId));
+  }
+
+  @Override
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public AnalyticsDTO computeBusinessAnalytics(Long businessId, LocalDateTime asOf) {
+    // Bypasses the cache and the snapshots so snapshots reflect the data up to asOf, and fails
+    // rather than degrading so that no section is carried over from an older snapshot
+    validateBusinessExists(businessId);
+    AnalyticsDTO analytics = new AnalyticsDTO();
+    analytics.setRevenueMetrics(
+        analyticsSectionGuard.capture(() -> calculateRevenueMetrics(businessId, asOf)));
+    analytics.setCustomerMetrics(
+        analyticsSectionGuard.capture(() -> calculateCustomerMetrics(businessId, asOf)));
+    analytics.setSubscriptionMetrics(
+        analyticsSectionGuard.capture(() -> calculateSubscriptionMetrics(businessId, asOf)));
+    analytics.setChurnMetrics(
+        analyticsSectionGuard.capture(() -> calculateChurnMetrics(businessId, asOf)));
+    analytics.setDegraded(false);
+    analytics.setDegradedSections(List.of());
+    analytics.setGeneratedAt(LocalDateTime.now());
+    return analytics;
+  }
+
+  @Override
+  public RevenueReportDTO getRevenueReport(
+      Long businessId, LocalDateTime startDate, LocalDateTime endDate) {
+    return analyticsCache.get(
+        AnalyticsCache.REVENUE_REPORT,
+        businessId,
+        startDate + "_" + endDate,
+        () -> generateRevenueReport(businessId, startDate, endDate));
+  }
+
+  @Override
+  public CustomerGrowthDTO getCustomerGrowthReport(Long businessId) {
+    return analyticsCache.get(
+        AnalyticsCache.CUSTOMER_GROWTH,
+        businessId,
+        "all",
+        () -> generateCustomerGrowthReport(businessId));
+  }
+
+  /**
+   * Computes the analytics dashboard for business. Large tenants are served their latest daily
+   * snapshot as captured, so every figure on it is as of the same day; everyone else gets live
+   * queries.
+   */
+  private AnalyticsDTO generateBusinessAnalytics(Long businessId) {
     log.info("Generating analytics for business ID: {}", businessId);
+    validateBusinessExists(businessId);
+
+    if (tenantSizeEstimator.tier(businessId) == TenantTier.LARGE) {
+      AnalyticsDTO snapshot = latestSnapshot(businessId, analyticsGuardConfig.getMaxSnapshotAge());
+      if (snapshot != null) {
+        log.info(
+            "Serving analytics for large business ID {} from the {} snapshot",
+            businessId,
+            snapshot.getSnapshotDate());
+        return snapshot;
+      }
+    }
 
-    // Validate business exists
-    if (!businessRepository.findByIdAndActive(businessId).isPresent()) {
-      throw new ResourceNotFoundException("Business not found with ID: " + businessId);
+    AnalyticsDTO analytics =
+        assembleAnalytics(
+            businessId, EnumSet.allOf(AnalyticsSection.class), null, LocalDateTime.now());
+    log.info("Successfully generated analytics for business ID: {}", businessId);
+    return analytics;
+  }
+
+  /**
+   * Computes {@code sections} live, each under its own time budget, and takes the others from
+   * {@code base}. Sections that fail keep their value from {@code base}, or from the latest
+   * snapshot when there is no base, and are flagged as degraded. Totals over time count the data
+   * before {@code asOf}; counts of current state, such as active subscriptions, are read as they
+   * are.
+   */
+  private AnalyticsDTO assembleAnalytics(
+      Long businessId, Set<AnalyticsSection> sections, AnalyticsDTO base, LocalDateTime asOf) {
+    Set<AnalyticsSection> degraded = EnumSet.noneOf(AnalyticsSection.class);
+    AnalyticsDTO analytics = new AnalyticsDTO();
+    if (sections.contains(AnalyticsSection.REVENUE)) {
+      analytics.setRevenueMetrics(
+          analyticsSectionGuard.compute(
+              AnalyticsSection.REVENUE,
+              businessId,
+              () -> calculateRevenueMetrics(businessId, asOf),
+              degraded));
+    }
+    if (sections.contains(AnalyticsSection.CUSTOMERS)) {
+      analytics.setCustomerMetrics(
+          analyticsSectionGuard.compute(
+              AnalyticsSection.CUSTOMERS,
+              businessId,
+              () -> calculateCustomerMetrics(businessId, asOf),
+              degraded));
+    }
+    if (sections.contains(AnalyticsSection.SUBSCRIPTIONS)) {
+      analytics.setSubscriptionMetrics(
+          analyticsSectionGuard.compute(
+              AnalyticsSection.SUBSCRIPTIONS,
+              businessId,
+              () -> calculateSubscriptionMetrics(businessId, asOf),
+              degraded));
+    }
+    if (sections.contains(AnalyticsSection.CHURN)) {
+      analytics.setChurnMetrics(
+          analyticsSectionGuard.compute(
+              AnalyticsSection.CHURN,
+              businessId,
+              () -> calculateChurnMetrics(businessId, asOf),
+              degraded));
     }
 
-    try {
-      AnalyticsDTO analytics = new AnalyticsDTO();
-      analytics.setRevenueMetrics(calculateRevenueMetrics(businessId));
-      analytics.setCustomerMetrics(calculateCustomerMetrics(businessId));
-      analytics.setSubscriptionMetrics(calculateSubscriptionMetrics(businessId));
-      analytics.setChurnMetrics(calculateChurnMetrics(businessId));
-      analytics.setGeneratedAt(LocalDateTime.now());
+    if (base == null && !degraded.isEmpty()) {
+      base = latestSnapshot(businessId, null);
+    }
+    if (base != null) {
+      Set<AnalyticsSection> fromBase = EnumSet.complementOf(EnumSet.copyOf(sections));
+      fromBase.addAll(degraded);
+      if (fromBase.contains(AnalyticsSection.REVENUE)) {
+        analytics.setRevenueMetrics(base.getRevenueMetrics());
+      }
+      if (fromBase.contains(AnalyticsSection.CUSTOMERS)) {
+        analytics.setCustomerMetrics(base.getCustomerMetrics());
+      }
+      if (fromBase.contains(AnalyticsSection.SUBSCRIPTIONS)) {
+        analytics.setSubscriptionMetrics(base.getSubscriptionMetrics());
+      }
+      if (fromBase.contains(AnalyticsSection.CHURN)) {
+        analytics.setChurnMetrics(base.getChurnMetrics());
+      }
+    }
 
-      log.info("Successfully generated analytics for business ID: {}", businessId);
-      return analytics;
+    analytics.setDegraded(!degraded.isEmpty());
+    analytics.setDegradedSections(degraded.stream().map(Enum::name).toList());
+    analytics.setGeneratedAt(LocalDateTime.now());
+    return analytics;
+  }
 
-    } catch (Exception e) {
-      log.error("Error generating analytics for business ID {}: {}", businessId, e.getMessage(), e);
-      throw new SubscribeException("Failed to generate business analytics", e);
+  /** Latest snapshot of the tenant, or null when there is none within {@code maxAge} */
+  private AnalyticsDTO latestSnapshot(Long businessId, Duration maxAge) {
+    LocalDate today = LocalDate.now();
+    return analyticsSnapshotRepository
+        .findFirstByBusinessIdAndSnapshotDateLessThanEqualOrderBySnapshotDateDesc(businessId, today)
+        .filter(
+            snapshot ->
+                maxAge == null
+                    || !snapshot.getSnapshotDate().isBefore(today.minusDays(maxAge.toDays())))
+        .map(analyticsSnapshotFormat::read)
+        .orElse(null);
+  }
+
+  private void validateBusinessExists(Long businessId) {
+    if (!businessRepository.findByIdAndActive(businessId).isPresent()) {
+      throw new ResourceNotFoundException("Business not found with ID: " + businessId);
     }
   }
 
-  @Override
-  @Cacheable(value = "revenueReport", key = "#businessId + '_' + #startDate + '_' + #endDate")
-  public RevenueReportDTO getRevenueReport(
+  /** Computes the revenue report for business and period */
+  private RevenueReportDTO generateRevenueReport(
       Long businessId, LocalDateTime startDate, LocalDateTime endDate) {
     log.info(
         "Generating revenue report for business ID: {} from {} to {}",
@@ -81,20 +279,29 @@ public class AnalyticsServiceImpl implements AnalyticsService {
       report.setReportPeriodEnd(endDate);
       report.setGeneratedAt(LocalDateTime.now());
 
-      // Calculate revenue metrics
-      report.setTotalPaidAmount(
-          paymentRepository.getRevenueByBusinessAndDateRange(businessId, startDate, endDate));
-      report.setTotalOutstandingAmount(
-          invoiceRepository.getTotalOutstandingAmountByBusiness(businessId));
-      report.setTotalRefunds(paymentRepository.getTotalRefundsByBusiness(businessId));
-      report.setTotalRevenue(
-          report.getTotalPaidAmount() != null ? report.getTotalPaidAmount() : BigDecimal.ZERO);
+      // Calculate revenue metrics in the business currency
+      String currency = getBusinessCurrency(businessId);
+      FxRateProvider.Normalized paid =
+          normalizePayments(businessId, PaymentStatus.COMPLETED, currency, startDate, endDate);
+      FxRateProvider.Normalized refunds =
+          normalizePayments(businessId, PaymentStatus.REFUNDED, currency, null, null);
+      FxRateProvider.Normalized outstanding =
+          normalizeOutstanding(businessId, currency, LocalDate.now());
+      report.setCurrency(currency);
+      report.setTotalPaidAmount(paid.total());
+      report.setTotalOutstandingAmount(outstanding.total());
+      report.setTotalRefunds(refunds.total());
+      report.setTotalRevenue(paid.total());
+      TreeSet<String> unconverted = new TreeSet<>(paid.unconvertedCurrencies());
+      unconverted.addAll(refunds.unconvertedCurrencies());
+      unconverted.addAll(outstanding.unconvertedCurrencies());
 
       // Monthly breakdown
-      report.setMonthlyBreakdown(getMonthlyRevenueBreakdown(businessId));
+      report.setMonthlyBreakdown(getMonthlyRevenueBreakdown(businessId, currency, unconverted));
+      report.setUnconvertedCurrencies(List.copyOf(unconverted));
 
       // Revenue by currency
-      report.setRevenueByCurrency(getRevenueByCurrency(businessId));
+      report.setRevenueByCurrency(getRevenueByCurrency(businessId, LocalDateTime.now()));
 
       // Revenue by payment method
       report.setRevenueByPaymentMethod(getRevenueByPaymentMethod(businessId));
@@ -109,9 +316,8 @@ public class AnalyticsServiceImpl implements AnalyticsService {
     }
   }
 
-  @Override
-  @Cacheable(value = "customerGrowth", key = "#businessId")
-  public CustomerGrowthDTO getCustomerGrowthReport(Long businessId) {
+  /** Computes the customer growth report for business */
+  private CustomerGrowthDTO generateCustomerGrowthReport(Long businessId) {
     log.info("Generating customer growth report for business ID: {}", businessId);
 
     // Validate business exists
@@ -128,15 +334,8 @@ public class AnalyticsServiceImpl implements AnalyticsService {
       report.setActiveCustomers(customerRepository.countActiveCustomersByBusiness(businessId));
 
       // Monthly growth
-      LocalDateTime thisMonthStart =
-          LocalDateTime.now().withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0);
-      LocalDateTime lastMonthStart = thisMonthStart.minusMonths(1);
-
-      report.setNewCustomersThisMonth(
-          customerRepository.countCustomersCreatedSinceByBusiness(businessId, thisMonthStart));
-      report.setNewCustomersLastMonth(
-          customerRepository.countCustomersCreatedSinceByBusiness(businessId, lastMonthStart)
-              - report.getNewCustomersThisMonth());
+      report.setNewCustomersThisMonth(countSignups(businessId, LocalDateTime.now(), 0));
+      report.setNewCustomersLastMonth(countSignups(businessId, LocalDateTime.now(), 1));
 
       // Calculate growth rate
       if (report.getNewCustomersLastMonth() > 0) {
@@ -172,24 +371,31 @@ public class AnalyticsServiceImpl implements AnalyticsService {
         "Calculating churn rate for business ID: {} from {} to {}", businessId, startDate, endDate);
 
     try {
-      // Get customers at start of period
-      Long customersAtStart =
-          customerRepository.countCustomersCreatedSinceByBusiness(
-                  businessId, LocalDateTime.of(1970, 1, 1, 0, 0))
-              - customerRepository.countCustomersCreatedSinceByBusiness(businessId, startDate);
-
-      // Get churned customers (cancelled subscriptions) in period
-      List<Object[]> cancelledSubscriptions =
-          subscriptionRepository
-              .findCancelledSubscriptionsByBusinessAndDateRange(businessId, startDate, endDate)
-              .stream()
-              .map(sub -> new Object[] {sub.getCustomer().getId()})
-              .distinct()
-              .collect(Collectors.toList());
-
-      Long churnedCustomers = (long) cancelledSubscriptions.size();
-
-      if (customersAtStart == 0) {
+      LocalDate startDay = startDate.toLocalDate();
+      Long customersAtStart;
+      Long churnedCustomers;
+      if (lifecycleCounterStore.covers(startDay)) {
+        // Customers now, less those who signed up since the start of the period
+        customersAtStart =
+            customerRepository.countAllCustomersByBusiness(businessId)
+                - lifecycleCounterStore.count(
+                    businessId, LifecycleCounter.SIGNUPS, startDay, LocalDate.now());
+        churnedCustomers =
+            lifecycleCounterStore.count(
+                businessId, LifecycleCounter.CANCELLATIONS, startDay, lastDayBefore(endDate));
+      } else {
+        // Older than the counters reach
+        customersAtStart =
+            customerRepository.countCustomersCreatedSinceByBusiness(
+                    businessId, LocalDateTime.of(1970, 1, 1, 0, 0))
+                - customerRepository.countCustomersCreatedSinceByBusiness(businessId, startDate);
+        // Cancellations, as the counters count them
+        churnedCustomers =
+            subscriptionRepository.countCancellationsByBusinessBetween(
+                businessId, startDate, endDate);
+      }
+
+      if (customersAtStart <= 0) {
         return 0.0;
       }
 
@@ -204,21 +410,216 @@ public class AnalyticsServiceImpl implements AnalyticsService {
   }
 
   @Override
-  @CacheEvict(
-      value = {"businessAnalytics", "revenueReport", "customerGrowth"},
-      key = "#businessId")
+  public List<TopPayingCustomer> getTopPayingCustomers(Long businessId, int limit) {
+    validateTopLimit(limit);
+    return tenantLeaderboards.topPayingCustomers(businessId, limit);
+  }
+
+  @Override
+  public List<PopularPlan> getPopularPlans(Long businessId, int limit) {
+    validateTopLimit(limit);
+    return tenantLeaderboards.popularPlans(businessId, limit);
+  }
+
+  @Override
+  public LifecycleWindowsDTO getLifecycleWindows(Long businessId) {
+    validateBusinessExists(businessId);
+
+    long totalCustomers = customerRepository.countAllCustomersByBusiness(businessId);
+    List<LifecycleWindowsDTO.Window> windows = new ArrayList<>();
+    for (int days : lifecycleCounterConfig.getWindows()) {
+      long[] totals = lifecycleCounterStore.window(businessId, days);
+      LifecycleWindowsDTO.Window window = new LifecycleWindowsDTO.Window();
+      window.setDays(days);
+      window.setSignups(totals[LifecycleCounter.SIGNUPS.ordinal()]);
+      window.setCancellations(totals[LifecycleCounter.CANCELLATIONS.ordinal()]);
+      window.setTrialStarts(totals[LifecycleCounter.TRIAL_STARTS.ordinal()]);
+      window.setConversions(totals[LifecycleCounter.CONVERSIONS.ordinal()]);
+      window.setChurnRate(
+          percentage(window.getCancellations(), totalCustomers - window.getSignups()));
+      window.setTrialConversionRate(percentage(window.getConversions(), window.getTrialStarts()));
+      windows.add(window);
+    }
+
+    LifecycleWindowsDTO result = new LifecycleWindowsDTO();
+    result.setAsOf(LocalDate.now());
+    result.setWindows(windows);
+    result.setGeneratedAt(LocalDateTime.now());
+    return result;
+  }
+
+  /**
+   * Signups of the calendar month {@code monthsAgo} months before the one ending at {@code asOf},
+   * up to the last day before {@code asOf}
+   */
+  private long countSignups(Long businessId, LocalDateTime asOf, int monthsAgo) {
+    LocalDate lastDay = lastDayBefore(asOf);
+    YearMonth month = YearMonth.from(lastDay).minusMonths(monthsAgo);
+    LocalDate end = month.atEndOfMonth();
+    return lifecycleCounterStore.count(
+        businessId, LifecycleCounter.SIGNUPS, month.atDay(1), end.isAfter(lastDay) ? lastDay : end);
+  }
+
+  /** The day holding the last instant before {@code asOf}: today when live, else the day before */
+  private static LocalDate lastDayBefore(LocalDateTime asOf) {
+    return asOf.minusNanos(1).toLocalDate();
+  }
+
+  private static double percentage(long part, long whole) {
+    return whole > 0 ? Math.round((double) part / whole * 10000.0) / 100.0 : 0.0;
+  }
+
+  private void validateTopLimit(int limit) {
+    if (limit < 1 || limit > MAX_TOP_LIMIT) {
+      throw new SubscribeException("Limit must be between 1 and " + MAX_TOP_LIMIT);
+    }
+  }
+
+  @Override
+  public RevenueForecastDTO getRevenueForecast(Long businessId, int days) {
+    if (days < 1 || days > MAX_FORECAST_DAYS) {
+      throw new SubscribeException("Forecast horizon must be between 1 and " + MAX_FORECAST_DAYS);
+    }
+    if (!businessRepository.findByIdAndActive(businessId).isPresent()) {
+      throw new ResourceNotFoundException("Business not found with ID: " + businessId);
+    }
+
+    // The pipeline is projected from today, so a forecast is reused until the date changes
+    Cache cache = cacheManager.getCache(REVENUE_FORECAST_CACHE);
+    String key = businessId + ":" + LocalDate.now() + ":" + days;
+    return cache.get(
+        key, () -> revenueForecaster.forecast(businessId, getBusinessCurrency(businessId), days));
+  }
+
+  @Override
+  public TimeSeriesDTO getTimeSeries(
+      Long businessId,
+      TimeSeriesMetric metric,
+      TimeSeriesResolution resolution,
+      String currency,
+      LocalDateTime from,
+      LocalDateTime to) {
+    if (from == null || to == null || from.isAfter(to)) {
+      throw new SubscribeException("Time series range must have a start before its end");
+    }
+    return revenueTimeSeriesStore.slice(
+        businessId,
+        metric,
+        resolution,
+        currency != null ? currency : getBusinessCurrency(businessId),
+        from,
+        to);
+  }
+
+  @Override
+  public AmountQuantilesDTO getPaymentAmountQuantiles(
+      Long businessId, PaymentMethod method, String currency, YearMonth from, YearMonth to) {
+    validateMonthRange(from, to);
+    String sketchCurrency = currency != null ? currency : getBusinessCurrency(businessId);
+    return toQuantiles(
+        amountSketchStore.paymentAmounts(businessId, method, sketchCurrency, from, to),
+        sketchCurrency,
+        from,
+        to);
+  }
+
+  @Override
+  public AmountQuantilesDTO getInvoiceTotalQuantiles(
+      Long businessId, YearMonth from, YearMonth to) {
+    validateMonthRange(from, to);
+    // Invoices are issued in the business currency
+    String currency = getBusinessCurrency(businessId);
+    return toQuantiles(
+        amountSketchStore.invoiceTotals(businessId, currency, from, to), currency, from, to);
+  }
+
+  @Override
+  @Transactional
+  public void rebuildAmountSketches(Long businessId) {
+    if (!businessRepository.findByIdAndActive(businessId).isPresent()) {
+      throw new ResourceNotFoundException("Business not found with ID: " + businessId);
+    }
+    amountSketchStore.rebuild(businessId);
+  }
+
+  private void validateMonthRange(YearMonth from, YearMonth to) {
+    if (from == null || to == null || from.isAfter(to)) {
+      throw new SubscribeException("Month range must have a start before its end");
+    }
+  }
+
+  private AmountQuantilesDTO toQuantiles(
+      QuantileSketch sketch, String currency, YearMonth from, YearMonth to) {
+    AmountQuantilesDTO quantiles = new AmountQuantilesDTO();
+    quantiles.setCurrency(currency);
+    quantiles.setFrom(from);
+    quantiles.setTo(to);
+    quantiles.setCount(sketch.count());
+    if (sketch.count() > 0) {
+      quantiles.setMin(toAmount(sketch.min()));
+      quantiles.setP50(toAmount(sketch.quantile(0.5)));
+      quantiles.setP90(toAmount(sketch.quantile(0.9)));
+      quantiles.setP99(toAmount(sketch.quantile(0.99)));
+      quantiles.setMax(toAmount(sketch.max()));
+    }
+    return quantiles;
+  }
+
+  private BigDecimal toAmount(double value) {
+    return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+  }
+
+  @Override
   public void refreshAnalyticsCache(Long businessId) {
     log.info("Refreshing analytics cache for business ID: {}", businessId);
-    // Cache will be refreshed on next access
+    // Evicts every entry of the tenant, including each revenue report period
+    analyticsCache.invalidate(businessId);
+  }
+
+  @Override
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public void refreshAnalyticsSections(Long businessId, Set<AnalyticsSection> sections) {
+    log.debug("Refreshing analytics sections {} for business ID: {}", sections, businessId);
+
+    analyticsCache.update(
+        AnalyticsCache.BUSINESS_ANALYTICS,
+        businessId,
+        "all",
+        (AnalyticsDTO cached) -> patchAnalyticsSections(cached, businessId, sections));
+
+    if (sections.contains(AnalyticsSection.REVENUE)) {
+      analyticsCache.invalidate(AnalyticsCache.REVENUE_REPORT, businessId);
+    }
+    if (sections.contains(AnalyticsSection.CUSTOMERS)) {
+      analyticsCache.invalidate(AnalyticsCache.CUSTOMER_GROWTH, businessId);
+    }
+  }
+
+  @Override
+  public Map<String, CacheStatistics> getCacheStatistics() {
+    return analyticsCache.statistics();
+  }
+
+  /** Copies cached analytics, recomputing only the given sections */
+  private AnalyticsDTO patchAnalyticsSections(
+      AnalyticsDTO cached, Long businessId, Set<AnalyticsSection> sections) {
+    // Large tenants are not requeried on every write; their snapshot stays as captured
+    if (cached.getSnapshotDate() != null) {
+      return cached;
+    }
+    return assembleAnalytics(businessId, sections, cached, LocalDateTime.now());
   }
 
   /** Calculate revenue metrics for business */
-  private AnalyticsDTO.RevenueMetrics calculateRevenueMetrics(Long businessId) {
+  private AnalyticsDTO.RevenueMetrics calculateRevenueMetrics(Long businessId, LocalDateTime asOf) {
     AnalyticsDTO.RevenueMetrics metrics = new AnalyticsDTO.RevenueMetrics();
 
-    // Total revenue
-    BigDecimal totalRevenue = paymentRepository.getTotalRevenueByBusiness(businessId);
-    metrics.setTotalRevenue(totalRevenue != null ? totalRevenue : BigDecimal.ZERO);
+    // Total revenue in the business currency
+    String currency = getBusinessCurrency(businessId);
+    FxRateProvider.Normalized revenue =
+        normalizePayments(businessId, PaymentStatus.COMPLETED, currency, null, asOf);
+    metrics.setCurrency(currency);
+    metrics.setTotalRevenue(revenue.total());
 
     // Monthly recurring revenue (MRR) - approximate based on active subscriptions
     Long activeSubscriptions =
@@ -247,40 +648,41 @@ public class AnalyticsServiceImpl implements AnalyticsService {
     }
 
     // Outstanding amount
-    BigDecimal outstanding = invoiceRepository.getTotalOutstandingAmountByBusiness(businessId);
-    metrics.setTotalOutstanding(outstanding != null ? outstanding : BigDecimal.ZERO);
+    FxRateProvider.Normalized outstanding =
+        normalizeOutstanding(businessId, currency, asOf.toLocalDate());
+    metrics.setTotalOutstanding(outstanding.total());
 
     // Revenue by month
-    metrics.setRevenueByMonth(getMonthlyRevenueMap(businessId));
+    TreeSet<String> unconverted = new TreeSet<>(revenue.unconvertedCurrencies());
+    unconverted.addAll(outstanding.unconvertedCurrencies());
+    metrics.setRevenueByMonth(getMonthlyRevenueMap(businessId, currency, asOf, unconverted));
+    metrics.setUnconvertedCurrencies(List.copyOf(unconverted));
 
     // Revenue by currency
-    metrics.setRevenueByCurrency(getRevenueByCurrency(businessId));
+    metrics.setRevenueByCurrency(getRevenueByCurrency(businessId, asOf));
 
     return metrics;
   }
 
   /** Calculate customer metrics for business */
-  private AnalyticsDTO.CustomerMetrics calculateCustomerMetrics(Long businessId) {
+  private AnalyticsDTO.CustomerMetrics calculateCustomerMetrics(
+      Long businessId, LocalDateTime asOf) {
     AnalyticsDTO.CustomerMetrics metrics = new AnalyticsDTO.CustomerMetrics();
 
-    metrics.setTotalCustomers(customerRepository.countAllCustomersByBusiness(businessId));
+    metrics.setTotalCustomers(
+        customerRepository.countAllCustomersByBusiness(businessId)
+            - customerRepository.countCustomersCreatedSinceByBusiness(businessId, asOf));
     metrics.setActiveCustomers(customerRepository.countActiveCustomersByBusiness(businessId));
 
     // New customers this month
-    LocalDateTime monthStart =
-        LocalDateTime.now().withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0);
-    metrics.setNewCustomersThisMonth(
-        customerRepository.countCustomersCreatedSinceByBusiness(businessId, monthStart));
+    metrics.setNewCustomersThisMonth(countSignups(businessId, asOf, 0));
 
     // Customers without subscriptions
-    // This would require a custom query - simplified for now
-    metrics.setCustomersWithoutSubscriptions(0L);
+    metrics.setCustomersWithoutSubscriptions(
+        customerSegmentIndex.countActiveCustomersWithoutSubscriptions(businessId));
 
     // Customer growth rate (month over month)
-    LocalDateTime lastMonthStart = monthStart.minusMonths(1);
-    Long lastMonthNew =
-        customerRepository.countCustomersCreatedSinceByBusiness(businessId, lastMonthStart)
-            - metrics.getNewCustomersThisMonth();
+    Long lastMonthNew = countSignups(businessId, asOf, 1);
 
     if (lastMonthNew > 0) {
       double growthRate =
@@ -297,7 +699,8 @@ public class AnalyticsServiceImpl implements AnalyticsService {
   }
 
   /** Calculate subscription metrics for business */
-  private AnalyticsDTO.SubscriptionMetrics calculateSubscriptionMetrics(Long businessId) {
+  private AnalyticsDTO.SubscriptionMetrics calculateSubscriptionMetrics(
+      Long businessId, LocalDateTime asOf) {
     AnalyticsDTO.SubscriptionMetrics metrics = new AnalyticsDTO.SubscriptionMetrics();
 
     metrics.setTotalSubscriptions(
@@ -342,38 +745,38 @@ public class AnalyticsServiceImpl implements AnalyticsService {
   }
 
   /** Calculate churn metrics for business */
-  private AnalyticsDTO.ChurnMetrics calculateChurnMetrics(Long businessId) {
+  private AnalyticsDTO.ChurnMetrics calculateChurnMetrics(Long businessId, LocalDateTime asOf) {
     AnalyticsDTO.ChurnMetrics metrics = new AnalyticsDTO.ChurnMetrics();
 
-    LocalDateTime now = LocalDateTime.now();
-    LocalDateTime monthStart = now.withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0);
-    LocalDateTime yearStart = now.withDayOfYear(1).withHour(0).withMinute(0).withSecond(0);
+    LocalDate lastDay = lastDayBefore(asOf);
+    LocalDateTime monthStart = lastDay.withDayOfMonth(1).atStartOfDay();
+    LocalDateTime yearStart = lastDay.withDayOfYear(1).atStartOfDay();
 
     // Monthly churn rate
-    metrics.setMonthlyChurnRate(calculateChurnRate(businessId, monthStart, now));
+    metrics.setMonthlyChurnRate(calculateChurnRate(businessId, monthStart, asOf));
 
     // Annual churn rate
-    metrics.setAnnualChurnRate(calculateChurnRate(businessId, yearStart, now));
+    metrics.setAnnualChurnRate(calculateChurnRate(businessId, yearStart, asOf));
 
     // Churned customers this month
-    List<Object[]> churnedThisMonth =
-        subscriptionRepository
-            .findCancelledSubscriptionsByBusinessAndDateRange(businessId, monthStart, now)
-            .stream()
-            .map(sub -> new Object[] {sub.getCustomer().getId()})
-            .distinct()
-            .collect(Collectors.toList());
-    metrics.setChurnedCustomersThisMonth((long) churnedThisMonth.size());
+    metrics.setChurnedCustomersThisMonth(
+        lifecycleCounterStore.count(
+            businessId, LifecycleCounter.CANCELLATIONS, monthStart.toLocalDate(), lastDay));
 
     // Churned revenue this month (simplified calculation)
     metrics.setChurnedRevenueThisMonth(BigDecimal.ZERO); // Would need more complex calculation
 
-    // Customer lifetime value (simplified)
-    BigDecimal totalRevenue = paymentRepository.getTotalRevenueByBusiness(businessId);
+    // Customer lifetime value (simplified), in the business currency
+    String currency = getBusinessCurrency(businessId);
+    FxRateProvider.Normalized revenue =
+        normalizePayments(businessId, PaymentStatus.COMPLETED, currency, null, asOf);
+    metrics.setCurrency(currency);
+    metrics.setUnconvertedCurrencies(revenue.unconvertedCurrencies());
     Long totalCustomers = customerRepository.countAllCustomersByBusiness(businessId);
-    if (totalCustomers > 0 && totalRevenue != null) {
+    if (totalCustomers > 0) {
       double clv =
-          totalRevenue
+          revenue
+              .total()
               .divide(BigDecimal.valueOf(totalCustomers), 2, RoundingMode.HALF_UP)
               .doubleValue();
       metrics.setCustomerLifetimeValue(Math.round(clv * 100.0) / 100.0);
@@ -384,41 +787,153 @@ public class AnalyticsServiceImpl implements AnalyticsService {
     return metrics;
   }
 
-  /** Get monthly revenue breakdown */
-  private List<RevenueReportDTO.MonthlyRevenue> getMonthlyRevenueBreakdown(Long businessId) {
-    List<Object[]> monthlyData = paymentRepository.getMonthlyRevenueByBusiness(businessId);
-
-    return monthlyData.stream()
-        .map(
-            row -> {
-              RevenueReportDTO.MonthlyRevenue monthly = new RevenueReportDTO.MonthlyRevenue();
-              monthly.setYear((Integer) row[0]);
-              monthly.setMonth((Integer) row[1]);
-              monthly.setRevenue((BigDecimal) row[2]);
-              // Additional calculations would be needed for invoice count and average
-              monthly.setInvoiceCount(0L);
-              monthly.setAverageInvoiceAmount(BigDecimal.ZERO);
-              return monthly;
-            })
-        .collect(Collectors.toList());
+  /**
+   * Get monthly revenue, refunds and invoices within the monthly time series retention, converted
+   * into {@code currency}; currencies without a rate are added to {@code unconverted}
+   */
+  private List<RevenueReportDTO.MonthlyRevenue> getMonthlyRevenueBreakdown(
+      Long businessId, String currency, Set<String> unconverted) {
+    YearMonth now = YearMonth.now();
+    LocalDate today = LocalDate.now();
+    return revenueTimeSeriesStore.monthlyBreakdown(
+        businessId,
+        now.minusMonths(timeSeriesConfig.getMonthlyBuckets() - 1),
+        now,
+        (from, month) -> monthlyRate(from, currency, month, today),
+        unconverted);
   }
 
   /** Get monthly revenue as map */
-  private Map<String, BigDecimal> getMonthlyRevenueMap(Long businessId) {
-    List<Object[]> monthlyData = paymentRepository.getMonthlyRevenueByBusiness(businessId);
+  private Map<String, BigDecimal> getMonthlyRevenueMap(
+      Long businessId, String currency, LocalDateTime asOf, Set<String> unconverted) {
     Map<String, BigDecimal> revenueMap = new HashMap<>();
+    getMonthlyRevenue(businessId, currency, asOf, unconverted)
+        .forEach((month, revenue) -> revenueMap.put(month.toString(), revenue));
+    return revenueMap;
+  }
 
-    for (Object[] row : monthlyData) {
-      String monthKey = row[0] + "-" + String.format("%02d", (Integer) row[1]);
-      revenueMap.put(monthKey, (BigDecimal) row[2]);
+  /**
+   * Months with revenue within the monthly time series retention, oldest first, up to the last day
+   * before {@code asOf}, converted into {@code currency}; currencies without a rate are added to
+   * {@code unconverted}
+   */
+  private SortedMap<YearMonth, BigDecimal> getMonthlyRevenue(
+      Long businessId, String currency, LocalDateTime asOf, Set<String> unconverted) {
+    LocalDate lastDay = lastDayBefore(asOf);
+    YearMonth last = YearMonth.from(lastDay);
+    YearMonth first = last.minusMonths(timeSeriesConfig.getMonthlyBuckets() - 1);
+
+    SortedMap<YearMonth, BigDecimal> revenue = new TreeMap<>();
+    for (String paidIn : revenueTimeSeriesStore.currencies(businessId)) {
+      List<BigDecimal> values =
+          revenueTimeSeriesStore
+              .slice(
+                  businessId,
+                  TimeSeriesMetric.REVENUE,
+                  TimeSeriesResolution.MONTH,
+                  paidIn,
+                  first.atDay(1).atStartOfDay(),
+                  lastDay.atStartOfDay())
+              .getValues();
+      for (int i = 0; i < values.size(); i++) {
+        YearMonth month = first.plusMonths(i);
+        // The last month only up to its last day before asOf, from the daily buckets
+        BigDecimal amount =
+            !month.equals(last)
+                ? values.get(i)
+                : revenueTimeSeriesStore
+                    .slice(
+                        businessId,
+                        TimeSeriesMetric.REVENUE,
+                        TimeSeriesResolution.DAY,
+                        paidIn,
+                        last.atDay(1).atStartOfDay(),
+                        lastDay.atStartOfDay())
+                    .getTotal();
+        if (amount.signum() == 0) {
+          continue;
+        }
+        double rate = monthlyRate(paidIn, currency, month, lastDay);
+        if (Double.isNaN(rate)) {
+          unconverted.add(paidIn);
+          continue;
+        }
+        revenue.merge(
+            month,
+            amount.multiply(BigDecimal.valueOf(rate)).setScale(2, RoundingMode.HALF_UP),
+            BigDecimal::add);
+      }
     }
+    return revenue;
+  }
 
-    return revenueMap;
+  /**
+   * Rate into {@code to} of a month's sum in {@code from}, taken on the last day of the month or on
+   * {@code lastDay} when that comes first. Totals convert each day at its own rate instead, so the
+   * months can differ from them by the drift of the rate within a month.
+   */
+  private double monthlyRate(String from, String to, YearMonth month, LocalDate lastDay) {
+    LocalDate end = month.atEndOfMonth();
+    return fxRateProvider.rate(from, to, end.isAfter(lastDay) ? lastDay : end);
   }
 
-  /** Get revenue by currency */
-  private Map<String, BigDecimal> getRevenueByCurrency(Long businessId) {
-    List<Object[]> currencyData = paymentRepository.getRevenueByCurrencyAndBusiness(businessId);
+  private String getBusinessCurrency(Long businessId) {
+    return businessRepository
+        .findById(businessId)
+        .map(Business::getCurrency)
+        .orElseThrow(
+            () -> new ResourceNotFoundException("Business not found with ID: " + businessId));
+  }
+
+  /** Sum of the payments with {@code status} in {@code currency}, converted at each day's rate */
+  private FxRateProvider.Normalized normalizePayments(
+      Long businessId,
+      PaymentStatus status,
+      String currency,
+      LocalDateTime startDate,
+      LocalDateTime endDate) {
+    List<Object[]> sums =
+        paymentRepository.sumPaymentsByCurrencyAndDay(
+            businessId,
+            status,
+            startDate != null ? startDate : LocalDateTime.of(1970, 1, 1, 0, 0),
+            endDate != null ? endDate : LocalDateTime.now());
+    FxRateProvider.Normalized normalized = fxRateProvider.normalize(sums, currency);
+    if (!normalized.unconvertedCurrencies().isEmpty()) {
+      log.warn(
+          "No {} rate for {} payments of business ID {}, left out of the total",
+          currency,
+          normalized.unconvertedCurrencies(),
+          businessId);
+    }
+    return normalized;
+  }
+
+  /**
+   * Sum the open invoices into {@code currency} at the rates of {@code day}, what they would settle
+   * for then. Invoices issued before invoices had a currency are in the business currency.
+   */
+  private FxRateProvider.Normalized normalizeOutstanding(
+      Long businessId, String currency, LocalDate day) {
+    List<Object[]> sums = new ArrayList<>();
+    for (Object[] row : invoiceRepository.sumOutstandingAmountByCurrency(businessId)) {
+      sums.add(new Object[] {row[0] != null ? row[0] : currency, day, row[1]});
+    }
+    FxRateProvider.Normalized normalized = fxRateProvider.normalize(sums, currency);
+    if (!normalized.unconvertedCurrencies().isEmpty()) {
+      log.warn(
+          "No {} rate for {} invoices of business ID {}, left out of the outstanding total",
+          currency,
+          normalized.unconvertedCurrencies(),
+          businessId);
+    }
+    return normalized;
+  }
+
+  /** Get revenue by currency, of the payments created before {@code asOf} */
+  private Map<String, BigDecimal> getRevenueByCurrency(Long businessId, LocalDateTime asOf) {
+    List<Object[]> currencyData =
+        paymentRepository.getRevenueByCurrencyAndBusiness(businessId, asOf);
     Map<String, BigDecimal> revenueMap = new HashMap<>();
 
     for (Object[] row : currencyData) {
@@ -440,15 +955,7 @@ public class AnalyticsServiceImpl implements AnalyticsService {
 
   /** Get customers by language */
   private Map<String, Long> getCustomersByLanguage(Long businessId) {
-    List<Object[]> languageData =
-        customerRepository.countCustomersByLanguageAndBusiness(businessId);
-    Map<String, Long> languageMap = new HashMap<>();
-
-    for (Object[] row : languageData) {
-      languageMap.put((String) row[0], (Long) row[1]);
-    }
-
-    return languageMap;
+    return customerSegmentIndex.countActiveCustomersByLanguage(businessId);
   }
 
   /** Get monthly customer growth */
@@ -0,0 +1,160 @@
+package com.okemwag.subscribe.service.impl;
+
+import com.okemwag.subscribe.analytics.AnalyticsSnapshotFormat;
+import com.okemwag.subscribe.config.AnalyticsSnapshotConfig;
+import com.okemwag.subscribe.dto.AnalyticsDTO;
+import com.okemwag.subscribe.dto.AnalyticsSnapshotDTO;
+import com.okemwag.subscribe.entity.AnalyticsSnapshot;
+import com.okemwag.subscribe.exception.ResourceNotFoundException;
+import com.okemwag.subscribe.exception.SubscribeException;
+import com.okemwag.subscribe.lock.ClusterLock;
+import com.okemwag.subscribe.repository.AnalyticsSnapshotRepository;
+import com.okemwag.subscribe.repository.BusinessRepository;
+import com.okemwag.subscribe.service.interfaces.AnalyticsService;
+import com.okemwag.subscribe.service.interfaces.AnalyticsSnapshotService;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Daily history of every tenant's analytics dashboard. A nightly job, run by one node at a time,
+ * stores the dashboard of each active tenant with its totals over time bounded at the midnight that
+ * ended the previous day, so comparisons with an earlier date and trend charts read stored rows
+ * instead of reconstructing history from payments and subscriptions. Counts of current state, such
+ * as active subscriptions, cannot be rewound and are read when the job runs.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AnalyticsSnapshotServiceImpl implements AnalyticsSnapshotService {
+
+  private final AnalyticsSnapshotRepository analyticsSnapshotRepository;
+  private final BusinessRepository businessRepository;
+  private final AnalyticsService analyticsService;
+  private final AnalyticsSnapshotConfig config;
+  private final AnalyticsSnapshotFormat snapshotFormat;
+  private final ClusterLock clusterLock;
+
+  @Override
+  @Transactional(readOnly = true)
+  public AnalyticsSnapshotDTO getSnapshotAsOf(Long businessId, LocalDate date) {
+    return analyticsSnapshotRepository
+        .findFirstByBusinessIdAndSnapshotDateLessThanEqualOrderBySnapshotDateDesc(businessId, date)
+        .map(this::convertToDTO)
+        .orElseThrow(
+            () ->
+                new ResourceNotFoundException(
+                    "No analytics snapshot on or before "
+                        + date
+                        + " for business ID: "
+                        + businessId));
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public List<AnalyticsSnapshotDTO> getSnapshotHistory(
+      Long businessId, LocalDate from, LocalDate to) {
+    if (from == null || to == null || from.isAfter(to)) {
+      throw new SubscribeException("Snapshot range must have a start before its end");
+    }
+    if (ChronoUnit.DAYS.between(from, to) >= config.getMaxHistoryDays()) {
+      throw new SubscribeException(
+          "Snapshot range must not exceed " + config.getMaxHistoryDays() + " days");
+    }
+
+    return analyticsSnapshotRepository
+        .findByBusinessIdAndSnapshotDateBetweenOrderBySnapshotDate(businessId, from, to)
+        .stream()
+        .map(this::convertToDTO)
+        .toList();
+  }
+
+  /** Capture yesterday's snapshots, then drop those past retention */
+  @Scheduled(cron = "${analytics.snapshot.cron:0 15 0 * * *}")
+  public void scheduledCapture() {
+    boolean ran =
+        clusterLock.runExclusively(
+            "analyticsSnapshots",
+            () -> {
+              LocalDate today = LocalDate.now();
+              captureSnapshots(today.minusDays(1));
+
+              int deleted =
+                  analyticsSnapshotRepository.deleteOlderThan(
+                      today.minusDays(config.getRetention().toDays()));
+              log.info("Deleted {} analytics snapshots past retention", deleted);
+            });
+    if (!ran) {
+      log.debug("Analytics snapshots are being captured by another node");
+    }
+  }
+
+  @Override
+  public int captureSnapshots(LocalDate snapshotDate) {
+    log.info("Capturing analytics snapshots for {}", snapshotDate);
+    LocalDateTime endOfDay = snapshotDate.plusDays(1).atStartOfDay();
+
+    // Tenants captured by an earlier run or another node are skipped
+    Set<Long> captured = analyticsSnapshotRepository.findBusinessIdsWithSnapshotOn(snapshotDate);
+    int count = 0;
+    for (Long businessId : businessRepository.findActiveBusinessIds()) {
+      if (captured.contains(businessId)) {
+        continue;
+      }
+      try {
+        AnalyticsSnapshot snapshot = new AnalyticsSnapshot();
+        snapshot.setBusinessId(businessId);
+        snapshot.setSnapshotDate(snapshotDate);
+        snapshotFormat.write(snapshot, computeForSnapshot(businessId, endOfDay));
+        analyticsSnapshotRepository.save(snapshot);
+        count++;
+      } catch (DataIntegrityViolationException e) {
+        log.debug("Snapshot for business ID {} was captured concurrently", businessId);
+      } catch (RuntimeException e) {
+        // One failing tenant must not stop the others
+        log.warn(
+            "Capturing analytics snapshot for business ID {} failed: {}",
+            businessId,
+            e.getMessage());
+      }
+    }
+
+    log.info("Captured {} analytics snapshots for {}", count, snapshotDate);
+    return count;
+  }
+
+  /** The tenant's dashboard as of {@code asOf}, retried since a stored snapshot is never redone */
+  private AnalyticsDTO computeForSnapshot(Long businessId, LocalDateTime asOf) {
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return analyticsService.computeBusinessAnalytics(businessId, asOf);
+      } catch (ResourceNotFoundException e) {
+        throw e;
+      } catch (RuntimeException e) {
+        if (attempt >= config.getCaptureAttempts()) {
+          throw e;
+        }
+        log.info(
+            "Attempt {} at the analytics snapshot of business ID {} failed, retrying: {}",
+            attempt,
+            businessId,
+            e.getMessage());
+      }
+    }
+  }
+
+  private AnalyticsSnapshotDTO convertToDTO(AnalyticsSnapshot snapshot) {
+    AnalyticsSnapshotDTO dto = new AnalyticsSnapshotDTO();
+    dto.setSnapshotDate(snapshot.getSnapshotDate());
+    dto.setAnalytics(snapshotFormat.read(snapshot));
+    return dto;
+  }
+}
@@ -1,21 +1,28 @@
 package com.okemwag.subscribe.service.impl;
 
+import com.okemwag.subscribe.analytics.CustomerSegment;
+import com.okemwag.subscribe.analytics.CustomerSegmentIndex;
 import com.okemwag.subscribe.dto.CustomerDTO;
 import com.okemwag.subscribe.dto.CustomerRegistrationDTO;
 import com.okemwag.subscribe.dto.CustomerUpdateDTO;
 import com.okemwag.subscribe.entity.Business;
 import com.okemwag.subscribe.entity.Customer;
+import com.okemwag.subscribe.event.CustomerEvent;
 import com.okemwag.subscribe.exception.ResourceNotFoundException;
 import com.okemwag.subscribe.exception.SubscribeException;
 import com.okemwag.subscribe.repository.BusinessRepository;
 import com.okemwag.subscribe.repository.CustomerRepository;
+import com.okemwag.subscribe.security.OwnershipIndex;
 import com.okemwag.subscribe.service.interfaces.CustomerService;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 @Service
@@ -26,6 +33,9 @@ public class CustomerServiceImpl implements CustomerService {
 
   private final CustomerRepository customerRepository;
   private final BusinessRepository businessRepository;
+  private final OwnershipIndex ownershipIndex;
+  private final CustomerSegmentIndex customerSegmentIndex;
+  private final ApplicationEventPublisher eventPublisher;
 
   @Override
   public CustomerDTO registerCustomer(CustomerRegistrationDTO dto) {
@@ -60,6 +70,7 @@ public class CustomerServiceImpl implements CustomerService {
 
     try {
       Customer savedCustomer = customerRepository.save(customer);
+      publishCustomerEvent(CustomerEvent.Type.REGISTERED, savedCustomer);
       log.info(
           "Successfully registered customer with ID: {} for business ID: {}",
           savedCustomer.getId(),
@@ -109,6 +120,7 @@ public class CustomerServiceImpl implements CustomerService {
 
     try {
       Customer updatedCustomer = customerRepository.save(customer);
+      publishCustomerEvent(CustomerEvent.Type.UPDATED, updatedCustomer);
       log.info("Successfully updated customer with ID: {}", customerId);
       return convertToDTO(updatedCustomer);
     } catch (Exception e) {
@@ -150,6 +162,7 @@ public class CustomerServiceImpl implements CustomerService {
 
     try {
       customerRepository.save(customer);
+      publishCustomerEvent(CustomerEvent.Type.DELETED, customer);
       log.info("Successfully deleted customer with ID: {}", customerId);
     } catch (Exception e) {
       log.error("Error deleting customer with ID {}: {}", customerId, e.getMessage(), e);
@@ -212,19 +225,19 @@ public class CustomerServiceImpl implements CustomerService {
    * Validates customer access for multi-tenant operations Ensures that operations are performed
    * within the correct business context
    */
+  @Transactional(propagation = Propagation.SUPPORTS)
   public void validateCustomerBusinessAccess(Long customerId, Long businessId) {
-    Customer customer =
-        customerRepository
-            .findById(customerId)
-            .orElseThrow(
-                () -> new ResourceNotFoundException("Customer not found with ID: " + customerId));
+    Long ownerId = ownershipIndex.customerBusiness(customerId);
+    if (ownerId == null) {
+      throw new ResourceNotFoundException("Customer not found with ID: " + customerId);
+    }
 
-    if (!customer.getBusiness().getId().equals(businessId)) {
+    if (!ownerId.equals(businessId)) {
       log.warn(
           "Unauthorized access attempt: Business {} tried to access customer {} from business {}",
           businessId,
           customerId,
-          customer.getBusiness().getId());
+          ownerId);
       throw new SubscribeException("Access denied: Customer belongs to a different business");
     }
   }
@@ -260,11 +273,27 @@ public class CustomerServiceImpl implements CustomerService {
       throw new ResourceNotFoundException("Business not found with ID: " + businessId);
     }
 
-    return customerRepository.findCustomersWithoutSubscriptionsByBusiness(businessId).stream()
+    List<Long> customerIds =
+        customerSegmentIndex.customerIds(
+            businessId, List.of(CustomerSegment.active()), List.of(CustomerSegment.subscribed()));
+
+    return customerRepository.findAllById(customerIds).stream()
         .map(this::convertToDTO)
         .collect(Collectors.toList());
   }
 
+  /** Publishes a customer event, delivered to listeners once the transaction commits */
+  private void publishCustomerEvent(CustomerEvent.Type type, Customer customer) {
+    eventPublisher.publishEvent(
+        new CustomerEvent(
+            type,
+            customer.getBusiness().getId(),
+            customer.getId(),
+            Boolean.TRUE.equals(customer.getActive()),
+            customer.getPreferredLanguage(),
+            LocalDateTime.now()));
+  }
+
   /** Converts Customer entity to CustomerDTO */
   private CustomerDTO convertToDTO(Customer customer) {
     CustomerDTO dto = new CustomerDTO();
@@ -1,24 +1,38 @@
 package com.okemwag.subscribe.service.impl;
 
 import com.okemwag.subscribe.dto.CreateInvoiceDTO;
+import com.okemwag.subscribe.dto.CursorPageDTO;
 import com.okemwag.subscribe.dto.InvoiceDTO;
+import com.okemwag.subscribe.entity.Business;
 import com.okemwag.subscribe.entity.Invoice;
 import com.okemwag.subscribe.entity.Subscription;
+import com.okemwag.subscribe.entity.SubscriptionPlan;
+import com.okemwag.subscribe.entity.UsagePeriodTotal;
 import com.okemwag.subscribe.enums.InvoiceStatus;
 import com.okemwag.subscribe.enums.SubscriptionStatus;
+import com.okemwag.subscribe.event.InvoiceEvent;
 import com.okemwag.subscribe.exception.ResourceNotFoundException;
 import com.okemwag.subscribe.exception.SubscribeException;
+import com.okemwag.subscribe.pagination.KeysetCursor;
+import com.okemwag.subscribe.pagination.KeysetPages;
 import com.okemwag.subscribe.repository.InvoiceRepository;
 import com.okemwag.subscribe.repository.SubscriptionRepository;
+import com.okemwag.subscribe.repository.UsagePeriodTotalRepository;
+import com.okemwag.subscribe.retry.ConflictRetry;
+import com.okemwag.subscribe.retry.RetryOnConflict;
+import com.okemwag.subscribe.security.OwnershipIndex;
 import com.okemwag.subscribe.service.interfaces.InvoiceService;
+import com.okemwag.subscribe.usage.UsageMeter;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 @Service
@@ -29,6 +43,10 @@ public class InvoiceServiceImpl implements InvoiceService {
 
   private final InvoiceRepository invoiceRepository;
   private final SubscriptionRepository subscriptionRepository;
+  private final UsagePeriodTotalRepository usagePeriodTotalRepository;
+  private final OwnershipIndex ownershipIndex;
+  private final ApplicationEventPublisher eventPublisher;
+  private final ConflictRetry conflictRetry;
 
   @Override
   public InvoiceDTO createInvoice(CreateInvoiceDTO dto) {
@@ -54,6 +72,8 @@ public class InvoiceServiceImpl implements InvoiceService {
     // Create invoice
     Invoice invoice = new Invoice();
     invoice.setSubscription(subscription);
+    invoice.setBusinessId(subscription.getBusinessId());
+    invoice.setCurrency(subscription.getCustomer().getBusiness().getCurrency());
     invoice.setSubtotal(dto.getSubtotal());
     invoice.setTaxRate(dto.getTaxRate());
     invoice.setDueDate(
@@ -63,6 +83,7 @@ public class InvoiceServiceImpl implements InvoiceService {
     // Tax and total will be calculated in @PrePersist
     try {
       Invoice savedInvoice = invoiceRepository.save(invoice);
+      publishInvoiceEvent(InvoiceEvent.Type.CREATED, savedInvoice);
       log.info(
           "Successfully created invoice with ID: {} and number: {}",
           savedInvoice.getId(),
@@ -74,6 +95,48 @@ public class InvoiceServiceImpl implements InvoiceService {
     }
   }
 
+  /**
+   * Invoices one billing period of the subscription at its plan price, plus the metered usage not
+   * billed yet from the hours before {@code periodStart}. The usage totals are locked and marked
+   * with the invoice, so usage flushed meanwhile starts new totals for the next invoice.
+   */
+  @Override
+  public InvoiceDTO createPeriodInvoice(Long subscriptionId, LocalDateTime periodStart) {
+    Subscription subscription =
+        subscriptionRepository
+            .findById(subscriptionId)
+            .orElseThrow(
+                () ->
+                    new ResourceNotFoundException(
+                        "Subscription not found with ID: " + subscriptionId));
+
+    SubscriptionPlan plan = subscription.getSubscriptionPlan();
+    List<UsagePeriodTotal> usage =
+        plan.getUsageUnitPrice() == null
+            ? List.of()
+            : usagePeriodTotalRepository.findUnbilledForUpdate(
+                subscriptionId, UsageMeter.period(periodStart));
+    long quantity = usage.stream().mapToLong(UsagePeriodTotal::getQuantity).sum();
+
+    CreateInvoiceDTO invoiceDTO = new CreateInvoiceDTO();
+    invoiceDTO.setSubscriptionId(subscription.getId());
+    invoiceDTO.setSubtotal(plan.getPrice().add(plan.priceUsage(quantity)));
+    invoiceDTO.setTaxRate(getBusinessTaxRate(subscription.getCustomer().getBusiness().getId()));
+    invoiceDTO.setDueDate(periodStart.plusDays(30));
+    InvoiceDTO invoice = createInvoice(invoiceDTO);
+
+    if (!usage.isEmpty()) {
+      usage.forEach(total -> total.setInvoiceId(invoice.getId()));
+      usagePeriodTotalRepository.saveAll(usage);
+      log.debug(
+          "Billed {} metered units of subscription {} on invoice {}",
+          quantity,
+          subscriptionId,
+          invoice.getId());
+    }
+    return invoice;
+  }
+
   @Override
   @Transactional(readOnly = true)
   public InvoiceDTO getInvoiceById(Long invoiceId) {
@@ -108,6 +171,7 @@ public class InvoiceServiceImpl implements InvoiceService {
   }
 
   @Override
+  @RetryOnConflict
   public InvoiceDTO updateInvoiceStatus(Long invoiceId, InvoiceStatus status) {
     log.info("Updating invoice status for ID: {} to: {}", invoiceId, status);
 
@@ -127,6 +191,7 @@ public class InvoiceServiceImpl implements InvoiceService {
 
     try {
       Invoice updatedInvoice = invoiceRepository.save(invoice);
+      publishInvoiceEvent(InvoiceEvent.Type.STATUS_CHANGED, updatedInvoice);
       log.info("Successfully updated invoice status for ID: {}", invoiceId);
       return convertToDTO(updatedInvoice);
     } catch (Exception e) {
@@ -135,48 +200,34 @@ public class InvoiceServiceImpl implements InvoiceService {
     }
   }
 
+  /**
+   * Invoices every subscription due for billing, each in a transaction of its own. The subscription
+   * is read with a version check, so a cancellation committed meanwhile makes the attempt conflict
+   * and the retry sees the cancelled subscription instead of invoicing it.
+   */
   @Override
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
   public void generateAutomaticInvoices() {
     log.info("Generating automatic invoices for due subscriptions");
 
     try {
       // Find subscriptions due for billing
       LocalDateTime now = LocalDateTime.now();
-      List<Subscription> subscriptionsDue =
-          subscriptionRepository.findSubscriptionsDueForBilling(now);
+      List<Long> subscriptionsDue = subscriptionRepository.findSubscriptionIdsDueForBilling(now);
 
       int invoicesGenerated = 0;
-      for (Subscription subscription : subscriptionsDue) {
+      for (Long subscriptionId : subscriptionsDue) {
         try {
-          // Check if invoice already exists for this billing period
-          LocalDateTime billingStart = subscription.getNextBillingDate().minusMonths(1);
-          List<Invoice> existingInvoices =
-              invoiceRepository.findByBusinessIdAndBillingPeriod(
-                  subscription.getCustomer().getBusiness().getId(), billingStart, now);
-
-          boolean invoiceExists =
-              existingInvoices.stream()
-                  .anyMatch(inv -> inv.getSubscription().getId().equals(subscription.getId()));
-
-          if (!invoiceExists) {
-            // Create automatic invoice
-            CreateInvoiceDTO invoiceDTO = new CreateInvoiceDTO();
-            invoiceDTO.setSubscriptionId(subscription.getId());
-            invoiceDTO.setSubtotal(subscription.getSubscriptionPlan().getPrice());
-            invoiceDTO.setTaxRate(
-                getBusinessTaxRate(subscription.getCustomer().getBusiness().getId()));
-            invoiceDTO.setDueDate(subscription.getNextBillingDate().plusDays(30));
-
-            createInvoice(invoiceDTO);
+          if (conflictRetry.inTransaction(
+              "Invoicing subscription " + subscriptionId,
+              status -> generateAutomaticInvoice(subscriptionId, now))) {
             invoicesGenerated++;
-
-            log.info("Generated automatic invoice for subscription ID: {}", subscription.getId());
+            log.info("Generated automatic invoice for subscription ID: {}", subscriptionId);
           }
-
         } catch (Exception e) {
           log.error(
               "Error generating invoice for subscription ID {}: {}",
-              subscription.getId(),
+              subscriptionId,
               e.getMessage(),
               e);
           // Continue with other subscriptions
@@ -212,27 +263,25 @@ public class InvoiceServiceImpl implements InvoiceService {
     }
   }
 
+  /** Marks sent invoices past their due date as overdue, each in a transaction of its own */
   @Override
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
   public void processOverdueInvoices() {
     log.info("Processing overdue invoices");
 
     try {
-      List<Invoice> overdueInvoices = invoiceRepository.findAllOverdueInvoices(LocalDateTime.now());
+      List<Long> overdueInvoices =
+          invoiceRepository.findSentInvoiceIdsDueBefore(LocalDateTime.now());
 
       int processedCount = 0;
-      for (Invoice invoice : overdueInvoices) {
+      for (Long invoiceId : overdueInvoices) {
         try {
-          if (invoice.getStatus() == InvoiceStatus.SENT) {
-            invoice.setStatus(InvoiceStatus.OVERDUE);
-            invoiceRepository.save(invoice);
+          if (conflictRetry.inTransaction(
+              "Marking invoice " + invoiceId + " overdue", status -> markOverdue(invoiceId))) {
             processedCount++;
-
-            log.info("Marked invoice {} as overdue", invoice.getInvoiceNumber());
           }
-
         } catch (Exception e) {
-          log.error(
-              "Error processing overdue invoice ID {}: {}", invoice.getId(), e.getMessage(), e);
+          log.error("Error processing overdue invoice ID {}: {}", invoiceId, e.getMessage(), e);
           // Continue with other invoices
         }
       }
@@ -263,6 +312,31 @@ public class InvoiceServiceImpl implements InvoiceService {
     }
   }
 
+  /** Gets one keyset page of a business's invoices, newest first */
+  @Transactional(readOnly = true)
+  public CursorPageDTO<InvoiceDTO> getInvoicesByBusiness(
+      Long businessId, String cursor, int size, boolean includeTotal) {
+    log.debug("Retrieving a page of invoices for business ID: {}", businessId);
+    KeysetCursor after = KeysetCursor.decode(cursor);
+
+    try {
+      return KeysetPages.toPage(
+          invoiceRepository.findByBusinessIdAfter(
+              businessId, after.createdAt(), after.id(), KeysetPages.limit(size)),
+          this::convertToDTO,
+          Invoice::getCreatedAt,
+          Invoice::getId,
+          includeTotal ? () -> invoiceRepository.countInvoicesByBusiness(businessId) : null);
+    } catch (Exception e) {
+      log.error(
+          "Error retrieving a page of invoices for business ID {}: {}",
+          businessId,
+          e.getMessage(),
+          e);
+      throw new SubscribeException("Failed to retrieve business invoices", e);
+    }
+  }
+
   /** Gets invoices by subscription */
   @Transactional(readOnly = true)
   public List<InvoiceDTO> getInvoicesBySubscription(Long subscriptionId) {
@@ -288,24 +362,26 @@ public class InvoiceServiceImpl implements InvoiceService {
   }
 
   /** Validates invoice access for multi-tenant operations */
+  @Transactional(propagation = Propagation.SUPPORTS)
   public void validateInvoiceBusinessAccess(Long invoiceId, Long businessId) {
-    Invoice invoice =
-        invoiceRepository
-            .findById(invoiceId)
-            .orElseThrow(
-                () -> new ResourceNotFoundException("Invoice not found with ID: " + invoiceId));
+    Long ownerId = ownershipIndex.invoiceBusiness(invoiceId);
+    if (ownerId == null) {
+      throw new ResourceNotFoundException("Invoice not found with ID: " + invoiceId);
+    }
 
-    if (!invoice.getSubscription().getCustomer().getBusiness().getId().equals(businessId)) {
+    if (!ownerId.equals(businessId)) {
       log.warn(
           "Unauthorized access attempt: Business {} tried to access invoice {} from business {}",
           businessId,
           invoiceId,
-          invoice.getSubscription().getCustomer().getBusiness().getId());
+          ownerId);
       throw new SubscribeException("Access denied: Invoice belongs to a different business");
     }
   }
 
   /** Marks invoice as paid when payment is received */
+  @Override
+  @RetryOnConflict
   public void markInvoiceAsPaid(Long invoiceId) {
     log.info("Marking invoice as paid: {}", invoiceId);
 
@@ -322,10 +398,52 @@ public class InvoiceServiceImpl implements InvoiceService {
 
     invoice.markAsPaid();
     invoiceRepository.save(invoice);
+    publishInvoiceEvent(InvoiceEvent.Type.STATUS_CHANGED, invoice);
 
     log.info("Successfully marked invoice {} as paid", invoiceId);
   }
 
+  /** Invoices one due subscription unless its current billing period already has an invoice */
+  private boolean generateAutomaticInvoice(Long subscriptionId, LocalDateTime now) {
+    Subscription subscription =
+        subscriptionRepository.findByIdWithVersionCheck(subscriptionId).orElse(null);
+    if (subscription == null
+        || subscription.getStatus() != SubscriptionStatus.ACTIVE
+        || subscription.getNextBillingDate() == null
+        || subscription.getNextBillingDate().isAfter(now)) {
+      return false;
+    }
+
+    // Check if invoice already exists for this billing period
+    LocalDateTime billingStart = subscription.getNextBillingDate().minusMonths(1);
+    List<Invoice> existingInvoices =
+        invoiceRepository.findByBusinessIdAndBillingPeriod(
+            subscription.getCustomer().getBusiness().getId(), billingStart, now);
+
+    boolean invoiceExists =
+        existingInvoices.stream()
+            .anyMatch(inv -> inv.getSubscription().getId().equals(subscription.getId()));
+    if (invoiceExists) {
+      return false;
+    }
+
+    createPeriodInvoice(subscription.getId(), subscription.getNextBillingDate());
+    return true;
+  }
+
+  private boolean markOverdue(Long invoiceId) {
+    Invoice invoice = invoiceRepository.findById(invoiceId).orElse(null);
+    if (invoice == null || invoice.getStatus() != InvoiceStatus.SENT) {
+      return false;
+    }
+
+    invoice.setStatus(InvoiceStatus.OVERDUE);
+    invoiceRepository.save(invoice);
+    publishInvoiceEvent(InvoiceEvent.Type.STATUS_CHANGED, invoice);
+    log.info("Marked invoice {} as overdue", invoice.getInvoiceNumber());
+    return true;
+  }
+
   /** Gets business tax rate (mock implementation) */
   private BigDecimal getBusinessTaxRate(Long businessId) {
     // Mock implementation - in real scenario, this would be configurable per business
@@ -351,6 +469,23 @@ public class InvoiceServiceImpl implements InvoiceService {
     }
   }
 
+  /** Publishes an invoice event, delivered to listeners once the transaction commits */
+  private void publishInvoiceEvent(InvoiceEvent.Type type, Invoice invoice) {
+    Subscription subscription = invoice.getSubscription();
+    // Invoices are issued in the business currency
+    Business business = subscription.getCustomer().getBusiness();
+    eventPublisher.publishEvent(
+        new InvoiceEvent(
+            type,
+            business.getId(),
+            invoice.getId(),
+            subscription.getId(),
+            invoice.getStatus(),
+            invoice.getTotalAmount(),
+            business.getCurrency(),
+            LocalDateTime.now()));
+  }
+
   /** Converts Invoice entity to InvoiceDTO */
   private InvoiceDTO convertToDTO(Invoice invoice) {
     InvoiceDTO dto = new InvoiceDTO();
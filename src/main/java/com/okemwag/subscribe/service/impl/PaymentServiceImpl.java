@@ -1,16 +1,24 @@
 package com.okemwag.subscribe.service.impl;
 
+import com.okemwag.subscribe.dto.CursorPageDTO;
 import com.okemwag.subscribe.dto.PaymentDTO;
 import com.okemwag.subscribe.dto.PaymentRequestDTO;
 import com.okemwag.subscribe.dto.RefundDTO;
 import com.okemwag.subscribe.dto.RefundRequestDTO;
+import com.okemwag.subscribe.entity.Invoice;
 import com.okemwag.subscribe.entity.Payment;
 import com.okemwag.subscribe.entity.Subscription;
 import com.okemwag.subscribe.enums.PaymentStatus;
+import com.okemwag.subscribe.event.PaymentEvent;
 import com.okemwag.subscribe.exception.ResourceNotFoundException;
 import com.okemwag.subscribe.exception.SubscribeException;
+import com.okemwag.subscribe.pagination.KeysetCursor;
+import com.okemwag.subscribe.pagination.KeysetPages;
+import com.okemwag.subscribe.repository.InvoiceRepository;
 import com.okemwag.subscribe.repository.PaymentRepository;
 import com.okemwag.subscribe.repository.SubscriptionRepository;
+import com.okemwag.subscribe.security.OwnershipIndex;
+import com.okemwag.subscribe.service.interfaces.InvoiceService;
 import com.okemwag.subscribe.service.interfaces.PaymentService;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -18,8 +26,10 @@ import java.util.UUID;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 @Service
@@ -30,6 +40,10 @@ public class PaymentServiceImpl implements PaymentService {
 
   private final PaymentRepository paymentRepository;
   private final SubscriptionRepository subscriptionRepository;
+  private final InvoiceRepository invoiceRepository;
+  private final InvoiceService invoiceService;
+  private final OwnershipIndex ownershipIndex;
+  private final ApplicationEventPublisher eventPublisher;
 
   @Override
   public PaymentDTO processPayment(PaymentRequestDTO dto) {
@@ -53,9 +67,25 @@ public class PaymentServiceImpl implements PaymentService {
       throw new SubscribeException("Cannot process payment for inactive subscription");
     }
 
+    Invoice invoice = null;
+    if (dto.getInvoiceId() != null) {
+      invoice =
+          invoiceRepository
+              .findById(dto.getInvoiceId())
+              .orElseThrow(
+                  () ->
+                      new ResourceNotFoundException(
+                          "Invoice not found with ID: " + dto.getInvoiceId()));
+      if (!invoice.getSubscription().getId().equals(subscription.getId())) {
+        throw new SubscribeException("Invoice belongs to a different subscription");
+      }
+    }
+
     // Create payment record
     Payment payment = new Payment();
     payment.setSubscription(subscription);
+    payment.setBusinessId(subscription.getBusinessId());
+    payment.setInvoice(invoice);
     payment.setAmount(dto.getAmount());
     payment.setCurrency(dto.getCurrency());
     payment.setMethod(dto.getMethod());
@@ -86,6 +116,8 @@ public class PaymentServiceImpl implements PaymentService {
       }
 
       Payment finalPayment = paymentRepository.save(savedPayment);
+      settleInvoice(finalPayment);
+      publishPaymentEvent(PaymentEvent.Type.PROCESSED, finalPayment);
       return convertToDTO(finalPayment);
 
     } catch (Exception e) {
@@ -161,6 +193,7 @@ public class PaymentServiceImpl implements PaymentService {
         // Update original payment status
         originalPayment.setStatus(PaymentStatus.REFUNDED);
         paymentRepository.save(originalPayment);
+        publishPaymentEvent(PaymentEvent.Type.REFUNDED, originalPayment);
 
         log.info(
             "Refund processed successfully for payment ID: {} with refund transaction ID: {}",
@@ -239,6 +272,8 @@ public class PaymentServiceImpl implements PaymentService {
           }
 
           paymentRepository.save(payment);
+          settleInvoice(payment);
+          publishPaymentEvent(PaymentEvent.Type.RETRIED, payment);
 
         } catch (Exception e) {
           log.error("Error retrying payment ID {}: {}", payment.getId(), e.getMessage(), e);
@@ -272,26 +307,58 @@ public class PaymentServiceImpl implements PaymentService {
     }
   }
 
+  /** Gets one keyset page of a business's payments, newest first */
+  @Transactional(readOnly = true)
+  public CursorPageDTO<PaymentDTO> getPaymentsByBusiness(
+      Long businessId, String cursor, int size, boolean includeTotal) {
+    log.debug("Retrieving a page of payments for business ID: {}", businessId);
+    KeysetCursor after = KeysetCursor.decode(cursor);
+
+    try {
+      return KeysetPages.toPage(
+          paymentRepository.findByBusinessIdAfter(
+              businessId, after.createdAt(), after.id(), KeysetPages.limit(size)),
+          this::convertToDTO,
+          Payment::getCreatedAt,
+          Payment::getId,
+          includeTotal ? () -> paymentRepository.countPaymentsByBusiness(businessId) : null);
+    } catch (Exception e) {
+      log.error(
+          "Error retrieving a page of payments for business ID {}: {}",
+          businessId,
+          e.getMessage(),
+          e);
+      throw new SubscribeException("Failed to retrieve business payments", e);
+    }
+  }
+
   /** Validates payment access for multi-tenant operations */
+  @Transactional(propagation = Propagation.SUPPORTS)
   public void validatePaymentBusinessAccess(Long paymentId, Long businessId) {
-    Payment payment =
-        paymentRepository
-            .findById(paymentId)
-            .orElseThrow(
-                () -> new ResourceNotFoundException("Payment not found with ID: " + paymentId));
+    Long ownerId = ownershipIndex.paymentBusiness(paymentId);
+    if (ownerId == null) {
+      throw new ResourceNotFoundException("Payment not found with ID: " + paymentId);
+    }
 
-    if (!payment.getSubscription().getCustomer().getBusiness().getId().equals(businessId)) {
+    if (!ownerId.equals(businessId)) {
       log.warn(
           "Unauthorized access attempt: Business {} tried to access payment {} from business {}",
           businessId,
           paymentId,
-          payment.getSubscription().getCustomer().getBusiness().getId());
+          ownerId);
       throw new SubscribeException("Access denied: Payment belongs to a different business");
     }
   }
 
+  /** Marks the invoice a completed payment was made for as paid */
+  private void settleInvoice(Payment payment) {
+    if (payment.getStatus() == PaymentStatus.COMPLETED && payment.getInvoice() != null) {
+      invoiceService.markInvoiceAsPaid(payment.getInvoice().getId());
+    }
+  }
+
   /** Processes payment through appropriate gateway based on method */
-  private PaymentResult processPaymentThroughGateway(PaymentRequestDTO dto, Payment payment) {
+  PaymentResult processPaymentThroughGateway(PaymentRequestDTO dto, Payment payment) {
     switch (dto.getMethod()) {
       case STRIPE_CARD:
         return processStripePayment(dto, payment);
@@ -394,9 +461,28 @@ public class PaymentServiceImpl implements PaymentService {
     dto.setAmount(payment.getAmount());
     dto.setCurrency(payment.getCurrency());
     dto.setMethod(payment.getMethod());
+    dto.setInvoiceId(payment.getInvoice() != null ? payment.getInvoice().getId() : null);
     return dto;
   }
 
+  /** Publishes a payment event, delivered to listeners once the transaction commits */
+  private void publishPaymentEvent(PaymentEvent.Type type, Payment payment) {
+    Subscription subscription = payment.getSubscription();
+    eventPublisher.publishEvent(
+        new PaymentEvent(
+            type,
+            subscription.getCustomer().getBusiness().getId(),
+            payment.getId(),
+            subscription.getId(),
+            subscription.getCustomer().getId(),
+            payment.getStatus(),
+            payment.getMethod(),
+            payment.getAmount(),
+            payment.getCurrency(),
+            payment.getProcessedAt(),
+            LocalDateTime.now()));
+  }
+
   /** Converts Payment entity to PaymentDTO */
   private PaymentDTO convertToDTO(Payment payment) {
     PaymentDTO dto = new PaymentDTO();
@@ -415,7 +501,7 @@ public class PaymentServiceImpl implements PaymentService {
   }
 
   /** Inner class for payment processing results */
-  private static class PaymentResult {
+  static class PaymentResult {
     private PaymentStatus status;
     private String transactionId;
     private String failureReason;
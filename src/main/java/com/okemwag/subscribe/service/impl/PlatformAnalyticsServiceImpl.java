@@ -0,0 +1,240 @@
+package com.okemwag.subscribe.service.impl;
+
+import com.okemwag.subscribe.analytics.PlatformAccumulator;
+import com.okemwag.subscribe.analytics.PlatformAnalyticsTask;
+import com.okemwag.subscribe.analytics.TenantMetrics;
+import com.okemwag.subscribe.cache.CachedValue;
+import com.okemwag.subscribe.config.PlatformAnalyticsConfig;
+import com.okemwag.subscribe.dto.PlatformAnalyticsDTO;
+import com.okemwag.subscribe.enums.BillingCycle;
+import com.okemwag.subscribe.exception.SubscribeException;
+import com.okemwag.subscribe.lock.ClusterLock;
+import com.okemwag.subscribe.repository.*;
+import com.okemwag.subscribe.service.interfaces.PlatformAnalyticsService;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Cross-tenant revenue, MRR and churn for the platform operator. A scheduled job computes the
+ * snapshot by batches of tenants on a fork-join pool and publishes it to the shared cache, so reads
+ * are served from memory. The job runs under a cluster lock and adopts a snapshot another node
+ * published within the interval, so only one node per interval does the work.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PlatformAnalyticsServiceImpl implements PlatformAnalyticsService {
+
+  public static final String CACHE_NAME = "platformAnalytics";
+  private static final String SNAPSHOT_KEY = "latest";
+
+  private final BusinessRepository businessRepository;
+  private final CustomerRepository customerRepository;
+  private final SubscriptionRepository subscriptionRepository;
+  private final PaymentRepository paymentRepository;
+  private final CacheManager cacheManager;
+  private final ForkJoinPool platformAnalyticsPool;
+  private final PlatformAnalyticsConfig config;
+  private final ClusterLock clusterLock;
+
+  private final AtomicReference<CachedValue> latest = new AtomicReference<>();
+
+  @Override
+  public PlatformAnalyticsDTO getPlatformAnalytics() {
+    CachedValue snapshot = latest.get();
+    if (snapshot == null) {
+      snapshot = sharedSnapshot();
+    }
+    if (snapshot == null) {
+      return refreshPlatformAnalytics();
+    }
+
+    latest.compareAndSet(null, snapshot);
+    return (PlatformAnalyticsDTO) snapshot.value();
+  }
+
+  /** Adopt a recent snapshot published by another node, otherwise compute a new one */
+  @Scheduled(
+      fixedDelayString = "${analytics.platform.refresh-interval:PT15M}",
+      initialDelayString = "${analytics.platform.initial-delay:PT1M}")
+  public void scheduledRefresh() {
+    if (adoptRecentSnapshot()) {
+      return;
+    }
+
+    boolean ran =
+        clusterLock.runExclusively(
+            CACHE_NAME,
+            () -> {
+              // Another node may have published between the check and taking the lock
+              if (adoptRecentSnapshot()) {
+                return;
+              }
+              try {
+                refreshPlatformAnalytics();
+              } catch (SubscribeException e) {
+                // Keep serving the previous snapshot
+                log.warn("Platform analytics refresh failed: {}", e.getMessage());
+              }
+            });
+    if (!ran) {
+      log.debug("Platform analytics are being computed by another node");
+    }
+  }
+
+  private boolean adoptRecentSnapshot() {
+    CachedValue shared = sharedSnapshot();
+    if (shared != null
+        && shared.ageMillis(System.currentTimeMillis()) < config.getRefreshInterval().toMillis()) {
+      latest.set(shared);
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public synchronized PlatformAnalyticsDTO refreshPlatformAnalytics() {
+    log.info("Generating platform analytics");
+    long started = System.currentTimeMillis();
+
+    try {
+      LocalDateTime now = LocalDateTime.now();
+      LocalDateTime monthStart = now.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS);
+
+      List<Long> businessIds = new ArrayList<>();
+      Map<Long, String> currencies = new HashMap<>();
+      for (Object[] row : businessRepository.findActiveBusinessCurrencies()) {
+        businessIds.add((Long) row[0]);
+        currencies.put((Long) row[0], (String) row[1]);
+      }
+
+      PlatformAccumulator totals =
+          platformAnalyticsPool.invoke(
+              new PlatformAnalyticsTask(
+                  businessIds,
+                  config.getBatchSize(),
+                  batch -> loadTenantMetrics(batch, currencies, monthStart, now)));
+
+      PlatformAnalyticsDTO analytics = new PlatformAnalyticsDTO();
+      analytics.setActiveBusinesses((long) businessIds.size());
+      analytics.setBusinessesCreatedThisMonth(
+          businessRepository.countBusinessesCreatedSince(monthStart));
+      analytics.setBusinessesByCurrency(toCountMap(businessRepository.countBusinessesByCurrency()));
+      analytics.setBusinessesByTimezone(toCountMap(businessRepository.countBusinessesByTimezone()));
+      totals.writeTo(analytics);
+      analytics.setComputationMillis(System.currentTimeMillis() - started);
+      analytics.setGeneratedAt(LocalDateTime.now());
+
+      publish(new CachedValue(analytics, System.currentTimeMillis()));
+      log.info(
+          "Generated platform analytics for {} tenants in {} ms",
+          totals.tenants(),
+          analytics.getComputationMillis());
+      return analytics;
+
+    } catch (Exception e) {
+      log.error("Error generating platform analytics: {}", e.getMessage(), e);
+      throw new SubscribeException("Failed to generate platform analytics", e);
+    }
+  }
+
+  /** Load the metrics of one batch of tenants with one grouped query per figure */
+  private List<TenantMetrics> loadTenantMetrics(
+      List<Long> businessIds,
+      Map<Long, String> currencies,
+      LocalDateTime monthStart,
+      LocalDateTime now) {
+    Map<Long, BigDecimal> revenue = new HashMap<>();
+    for (Object[] row : paymentRepository.getTotalRevenueByBusinesses(businessIds)) {
+      revenue.put((Long) row[0], (BigDecimal) row[1]);
+    }
+
+    Map<Long, BigDecimal> mrr = new HashMap<>();
+    Map<Long, Long> activeSubscriptions = new HashMap<>();
+    for (Object[] row : subscriptionRepository.sumActivePlanPricesByBusinesses(businessIds)) {
+      Long businessId = (Long) row[0];
+      activeSubscriptions.merge(businessId, (Long) row[2], Long::sum);
+      mrr.merge(businessId, toMonthly((BillingCycle) row[1], (BigDecimal) row[3]), BigDecimal::add);
+    }
+
+    Map<Long, Long> churned =
+        toIdCountMap(
+            subscriptionRepository.countChurnedCustomersByBusinesses(businessIds, monthStart, now));
+    Map<Long, Long> customersAtMonthStart =
+        toIdCountMap(
+            customerRepository.countCustomersCreatedBeforeByBusinesses(businessIds, monthStart));
+
+    List<TenantMetrics> metrics = new ArrayList<>(businessIds.size());
+    for (Long businessId : businessIds) {
+      metrics.add(
+          new TenantMetrics(
+              businessId,
+              currencies.get(businessId),
+              revenue.getOrDefault(businessId, BigDecimal.ZERO),
+              mrr.getOrDefault(businessId, BigDecimal.ZERO),
+              activeSubscriptions.getOrDefault(businessId, 0L),
+              churned.getOrDefault(businessId, 0L),
+              customersAtMonthStart.getOrDefault(businessId, 0L)));
+    }
+    return metrics;
+  }
+
+  /** Normalize the summed plan prices of a billing cycle to one month */
+  private BigDecimal toMonthly(BillingCycle billingCycle, BigDecimal amount) {
+    if (amount == null) {
+      return BigDecimal.ZERO;
+    }
+    switch (billingCycle) {
+      case QUARTERLY:
+        return amount.divide(BigDecimal.valueOf(3), 2, RoundingMode.HALF_UP);
+      case YEARLY:
+        return amount.divide(BigDecimal.valueOf(12), 2, RoundingMode.HALF_UP);
+      default:
+        return amount;
+    }
+  }
+
+  private CachedValue sharedSnapshot() {
+    Cache cache = cacheManager.getCache(CACHE_NAME);
+    return cache == null ? null : cache.get(SNAPSHOT_KEY, CachedValue.class);
+  }
+
+  private void publish(CachedValue snapshot) {
+    latest.set(snapshot);
+    Cache cache = cacheManager.getCache(CACHE_NAME);
+    if (cache != null) {
+      cache.put(SNAPSHOT_KEY, snapshot);
+    }
+  }
+
+  private Map<String, Long> toCountMap(List<Object[]> rows) {
+    Map<String, Long> counts = new TreeMap<>();
+    for (Object[] row : rows) {
+      counts.put((String) row[0], (Long) row[1]);
+    }
+    return counts;
+  }
+
+  private Map<Long, Long> toIdCountMap(List<Object[]> rows) {
+    Map<Long, Long> counts = new HashMap<>();
+    for (Object[] row : rows) {
+      counts.put((Long) row[0], (Long) row[1]);
+    }
+    return counts;
+  }
+}
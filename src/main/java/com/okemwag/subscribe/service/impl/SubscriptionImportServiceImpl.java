@@ -0,0 +1,311 @@
+package com.okemwag.subscribe.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.okemwag.subscribe.analytics.TenantAnalyticsEviction;
+import com.okemwag.subscribe.config.SubscriptionImportConfig;
+import com.okemwag.subscribe.dto.SubscriptionImportDTO;
+import com.okemwag.subscribe.entity.SubscriptionImport;
+import com.okemwag.subscribe.entity.SubscriptionImportError;
+import com.okemwag.subscribe.entity.SubscriptionPlan;
+import com.okemwag.subscribe.enums.ImportFormat;
+import com.okemwag.subscribe.enums.ImportStatus;
+import com.okemwag.subscribe.event.SubscriptionEvent;
+import com.okemwag.subscribe.exception.ResourceNotFoundException;
+import com.okemwag.subscribe.exception.SubscribeException;
+import com.okemwag.subscribe.importer.ImportRow;
+import com.okemwag.subscribe.importer.ImportRowReader;
+import com.okemwag.subscribe.importer.SubscriptionImportValidator;
+import com.okemwag.subscribe.outbox.SubscriptionOutbox;
+import com.okemwag.subscribe.repository.BusinessRepository;
+import com.okemwag.subscribe.repository.CustomerRepository;
+import com.okemwag.subscribe.repository.NewSubscription;
+import com.okemwag.subscribe.repository.SubscriptionImportErrorRepository;
+import com.okemwag.subscribe.repository.SubscriptionImportRepository;
+import com.okemwag.subscribe.repository.SubscriptionPlanRepository;
+import com.okemwag.subscribe.repository.SubscriptionRepository;
+import com.okemwag.subscribe.service.interfaces.AnalyticsService;
+import com.okemwag.subscribe.service.interfaces.SubscriptionImportService;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Bulk subscription import for tenants migrating from another platform. The file is streamed in
+ * batches: each batch is validated in parallel against customer, plan and open subscription lookups
+ * loaded once per import, then written with one batched insert in its own transaction together with
+ * its outbox records, its rejected rows and the import's progress. A failed import resumes after
+ * the last committed batch. Bulk inserts publish no events, so the tenant's in-memory analytics are
+ * evicted on every node once the import stops.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SubscriptionImportServiceImpl implements SubscriptionImportService {
+
+  private static final int MAX_MESSAGE_LENGTH = 500;
+
+  private final SubscriptionImportRepository subscriptionImportRepository;
+  private final SubscriptionImportErrorRepository subscriptionImportErrorRepository;
+  private final SubscriptionRepository subscriptionRepository;
+  private final CustomerRepository customerRepository;
+  private final SubscriptionPlanRepository subscriptionPlanRepository;
+  private final BusinessRepository businessRepository;
+  private final AnalyticsService analyticsService;
+  private final TenantAnalyticsEviction tenantAnalyticsEviction;
+  private final SubscriptionOutbox subscriptionOutbox;
+  private final SubscriptionImportConfig config;
+  private final ForkJoinPool subscriptionImportPool;
+  private final ObjectMapper objectMapper;
+  private final PlatformTransactionManager transactionManager;
+
+  @Override
+  public SubscriptionImportDTO importSubscriptions(
+      Long businessId, ImportFormat format, InputStream file) {
+    if (!businessRepository.existsById(businessId)) {
+      throw new ResourceNotFoundException("Business not found with ID: " + businessId);
+    }
+
+    SubscriptionImport job = new SubscriptionImport();
+    job.setBusinessId(businessId);
+    job.setFormat(format);
+    job = subscriptionImportRepository.save(job);
+    log.info(
+        "Starting {} subscription import {} for business ID: {}", format, job.getId(), businessId);
+    return convertToDTO(run(job, file));
+  }
+
+  @Override
+  public SubscriptionImportDTO resumeImport(Long businessId, Long importId, InputStream file) {
+    SubscriptionImport job = findImport(businessId, importId);
+    if (job.getStatus() != ImportStatus.FAILED) {
+      throw new SubscribeException(
+          "Only a failed import can be resumed, import is " + job.getStatus());
+    }
+
+    // Two concurrent resumes both see FAILED; only one moves it to running
+    if (subscriptionImportRepository.claimFailed(importId, LocalDateTime.now()) == 0) {
+      throw new SubscribeException("Import " + importId + " is already being resumed");
+    }
+    job = findImport(businessId, importId);
+    log.info(
+        "Resuming subscription import {} after row {} for business ID: {}",
+        importId,
+        job.getRowsProcessed(),
+        businessId);
+    return convertToDTO(run(job, file));
+  }
+
+  @Override
+  public SubscriptionImportDTO getImport(Long businessId, Long importId) {
+    return convertToDTO(findImport(businessId, importId));
+  }
+
+  private SubscriptionImport run(SubscriptionImport job, InputStream file) {
+    Long businessId = job.getBusinessId();
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    try (ImportRowReader reader =
+        new ImportRowReader(
+            job.getFormat(),
+            new BufferedReader(new InputStreamReader(file, StandardCharsets.UTF_8)),
+            objectMapper)) {
+      // Loaded after the job's last commit, so rows imported before a failure count as open
+      SubscriptionImportValidator validator = loadValidator(businessId);
+
+      List<ImportRow> batch = new ArrayList<>(config.getBatchSize());
+      ImportRow row;
+      while ((row = reader.next()) != null) {
+        if (row.rowNumber() <= job.getRowsProcessed()) {
+          continue;
+        }
+        batch.add(row);
+        if (batch.size() == config.getBatchSize()) {
+          job = writeBatch(job, validator, batch, transactionTemplate);
+          batch.clear();
+        }
+      }
+      if (!batch.isEmpty()) {
+        job = writeBatch(job, validator, batch, transactionTemplate);
+      }
+
+      job.setStatus(ImportStatus.COMPLETED);
+      job = subscriptionImportRepository.save(job);
+      log.info(
+          "Subscription import {} completed: {} imported, {} rejected",
+          job.getId(),
+          job.getImportedCount(),
+          job.getFailedCount());
+    } catch (IOException | RuntimeException e) {
+      log.error("Subscription import {} failed: {}", job.getId(), e.getMessage(), e);
+      // The in-memory job may hold counts of a batch that rolled back
+      job = subscriptionImportRepository.findById(job.getId()).orElse(job);
+      job.setStatus(ImportStatus.FAILED);
+      job.setFailureReason(truncate(String.valueOf(e.getMessage()), 1000));
+      job = subscriptionImportRepository.save(job);
+    } finally {
+      // Bulk inserts publish no subscription events
+      analyticsService.refreshAnalyticsCache(businessId);
+      tenantAnalyticsEviction.evict(businessId);
+    }
+    return job;
+  }
+
+  private SubscriptionImport writeBatch(
+      SubscriptionImport job,
+      SubscriptionImportValidator validator,
+      List<ImportRow> batch,
+      TransactionTemplate transactionTemplate) {
+    List<SubscriptionImportValidator.Result> validated;
+    try {
+      validated =
+          subscriptionImportPool
+              .submit(() -> batch.parallelStream().map(validator::validate).toList())
+              .get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SubscribeException("Subscription import interrupted");
+    } catch (ExecutionException e) {
+      throw new SubscribeException("Validating import rows failed: " + e.getCause().getMessage());
+    }
+
+    // Duplicates are decided in file order, after the parallel part
+    List<NewSubscription> subscriptions = new ArrayList<>(batch.size());
+    List<SubscriptionImportError> errors = new ArrayList<>();
+    long rejected = 0;
+    for (SubscriptionImportValidator.Result result : validated) {
+      result = validator.claim(result);
+      if (result.error() == null) {
+        subscriptions.add(result.subscription());
+        continue;
+      }
+      rejected++;
+      if (job.getFailedCount() + rejected <= config.getMaxStoredErrors()) {
+        SubscriptionImportError error = new SubscriptionImportError();
+        error.setImportId(job.getId());
+        error.setRowNumber(result.row().rowNumber());
+        error.setMessage(truncate(result.error(), MAX_MESSAGE_LENGTH));
+        errors.add(error);
+      }
+    }
+
+    job.setRowsProcessed(batch.get(batch.size() - 1).rowNumber());
+    job.setImportedCount(job.getImportedCount() + subscriptions.size());
+    job.setFailedCount(job.getFailedCount() + rejected);
+    SubscriptionImport progress = job;
+    return transactionTemplate.execute(
+        status -> {
+          List<Long> ids = subscriptionRepository.insertAll(subscriptions);
+          subscriptionOutbox.appendAll(createdEvents(job.getBusinessId(), subscriptions, ids));
+          subscriptionImportErrorRepository.saveAll(errors);
+          return subscriptionImportRepository.save(progress);
+        });
+  }
+
+  /** The events the inserted subscriptions would have published, for the outbox */
+  private static List<SubscriptionEvent> createdEvents(
+      Long businessId, List<NewSubscription> subscriptions, List<Long> ids) {
+    LocalDateTime now = LocalDateTime.now();
+    List<SubscriptionEvent> events = new ArrayList<>(subscriptions.size());
+    for (int i = 0; i < subscriptions.size(); i++) {
+      NewSubscription subscription = subscriptions.get(i);
+      events.add(
+          new SubscriptionEvent(
+              SubscriptionEvent.Type.CREATED,
+              businessId,
+              ids.get(i),
+              subscription.customerId(),
+              subscription.planId(),
+              null,
+              subscription.status(),
+              now));
+    }
+    return events;
+  }
+
+  private SubscriptionImportValidator loadValidator(Long businessId) {
+    Map<String, SubscriptionImportValidator.CustomerRef> customers = new HashMap<>();
+    for (Object[] row : customerRepository.findCustomerKeysByBusiness(businessId)) {
+      customers.put(
+          ((String) row[1]).toLowerCase(Locale.ROOT),
+          new SubscriptionImportValidator.CustomerRef((Long) row[0], (Boolean) row[2]));
+    }
+
+    List<SubscriptionImportValidator.PlanRef> plans = new ArrayList<>();
+    for (SubscriptionPlan plan : subscriptionPlanRepository.findByBusinessId(businessId)) {
+      plans.add(
+          new SubscriptionImportValidator.PlanRef(
+              plan.getId(),
+              plan.getName(),
+              plan.getActive(),
+              plan.getTrialDays(),
+              plan.getBillingCycle()));
+    }
+
+    List<long[]> open = new ArrayList<>();
+    for (Object[] row : subscriptionRepository.findOpenSubscriptionKeysByBusiness(businessId)) {
+      open.add(new long[] {(Long) row[0], (Long) row[1]});
+    }
+
+    log.debug(
+        "Loaded {} customers, {} plans and {} open subscriptions for import into business ID: {}",
+        customers.size(),
+        plans.size(),
+        open.size(),
+        businessId);
+    return new SubscriptionImportValidator(customers, plans, open, LocalDateTime.now());
+  }
+
+  private SubscriptionImport findImport(Long businessId, Long importId) {
+    return subscriptionImportRepository
+        .findByIdAndBusinessId(importId, businessId)
+        .orElseThrow(
+            () ->
+                new ResourceNotFoundException(
+                    "Subscription import not found with ID: " + importId));
+  }
+
+  private SubscriptionImportDTO convertToDTO(SubscriptionImport job) {
+    SubscriptionImportDTO dto = new SubscriptionImportDTO();
+    dto.setId(job.getId());
+    dto.setBusinessId(job.getBusinessId());
+    dto.setFormat(job.getFormat());
+    dto.setStatus(job.getStatus());
+    dto.setRowsProcessed(job.getRowsProcessed());
+    dto.setImportedCount(job.getImportedCount());
+    dto.setFailedCount(job.getFailedCount());
+    dto.setFailureReason(job.getFailureReason());
+    dto.setCreatedAt(job.getCreatedAt());
+    dto.setUpdatedAt(job.getUpdatedAt());
+
+    List<SubscriptionImportDTO.RowError> errors = new ArrayList<>();
+    for (SubscriptionImportError error :
+        subscriptionImportErrorRepository.findByImportIdOrderByRowNumber(
+            job.getId(), PageRequest.of(0, config.getReportedErrors()))) {
+      SubscriptionImportDTO.RowError rowError = new SubscriptionImportDTO.RowError();
+      rowError.setRowNumber(error.getRowNumber());
+      rowError.setMessage(error.getMessage());
+      errors.add(rowError);
+    }
+    dto.setErrors(errors);
+    return dto;
+  }
+
+  private static String truncate(String message, int length) {
+    return message.length() <= length ? message : message.substring(0, length);
+  }
+}
@@ -1,26 +1,43 @@
 package com.okemwag.subscribe.service.impl;
 
+import com.okemwag.subscribe.command.SubscriptionCommand;
 import com.okemwag.subscribe.dto.CreateSubscriptionDTO;
+import com.okemwag.subscribe.dto.CursorPageDTO;
 import com.okemwag.subscribe.dto.SubscriptionDTO;
+import com.okemwag.subscribe.dto.TrialCompletionDTO;
 import com.okemwag.subscribe.dto.UpdateSubscriptionDTO;
 import com.okemwag.subscribe.entity.Customer;
 import com.okemwag.subscribe.entity.Subscription;
 import com.okemwag.subscribe.entity.SubscriptionPlan;
 import com.okemwag.subscribe.enums.BillingCycle;
 import com.okemwag.subscribe.enums.SubscriptionStatus;
+import com.okemwag.subscribe.event.SubscriptionEvent;
 import com.okemwag.subscribe.exception.ResourceNotFoundException;
 import com.okemwag.subscribe.exception.SubscribeException;
+import com.okemwag.subscribe.pagination.KeysetCursor;
+import com.okemwag.subscribe.pagination.KeysetPages;
 import com.okemwag.subscribe.repository.CustomerRepository;
+import com.okemwag.subscribe.repository.OpenSubscriptionIndex;
 import com.okemwag.subscribe.repository.SubscriptionPlanRepository;
 import com.okemwag.subscribe.repository.SubscriptionRepository;
+import com.okemwag.subscribe.repository.SubscriptionTransition;
+import com.okemwag.subscribe.retry.RetryOnConflict;
+import com.okemwag.subscribe.security.OwnershipIndex;
+import com.okemwag.subscribe.service.interfaces.InvoiceService;
 import com.okemwag.subscribe.service.interfaces.SubscriptionService;
 import java.time.LocalDateTime;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @RequiredArgsConstructor
@@ -28,9 +45,19 @@ import org.springframework.transaction.annotation.Transactional;
 @Transactional
 public class SubscriptionServiceImpl implements SubscriptionService {
 
+  // Statuses that lapse when their end date passes; trials are completed by the trial scheduler
+  private static final Set<SubscriptionStatus> EXPIRABLE_STATUSES =
+      EnumSet.of(SubscriptionStatus.ACTIVE);
+
+  private static final int EXPIRY_BATCH_SIZE = 5000;
+
   private final SubscriptionRepository subscriptionRepository;
   private final CustomerRepository customerRepository;
   private final SubscriptionPlanRepository subscriptionPlanRepository;
+  private final OwnershipIndex ownershipIndex;
+  private final InvoiceService invoiceService;
+  private final ApplicationEventPublisher eventPublisher;
+  private final PlatformTransactionManager transactionManager;
 
   @Override
   public SubscriptionDTO createSubscription(CreateSubscriptionDTO dto) {
@@ -65,22 +92,17 @@ public class SubscriptionServiceImpl implements SubscriptionService {
                             + " for business: "
                             + customer.getBusiness().getId()));
 
-    // Check if customer already has an active subscription to this plan
-    List<Subscription> existingActiveSubscriptions =
-        subscriptionRepository.findByCustomerIdAndStatus(
-            dto.getCustomerId(), SubscriptionStatus.ACTIVE);
-
-    boolean hasActivePlanSubscription =
-        existingActiveSubscriptions.stream()
-            .anyMatch(sub -> sub.getSubscriptionPlan().getId().equals(dto.getSubscriptionPlanId()));
-
-    if (hasActivePlanSubscription) {
-      throw new SubscribeException("Customer already has an active subscription to this plan");
+    // Probe instead of loading the customer's subscriptions; the open subscription index
+    // rejects a concurrent create that passes this check as well
+    if (subscriptionRepository.existsByCustomerIdAndSubscriptionPlanIdAndStatusIn(
+        dto.getCustomerId(), dto.getSubscriptionPlanId(), Subscription.OPEN_STATUSES)) {
+      throw new SubscribeException("Customer already has an open subscription to this plan");
     }
 
     // Create new subscription
     Subscription subscription = new Subscription();
     subscription.setCustomer(customer);
+    subscription.setBusinessId(customer.getBusiness().getId());
     subscription.setSubscriptionPlan(subscriptionPlan);
     subscription.setStartDate(
         dto.getStartDate() != null ? dto.getStartDate() : LocalDateTime.now());
@@ -100,18 +122,24 @@ public class SubscriptionServiceImpl implements SubscriptionService {
 
     try {
       Subscription savedSubscription = subscriptionRepository.save(subscription);
+      publishSubscriptionEvent(SubscriptionEvent.Type.CREATED, savedSubscription, null);
       log.info(
           "Successfully created subscription with ID: {} for customer ID: {}",
           savedSubscription.getId(),
           dto.getCustomerId());
       return convertToDTO(savedSubscription);
     } catch (Exception e) {
+      if (OpenSubscriptionIndex.isViolatedBy(e)) {
+        throw new SubscribeException("Customer already has an open subscription to this plan");
+      }
       log.error("Error creating subscription: {}", e.getMessage(), e);
       throw new SubscribeException("Failed to create subscription", e);
     }
   }
 
   @Override
+  @SubscriptionCommand
+  @RetryOnConflict
   public SubscriptionDTO updateSubscription(Long subscriptionId, UpdateSubscriptionDTO dto) {
     log.info("Updating subscription with ID: {}", subscriptionId);
 
@@ -123,6 +151,8 @@ public class SubscriptionServiceImpl implements SubscriptionService {
                     new ResourceNotFoundException(
                         "Subscription not found with ID: " + subscriptionId));
 
+    SubscriptionStatus previousStatus = subscription.getStatus();
+
     // Update fields if provided
     if (dto.getEndDate() != null) {
       subscription.setEndDate(dto.getEndDate());
@@ -138,6 +168,7 @@ public class SubscriptionServiceImpl implements SubscriptionService {
 
     try {
       Subscription updatedSubscription = subscriptionRepository.save(subscription);
+      publishSubscriptionEvent(SubscriptionEvent.Type.UPDATED, updatedSubscription, previousStatus);
       log.info("Successfully updated subscription with ID: {}", subscriptionId);
       return convertToDTO(updatedSubscription);
     } catch (Exception e) {
@@ -147,6 +178,8 @@ public class SubscriptionServiceImpl implements SubscriptionService {
   }
 
   @Override
+  @SubscriptionCommand
+  @RetryOnConflict
   public void cancelSubscription(Long subscriptionId, String cancellationReason) {
     log.info(
         "Cancelling subscription with ID: {} with reason: {}", subscriptionId, cancellationReason);
@@ -167,8 +200,10 @@ public class SubscriptionServiceImpl implements SubscriptionService {
     }
 
     try {
+      SubscriptionStatus previousStatus = subscription.getStatus();
       subscription.transitionStatus(SubscriptionStatus.CANCELLED);
       subscriptionRepository.save(subscription);
+      publishSubscriptionEvent(SubscriptionEvent.Type.CANCELLED, subscription, previousStatus);
       log.info("Successfully cancelled subscription with ID: {}", subscriptionId);
     } catch (Exception e) {
       log.error("Error cancelling subscription with ID {}: {}", subscriptionId, e.getMessage(), e);
@@ -198,6 +233,8 @@ public class SubscriptionServiceImpl implements SubscriptionService {
   }
 
   @Override
+  @SubscriptionCommand
+  @RetryOnConflict
   public SubscriptionDTO renewSubscription(Long subscriptionId) {
     log.info("Renewing subscription with ID: {}", subscriptionId);
 
@@ -217,6 +254,8 @@ public class SubscriptionServiceImpl implements SubscriptionService {
     }
 
     try {
+      SubscriptionStatus previousStatus = subscription.getStatus();
+
       // Update next billing date based on billing cycle
       LocalDateTime currentBillingDate =
           subscription.getNextBillingDate() != null
@@ -233,6 +272,7 @@ public class SubscriptionServiceImpl implements SubscriptionService {
       }
 
       Subscription renewedSubscription = subscriptionRepository.save(subscription);
+      publishSubscriptionEvent(SubscriptionEvent.Type.RENEWED, renewedSubscription, previousStatus);
       log.info("Successfully renewed subscription with ID: {}", subscriptionId);
       return convertToDTO(renewedSubscription);
     } catch (Exception e) {
@@ -256,6 +296,76 @@ public class SubscriptionServiceImpl implements SubscriptionService {
     }
   }
 
+  /** Gets one keyset page of the subscriptions with a status, newest first */
+  @Override
+  @Transactional(readOnly = true)
+  public CursorPageDTO<SubscriptionDTO> getSubscriptionsByStatus(
+      SubscriptionStatus status, String cursor, int size, boolean includeTotal) {
+    log.debug("Retrieving a page of subscriptions with status: {}", status);
+    KeysetCursor after = KeysetCursor.decode(cursor);
+
+    try {
+      return KeysetPages.toPage(
+          subscriptionRepository.findByStatusAfter(
+              status, after.createdAt(), after.id(), KeysetPages.limit(size)),
+          this::convertToDTO,
+          Subscription::getCreatedAt,
+          Subscription::getId,
+          includeTotal ? () -> subscriptionRepository.countByStatus(status) : null);
+    } catch (Exception e) {
+      log.error(
+          "Error retrieving a page of subscriptions with status {}: {}", status, e.getMessage(), e);
+      throw new SubscribeException("Failed to retrieve subscriptions by status", e);
+    }
+  }
+
+  /**
+   * Ends a trial that has run out: converts it to active and invoices its first billing period, or
+   * expires it when its customer or plan is no longer active. Returns null when the subscription is
+   * no longer a trial or its trial has not ended yet.
+   */
+  @Override
+  @SubscriptionCommand
+  @RetryOnConflict
+  public TrialCompletionDTO completeTrial(Long subscriptionId) {
+    Subscription subscription = subscriptionRepository.findById(subscriptionId).orElse(null);
+    LocalDateTime now = LocalDateTime.now();
+    if (subscription == null
+        || subscription.getStatus() != SubscriptionStatus.TRIAL
+        || subscription.getEndDate() == null
+        || subscription.getEndDate().isAfter(now)) {
+      return null;
+    }
+
+    Customer customer = subscription.getCustomer();
+    SubscriptionPlan plan = subscription.getSubscriptionPlan();
+    TrialCompletionDTO completion = new TrialCompletionDTO();
+    completion.setSubscriptionId(subscriptionId);
+
+    if (!customer.getActive() || !plan.getActive()) {
+      subscription.transitionStatus(SubscriptionStatus.EXPIRED);
+      subscriptionRepository.save(subscription);
+      publishSubscriptionEvent(
+          SubscriptionEvent.Type.EXPIRED, subscription, SubscriptionStatus.TRIAL);
+      log.info("Expired trial subscription with ID: {}", subscriptionId);
+    } else {
+      // The first billing period starts now and is invoiced right away
+      subscription.transitionStatus(SubscriptionStatus.ACTIVE);
+      subscription.setEndDate(null);
+      subscription.setNextBillingDate(calculateNextBillingDate(now, plan.getBillingCycle()));
+      subscriptionRepository.save(subscription);
+      publishSubscriptionEvent(
+          SubscriptionEvent.Type.UPDATED, subscription, SubscriptionStatus.TRIAL);
+
+      completion.setFirstInvoice(invoiceService.createPeriodInvoice(subscriptionId, now));
+      completion.setCurrency(customer.getBusiness().getCurrency());
+      log.info("Converted trial subscription with ID: {} to active", subscriptionId);
+    }
+
+    completion.setStatus(subscription.getStatus());
+    return completion;
+  }
+
   /** Gets subscriptions by business for multi-tenant operations */
   @Transactional(readOnly = true)
   public List<SubscriptionDTO> getSubscriptionsByBusiness(Long businessId) {
@@ -272,6 +382,33 @@ public class SubscriptionServiceImpl implements SubscriptionService {
     }
   }
 
+  /** Gets one keyset page of a business's subscriptions, newest first */
+  @Transactional(readOnly = true)
+  public CursorPageDTO<SubscriptionDTO> getSubscriptionsByBusiness(
+      Long businessId, String cursor, int size, boolean includeTotal) {
+    log.debug("Retrieving a page of subscriptions for business ID: {}", businessId);
+    KeysetCursor after = KeysetCursor.decode(cursor);
+
+    try {
+      return KeysetPages.toPage(
+          subscriptionRepository.findByBusinessIdAfter(
+              businessId, after.createdAt(), after.id(), KeysetPages.limit(size)),
+          this::convertToDTO,
+          Subscription::getCreatedAt,
+          Subscription::getId,
+          includeTotal
+              ? () -> subscriptionRepository.countAllSubscriptionsByBusiness(businessId)
+              : null);
+    } catch (Exception e) {
+      log.error(
+          "Error retrieving a page of subscriptions for business ID {}: {}",
+          businessId,
+          e.getMessage(),
+          e);
+      throw new SubscribeException("Failed to retrieve business subscriptions", e);
+    }
+  }
+
   /** Gets subscriptions due for billing */
   @Transactional(readOnly = true)
   public List<SubscriptionDTO> getSubscriptionsDueForBilling(LocalDateTime date) {
@@ -287,21 +424,69 @@ public class SubscriptionServiceImpl implements SubscriptionService {
     }
   }
 
-  /** Processes expired subscriptions */
-  public void processExpiredSubscriptions() {
-    log.info("Processing expired subscriptions");
+  /** Gets one keyset page of the subscriptions due for billing, newest first */
+  @Transactional(readOnly = true)
+  public CursorPageDTO<SubscriptionDTO> getSubscriptionsDueForBilling(
+      LocalDateTime date, String cursor, int size, boolean includeTotal) {
+    log.debug("Retrieving a page of subscriptions due for billing by date: {}", date);
+    KeysetCursor after = KeysetCursor.decode(cursor);
 
     try {
-      List<Subscription> expiredSubscriptions =
-          subscriptionRepository.findExpiredSubscriptions(LocalDateTime.now());
+      return KeysetPages.toPage(
+          subscriptionRepository.findDueForBillingAfter(
+              date, after.createdAt(), after.id(), KeysetPages.limit(size)),
+          this::convertToDTO,
+          Subscription::getCreatedAt,
+          Subscription::getId,
+          includeTotal ? () -> subscriptionRepository.countSubscriptionsDueForBilling(date) : null);
+    } catch (Exception e) {
+      log.error("Error retrieving a page of subscriptions due for billing: {}", e.getMessage(), e);
+      throw new SubscribeException("Failed to retrieve subscriptions due for billing", e);
+    }
+  }
 
-      for (Subscription subscription : expiredSubscriptions) {
-        subscription.transitionStatus(SubscriptionStatus.EXPIRED);
-        subscriptionRepository.save(subscription);
-        log.info("Marked subscription {} as expired", subscription.getId());
-      }
+  /**
+   * Expires every active subscription whose end date has passed, in batches of set-based updates
+   * that each commit on their own and publish their transitions once committed.
+   */
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public void processExpiredSubscriptions() {
+    log.info("Processing expired subscriptions");
 
-      log.info("Processed {} expired subscriptions", expiredSubscriptions.size());
+    try {
+      LocalDateTime cutoff = LocalDateTime.now();
+      TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+      int expired = 0;
+      int batch;
+      do {
+        batch =
+            transactionTemplate.execute(
+                status -> {
+                  List<SubscriptionTransition> transitions =
+                      subscriptionRepository.transitionEnded(
+                          EXPIRABLE_STATUSES,
+                          SubscriptionStatus.EXPIRED,
+                          cutoff,
+                          EXPIRY_BATCH_SIZE);
+                  LocalDateTime occurredAt = LocalDateTime.now();
+                  for (SubscriptionTransition transition : transitions) {
+                    eventPublisher.publishEvent(
+                        new SubscriptionEvent(
+                            SubscriptionEvent.Type.EXPIRED,
+                            transition.businessId(),
+                            transition.subscriptionId(),
+                            transition.customerId(),
+                            transition.planId(),
+                            transition.previousStatus(),
+                            SubscriptionStatus.EXPIRED,
+                            occurredAt));
+                  }
+                  return transitions.size();
+                });
+        expired += batch;
+      } while (batch == EXPIRY_BATCH_SIZE);
+
+      log.info("Processed {} expired subscriptions", expired);
     } catch (Exception e) {
       log.error("Error processing expired subscriptions: {}", e.getMessage(), e);
       throw new SubscribeException("Failed to process expired subscriptions", e);
@@ -309,25 +494,39 @@ public class SubscriptionServiceImpl implements SubscriptionService {
   }
 
   /** Validates subscription access for multi-tenant operations */
+  @Transactional(propagation = Propagation.SUPPORTS)
   public void validateSubscriptionBusinessAccess(Long subscriptionId, Long businessId) {
-    Subscription subscription =
-        subscriptionRepository
-            .findById(subscriptionId)
-            .orElseThrow(
-                () ->
-                    new ResourceNotFoundException(
-                        "Subscription not found with ID: " + subscriptionId));
+    Long ownerId = ownershipIndex.subscriptionBusiness(subscriptionId);
+    if (ownerId == null) {
+      throw new ResourceNotFoundException("Subscription not found with ID: " + subscriptionId);
+    }
 
-    if (!subscription.getCustomer().getBusiness().getId().equals(businessId)) {
+    if (!ownerId.equals(businessId)) {
       log.warn(
           "Unauthorized access attempt: Business {} tried to access subscription {} from business {}",
           businessId,
           subscriptionId,
-          subscription.getCustomer().getBusiness().getId());
+          ownerId);
       throw new SubscribeException("Access denied: Subscription belongs to a different business");
     }
   }
 
+  /** Publishes a subscription event, delivered to listeners once the transaction commits */
+  private void publishSubscriptionEvent(
+      SubscriptionEvent.Type type, Subscription subscription, SubscriptionStatus previousStatus) {
+    Customer customer = subscription.getCustomer();
+    eventPublisher.publishEvent(
+        new SubscriptionEvent(
+            type,
+            customer.getBusiness().getId(),
+            subscription.getId(),
+            customer.getId(),
+            subscription.getSubscriptionPlan().getId(),
+            previousStatus,
+            subscription.getStatus(),
+            LocalDateTime.now()));
+  }
+
   /** Calculates next billing date based on billing cycle */
   private LocalDateTime calculateNextBillingDate(
       LocalDateTime currentDate, BillingCycle billingCycle) {
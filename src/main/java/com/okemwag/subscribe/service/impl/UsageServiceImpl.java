@@ -0,0 +1,138 @@
+package com.okemwag.subscribe.service.impl;
+
+import com.okemwag.subscribe.config.UsageConfig;
+import com.okemwag.subscribe.dto.UsageEventDTO;
+import com.okemwag.subscribe.dto.UsageIngestResultDTO;
+import com.okemwag.subscribe.entity.Subscription;
+import com.okemwag.subscribe.exception.SubscribeException;
+import com.okemwag.subscribe.repository.MeteredSubscription;
+import com.okemwag.subscribe.repository.SubscriptionRepository;
+import com.okemwag.subscribe.service.interfaces.UsageService;
+import com.okemwag.subscribe.usage.UsageMeter;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * Ingestion of metered usage in batches. The subscriptions of a batch are read with one projection
+ * query, and each event is checked against its subscription and handed to the {@link UsageMeter},
+ * so a batch costs a single read and no database writes. Only open subscriptions on plans with a
+ * usage price meter usage. Invalid events are rejected one by one without failing the batch.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UsageServiceImpl implements UsageService {
+
+  private static final int MAX_ERRORS = 100;
+
+  private final SubscriptionRepository subscriptionRepository;
+  private final UsageMeter usageMeter;
+  private final UsageConfig config;
+
+  @Override
+  public UsageIngestResultDTO recordUsage(Long businessId, List<UsageEventDTO> events) {
+    if (events == null || events.isEmpty()) {
+      throw new SubscribeException("No usage events given");
+    }
+    if (events.size() > config.getMaxBatchSize()) {
+      throw new SubscribeException(
+          "At most " + config.getMaxBatchSize() + " usage events are accepted per batch");
+    }
+
+    LocalDateTime now = LocalDateTime.now();
+    LocalDateTime earliest = now.minus(config.getMaxLateness());
+    LocalDateTime latest = now.plus(config.getMaxClockSkew());
+
+    Set<Long> subscriptionIds =
+        events.stream()
+            .filter(Objects::nonNull)
+            .map(UsageEventDTO::getSubscriptionId)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toSet());
+    Map<Long, MeteredSubscription> subscriptions =
+        subscriptionIds.isEmpty()
+            ? Map.of()
+            : subscriptionRepository
+                .findMeteredByBusinessIdAndIdIn(businessId, subscriptionIds)
+                .stream()
+                .collect(
+                    Collectors.toMap(MeteredSubscription::subscriptionId, Function.identity()));
+
+    long accepted = 0;
+    long rejected = 0;
+    List<UsageIngestResultDTO.EventError> errors = new ArrayList<>();
+    for (int index = 0; index < events.size(); index++) {
+      UsageEventDTO event = events.get(index);
+      LocalDateTime occurredAt =
+          event == null || event.getOccurredAt() == null ? now : event.getOccurredAt();
+      String error = validate(subscriptions, event, occurredAt, earliest, latest);
+      if (error == null) {
+        usageMeter.record(event.getSubscriptionId(), occurredAt, event.getQuantity());
+        accepted++;
+      } else {
+        rejected++;
+        if (errors.size() < MAX_ERRORS) {
+          UsageIngestResultDTO.EventError eventError = new UsageIngestResultDTO.EventError();
+          eventError.setIndex(index);
+          eventError.setMessage(error);
+          errors.add(eventError);
+        }
+      }
+    }
+
+    if (rejected > 0) {
+      log.debug(
+          "Rejected {} of {} usage events for business ID: {}",
+          rejected,
+          events.size(),
+          businessId);
+    }
+
+    UsageIngestResultDTO result = new UsageIngestResultDTO();
+    result.setAcceptedCount(accepted);
+    result.setRejectedCount(rejected);
+    result.setErrors(errors);
+    return result;
+  }
+
+  /** Why the event is rejected, or null when it is accepted */
+  private String validate(
+      Map<Long, MeteredSubscription> subscriptions,
+      UsageEventDTO event,
+      LocalDateTime occurredAt,
+      LocalDateTime earliest,
+      LocalDateTime latest) {
+    if (event == null || event.getSubscriptionId() == null) {
+      return "Subscription ID is required";
+    }
+    if (event.getQuantity() == null || event.getQuantity() <= 0) {
+      return "Quantity must be positive";
+    }
+    if (occurredAt.isBefore(earliest)) {
+      return "Usage is older than " + config.getMaxLateness();
+    }
+    if (occurredAt.isAfter(latest)) {
+      return "Usage is in the future";
+    }
+    MeteredSubscription subscription = subscriptions.get(event.getSubscriptionId());
+    if (subscription == null) {
+      return "Subscription not found with ID: " + event.getSubscriptionId();
+    }
+    if (!Subscription.OPEN_STATUSES.contains(subscription.status())) {
+      return "Subscription is " + subscription.status();
+    }
+    if (subscription.usageUnitPrice() == null) {
+      return "Subscription plan does not meter usage";
+    }
+    return null;
+  }
+}
@@ -1,13 +1,30 @@
 package com.okemwag.subscribe.service.interfaces;
 
+import com.okemwag.subscribe.cache.CacheStatistics;
+import com.okemwag.subscribe.dto.AmountQuantilesDTO;
 import com.okemwag.subscribe.dto.AnalyticsDTO;
 import com.okemwag.subscribe.dto.CustomerGrowthDTO;
+import com.okemwag.subscribe.dto.LifecycleWindowsDTO;
+import com.okemwag.subscribe.dto.PopularPlan;
+import com.okemwag.subscribe.dto.RevenueForecastDTO;
 import com.okemwag.subscribe.dto.RevenueReportDTO;
+import com.okemwag.subscribe.dto.TimeSeriesDTO;
+import com.okemwag.subscribe.dto.TopPayingCustomer;
+import com.okemwag.subscribe.enums.AnalyticsSection;
+import com.okemwag.subscribe.enums.PaymentMethod;
+import com.okemwag.subscribe.enums.TimeSeriesMetric;
+import com.okemwag.subscribe.enums.TimeSeriesResolution;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public interface AnalyticsService {
   AnalyticsDTO getBusinessAnalytics(Long businessId);
 
+  AnalyticsDTO computeBusinessAnalytics(Long businessId, LocalDateTime asOf);
+
   RevenueReportDTO getRevenueReport(
       Long businessId, LocalDateTime startDate, LocalDateTime endDate);
 
@@ -15,5 +32,32 @@ public interface AnalyticsService {
 
   Double calculateChurnRate(Long businessId, LocalDateTime startDate, LocalDateTime endDate);
 
+  LifecycleWindowsDTO getLifecycleWindows(Long businessId);
+
+  List<TopPayingCustomer> getTopPayingCustomers(Long businessId, int limit);
+
+  List<PopularPlan> getPopularPlans(Long businessId, int limit);
+
+  RevenueForecastDTO getRevenueForecast(Long businessId, int days);
+
+  TimeSeriesDTO getTimeSeries(
+      Long businessId,
+      TimeSeriesMetric metric,
+      TimeSeriesResolution resolution,
+      String currency,
+      LocalDateTime from,
+      LocalDateTime to);
+
+  AmountQuantilesDTO getPaymentAmountQuantiles(
+      Long businessId, PaymentMethod method, String currency, YearMonth from, YearMonth to);
+
+  AmountQuantilesDTO getInvoiceTotalQuantiles(Long businessId, YearMonth from, YearMonth to);
+
+  void rebuildAmountSketches(Long businessId);
+
   void refreshAnalyticsCache(Long businessId);
+
+  void refreshAnalyticsSections(Long businessId, Set<AnalyticsSection> sections);
+
+  Map<String, CacheStatistics> getCacheStatistics();
 }
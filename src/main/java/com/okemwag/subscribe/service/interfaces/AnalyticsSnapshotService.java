@@ -0,0 +1,13 @@
+package com.okemwag.subscribe.service.interfaces;
+
+import com.okemwag.subscribe.dto.AnalyticsSnapshotDTO;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface AnalyticsSnapshotService {
+  AnalyticsSnapshotDTO getSnapshotAsOf(Long businessId, LocalDate date);
+
+  List<AnalyticsSnapshotDTO> getSnapshotHistory(Long businessId, LocalDate from, LocalDate to);
+
+  int captureSnapshots(LocalDate snapshotDate);
+}
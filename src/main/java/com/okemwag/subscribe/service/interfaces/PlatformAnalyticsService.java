@@ -0,0 +1,9 @@
+package com.okemwag.subscribe.service.interfaces;
+
+import com.okemwag.subscribe.dto.PlatformAnalyticsDTO;
+
+public interface PlatformAnalyticsService {
+  PlatformAnalyticsDTO getPlatformAnalytics();
+
+  PlatformAnalyticsDTO refreshPlatformAnalytics();
+}
@@ -0,0 +1,13 @@
+package com.okemwag.subscribe.service.interfaces;
+
+import com.okemwag.subscribe.dto.SubscriptionImportDTO;
+import com.okemwag.subscribe.enums.ImportFormat;
+import java.io.InputStream;
+
+public interface SubscriptionImportService {
+  SubscriptionImportDTO importSubscriptions(Long businessId, ImportFormat format, InputStream file);
+
+  SubscriptionImportDTO resumeImport(Long businessId, Long importId, InputStream file);
+
+  SubscriptionImportDTO getImport(Long businessId, Long importId);
+}
@@ -1,7 +1,9 @@
 package com.okemwag.subscribe.service.interfaces;
 
 import com.okemwag.subscribe.dto.CreateSubscriptionDTO;
+import com.okemwag.subscribe.dto.CursorPageDTO;
 import com.okemwag.subscribe.dto.SubscriptionDTO;
+import com.okemwag.subscribe.dto.TrialCompletionDTO;
 import com.okemwag.subscribe.dto.UpdateSubscriptionDTO;
 import com.okemwag.subscribe.enums.SubscriptionStatus;
 import java.util.List;
@@ -18,4 +20,9 @@ public interface SubscriptionService {
   SubscriptionDTO renewSubscription(Long subscriptionId);
 
   List<SubscriptionDTO> getSubscriptionsByStatus(SubscriptionStatus status);
+
+  CursorPageDTO<SubscriptionDTO> getSubscriptionsByStatus(
+      SubscriptionStatus status, String cursor, int size, boolean includeTotal);
+
+  TrialCompletionDTO completeTrial(Long subscriptionId);
 }
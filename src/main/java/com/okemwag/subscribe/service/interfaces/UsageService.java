@@ -0,0 +1,9 @@
+package com.okemwag.subscribe.service.interfaces;
+
+import com.okemwag.subscribe.dto.UsageEventDTO;
+import com.okemwag.subscribe.dto.UsageIngestResultDTO;
+import java.util.List;
+
+public interface UsageService {
+  UsageIngestResultDTO recordUsage(Long businessId, List<UsageEventDTO> events);
+}
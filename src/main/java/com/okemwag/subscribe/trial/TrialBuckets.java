@@ -0,0 +1,91 @@
+package com.okemwag.subscribe.trial;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Trials waiting to end, grouped into one slot per minute. A trial sits in the first minute
+ * boundary at or after its end, so a slot is due once its minute has come. Scheduling a trial again
+ * moves it to the slot of its new end. Thread-safe.
+ */
+class TrialBuckets {
+
+  /** Trials taken from the slot starting at {@code start} */
+  record Slot(LocalDateTime start, List<Long> trials) {}
+
+  private final NavigableMap<LocalDateTime, Set<Long>> slots = new TreeMap<>();
+  private final Map<Long, LocalDateTime> slotOf = new HashMap<>();
+
+  /** The slot a trial ending at {@code endsAt} is converted in */
+  static LocalDateTime slot(LocalDateTime endsAt) {
+    LocalDateTime minute = endsAt.truncatedTo(ChronoUnit.MINUTES);
+    return minute.equals(endsAt) ? minute : minute.plusMinutes(1);
+  }
+
+  synchronized void schedule(long subscriptionId, LocalDateTime endsAt) {
+    LocalDateTime slot = slot(endsAt);
+    LocalDateTime previous = slotOf.put(subscriptionId, slot);
+    if (slot.equals(previous)) {
+      return;
+    }
+    if (previous != null) {
+      removeFromSlot(previous, subscriptionId);
+    }
+    slots.computeIfAbsent(slot, k -> new LinkedHashSet<>()).add(subscriptionId);
+  }
+
+  synchronized void remove(long subscriptionId) {
+    LocalDateTime slot = slotOf.remove(subscriptionId);
+    if (slot != null) {
+      removeFromSlot(slot, subscriptionId);
+    }
+  }
+
+  /**
+   * Take up to {@code limit} trials of the slots due by {@code now}, earliest slot first, grouped
+   * by slot. What is left stays in its slot and is taken ahead of later slots on the next call.
+   */
+  synchronized List<Slot> takeDue(LocalDateTime now, int limit) {
+    List<Slot> due = new ArrayList<>();
+    int taken = 0;
+    Iterator<Map.Entry<LocalDateTime, Set<Long>>> dueSlots =
+        slots.headMap(now, true).entrySet().iterator();
+    while (dueSlots.hasNext() && taken < limit) {
+      Map.Entry<LocalDateTime, Set<Long>> slot = dueSlots.next();
+      List<Long> trials = new ArrayList<>();
+      Iterator<Long> ids = slot.getValue().iterator();
+      while (ids.hasNext() && taken < limit) {
+        Long subscriptionId = ids.next();
+        ids.remove();
+        slotOf.remove(subscriptionId);
+        trials.add(subscriptionId);
+        taken++;
+      }
+      due.add(new Slot(slot.getKey(), trials));
+      if (slot.getValue().isEmpty()) {
+        dueSlots.remove();
+      }
+    }
+    return due;
+  }
+
+  synchronized int size() {
+    return slotOf.size();
+  }
+
+  private void removeFromSlot(LocalDateTime slot, long subscriptionId) {
+    Set<Long> ids = slots.get(slot);
+    if (ids != null && ids.remove(subscriptionId) && ids.isEmpty()) {
+      slots.remove(slot);
+    }
+  }
+}
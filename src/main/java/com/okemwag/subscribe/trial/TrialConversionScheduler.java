@@ -0,0 +1,224 @@
+package com.okemwag.subscribe.trial;
+
+import com.okemwag.subscribe.config.TrialConversionConfig;
+import com.okemwag.subscribe.dto.InvoiceDTO;
+import com.okemwag.subscribe.dto.PaymentDTO;
+import com.okemwag.subscribe.dto.PaymentRequestDTO;
+import com.okemwag.subscribe.dto.TrialCompletionDTO;
+import com.okemwag.subscribe.enums.PaymentMethod;
+import com.okemwag.subscribe.enums.SubscriptionStatus;
+import com.okemwag.subscribe.event.SubscriptionEvent;
+import com.okemwag.subscribe.lock.ClusterLock;
+import com.okemwag.subscribe.repository.PaymentRepository;
+import com.okemwag.subscribe.repository.SubscriptionRepository;
+import com.okemwag.subscribe.service.interfaces.InvoiceService;
+import com.okemwag.subscribe.service.interfaces.PaymentService;
+import com.okemwag.subscribe.service.interfaces.SubscriptionService;
+import jakarta.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Ends trials when they run out instead of waiting for someone to renew them. Trials ending within
+ * the horizon are loaded a page at a time into minute slots, and every minute the due slots are
+ * handed to a worker pool: each trial is converted to active with its first invoice, or expired
+ * when its customer or plan was deactivated, as one subscription command, and a converted trial's
+ * invoice is then charged. At most a tick's worth of trials is converted per tick, so a spike of
+ * trials ending together is spread over the following minutes rather than hitting the gateway at
+ * once.
+ *
+ * <p>Every node slots the trials, but one node at a time converts a slot: it claims the slot with a
+ * {@link ClusterLock} held until the slot's trials are done, and first reads which of them are
+ * still in trial, so a slot another node has converted costs a single query. A node finding the
+ * slot claimed keeps its trials for the next tick.
+ */
+@Component
+@Slf4j
+public class TrialConversionScheduler {
+
+  // Before every trial's end date, where loading the slots starts
+  private static final LocalDateTime LOAD_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+  private final SubscriptionService subscriptionService;
+  private final InvoiceService invoiceService;
+  private final PaymentService paymentService;
+  private final SubscriptionRepository subscriptionRepository;
+  private final PaymentRepository paymentRepository;
+  private final ClusterLock clusterLock;
+  private final TrialConversionConfig config;
+
+  private final TrialBuckets buckets = new TrialBuckets();
+  private final ExecutorService workers;
+
+  public TrialConversionScheduler(
+      SubscriptionService subscriptionService,
+      InvoiceService invoiceService,
+      PaymentService paymentService,
+      SubscriptionRepository subscriptionRepository,
+      PaymentRepository paymentRepository,
+      ClusterLock clusterLock,
+      TrialConversionConfig config) {
+    this.subscriptionService = subscriptionService;
+    this.invoiceService = invoiceService;
+    this.paymentService = paymentService;
+    this.subscriptionRepository = subscriptionRepository;
+    this.paymentRepository = paymentRepository;
+    this.clusterLock = clusterLock;
+    this.config = config;
+
+    AtomicInteger threads = new AtomicInteger();
+    this.workers =
+        Executors.newFixedThreadPool(
+            config.getParallelism(),
+            runnable -> {
+              Thread thread = new Thread(runnable, "trial-conversion-" + threads.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /** Slot every trial ending within the horizon, overdue ones included, a page at a time */
+  @Scheduled(fixedDelayString = "${subscriptions.trials.load-interval:PT10M}")
+  public void load() {
+    LocalDateTime until = LocalDateTime.now().plus(config.getHorizon());
+    Pageable page = PageRequest.of(0, Math.max(1, config.getLoadBatchSize()));
+    LocalDateTime endDate = LOAD_START;
+    Long id = 0L;
+    int loaded = 0;
+    List<Object[]> trials;
+    do {
+      trials = subscriptionRepository.findTrialEndsUntilAfter(until, endDate, id, page);
+      for (Object[] row : trials) {
+        id = (Long) row[0];
+        endDate = (LocalDateTime) row[1];
+        buckets.schedule(id, endDate);
+      }
+      loaded += trials.size();
+    } while (trials.size() == page.getPageSize());
+    log.debug("Loaded {} trials ending by {}, {} slotted", loaded, until, buckets.size());
+  }
+
+  /** Convert the trials of the due slots, each slot claimed so that one node converts it */
+  @Scheduled(fixedDelayString = "${subscriptions.trials.tick-interval:PT1M}")
+  public void tick() {
+    for (TrialBuckets.Slot slot : buckets.takeDue(LocalDateTime.now(), config.getMaxPerTick())) {
+      boolean claimed =
+          clusterLock.runExclusively("trialConversion:" + slot.start(), () -> convert(slot));
+      if (!claimed) {
+        // Another node is converting the slot; whatever it leaves is checked on the next tick
+        slot.trials().forEach(subscriptionId -> buckets.schedule(subscriptionId, slot.start()));
+      }
+    }
+  }
+
+  /** Trials cancelled or converted elsewhere no longer need their slot */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onSubscriptionEvent(SubscriptionEvent event) {
+    if (event.status() != SubscriptionStatus.TRIAL) {
+      buckets.remove(event.subscriptionId());
+    }
+  }
+
+  /** Convert the trials of a claimed slot that are still due, waiting until all are done */
+  private void convert(TrialBuckets.Slot slot) {
+    List<Long> due = subscriptionRepository.findTrialIdsEndedBy(slot.trials(), LocalDateTime.now());
+    if (due.isEmpty()) {
+      return;
+    }
+
+    log.info(
+        "Completing {} ending trials of slot {}, {} still slotted",
+        due.size(),
+        slot.start(),
+        buckets.size());
+    List<Callable<Void>> conversions =
+        due.stream()
+            .map(
+                subscriptionId ->
+                    (Callable<Void>)
+                        () -> {
+                          complete(subscriptionId);
+                          return null;
+                        })
+            .toList();
+    try {
+      workers.invokeAll(conversions);
+    } catch (InterruptedException e) {
+      // Shutting down; trials left in trial are slotted again by the next load
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void complete(Long subscriptionId) {
+    TrialCompletionDTO completion;
+    try {
+      completion = subscriptionService.completeTrial(subscriptionId);
+    } catch (Exception e) {
+      // Still in trial, so the next load slots it again
+      log.error("Error completing trial subscription {}: {}", subscriptionId, e.getMessage(), e);
+      return;
+    }
+    if (completion != null && completion.getFirstInvoice() != null) {
+      chargeFirstInvoice(completion);
+    }
+  }
+
+  /**
+   * Charge a converted trial's first invoice. The payment is linked to the invoice, which is marked
+   * paid once the payment completes, right away or by a later failed payment retry. A failed charge
+   * does not undo the conversion.
+   */
+  private void chargeFirstInvoice(TrialCompletionDTO completion) {
+    InvoiceDTO invoice = completion.getFirstInvoice();
+    try {
+      if (invoice.getTotalAmount().compareTo(BigDecimal.ZERO) <= 0) {
+        invoiceService.markInvoiceAsPaid(invoice.getId());
+        return;
+      }
+
+      PaymentRequestDTO request = new PaymentRequestDTO();
+      request.setSubscriptionId(completion.getSubscriptionId());
+      request.setAmount(invoice.getTotalAmount());
+      request.setCurrency(completion.getCurrency());
+      request.setMethod(paymentMethod(completion.getSubscriptionId()));
+      request.setInvoiceId(invoice.getId());
+
+      PaymentDTO payment = paymentService.processPayment(request);
+      log.info(
+          "First payment of converted trial {} is {}",
+          completion.getSubscriptionId(),
+          payment.getStatus());
+    } catch (Exception e) {
+      log.error(
+          "Error charging first invoice {} of subscription {}: {}",
+          invoice.getId(),
+          completion.getSubscriptionId(),
+          e.getMessage(),
+          e);
+    }
+  }
+
+  /** The method the customer paid with last, or the default for a first payment */
+  private PaymentMethod paymentMethod(Long subscriptionId) {
+    List<PaymentMethod> recent =
+        paymentRepository.findRecentMethodsOfCustomerBySubscription(
+            subscriptionId, PageRequest.of(0, 1));
+    return recent.isEmpty() ? config.getDefaultPaymentMethod() : recent.get(0);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    workers.shutdownNow();
+  }
+}
@@ -0,0 +1,90 @@
+package com.okemwag.subscribe.usage;
+
+import com.okemwag.subscribe.repository.UsageDelta;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Usage recorded since the last flush, summed per subscription and hour. Subscriptions are spread
+ * over independently locked stripes, so ingesting threads only contend when they record for
+ * subscriptions of the same stripe, and each event costs one map update. Thread-safe.
+ */
+class UsageAccumulator {
+
+  private final Stripe[] stripes;
+
+  /** Running sums of one subscription and hour */
+  private static final class Sum {
+    long quantity;
+    long events;
+  }
+
+  private record Key(long subscriptionId, LocalDateTime periodStart) {}
+
+  private static final class Stripe {
+    Map<Key, Sum> sums = new HashMap<>();
+  }
+
+  UsageAccumulator(int stripes) {
+    this.stripes = new Stripe[Math.max(1, stripes)];
+    for (int i = 0; i < this.stripes.length; i++) {
+      this.stripes[i] = new Stripe();
+    }
+  }
+
+  void add(long subscriptionId, LocalDateTime periodStart, long quantity, long events) {
+    Stripe stripe = stripe(subscriptionId);
+    synchronized (stripe) {
+      Sum sum = stripe.sums.computeIfAbsent(new Key(subscriptionId, periodStart), k -> new Sum());
+      sum.quantity = Math.addExact(sum.quantity, quantity);
+      sum.events += events;
+    }
+  }
+
+  /** Take everything recorded so far, leaving the accumulator empty */
+  List<UsageDelta> drain() {
+    List<UsageDelta> deltas = new ArrayList<>();
+    for (Stripe stripe : stripes) {
+      Map<Key, Sum> sums;
+      synchronized (stripe) {
+        if (stripe.sums.isEmpty()) {
+          continue;
+        }
+        sums = stripe.sums;
+        stripe.sums = new HashMap<>();
+      }
+      sums.forEach(
+          (key, sum) ->
+              deltas.add(
+                  new UsageDelta(
+                      key.subscriptionId(), key.periodStart(), sum.quantity, sum.events)));
+    }
+    return deltas;
+  }
+
+  /** Put back deltas that could not be flushed, to be taken again by the next drain */
+  void restore(List<UsageDelta> deltas) {
+    for (UsageDelta delta : deltas) {
+      add(delta.subscriptionId(), delta.periodStart(), delta.quantity(), delta.eventCount());
+    }
+  }
+
+  /** Subscription hours waiting to be flushed */
+  int size() {
+    int size = 0;
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        size += stripe.sums.size();
+      }
+    }
+    return size;
+  }
+
+  private Stripe stripe(long subscriptionId) {
+    long hash = subscriptionId * 0x9E3779B97F4A7C15L;
+    return stripes[(int) ((hash >>> 32) % stripes.length)];
+  }
+}
@@ -0,0 +1,90 @@
+package com.okemwag.subscribe.usage;
+
+import com.okemwag.subscribe.config.UsageConfig;
+import com.okemwag.subscribe.repository.UsageDelta;
+import com.okemwag.subscribe.repository.UsagePeriodTotalRepository;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Metered usage of subscriptions, summed in memory per subscription and hour and added to the
+ * stored period totals by a scheduled flush, so recording an event never touches the database.
+ * Usage recorded since the last flush is lost if the node dies without shutting down; a clean
+ * shutdown flushes it.
+ */
+@Component
+@Slf4j
+public class UsageMeter {
+
+  private final UsagePeriodTotalRepository usagePeriodTotalRepository;
+  private final UsageConfig config;
+  private final TransactionTemplate transactionTemplate;
+  private final UsageAccumulator accumulator;
+
+  public UsageMeter(
+      UsagePeriodTotalRepository usagePeriodTotalRepository,
+      UsageConfig config,
+      PlatformTransactionManager transactionManager) {
+    this.usagePeriodTotalRepository = usagePeriodTotalRepository;
+    this.config = config;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.accumulator = new UsageAccumulator(config.getStripes());
+  }
+
+  /** The hour usage occurring at {@code occurredAt} is totalled in */
+  public static LocalDateTime period(LocalDateTime occurredAt) {
+    return occurredAt.truncatedTo(ChronoUnit.HOURS);
+  }
+
+  public void record(long subscriptionId, LocalDateTime occurredAt, long quantity) {
+    accumulator.add(subscriptionId, period(occurredAt), quantity, 1);
+  }
+
+  /**
+   * Add the usage recorded since the last flush to the stored period totals. Synchronized so the
+   * shutdown flush waits for a scheduled one still running. Rows are written in key order, so that
+   * the flushes of several nodes lock them in the same order and cannot deadlock.
+   */
+  @Scheduled(fixedDelayString = "${usage.flush-interval:PT10S}")
+  @PreDestroy
+  public synchronized void flush() {
+    List<UsageDelta> deltas = accumulator.drain();
+    if (deltas.isEmpty()) {
+      return;
+    }
+    deltas.sort(
+        Comparator.comparingLong(UsageDelta::subscriptionId)
+            .thenComparing(UsageDelta::periodStart));
+
+    int batchSize = Math.max(1, config.getFlushBatchSize());
+    for (int from = 0; from < deltas.size(); from += batchSize) {
+      List<UsageDelta> batch = deltas.subList(from, Math.min(from + batchSize, deltas.size()));
+      try {
+        transactionTemplate.executeWithoutResult(
+            status -> usagePeriodTotalRepository.addAll(batch));
+      } catch (RuntimeException e) {
+        // Keep what was not written for the next flush
+        accumulator.restore(deltas.subList(from, deltas.size()));
+        log.warn(
+            "Flushing usage failed, {} subscription hours kept for the next flush: {}",
+            deltas.size() - from,
+            e.getMessage());
+        return;
+      }
+    }
+    log.debug("Flushed usage of {} subscription hours", deltas.size());
+  }
+
+  /** Subscription hours recorded but not flushed yet */
+  public int pending() {
+    return accumulator.size();
+  }
+}
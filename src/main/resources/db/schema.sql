@@ -0,0 +1,35 @@
+-- Schema changes JPA cannot declare. Run at startup after Hibernate has updated the schema, see
+-- spring.sql.init in application.properties; any failure stops the application. Every statement
+-- must be safe to run again.
+
+-- One open subscription per customer and plan; the statuses are Subscription.OPEN_STATUSES.
+-- Makes concurrent creates safe: of two inserts that both passed the existence check, the second
+-- fails. Existing duplicates fail startup and have to be closed first.
+CREATE UNIQUE INDEX IF NOT EXISTS uk_subscriptions_open_customer_plan
+    ON subscriptions (customer_id, subscription_plan_id)
+    WHERE status IN ('ACTIVE', 'SUSPENDED', 'TRIAL');
+
+-- The owning business copied onto subscriptions, invoices and payments so that their keyset pages
+-- per business read one index; rows written before the column existed are filled in here
+UPDATE subscriptions s SET business_id = c.business_id
+    FROM customers c
+    WHERE s.business_id IS NULL AND c.id = s.customer_id;
+UPDATE invoices i SET business_id = s.business_id
+    FROM subscriptions s
+    WHERE i.business_id IS NULL AND s.id = i.subscription_id;
+UPDATE payments p SET business_id = s.business_id
+    FROM subscriptions s
+    WHERE p.business_id IS NULL AND s.id = p.subscription_id;
+
+-- Invoices are issued in the business currency; those issued before they recorded it take the
+-- business's current one
+UPDATE invoices i SET currency = b.currency
+    FROM businesses b
+    WHERE i.currency IS NULL AND b.id = i.business_id;
+
+-- One unbilled usage total per subscription and hour, the conflict target of the usage flush in
+-- UsagePeriodTotalBulkRepositoryImpl. Totals an invoice has priced are left out, so usage flushed
+-- for an already billed hour starts a new row.
+CREATE UNIQUE INDEX IF NOT EXISTS uk_usage_period_totals_unbilled
+    ON usage_period_totals (subscription_id, period_start)
+    WHERE invoice_id IS NULL;
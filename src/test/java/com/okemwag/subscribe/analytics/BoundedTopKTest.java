@@ -0,0 +1,49 @@
+package com.okemwag.subscribe.analytics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class BoundedTopKTest {
+
+  @Test
+  void testOutsiderThatOvertakesIsPulledIn() {
+    BoundedTopK topK = new BoundedTopK(2, List.of(entry(1L, 100), entry(2L, 50)));
+
+    // Key 3 had 40 before, the loader reports its total after the change
+    topK.adjust(3L, BigDecimal.valueOf(30), 1, () -> entry(3L, 70));
+
+    assertEquals(List.of(1L, 3L), ids(topK.top(2)));
+  }
+
+  @Test
+  void testDroppingBelowFloorRequiresReload() {
+    BoundedTopK topK = new BoundedTopK(2, List.of(entry(1L, 100), entry(2L, 50)));
+
+    topK.adjust(2L, BigDecimal.valueOf(-20), -1, () -> null);
+
+    // Unknown keys may hold up to 50, more than the second entry now has
+    assertEquals(List.of(1L), ids(topK.top(1)));
+    assertNull(topK.top(2));
+  }
+
+  @Test
+  void testIncompleteSeedIsExact() {
+    BoundedTopK topK = new BoundedTopK(5, List.of(entry(1L, 10)));
+
+    topK.adjust(1L, BigDecimal.valueOf(-10), -1, () -> null);
+    topK.adjust(2L, BigDecimal.ONE, 1, () -> entry(2L, 1));
+
+    assertEquals(List.of(2L, 1L), ids(topK.top(3)));
+  }
+
+  private static BoundedTopK.Entry entry(Long id, long score) {
+    return new BoundedTopK.Entry(id, "key " + id, BigDecimal.valueOf(score), 1);
+  }
+
+  private static List<Long> ids(List<BoundedTopK.Entry> entries) {
+    return entries.stream().map(BoundedTopK.Entry::id).toList();
+  }
+}
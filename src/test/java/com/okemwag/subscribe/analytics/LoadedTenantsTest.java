@@ -0,0 +1,84 @@
+package com.okemwag.subscribe.analytics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class LoadedTenantsTest {
+
+  private static final LocalDateTime WATERMARK = LocalDateTime.of(2024, 3, 15, 12, 0);
+
+  @Test
+  void testEventsDuringLoadAfterTheWatermarkAreReplayed() {
+    LoadedTenants<AtomicLong>[] holder = new LoadedTenants[1];
+    holder[0] =
+        new LoadedTenants<>(
+            10,
+            Duration.ofHours(1),
+            id -> {
+              // Delivered while the queries run: one in the rows, one after them
+              holder[0].apply(id, WATERMARK.minusSeconds(1), counter -> counter.addAndGet(10));
+              holder[0].apply(id, WATERMARK, counter -> counter.addAndGet(100));
+              return new LoadedTenants.Loaded<>(new AtomicLong(1), WATERMARK);
+            });
+
+    assertEquals(101, holder[0].get(1L).get());
+  }
+
+  @Test
+  void testLateEventsAfterLoadAreApplied() {
+    LoadedTenants<AtomicLong> tenants =
+        new LoadedTenants<>(
+            10,
+            Duration.ofHours(1),
+            id -> new LoadedTenants.Loaded<>(new AtomicLong(1), WATERMARK));
+    tenants.get(1L);
+
+    tenants.apply(1L, WATERMARK.minusDays(1), counter -> counter.addAndGet(10));
+    assertEquals(11, tenants.get(1L).get());
+  }
+
+  @Test
+  void testEventsOfTenantsNotLoadedAreIgnored() {
+    AtomicLong loads = new AtomicLong();
+    LoadedTenants<AtomicLong> tenants =
+        new LoadedTenants<>(
+            10,
+            Duration.ofHours(1),
+            id -> {
+              loads.incrementAndGet();
+              return new LoadedTenants.Loaded<>(new AtomicLong(1), WATERMARK);
+            });
+
+    tenants.apply(1L, WATERMARK.plusDays(1), counter -> counter.addAndGet(10));
+    assertEquals(0, loads.get());
+    assertEquals(1, tenants.get(1L).get());
+  }
+
+  @Test
+  void testBulkLoadKeepsLoadedTenants() {
+    LoadedTenants<AtomicLong>[] holder = new LoadedTenants[1];
+    holder[0] =
+        new LoadedTenants<>(
+            10,
+            Duration.ofHours(1),
+            id -> new LoadedTenants.Loaded<>(new AtomicLong(5), WATERMARK));
+    holder[0].get(1L);
+
+    int added =
+        holder[0].loadAll(
+            () -> {
+              holder[0].apply(2L, WATERMARK.plusSeconds(1), counter -> counter.addAndGet(100));
+              return new LoadedTenants.Loaded<>(
+                  Map.of(1L, new AtomicLong(1), 2L, new AtomicLong(2)), WATERMARK);
+            });
+
+    assertEquals(1, added);
+    assertEquals(5, holder[0].get(1L).get());
+    assertEquals(102, holder[0].get(2L).get());
+  }
+}
@@ -0,0 +1,66 @@
+package com.okemwag.subscribe.analytics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.okemwag.subscribe.dto.PlatformAnalyticsDTO;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Test;
+
+class PlatformAnalyticsTaskTest {
+
+  @Test
+  void testTenantsAreLoadedInBatchesAndMerged() {
+    List<Long> businessIds = LongStream.rangeClosed(1, 100).boxed().toList();
+    ConcurrentLinkedQueue<Integer> batchSizes = new ConcurrentLinkedQueue<>();
+
+    PlatformAccumulator totals =
+        new ForkJoinPool(4)
+            .invoke(
+                new PlatformAnalyticsTask(
+                    businessIds,
+                    16,
+                    batch -> {
+                      batchSizes.add(batch.size());
+                      return batch.stream().map(PlatformAnalyticsTaskTest::metrics).toList();
+                    }));
+
+    PlatformAnalyticsDTO analytics = new PlatformAnalyticsDTO();
+    totals.writeTo(analytics);
+
+    assertEquals(100, totals.tenants());
+    assertTrue(batchSizes.stream().allMatch(size -> size <= 16));
+    assertEquals(100, batchSizes.stream().mapToInt(Integer::intValue).sum());
+    // Odd tenants report in USD, even ones in EUR
+    assertEquals(new BigDecimal("2500"), analytics.getRevenueByCurrency().get("USD"));
+    assertEquals(new BigDecimal("2550"), analytics.getRevenueByCurrency().get("EUR"));
+    assertEquals(50L, analytics.getTenantRevenueByCurrency().get("USD").getTenants());
+    assertEquals(50.0, analytics.getTenantMonthlyChurnRate().getP50());
+    assertEquals(100.0, analytics.getTenantMonthlyChurnRate().getMax());
+  }
+
+  @Test
+  void testDistributionUsesNearestRank() {
+    PlatformAnalyticsDTO.Distribution distribution =
+        PlatformAccumulator.distribution(List.of(5.0, 1.0, 3.0, 2.0, 4.0));
+
+    assertEquals(3.0, distribution.getP50());
+    assertEquals(5.0, distribution.getP90());
+    assertEquals(5.0, distribution.getMax());
+    assertNull(PlatformAccumulator.distribution(List.of()).getP50());
+  }
+
+  private static TenantMetrics metrics(Long businessId) {
+    return new TenantMetrics(
+        businessId,
+        businessId % 2 == 1 ? "USD" : "EUR",
+        BigDecimal.valueOf(businessId),
+        BigDecimal.ONE,
+        1,
+        businessId,
+        100);
+  }
+}
@@ -0,0 +1,72 @@
+package com.okemwag.subscribe.analytics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class QuantileSketchTest {
+
+  @Test
+  void testQuantilesOfUniformValues() {
+    QuantileSketch sketch = new QuantileSketch();
+    Random random = new Random(42);
+    for (int i = 0; i < 100_000; i++) {
+      sketch.add(random.nextDouble() * 1000);
+    }
+
+    assertEquals(100_000, sketch.count());
+    assertEquals(500, sketch.quantile(0.5), 10);
+    assertEquals(900, sketch.quantile(0.9), 10);
+    assertEquals(990, sketch.quantile(0.99), 3);
+  }
+
+  @Test
+  void testMergedMonthsMatchOneSketch() {
+    QuantileSketch january = new QuantileSketch();
+    QuantileSketch february = new QuantileSketch();
+    QuantileSketch both = new QuantileSketch();
+    for (int i = 1; i <= 10_000; i++) {
+      (i % 2 == 0 ? january : february).add(i);
+      both.add(i);
+    }
+
+    QuantileSketch merged = new QuantileSketch();
+    merged.merge(january);
+    merged.merge(february);
+
+    assertEquals(both.count(), merged.count());
+    assertEquals(1, merged.min());
+    assertEquals(10_000, merged.max());
+    assertEquals(both.quantile(0.5), merged.quantile(0.5), 100);
+    assertEquals(both.quantile(0.99), merged.quantile(0.99), 20);
+  }
+
+  @Test
+  void testBytesRoundTrip() {
+    QuantileSketch sketch = new QuantileSketch();
+    for (int i = 0; i < 5_000; i++) {
+      sketch.add(9.99 + (i % 100));
+    }
+
+    byte[] bytes = sketch.toBytes();
+    QuantileSketch restored = QuantileSketch.fromBytes(bytes);
+
+    assertTrue(bytes.length < 3_000);
+    assertEquals(sketch.count(), restored.count());
+    assertEquals(sketch.min(), restored.min());
+    assertEquals(sketch.max(), restored.max());
+    assertEquals(sketch.quantile(0.9), restored.quantile(0.9), 0.5);
+  }
+
+  @Test
+  void testLargeAmountsKeepTheirCents() {
+    QuantileSketch sketch = new QuantileSketch();
+    sketch.add(12_345_678.91);
+    sketch.add(12_345_678.91);
+    sketch.add(98_765_432.17);
+
+    QuantileSketch restored = QuantileSketch.fromBytes(sketch.toBytes());
+    assertEquals(12_345_678.91, restored.quantile(0.3), 0.001);
+  }
+}
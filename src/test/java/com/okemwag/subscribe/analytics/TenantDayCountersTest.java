@@ -0,0 +1,43 @@
+package com.okemwag.subscribe.analytics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.okemwag.subscribe.enums.LifecycleCounter;
+import java.time.LocalDate;
+import org.junit.jupiter.api.Test;
+
+class TenantDayCountersTest {
+
+  private static final LocalDate TODAY = LocalDate.of(2024, 3, 15);
+
+  @Test
+  void testWindowsSumTheirDays() {
+    TenantDayCounters counters = new TenantDayCounters(400, TODAY);
+    counters.add(LifecycleCounter.SIGNUPS, TODAY, 2);
+    counters.add(LifecycleCounter.SIGNUPS, TODAY.minusDays(6), 1);
+    counters.add(LifecycleCounter.SIGNUPS, TODAY.minusDays(7), 4);
+    counters.add(LifecycleCounter.CANCELLATIONS, TODAY.minusDays(100), 3);
+
+    long[] week = counters.window(TODAY, 7);
+    assertEquals(3, week[LifecycleCounter.SIGNUPS.ordinal()]);
+    assertEquals(0, week[LifecycleCounter.CANCELLATIONS.ordinal()]);
+
+    long[] year = counters.window(TODAY, 365);
+    assertEquals(7, year[LifecycleCounter.SIGNUPS.ordinal()]);
+    assertEquals(3, year[LifecycleCounter.CANCELLATIONS.ordinal()]);
+    assertEquals(0, year[LifecycleCounter.CONVERSIONS.ordinal()]);
+  }
+
+  @Test
+  void testAdvancingDropsDaysOutsideTheRing() {
+    TenantDayCounters counters = new TenantDayCounters(30, TODAY);
+    counters.add(LifecycleCounter.TRIAL_STARTS, TODAY.minusDays(29), 1);
+    counters.add(LifecycleCounter.TRIAL_STARTS, TODAY.minusDays(30), 5);
+    assertEquals(1, counters.sum(LifecycleCounter.TRIAL_STARTS, TODAY.minusDays(40), TODAY));
+
+    // A write on the next day pushes the oldest day out
+    counters.add(LifecycleCounter.TRIAL_STARTS, TODAY.plusDays(1), 1);
+    assertEquals(
+        1, counters.sum(LifecycleCounter.TRIAL_STARTS, TODAY.minusDays(40), TODAY.plusDays(1)));
+  }
+}
@@ -0,0 +1,77 @@
+package com.okemwag.subscribe.analytics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.okemwag.subscribe.enums.SubscriptionStatus;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class TenantSegmentsTest {
+
+  private TenantSegments tenantWithThreeCustomers() {
+    TenantSegments segments = new TenantSegments();
+    segments.upsertCustomer(1L, true, "en");
+    segments.upsertCustomer(2L, true, "sw");
+    segments.upsertCustomer(3L, false, "en");
+    segments.addSubscription(
+        1L, new TenantSegments.SubscriptionAttributes(10L, SubscriptionStatus.ACTIVE));
+    segments.addSubscription(
+        3L, new TenantSegments.SubscriptionAttributes(10L, SubscriptionStatus.CANCELLED));
+    return segments;
+  }
+
+  @Test
+  void testCountSingleSegments() {
+    TenantSegments segments = tenantWithThreeCustomers();
+
+    assertEquals(3, segments.count(CustomerSegment.all()));
+    assertEquals(2, segments.count(CustomerSegment.active()));
+    assertEquals(2, segments.count(CustomerSegment.subscribed()));
+    assertEquals(1, segments.count(CustomerSegment.activeOnPlan(10L)));
+    assertEquals(0, segments.count(CustomerSegment.activeOnPlan(99L)));
+    assertEquals(1, segments.count(CustomerSegment.withStatus(SubscriptionStatus.CANCELLED)));
+  }
+
+  @Test
+  void testIntersectionsAndExclusions() {
+    TenantSegments segments = tenantWithThreeCustomers();
+
+    assertEquals(1, segments.countBoth(CustomerSegment.active(), CustomerSegment.language("en")));
+    assertArrayEquals(
+        new long[] {2L},
+        segments
+            .select(List.of(CustomerSegment.active()), List.of(CustomerSegment.subscribed()))
+            .toArray());
+    assertEquals(Map.of("en", 1L, "sw", 1L), segments.countActiveByLanguage());
+  }
+
+  @Test
+  void testUpdatesReplacePreviousMembership() {
+    TenantSegments segments = tenantWithThreeCustomers();
+
+    segments.upsertCustomer(1L, false, "sw");
+    segments.replaceSubscriptions(
+        1L, List.of(new TenantSegments.SubscriptionAttributes(10L, SubscriptionStatus.EXPIRED)));
+
+    assertEquals(1, segments.count(CustomerSegment.active()));
+    assertEquals(0, segments.count(CustomerSegment.activeOnPlan(10L)));
+    assertEquals(2, segments.count(CustomerSegment.language("sw")));
+    assertEquals(0, segments.count(CustomerSegment.withStatus(SubscriptionStatus.ACTIVE)));
+    assertEquals(1, segments.count(CustomerSegment.withStatus(SubscriptionStatus.EXPIRED)));
+  }
+
+  @Test
+  void testCustomersWithoutLanguageAreCounted() {
+    TenantSegments segments = tenantWithThreeCustomers();
+    segments.upsertCustomer(4L, true, null);
+
+    Map<String, Long> expected = new HashMap<>();
+    expected.put("en", 1L);
+    expected.put("sw", 1L);
+    expected.put(null, 1L);
+    assertEquals(expected, segments.countActiveByLanguage());
+    assertEquals(1, segments.count(CustomerSegment.language(null)));
+  }
+}
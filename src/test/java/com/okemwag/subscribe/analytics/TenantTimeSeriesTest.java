@@ -0,0 +1,67 @@
+package com.okemwag.subscribe.analytics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.okemwag.subscribe.enums.TimeSeriesMetric;
+import com.okemwag.subscribe.enums.TimeSeriesResolution;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.Test;
+
+class TenantTimeSeriesTest {
+
+  private static final LocalDateTime NOW = LocalDateTime.of(2024, 3, 15, 12, 30);
+
+  @Test
+  void testValuesRollUpIntoCoarserResolutions() {
+    TenantTimeSeries series = new TenantTimeSeries(48, 60, 12, NOW);
+    series.add(TimeSeriesMetric.REVENUE, NOW.minusHours(1), 1000);
+    series.add(TimeSeriesMetric.REVENUE, NOW, 500);
+    series.add(TimeSeriesMetric.REVENUE, NOW.minusDays(20), 250);
+
+    assertArrayEquals(
+        new long[] {1000, 500},
+        series.slice(TimeSeriesMetric.REVENUE, TimeSeriesResolution.HOUR, NOW.minusHours(1), NOW));
+    assertArrayEquals(
+        new long[] {1500},
+        series.slice(TimeSeriesMetric.REVENUE, TimeSeriesResolution.DAY, NOW, NOW));
+    assertArrayEquals(
+        new long[] {250, 1500},
+        series.slice(
+            TimeSeriesMetric.REVENUE, TimeSeriesResolution.MONTH, NOW.minusMonths(1), NOW));
+    assertArrayEquals(
+        new long[] {0},
+        series.slice(TimeSeriesMetric.REFUNDS, TimeSeriesResolution.MONTH, NOW, NOW));
+  }
+
+  @Test
+  void testOlderThanRetentionIsDroppedPerResolution() {
+    TenantTimeSeries series = new TenantTimeSeries(24, 60, 12, NOW);
+    series.add(TimeSeriesMetric.NEW_SUBSCRIPTIONS, NOW.minusDays(3), 1);
+
+    // Gone from the hourly ring but still in the daily one
+    assertArrayEquals(
+        new long[] {0},
+        series.slice(
+            TimeSeriesMetric.NEW_SUBSCRIPTIONS,
+            TimeSeriesResolution.HOUR,
+            NOW.minusDays(3),
+            NOW.minusDays(3)));
+    assertArrayEquals(
+        new long[] {1, 0, 0, 0},
+        series.slice(
+            TimeSeriesMetric.NEW_SUBSCRIPTIONS, TimeSeriesResolution.DAY, NOW.minusDays(3), NOW));
+  }
+
+  @Test
+  void testAdvancingClearsPassedBuckets() {
+    RollingSeries ring = new RollingSeries(3, 10);
+    ring.add(9, 5);
+    ring.add(10, 7);
+    ring.add(12, 1);
+
+    // Bucket 9 fell out of the ring and 11 was never written
+    assertArrayEquals(new long[] {0, 7, 0, 1}, ring.slice(9, 12));
+    ring.add(20, 2);
+    assertArrayEquals(new long[] {0, 0, 2}, ring.slice(18, 20));
+  }
+}
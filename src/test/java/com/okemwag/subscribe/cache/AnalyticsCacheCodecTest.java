@@ -0,0 +1,89 @@
+package com.okemwag.subscribe.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.okemwag.subscribe.dto.AnalyticsDTO;
+import com.okemwag.subscribe.dto.CustomerGrowthDTO;
+import com.okemwag.subscribe.dto.RevenueForecastDTO;
+import com.okemwag.subscribe.dto.RevenueReportDTO;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.SerializationException;
+
+class AnalyticsCacheCodecTest {
+
+  private final AnalyticsCacheCodec codec = new AnalyticsCacheCodec();
+
+  @Test
+  void testAnalyticsRoundTrip() {
+    AnalyticsDTO analytics = new AnalyticsDTO();
+    AnalyticsDTO.RevenueMetrics revenue = new AnalyticsDTO.RevenueMetrics();
+    revenue.setTotalRevenue(new BigDecimal("12345.67"));
+    revenue.setMonthlyRecurringRevenue(new BigDecimal("-1.5"));
+    revenue.setRevenueByCurrency(Map.of("USD", new BigDecimal("100.00")));
+    analytics.setRevenueMetrics(revenue);
+    AnalyticsDTO.CustomerMetrics customers = new AnalyticsDTO.CustomerMetrics();
+    customers.setTotalCustomers(42L);
+    customers.setCustomerGrowthRate(12.5);
+    customers.setCustomersByLanguage(Map.of("en", 40L, "sw", 2L));
+    analytics.setCustomerMetrics(customers);
+    analytics.setGeneratedAt(LocalDateTime.of(2024, 5, 1, 10, 15, 30, 123_000_000));
+    analytics.setDegraded(true);
+    analytics.setDegradedSections(List.of("CHURN"));
+    analytics.setSnapshotDate(LocalDate.of(2024, 4, 30));
+
+    CachedValue decoded = roundTrip(new CachedValue(analytics, 1_700_000_000_000L));
+
+    assertEquals(1_700_000_000_000L, decoded.computedAtMillis());
+    assertEquals(analytics, decoded.value());
+  }
+
+  @Test
+  void testReportsRoundTrip() {
+    RevenueReportDTO report = new RevenueReportDTO();
+    RevenueReportDTO.MonthlyRevenue month = new RevenueReportDTO.MonthlyRevenue();
+    month.setYear(2024);
+    month.setMonth(3);
+    month.setRevenue(new BigDecimal("99.99"));
+    month.setInvoiceCount(3L);
+    month.setRefunds(new BigDecimal("10.00"));
+    report.setMonthlyBreakdown(List.of(month));
+    report.setRevenueByPaymentMethod(Map.of("CARD", BigDecimal.TEN));
+
+    CustomerGrowthDTO growth = new CustomerGrowthDTO();
+    growth.setNewCustomersThisMonth(7L);
+    growth.setMonthlyGrowth(List.of(new CustomerGrowthDTO.MonthlyGrowth()));
+
+    assertEquals(report, roundTrip(new CachedValue(report, 1L)).value());
+    assertEquals(growth, roundTrip(new CachedValue(growth, 1L)).value());
+
+    RevenueForecastDTO forecast = new RevenueForecastDTO();
+    RevenueForecastDTO.DailyForecast day = new RevenueForecastDTO.DailyForecast();
+    day.setDate(LocalDate.of(2024, 3, 1));
+    day.setExpectedRevenue(new BigDecimal("47.50"));
+    day.setCharges(1L);
+    forecast.setDailyForecast(List.of(day));
+    forecast.setSuccessRateByMethod(Map.of("MPESA", 0.95));
+    assertEquals(forecast, roundTrip(new CachedValue(forecast, 1L)).value());
+  }
+
+  @Test
+  void testRejectsUnknownTypes() {
+    assertThrows(SerializationException.class, () -> codec.serialize(List.of(1)));
+  }
+
+  @Test
+  void testOtherFormatVersionReadsAsMissing() {
+    byte[] bytes = codec.serialize(42L);
+    bytes[0]++;
+    assertNull(codec.deserialize(bytes));
+  }
+
+  private CachedValue roundTrip(CachedValue value) {
+    return (CachedValue) codec.deserialize(codec.serialize(value));
+  }
+}
@@ -0,0 +1,83 @@
+package com.okemwag.subscribe.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.okemwag.subscribe.config.AnalyticsCacheConfig;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+class AnalyticsCacheTest {
+
+  private AnalyticsCacheConfig config;
+  private ThreadPoolTaskExecutor executor;
+  private AnalyticsCache cache;
+
+  @BeforeEach
+  void setUp() {
+    config = new AnalyticsCacheConfig();
+    executor = config.analyticsRefreshExecutor();
+    executor.initialize();
+    cache = new AnalyticsCache(new ConcurrentMapCacheManager(), executor, config);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdown();
+  }
+
+  @Test
+  void testFreshEntryIsComputedOnce() {
+    AtomicInteger loads = new AtomicInteger();
+
+    assertEquals(1, (int) cache.get("revenueReport", 1L, "a", loads::incrementAndGet));
+    assertEquals(1, (int) cache.get("revenueReport", 1L, "a", loads::incrementAndGet));
+
+    CacheStatistics stats = cache.statistics().get("revenueReport");
+    assertEquals(1, stats.misses());
+    assertEquals(1, stats.hits());
+  }
+
+  @Test
+  void testStaleEntryIsServedWhileRefreshing() throws Exception {
+    config.setFreshFor(Duration.ZERO);
+    AtomicInteger loads = new AtomicInteger();
+
+    assertEquals(1, (int) cache.get("businessAnalytics", 1L, "all", loads::incrementAndGet));
+    Thread.sleep(5);
+    assertEquals(1, (int) cache.get("businessAnalytics", 1L, "all", loads::incrementAndGet));
+
+    executor.getThreadPoolExecutor().shutdown();
+    executor.getThreadPoolExecutor().awaitTermination(5, TimeUnit.SECONDS);
+    assertEquals(2, loads.get());
+    assertEquals(1, cache.statistics().get("businessAnalytics").staleHits());
+  }
+
+  @Test
+  void testInvalidateEvictsEveryKeyOfTenant() {
+    AtomicInteger loads = new AtomicInteger();
+    cache.get("revenueReport", 1L, "jan", loads::incrementAndGet);
+    cache.get("revenueReport", 1L, "feb", loads::incrementAndGet);
+    cache.get("customerGrowth", 2L, "all", loads::incrementAndGet);
+
+    cache.invalidate(1L);
+
+    assertEquals(4, (int) cache.get("revenueReport", 1L, "jan", loads::incrementAndGet));
+    assertEquals(3, (int) cache.get("customerGrowth", 2L, "all", loads::incrementAndGet));
+    assertEquals(1, cache.statistics().get("revenueReport").evictions());
+  }
+
+  @Test
+  void testPatchReplacesCachedValue() {
+    cache.get("businessAnalytics", 1L, "all", () -> 1);
+    cache.update("businessAnalytics", 1L, "all", (Integer value) -> value + 10);
+
+    assertEquals(11, (int) cache.get("businessAnalytics", 1L, "all", () -> 99));
+    assertEquals(1, cache.statistics().get("businessAnalytics").patches());
+  }
+}
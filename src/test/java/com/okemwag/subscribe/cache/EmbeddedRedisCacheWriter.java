@@ -0,0 +1,121 @@
+package com.okemwag.subscribe.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.cache.CacheStatistics;
+import org.springframework.data.redis.cache.CacheStatisticsCollector;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+/** In-process stand-in for a Redis server behind the cache writer, with a switch to take it down */
+class EmbeddedRedisCacheWriter implements RedisCacheWriter {
+
+  private record Entry(byte[] value, long expiresAtMillis) {
+    boolean expired() {
+      return expiresAtMillis > 0 && System.currentTimeMillis() >= expiresAtMillis;
+    }
+  }
+
+  private final Map<String, Entry> store = new ConcurrentHashMap<>();
+  private final Map<String, Duration> ttls = new ConcurrentHashMap<>();
+  private volatile boolean down;
+
+  void setDown(boolean down) {
+    this.down = down;
+  }
+
+  int size() {
+    return store.size();
+  }
+
+  byte[] raw(String key) {
+    Entry entry = store.get(key);
+    return entry == null ? null : entry.value();
+  }
+
+  Duration ttl(String key) {
+    return ttls.get(key);
+  }
+
+  @Override
+  public byte[] get(String name, byte[] key) {
+    checkUp();
+    Entry entry = store.get(key(key));
+    if (entry == null || entry.expired()) {
+      return null;
+    }
+    return entry.value();
+  }
+
+  @Override
+  public CompletableFuture<byte[]> retrieve(String name, byte[] key, Duration ttl) {
+    return CompletableFuture.supplyAsync(() -> get(name, key));
+  }
+
+  @Override
+  public void put(String name, byte[] key, byte[] value, Duration ttl) {
+    checkUp();
+    long expiresAt = isExpiring(ttl) ? System.currentTimeMillis() + ttl.toMillis() : 0;
+    store.put(key(key), new Entry(value, expiresAt));
+    if (ttl != null) {
+      ttls.put(key(key), ttl);
+    }
+  }
+
+  @Override
+  public CompletableFuture<Void> store(String name, byte[] key, byte[] value, Duration ttl) {
+    return CompletableFuture.runAsync(() -> put(name, key, value, ttl));
+  }
+
+  @Override
+  public byte[] putIfAbsent(String name, byte[] key, byte[] value, Duration ttl) {
+    byte[] existing = get(name, key);
+    if (existing == null) {
+      put(name, key, value, ttl);
+    }
+    return existing;
+  }
+
+  @Override
+  public void remove(String name, byte[] key) {
+    checkUp();
+    store.remove(key(key));
+  }
+
+  @Override
+  public void clean(String name, byte[] pattern) {
+    checkUp();
+    String prefix = key(pattern).replace("*", "");
+    store.keySet().removeIf(key -> key.startsWith(prefix));
+  }
+
+  @Override
+  public void clearStatistics(String name) {}
+
+  @Override
+  public RedisCacheWriter withStatisticsCollector(CacheStatisticsCollector collector) {
+    return this;
+  }
+
+  @Override
+  public CacheStatistics getCacheStatistics(String cacheName) {
+    return CacheStatisticsCollector.none().getCacheStatistics(cacheName);
+  }
+
+  private void checkUp() {
+    if (down) {
+      throw new RedisConnectionFailureException("Embedded Redis is down");
+    }
+  }
+
+  private static String key(byte[] key) {
+    return new String(key, StandardCharsets.UTF_8);
+  }
+
+  private static boolean isExpiring(Duration ttl) {
+    return ttl != null && !ttl.isZero() && !ttl.isNegative();
+  }
+}
@@ -0,0 +1,65 @@
+package com.okemwag.subscribe.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.okemwag.subscribe.config.AnalyticsCacheConfig;
+import com.okemwag.subscribe.config.RedisCacheConfig;
+import com.okemwag.subscribe.dto.CustomerGrowthDTO;
+import java.time.Duration;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+class FallbackCacheManagerTest {
+
+  private EmbeddedRedisCacheWriter redis;
+  private CacheManager cacheManager;
+
+  @BeforeEach
+  void setUp() {
+    AnalyticsCacheConfig config = new AnalyticsCacheConfig();
+    config.setTtl(Map.of(AnalyticsCache.REVENUE_REPORT, Duration.ofHours(6)));
+    config.setRedisRetryInterval(Duration.ofMinutes(1));
+    redis = new EmbeddedRedisCacheWriter();
+    cacheManager = RedisCacheConfig.sharedCacheManager(redis, config);
+  }
+
+  @Test
+  void testValuesAreStoredInRedisWithPerCacheTtl() {
+    cacheManager.getCache(AnalyticsCache.REVENUE_REPORT).put("1:jan", value(3L));
+    cacheManager.getCache(AnalyticsCache.CUSTOMER_GROWTH).put("1:all", value(4L));
+
+    assertEquals(2, redis.size());
+    assertEquals(Duration.ofHours(6), redis.ttl("subscribe:cache:revenueReport::1:jan"));
+    assertEquals(Duration.ofHours(2), redis.ttl("subscribe:cache:customerGrowth::1:all"));
+    assertEquals(
+        value(3L),
+        cacheManager.getCache(AnalyticsCache.REVENUE_REPORT).get("1:jan", CachedValue.class));
+  }
+
+  @Test
+  void testFallsBackToLocalCacheWhileRedisIsDown() {
+    Cache cache = cacheManager.getCache(AnalyticsCache.BUSINESS_ANALYTICS);
+    redis.setDown(true);
+
+    assertNull(cache.get("1:all"));
+    cache.put("1:all", value(5L));
+
+    assertTrue(((FallbackCache) cache).isUsingFallback());
+    assertEquals(value(5L), cache.get("1:all", CachedValue.class));
+    assertEquals(0, redis.size());
+  }
+
+  @Test
+  void testUnknownCacheIsNotCreated() {
+    assertNull(cacheManager.getCache("unknown"));
+  }
+
+  private static CachedValue value(Long newCustomers) {
+    CustomerGrowthDTO growth = new CustomerGrowthDTO();
+    growth.setNewCustomersThisMonth(newCustomers);
+    return new CachedValue(growth, 1L);
+  }
+}
@@ -0,0 +1,40 @@
+package com.okemwag.subscribe.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/** In-process stand-in for the pub/sub channel; each instance is one node attached to a hub */
+class LoopbackInvalidationBus implements CacheInvalidationBus {
+
+  private final List<LoopbackInvalidationBus> hub;
+  private final List<Consumer<CacheInvalidation>> listeners = new CopyOnWriteArrayList<>();
+
+  LoopbackInvalidationBus() {
+    this(new CopyOnWriteArrayList<>());
+  }
+
+  private LoopbackInvalidationBus(List<LoopbackInvalidationBus> hub) {
+    this.hub = hub;
+    hub.add(this);
+  }
+
+  /** Another node on the same channel */
+  LoopbackInvalidationBus join() {
+    return new LoopbackInvalidationBus(hub);
+  }
+
+  @Override
+  public void publish(CacheInvalidation invalidation) {
+    for (LoopbackInvalidationBus node : hub) {
+      if (node != this) {
+        node.listeners.forEach(listener -> listener.accept(invalidation));
+      }
+    }
+  }
+
+  @Override
+  public void subscribe(Consumer<CacheInvalidation> listener) {
+    listeners.add(listener);
+  }
+}
@@ -0,0 +1,119 @@
+package com.okemwag.subscribe.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.okemwag.subscribe.config.AnalyticsCacheConfig;
+import com.okemwag.subscribe.config.RedisCacheConfig;
+import com.okemwag.subscribe.dto.RevenueReportDTO;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+class TwoLevelCacheTest {
+
+  private EmbeddedRedisCacheWriter redis;
+  private Cache nodeA;
+  private Cache nodeB;
+
+  @BeforeEach
+  void setUp() {
+    AnalyticsCacheConfig config = new AnalyticsCacheConfig();
+    redis = new EmbeddedRedisCacheWriter();
+    LoopbackInvalidationBus busA = new LoopbackInvalidationBus();
+    LoopbackInvalidationBus busB = busA.join();
+
+    nodeA = node(config, busA).getCache(AnalyticsCache.REVENUE_REPORT);
+    nodeB = node(config, busB).getCache(AnalyticsCache.REVENUE_REPORT);
+  }
+
+  @Test
+  void testLocalLevelServesReadsWithoutRedis() {
+    nodeA.put("1:jan", 7L);
+    assertEquals(7L, nodeB.get("1:jan", Long.class));
+
+    redis.setDown(true);
+
+    assertEquals(7L, nodeB.get("1:jan", Long.class));
+    assertEquals(1, ((TwoLevelCache) nodeB).localSize());
+  }
+
+  @Test
+  void testWritesInvalidateOtherNodes() {
+    nodeA.put("1:jan", 7L);
+    assertEquals(7L, nodeB.get("1:jan", Long.class));
+
+    nodeA.put("1:jan", 8L);
+    assertEquals(8L, nodeB.get("1:jan", Long.class));
+
+    nodeA.evict("1:jan");
+    assertNull(nodeB.get("1:jan"));
+  }
+
+  @Test
+  void testReadersGetTheirOwnCopy() {
+    RevenueReportDTO report = new RevenueReportDTO();
+    report.setCurrency("KES");
+    nodeA.put("1:jan", new CachedValue(report, 1L));
+
+    CachedValue first = nodeA.get("1:jan", CachedValue.class);
+    ((RevenueReportDTO) first.value()).setCurrency("USD");
+
+    CachedValue second = nodeA.get("1:jan", CachedValue.class);
+    assertEquals("KES", ((RevenueReportDTO) second.value()).getCurrency());
+  }
+
+  @Test
+  void testInvalidationDuringSharedReadIsNotUndone() {
+    AtomicReference<TwoLevelCache> cache = new AtomicReference<>();
+    ConcurrentMapCache shared =
+        new ConcurrentMapCache("test") {
+          @Override
+          public <T> T get(Object key, Class<T> type) {
+            T value = super.get(key, type);
+            // Another node replaces the value while this read is on its way back
+            super.put(key, 8L);
+            cache.get().onInvalidation(CacheInvalidation.key("test", String.valueOf(key)));
+            return value;
+          }
+        };
+    shared.put("1:jan", 7L);
+    cache.set(
+        new TwoLevelCache(
+            shared,
+            Caffeine.newBuilder().<String, byte[]>build(),
+            new LoopbackInvalidationBus(),
+            new AnalyticsCacheCodec()));
+
+    assertEquals(7L, cache.get().get("1:jan", Long.class));
+    assertEquals(0, cache.get().localSize());
+  }
+
+  @Test
+  void testTenantInvalidationReachesKeysWrittenByOtherNodes() {
+    AnalyticsCacheConfig config = new AnalyticsCacheConfig();
+    config.setFreshFor(Duration.ofHours(1));
+    LoopbackInvalidationBus busA = new LoopbackInvalidationBus();
+    LoopbackInvalidationBus busB = busA.join();
+    AnalyticsCache analyticsA = new AnalyticsCache(node(config, busA), null, config);
+    AnalyticsCache analyticsB = new AnalyticsCache(node(config, busB), null, config);
+
+    analyticsB.get(AnalyticsCache.CUSTOMER_GROWTH, 1L, "all", () -> 1L);
+    analyticsA.invalidate(1L);
+
+    assertEquals(2L, (long) analyticsA.get(AnalyticsCache.CUSTOMER_GROWTH, 1L, "all", () -> 2L));
+    assertEquals(2L, (long) analyticsB.get(AnalyticsCache.CUSTOMER_GROWTH, 1L, "all", () -> 3L));
+  }
+
+  private TwoLevelCacheManager node(AnalyticsCacheConfig config, CacheInvalidationBus bus) {
+    return new TwoLevelCacheManager(
+        RedisCacheConfig.sharedCacheManager(redis, config),
+        bus,
+        100,
+        Duration.ofMinutes(1),
+        new AnalyticsCacheCodec());
+  }
+}
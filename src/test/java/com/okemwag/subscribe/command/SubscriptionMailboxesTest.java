@@ -0,0 +1,131 @@
+package com.okemwag.subscribe.command;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.okemwag.subscribe.exception.SubscribeException;
+import com.okemwag.subscribe.security.TenantContext;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class SubscriptionMailboxesTest {
+
+  private final SubscriptionMailboxes mailboxes = new SubscriptionMailboxes(4, 1000);
+  private final ExecutorService callers = Executors.newFixedThreadPool(8);
+
+  @AfterEach
+  void tearDown() {
+    callers.shutdownNow();
+    mailboxes.shutdown();
+    TenantContext.clear();
+  }
+
+  @Test
+  void testCommandsForOneSubscriptionNeverOverlap() throws Exception {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    int[] counter = new int[1];
+
+    List<Future<?>> calls = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      calls.add(
+          callers.submit(
+              call(
+                  42L,
+                  () -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    // Unsynchronized on purpose: only safe because commands are serialized
+                    counter[0]++;
+                    running.decrementAndGet();
+                    return null;
+                  })));
+    }
+    for (Future<?> call : calls) {
+      call.get(10, TimeUnit.SECONDS);
+    }
+
+    assertEquals(200, counter[0]);
+    assertEquals(1, maxRunning.get());
+  }
+
+  @Test
+  void testDifferentMailboxesRunInParallel() throws Exception {
+    long first = 1;
+    long second = 2;
+    while (mailboxes.shard(second) == mailboxes.shard(first)) {
+      second++;
+    }
+
+    // Each command waits for the other, which only finishes if both run at the same time
+    CountDownLatch bothStarted = new CountDownLatch(2);
+    long other = second;
+    Future<Boolean> a =
+        callers.submit(
+            call(
+                first,
+                () -> {
+                  bothStarted.countDown();
+                  return bothStarted.await(5, TimeUnit.SECONDS);
+                }));
+    Future<Boolean> b =
+        callers.submit(
+            call(
+                other,
+                () -> {
+                  bothStarted.countDown();
+                  return bothStarted.await(5, TimeUnit.SECONDS);
+                }));
+
+    assertTrue(a.get(10, TimeUnit.SECONDS));
+    assertTrue(b.get(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void testPassesResultsExceptionsAndTenant() throws Throwable {
+    TenantContext.setCurrentBusinessId(7L);
+
+    assertEquals(7L, mailboxes.execute(1L, TenantContext::getCurrentBusinessId));
+    assertThrows(
+        SubscribeException.class,
+        () ->
+            mailboxes.execute(
+                1L,
+                () -> {
+                  throw new SubscribeException("Subscription is already cancelled");
+                }));
+    // A nested command for the same mailbox runs inline instead of waiting on itself
+    assertEquals("nested", mailboxes.execute(1L, () -> mailboxes.execute(1L, () -> "nested")));
+  }
+
+  /** A caller thread's view of one command */
+  private <T> Callable<T> call(long subscriptionId, SubscriptionMailboxes.Command<T> command) {
+    return () -> {
+      try {
+        return mailboxes.execute(subscriptionId, command);
+      } catch (Exception | Error e) {
+        throw e;
+      } catch (Throwable e) {
+        throw new IllegalStateException(e);
+      }
+    };
+  }
+
+  @Test
+  void testConsecutiveIdsSpreadOverMailboxes() {
+    Set<Integer> used = new HashSet<>();
+    for (long id = 1; id <= 16; id++) {
+      used.add(mailboxes.shard(id));
+    }
+    assertEquals(4, used.size());
+  }
+}
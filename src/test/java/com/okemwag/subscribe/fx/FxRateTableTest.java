@@ -0,0 +1,62 @@
+package com.okemwag.subscribe.fx;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class FxRateTableTest {
+
+  private static final LocalDate MONDAY = LocalDate.of(2024, 3, 11);
+
+  @Test
+  void testLooksUpTheLatestQuoteWithinMaxAge() throws Exception {
+    FxRateTable table =
+        new FxRateTable(
+            "USD",
+            FxRateFeed.parse(
+                new BufferedReader(
+                    new StringReader(
+                        "date,currency,rate\n"
+                            + "# weekday quotes only\n"
+                            + "2024-03-11,KES,130.0\n"
+                            + "2024-03-11,EUR,0.9\n"
+                            + "2024-03-12,KES,131.0\n"))));
+
+    assertEquals(130.0, table.rate("KES", MONDAY, 7));
+    assertEquals(131.0, table.rate("KES", MONDAY.plusDays(5), 7));
+    // EUR was not quoted on the 12th, so the 11th still applies
+    assertEquals(0.9, table.rate("EUR", MONDAY.plusDays(1), 7));
+    assertTrue(Double.isNaN(table.rate("EUR", MONDAY.plusDays(8), 7)));
+    assertTrue(Double.isNaN(table.rate("KES", MONDAY.minusDays(1), 7)));
+    assertTrue(Double.isNaN(table.rate("GBP", MONDAY, 7)));
+    assertEquals(1.0, table.rate("USD", MONDAY.minusYears(10), 7));
+  }
+
+  @Test
+  void testCrossRatesGoThroughTheBaseCurrency() {
+    FxRateTable table =
+        new FxRateTable(
+            "USD",
+            List.of(
+                new FxRateTable.Quote(MONDAY, "KES", 130.0),
+                new FxRateTable.Quote(MONDAY, "EUR", 0.5)));
+
+    assertEquals(260.0, table.crossRate("EUR", "KES", MONDAY, 0), 1e-9);
+    assertEquals(1 / 130.0, table.crossRate("KES", "USD", MONDAY, 0), 1e-12);
+    assertTrue(Double.isNaN(table.crossRate("EUR", "GBP", MONDAY, 0)));
+  }
+
+  @Test
+  void testRejectsMalformedFeeds() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> FxRateFeed.parse(new BufferedReader(new StringReader("2024-03-11,KES\n"))));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> FxRateFeed.parse(new BufferedReader(new StringReader("2024-03-11,KES,-1\n"))));
+  }
+}
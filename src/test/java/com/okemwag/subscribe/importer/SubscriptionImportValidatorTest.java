@@ -0,0 +1,149 @@
+package com.okemwag.subscribe.importer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.okemwag.subscribe.enums.BillingCycle;
+import com.okemwag.subscribe.enums.ImportFormat;
+import com.okemwag.subscribe.enums.SubscriptionStatus;
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class SubscriptionImportValidatorTest {
+
+  private static final LocalDateTime NOW = LocalDateTime.of(2024, 6, 15, 12, 0);
+
+  private final SubscriptionImportValidator validator =
+      new SubscriptionImportValidator(
+          Map.of(
+              "ann@example.com", new SubscriptionImportValidator.CustomerRef(1, true),
+              "bob@example.com", new SubscriptionImportValidator.CustomerRef(2, true),
+              "old@example.com", new SubscriptionImportValidator.CustomerRef(3, false)),
+          List.of(
+              new SubscriptionImportValidator.PlanRef(10, "Basic", true, 0, BillingCycle.MONTHLY),
+              new SubscriptionImportValidator.PlanRef(11, "Pro", true, 14, BillingCycle.YEARLY)),
+          List.<long[]>of(new long[] {2, 10}),
+          NOW);
+
+  @Test
+  void testReadsCsvWithQuotedFields() throws Exception {
+    List<ImportRow> rows =
+        read(
+            ImportFormat.CSV,
+            "Customer,Plan,Start_Date\n"
+                + "ann@example.com,\"Basic\",2024-01-31\n"
+                + "\n"
+                + "\"a,b\",\"say \"\"hi\"\"\",\n"
+                + "too,few\n");
+
+    assertEquals(3, rows.size());
+    assertEquals(1, rows.get(0).rowNumber());
+    assertEquals("Basic", rows.get(0).field("plan"));
+    assertEquals("2024-01-31", rows.get(0).field("startdate"));
+    // The blank line still counts, so row numbers match the file
+    assertEquals(3, rows.get(1).rowNumber());
+    assertEquals("a,b", rows.get(1).field("customer"));
+    assertEquals("say \"hi\"", rows.get(1).field("plan"));
+    assertNull(rows.get(1).field("startdate"));
+    assertNotNull(rows.get(2).parseError());
+  }
+
+  @Test
+  void testReadsNdjson() throws Exception {
+    List<ImportRow> rows =
+        read(
+            ImportFormat.NDJSON,
+            "{\"customer\":\"ann@example.com\",\"plan\":10,\"end_date\":null}\n"
+                + "[1,2]\n"
+                + "{\n");
+
+    assertEquals(3, rows.size());
+    assertEquals("10", rows.get(0).field("plan"));
+    assertNull(rows.get(0).field("enddate"));
+    assertNotNull(rows.get(1).parseError());
+    assertNotNull(rows.get(2).parseError());
+  }
+
+  @Test
+  void testDefaultsFollowThePlan() {
+    SubscriptionImportValidator.Result basic =
+        validator.validate(row(1, "ANN@example.com", "basic", "2024-01-31", null));
+    assertNull(basic.error());
+    assertEquals(SubscriptionStatus.ACTIVE, basic.subscription().status());
+    // Billing carries on from the start date, month ends clamped as plusMonths does
+    assertEquals(LocalDateTime.of(2024, 6, 29, 0, 0), basic.subscription().nextBillingDate());
+
+    SubscriptionImportValidator.Result pro =
+        validator.validate(row(2, "ann@example.com", "11", "2024-06-10", null));
+    assertEquals(SubscriptionStatus.TRIAL, pro.subscription().status());
+    assertEquals(LocalDateTime.of(2024, 6, 24, 0, 0), pro.subscription().endDate());
+  }
+
+  @Test
+  void testRejectsInvalidRows() {
+    assertNotNull(validator.validate(row(1, "nobody@example.com", "Basic", null, null)).error());
+    assertNotNull(validator.validate(row(2, "old@example.com", "Basic", null, null)).error());
+    assertNotNull(validator.validate(row(3, "ann@example.com", "Gold", null, null)).error());
+    assertNotNull(
+        validator.validate(row(4, "ann@example.com", "Basic", "2024-07-01", null)).error());
+    assertNotNull(validator.validate(row(5, "ann@example.com", "Basic", "June", null)).error());
+    assertNotNull(
+        validator.validate(row(6, "ann@example.com", "Basic", "2024-01-01", "CANCELLED")).error());
+  }
+
+  @Test
+  void testClaimsOneOpenSubscriptionPerCustomerAndPlan() {
+    assertNotNull(claim(row(1, "bob@example.com", "Basic", null, null)).error());
+    assertNull(claim(row(2, "ann@example.com", "Basic", null, null)).error());
+    assertNotNull(claim(row(3, "ann@example.com", "Basic", null, null)).error());
+
+    ImportRow ended =
+        new ImportRow(
+            4,
+            Map.of(
+                "customer", "ann@example.com",
+                "plan", "Basic",
+                "status", "expired",
+                "startdate", "2024-01-01",
+                "enddate", "2024-03-01"),
+            null);
+    assertNull(claim(ended).error());
+  }
+
+  private SubscriptionImportValidator.Result claim(ImportRow row) {
+    return validator.claim(validator.validate(row));
+  }
+
+  private static ImportRow row(
+      long rowNumber, String customer, String plan, String startDate, String status) {
+    Map<String, String> fields = new HashMap<>();
+    fields.put("customer", customer);
+    fields.put("plan", plan);
+    if (startDate != null) {
+      fields.put("startdate", startDate);
+    }
+    if (status != null) {
+      fields.put("status", status);
+    }
+    return new ImportRow(rowNumber, fields, null);
+  }
+
+  private static List<ImportRow> read(ImportFormat format, String content) throws Exception {
+    List<ImportRow> rows = new ArrayList<>();
+    try (ImportRowReader reader =
+        new ImportRowReader(
+            format, new BufferedReader(new StringReader(content)), new ObjectMapper())) {
+      ImportRow row;
+      while ((row = reader.next()) != null) {
+        rows.add(row);
+      }
+    }
+    return rows;
+  }
+}
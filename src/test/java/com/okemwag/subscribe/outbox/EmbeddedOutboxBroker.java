@@ -0,0 +1,33 @@
+package com.okemwag.subscribe.outbox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** In-memory stand-in for the message broker, routing each message to a queue per routing key */
+class EmbeddedOutboxBroker implements OutboxBroker {
+
+  private final Map<String, List<OutboxMessage>> queues = new ConcurrentHashMap<>();
+  private volatile boolean down;
+
+  @Override
+  public void send(List<OutboxMessage> messages) {
+    if (down) {
+      throw new IllegalStateException("Broker unavailable");
+    }
+    for (OutboxMessage message : messages) {
+      queues
+          .computeIfAbsent(RabbitOutboxBroker.routingKey(message), k -> new ArrayList<>())
+          .add(message);
+    }
+  }
+
+  List<OutboxMessage> queue(String routingKey) {
+    return queues.getOrDefault(routingKey, List.of());
+  }
+
+  void setDown(boolean down) {
+    this.down = down;
+  }
+}
@@ -0,0 +1,68 @@
+package com.okemwag.subscribe.outbox;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.okemwag.subscribe.enums.SubscriptionStatus;
+import com.okemwag.subscribe.event.SubscriptionEvent;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+class SubscriptionEventStreamTest {
+
+  private final EmbeddedOutboxBroker broker = new EmbeddedOutboxBroker();
+  private final SubscriptionEventStream stream = new SubscriptionEventStream(Optional.of(broker));
+
+  @Test
+  void testDeliversInOrderToBrokerAndConsumers() {
+    List<Long> received = new ArrayList<>();
+    stream.subscribe(
+        message -> {
+          throw new IllegalStateException("broken consumer");
+        });
+    stream.subscribe(message -> received.add(message.id()));
+
+    stream.publish(List.of(message(1, "CREATED"), message(2, "CANCELLED"), message(3, "CREATED")));
+
+    assertEquals(List.of(1L, 2L, 3L), received);
+    assertEquals(2, broker.queue("subscription.created").size());
+    assertEquals(3L, broker.queue("subscription.created").get(1).id());
+    assertEquals(1, broker.queue("subscription.cancelled").size());
+  }
+
+  @Test
+  void testBrokerFailureDeliversNothingInProcess() {
+    List<Long> received = new ArrayList<>();
+    stream.subscribe(message -> received.add(message.id()));
+    broker.setDown(true);
+
+    assertThrows(IllegalStateException.class, () -> stream.publish(List.of(message(1, "CREATED"))));
+    assertTrue(received.isEmpty());
+
+    broker.setDown(false);
+    stream.publish(List.of(message(1, "CREATED")));
+    assertEquals(List.of(1L), received);
+  }
+
+  @Test
+  void testTrialConversionHasItsOwnType() {
+    assertEquals(
+        SubscriptionOutbox.TRIAL_CONVERTED,
+        SubscriptionOutbox.eventType(event(SubscriptionStatus.TRIAL, SubscriptionStatus.ACTIVE)));
+    assertEquals(
+        "UPDATED",
+        SubscriptionOutbox.eventType(
+            event(SubscriptionStatus.SUSPENDED, SubscriptionStatus.ACTIVE)));
+  }
+
+  private static OutboxMessage message(long id, String type) {
+    return new OutboxMessage(id, 1L, 10L + id, type, "{}", LocalDateTime.now());
+  }
+
+  private static SubscriptionEvent event(SubscriptionStatus from, SubscriptionStatus to) {
+    return new SubscriptionEvent(
+        SubscriptionEvent.Type.UPDATED, 1L, 2L, 3L, 4L, from, to, LocalDateTime.now());
+  }
+}
@@ -0,0 +1,65 @@
+package com.okemwag.subscribe.pagination;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.okemwag.subscribe.dto.CursorPageDTO;
+import com.okemwag.subscribe.exception.SubscribeException;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.SliceImpl;
+
+class KeysetPagesTest {
+
+  private record Row(long id, LocalDateTime createdAt) {}
+
+  @Test
+  void testCursorRoundTrips() {
+    KeysetCursor cursor =
+        new KeysetCursor(LocalDateTime.of(2024, 6, 15, 12, 0, 30, 123_456_000), 42);
+    String token = cursor.encode();
+
+    assertFalse(token.contains("2024"));
+    assertEquals(cursor, KeysetCursor.decode(token));
+    assertEquals(KeysetCursor.FIRST, KeysetCursor.decode(null));
+    assertEquals(KeysetCursor.FIRST, KeysetCursor.decode(" "));
+    assertThrows(SubscribeException.class, () -> KeysetCursor.decode("not a cursor"));
+    assertThrows(SubscribeException.class, () -> KeysetCursor.decode("bm8tc2VwYXJhdG9y"));
+  }
+
+  @Test
+  void testPageCarriesTheCursorOfItsLastRow() {
+    LocalDateTime noon = LocalDateTime.of(2024, 6, 15, 12, 0);
+    List<Row> rows = List.of(new Row(9, noon), new Row(7, noon.minusMinutes(1)));
+
+    CursorPageDTO<Long> page =
+        KeysetPages.toPage(
+            new SliceImpl<>(rows, KeysetPages.limit(2), true),
+            Row::id,
+            Row::createdAt,
+            Row::id,
+            () -> 10);
+
+    assertEquals(List.of(9L, 7L), page.getItems());
+    assertTrue(page.isHasNext());
+    assertEquals(
+        new KeysetCursor(noon.minusMinutes(1), 7), KeysetCursor.decode(page.getNextCursor()));
+    assertEquals(10L, page.getTotalCount());
+
+    CursorPageDTO<Long> last =
+        KeysetPages.toPage(
+            new SliceImpl<>(rows, KeysetPages.limit(5), false),
+            Row::id,
+            Row::createdAt,
+            Row::id,
+            null);
+    assertNull(last.getNextCursor());
+    assertNull(last.getTotalCount());
+  }
+
+  @Test
+  void testLimitIsClamped() {
+    assertEquals(1, KeysetPages.limit(0).getPageSize());
+    assertEquals(KeysetPages.MAX_PAGE_SIZE, KeysetPages.limit(100_000).getPageSize());
+  }
+}
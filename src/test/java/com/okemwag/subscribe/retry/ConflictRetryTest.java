@@ -0,0 +1,91 @@
+package com.okemwag.subscribe.retry;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.okemwag.subscribe.exception.SubscribeException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+class ConflictRetryTest {
+
+  private final AtomicInteger rollbacks = new AtomicInteger();
+  private final ConflictRetry retry = new ConflictRetry(3, Duration.ZERO, new NoOpTransactions());
+
+  @Test
+  void testRetriesConflictsInFreshTransactions() {
+    AtomicInteger attempts = new AtomicInteger();
+
+    String result =
+        retry.inTransaction(
+            "test",
+            status -> {
+              if (attempts.incrementAndGet() < 3) {
+                throw new SubscribeException("Failed to renew subscription", conflict());
+              }
+              return "done";
+            });
+
+    assertEquals("done", result);
+    assertEquals(3, attempts.get());
+    assertEquals(2, rollbacks.get());
+  }
+
+  @Test
+  void testGivesUpAfterMaxAttempts() {
+    AtomicInteger attempts = new AtomicInteger();
+
+    assertThrows(
+        ObjectOptimisticLockingFailureException.class,
+        () ->
+            retry.inTransaction(
+                "test",
+                status -> {
+                  attempts.incrementAndGet();
+                  throw conflict();
+                }));
+    assertEquals(3, attempts.get());
+  }
+
+  @Test
+  void testOtherFailuresAreNotRetried() {
+    AtomicInteger attempts = new AtomicInteger();
+
+    assertThrows(
+        SubscribeException.class,
+        () ->
+            retry.inTransaction(
+                "test",
+                status -> {
+                  attempts.incrementAndGet();
+                  throw new SubscribeException("Subscription is already cancelled");
+                }));
+    assertEquals(1, attempts.get());
+    assertFalse(ConflictRetry.isConflict(new IllegalStateException(new RuntimeException())));
+  }
+
+  private static ObjectOptimisticLockingFailureException conflict() {
+    return new ObjectOptimisticLockingFailureException("Subscription", 1L);
+  }
+
+  private class NoOpTransactions implements PlatformTransactionManager {
+
+    @Override
+    public TransactionStatus getTransaction(TransactionDefinition definition) {
+      return new SimpleTransactionStatus();
+    }
+
+    @Override
+    public void commit(TransactionStatus status) {}
+
+    @Override
+    public void rollback(TransactionStatus status) {
+      rollbacks.incrementAndGet();
+    }
+  }
+}
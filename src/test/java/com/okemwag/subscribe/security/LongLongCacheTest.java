@@ -0,0 +1,47 @@
+package com.okemwag.subscribe.security;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class LongLongCacheTest {
+
+  @Test
+  void testPutGetAndRemove() {
+    LongLongCache cache = new LongLongCache(1000);
+    assertTrue(cache.capacity() >= 1000);
+    assertEquals(LongLongCache.MISSING, cache.get(7));
+
+    cache.put(7, 42);
+    cache.put(8, 43);
+    cache.put(7, 44);
+    assertEquals(44, cache.get(7));
+    assertEquals(43, cache.get(8));
+
+    cache.remove(7);
+    assertEquals(LongLongCache.MISSING, cache.get(7));
+    cache.clear();
+    assertEquals(LongLongCache.MISSING, cache.get(8));
+    assertThrows(IllegalArgumentException.class, () -> cache.put(0, 1));
+  }
+
+  @Test
+  void testStaysWithinCapacity() {
+    LongLongCache cache = new LongLongCache(64);
+    for (long id = 1; id <= 10_000; id++) {
+      cache.put(id, id * 10);
+    }
+
+    int cached = 0;
+    for (long id = 1; id <= 10_000; id++) {
+      long value = cache.get(id);
+      if (value != LongLongCache.MISSING) {
+        assertEquals(id * 10, value);
+        cached++;
+      }
+    }
+    assertTrue(cached <= cache.capacity());
+    // The latest entries displace older ones
+    assertEquals(100_000, cache.get(10_000));
+  }
+}
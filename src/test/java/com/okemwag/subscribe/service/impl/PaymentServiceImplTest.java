@@ -0,0 +1,162 @@
+package com.okemwag.subscribe.service.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.okemwag.subscribe.dto.PaymentDTO;
+import com.okemwag.subscribe.dto.PaymentRequestDTO;
+import com.okemwag.subscribe.entity.Business;
+import com.okemwag.subscribe.entity.Customer;
+import com.okemwag.subscribe.entity.Invoice;
+import com.okemwag.subscribe.entity.Payment;
+import com.okemwag.subscribe.entity.Subscription;
+import com.okemwag.subscribe.enums.PaymentMethod;
+import com.okemwag.subscribe.enums.PaymentStatus;
+import com.okemwag.subscribe.repository.InvoiceRepository;
+import com.okemwag.subscribe.repository.PaymentRepository;
+import com.okemwag.subscribe.repository.SubscriptionRepository;
+import com.okemwag.subscribe.security.OwnershipIndex;
+import com.okemwag.subscribe.service.interfaces.InvoiceService;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+class PaymentServiceImplTest {
+
+  private final List<Payment> payments = new ArrayList<>();
+  private final List<Long> paidInvoices = new ArrayList<>();
+  private final Deque<PaymentStatus> gatewayResults = new ArrayDeque<>();
+
+  private final Subscription subscription = subscription();
+  private final Invoice invoice = invoice(subscription);
+  private final PaymentServiceImpl paymentService = paymentService();
+
+  @Test
+  void testRetriedFirstChargeSettlesItsInvoice() {
+    gatewayResults.add(PaymentStatus.FAILED);
+    gatewayResults.add(PaymentStatus.COMPLETED);
+
+    PaymentDTO charge = paymentService.processPayment(request(invoice.getId()));
+    assertEquals(PaymentStatus.FAILED, charge.getStatus());
+    assertEquals(invoice.getId(), charge.getInvoiceId());
+    assertTrue(paidInvoices.isEmpty());
+
+    paymentService.processFailedPaymentRetries();
+    assertEquals(PaymentStatus.COMPLETED, payments.get(0).getStatus());
+    assertEquals(List.of(invoice.getId()), paidInvoices);
+  }
+
+  @Test
+  void testPaymentWithoutInvoiceSettlesNothing() {
+    gatewayResults.add(PaymentStatus.COMPLETED);
+
+    PaymentDTO charge = paymentService.processPayment(request(null));
+    assertEquals(PaymentStatus.COMPLETED, charge.getStatus());
+    assertNull(charge.getInvoiceId());
+    assertTrue(paidInvoices.isEmpty());
+  }
+
+  private PaymentServiceImpl paymentService() {
+    PaymentRepository paymentRepository =
+        fake(
+            PaymentRepository.class,
+            Map.of(
+                "save",
+                args -> {
+                  Payment payment = (Payment) args[0];
+                  if (payment.getId() == null) {
+                    payment.setId((long) payments.size() + 1);
+                    payments.add(payment);
+                  }
+                  return payment;
+                },
+                "findStalePaymentsByStatus",
+                args ->
+                    payments.stream().filter(payment -> payment.getStatus() == args[0]).toList()));
+    SubscriptionRepository subscriptionRepository =
+        fake(SubscriptionRepository.class, Map.of("findById", args -> Optional.of(subscription)));
+    InvoiceRepository invoiceRepository =
+        fake(
+            InvoiceRepository.class,
+            Map.of(
+                "findById",
+                args -> Optional.of(invoice).filter(found -> found.getId().equals(args[0]))));
+    InvoiceService invoiceService =
+        fake(
+            InvoiceService.class,
+            Map.of(
+                "markInvoiceAsPaid",
+                args -> {
+                  paidInvoices.add((Long) args[0]);
+                  return null;
+                }));
+
+    return new PaymentServiceImpl(
+        paymentRepository,
+        subscriptionRepository,
+        invoiceRepository,
+        invoiceService,
+        new OwnershipIndex(null, null, null, null, 16),
+        event -> {}) {
+      @Override
+      PaymentResult processPaymentThroughGateway(PaymentRequestDTO dto, Payment payment) {
+        PaymentResult result = new PaymentResult();
+        result.setStatus(gatewayResults.remove());
+        result.setTransactionId("test_" + payment.getId());
+        return result;
+      }
+    };
+  }
+
+  private static PaymentRequestDTO request(Long invoiceId) {
+    PaymentRequestDTO request = new PaymentRequestDTO();
+    request.setSubscriptionId(3L);
+    request.setAmount(new BigDecimal("29.99"));
+    request.setCurrency("USD");
+    request.setMethod(PaymentMethod.STRIPE_CARD);
+    request.setInvoiceId(invoiceId);
+    return request;
+  }
+
+  private static Subscription subscription() {
+    Business business = new Business();
+    business.setId(1L);
+    Customer customer = new Customer();
+    customer.setId(2L);
+    customer.setBusiness(business);
+    Subscription subscription = new Subscription();
+    subscription.setId(3L);
+    subscription.setBusinessId(1L);
+    subscription.setCustomer(customer);
+    return subscription;
+  }
+
+  private static Invoice invoice(Subscription subscription) {
+    Invoice invoice = new Invoice();
+    invoice.setId(4L);
+    invoice.setSubscription(subscription);
+    return invoice;
+  }
+
+  /** An implementation of the interface answering the named methods, and failing on the others */
+  @SuppressWarnings("unchecked")
+  private static <T> T fake(Class<T> type, Map<String, Function<Object[], Object>> answers) {
+    return (T)
+        Proxy.newProxyInstance(
+            type.getClassLoader(),
+            new Class<?>[] {type},
+            (proxy, method, args) -> {
+              Function<Object[], Object> answer = answers.get(method.getName());
+              if (answer == null) {
+                throw new UnsupportedOperationException(method.getName());
+              }
+              return answer.apply(args);
+            });
+  }
+}
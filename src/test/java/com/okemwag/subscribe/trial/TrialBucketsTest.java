@@ -0,0 +1,67 @@
+package com.okemwag.subscribe.trial;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class TrialBucketsTest {
+
+  private static final LocalDateTime NOON = LocalDateTime.of(2024, 6, 15, 12, 0);
+
+  private final TrialBuckets buckets = new TrialBuckets();
+
+  @Test
+  void testTrialsWaitForTheMinuteAfterTheyEnd() {
+    assertEquals(NOON, TrialBuckets.slot(NOON));
+    assertEquals(NOON.plusMinutes(1), TrialBuckets.slot(NOON.plusSeconds(1)));
+
+    buckets.schedule(1, NOON.plusSeconds(30));
+    assertTrue(trials(NOON.plusSeconds(59), 10).isEmpty());
+    assertEquals(List.of(1L), trials(NOON.plusMinutes(1), 10));
+    assertEquals(0, buckets.size());
+  }
+
+  @Test
+  void testTakesEarliestSlotsFirstAndCarriesOverTheRest() {
+    buckets.schedule(3, NOON.plusMinutes(2));
+    buckets.schedule(1, NOON);
+    buckets.schedule(2, NOON);
+    buckets.schedule(4, NOON.plusMinutes(5));
+
+    assertEquals(List.of(1L, 2L), trials(NOON.plusMinutes(3), 2));
+    assertEquals(List.of(3L), trials(NOON.plusMinutes(3), 2));
+    assertTrue(trials(NOON.plusMinutes(3), 2).isEmpty());
+    assertEquals(1, buckets.size());
+  }
+
+  @Test
+  void testDueTrialsAreGroupedBySlot() {
+    buckets.schedule(1, NOON);
+    buckets.schedule(2, NOON.plusSeconds(30));
+    buckets.schedule(3, NOON.plusSeconds(45));
+
+    assertEquals(
+        List.of(
+            new TrialBuckets.Slot(NOON, List.of(1L)),
+            new TrialBuckets.Slot(NOON.plusMinutes(1), List.of(2L, 3L))),
+        buckets.takeDue(NOON.plusMinutes(1), 10));
+  }
+
+  @Test
+  void testReschedulingMovesTheTrial() {
+    buckets.schedule(1, NOON);
+    buckets.schedule(1, NOON.plusMinutes(10));
+    buckets.schedule(2, NOON);
+    buckets.remove(2);
+
+    assertEquals(1, buckets.size());
+    assertTrue(trials(NOON.plusMinutes(9), 10).isEmpty());
+    assertEquals(List.of(1L), trials(NOON.plusMinutes(10), 10));
+  }
+
+  private List<Long> trials(LocalDateTime now, int limit) {
+    return buckets.takeDue(now, limit).stream().flatMap(slot -> slot.trials().stream()).toList();
+  }
+}
@@ -0,0 +1,77 @@
+package com.okemwag.subscribe.usage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.okemwag.subscribe.repository.UsageDelta;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class UsageAccumulatorTest {
+
+  private static final LocalDateTime HOUR = LocalDateTime.of(2024, 6, 15, 12, 0);
+
+  private final UsageAccumulator accumulator = new UsageAccumulator(8);
+
+  @Test
+  void testSumsPerSubscriptionAndHour() {
+    accumulator.add(1, HOUR, 5, 1);
+    accumulator.add(1, HOUR, 7, 1);
+    accumulator.add(1, HOUR.plusHours(1), 2, 1);
+    accumulator.add(2, HOUR, 3, 1);
+    assertEquals(3, accumulator.size());
+
+    List<UsageDelta> deltas = sorted(accumulator.drain());
+    assertEquals(
+        List.of(
+            new UsageDelta(1, HOUR, 12, 2),
+            new UsageDelta(1, HOUR.plusHours(1), 2, 1),
+            new UsageDelta(2, HOUR, 3, 1)),
+        deltas);
+    assertEquals(0, accumulator.size());
+    assertTrue(accumulator.drain().isEmpty());
+  }
+
+  @Test
+  void testRestoredDeltasMergeWithNewUsage() {
+    accumulator.add(1, HOUR, 5, 1);
+    List<UsageDelta> failed = accumulator.drain();
+    accumulator.add(1, HOUR, 2, 1);
+    accumulator.restore(failed);
+
+    assertEquals(List.of(new UsageDelta(1, HOUR, 7, 2)), accumulator.drain());
+  }
+
+  @Test
+  void testConcurrentAddsAreNotLost() throws InterruptedException {
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    for (int thread = 0; thread < 4; thread++) {
+      pool.execute(
+          () -> {
+            for (int i = 0; i < 10_000; i++) {
+              accumulator.add(1 + i % 50, HOUR, 1, 1);
+            }
+          });
+    }
+    pool.shutdown();
+    assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+    List<UsageDelta> deltas = accumulator.drain();
+    assertEquals(50, deltas.size());
+    assertEquals(40_000, deltas.stream().mapToLong(UsageDelta::quantity).sum());
+  }
+
+  private static List<UsageDelta> sorted(List<UsageDelta> deltas) {
+    List<UsageDelta> copy = new ArrayList<>(deltas);
+    copy.sort(
+        (a, b) ->
+            a.subscriptionId() != b.subscriptionId()
+                ? Long.compare(a.subscriptionId(), b.subscriptionId())
+                : a.periodStart().compareTo(b.periodStart()));
+    return copy;
+  }
+}